@@ -0,0 +1,22 @@
+package com.michaelcao.bookstore_backend.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Timeout riêng của một endpoint xử lý bất đồng bộ (StreamingResponseBody, Callable...), thay cho timeout
+ * async mặc định của Tomcat (30s) chỉ trên endpoint đó. Xem AsyncTimeoutInterceptor.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AsyncTimeout {
+
+    /**
+     * Thời lượng dạng 30m, 90s... hoặc placeholder, ví dụ "${app.export.request-timeout:30m}".
+     */
+    String value();
+}
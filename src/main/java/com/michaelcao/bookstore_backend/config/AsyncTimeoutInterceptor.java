@@ -0,0 +1,44 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Áp dụng @AsyncTimeout của handler trước khi request chuyển sang xử lý bất đồng bộ
+ * (lúc này AsyncContext chưa bắt đầu nên timeout vẫn đổi được).
+ */
+public class AsyncTimeoutInterceptor implements CallableProcessingInterceptor {
+
+    private final Environment environment;
+    private final Map<Method, Optional<Long>> timeouts = new ConcurrentHashMap<>();
+
+    public AsyncTimeoutInterceptor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (!(request instanceof AsyncWebRequest asyncWebRequest)
+                || !(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST) instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        timeouts.computeIfAbsent(handlerMethod.getMethod(), method -> Optional
+                        .ofNullable(handlerMethod.getMethodAnnotation(AsyncTimeout.class))
+                        .map(timeout -> DurationStyle.detectAndParse(
+                                environment.resolveRequiredPlaceholders(timeout.value())).toMillis()))
+                .ifPresent(asyncWebRequest::setTimeout);
+    }
+}
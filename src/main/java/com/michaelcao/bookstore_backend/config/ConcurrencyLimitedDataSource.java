@@ -0,0 +1,125 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Giới hạn số thread đồng thời giữ connection JDBC bằng một Semaphore công bằng (FIFO), đặt trước pool HikariCP.
+ *
+ * Ở chế độ virtual thread số request đồng thời không còn bị chặn bởi pool thread Tomcat: hàng nghìn virtual thread
+ * có thể cùng chờ connection. Semaphore xếp hàng chúng trước khi vào pool (không tranh nhau trong Hikari, không
+ * giữ carrier thread), báo lỗi rõ ràng khi chờ quá acquire-timeout và cho biết độ dài hàng đợi qua metric.
+ *
+ * Thread đã giữ permit (ví dụ transaction REQUIRES_NEW lồng bên trong) lấy thêm connection không cần permit mới,
+ * tránh tự deadlock khi mọi permit đều đang bị giữ bởi các thread chờ connection thứ hai.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long acquireTimeoutMillis;
+    private final ThreadLocal<int[]> heldByThread = ThreadLocal.withInitial(() -> new int[1]);
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxPermits, long acquireTimeoutMillis) {
+        super(target);
+        this.maxPermits = Math.max(1, maxPermits);
+        this.permits = new Semaphore(this.maxPermits, true);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return limit(obtainTargetDataSource()::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return limit(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    private Connection limit(ConnectionSupplier supplier) throws SQLException {
+        int[] held = heldByThread.get();
+        if (held[0] > 0) {
+            return supplier.get(); // Connection lồng nhau: permit của connection ngoài đã tính cho thread này
+        }
+        acquire();
+        try {
+            Connection connection = supplier.get();
+            held[0]++;
+            return releasingOnClose(connection, held);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(String.format(
+                        "Timed out after %d ms waiting for a JDBC permit (%d in use, %d threads waiting)",
+                        acquireTimeoutMillis, maxPermits - permits.availablePermits(), permits.getQueueLength()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a JDBC permit", e);
+        }
+    }
+
+    // Trả permit đúng một lần khi connection được đóng (trả về pool)
+    private Connection releasingOnClose(Connection connection, int[] held) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            held[0]--; // Bộ đếm của thread đã mở connection, kể cả khi đóng ở thread khác
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if ("unwrap".equals(method.getName()) && ((Class<?>) args[0]).isInstance(connection)) {
+                        return connection;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,23 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics tầng persistence. Thống kê Hibernate (statements, entity loads, second-level cache hit/miss...)
+ * được Spring Boot tự xuất khi bật spring.jpa.properties.hibernate.generate_statistics; pool HikariCP
+ * (hikaricp.connections.*) được xuất tự động. Ở đây đăng ký phần thống kê SQL theo request (xem RequestSqlStats).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer requestSqlStatsCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlTimingSessionListener.class.getName());
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * TransactionTemplate mà transaction read-only cũng đọc từ primary (không bao giờ từ replica).
+ *
+ * Dùng cho job nền dựng cache/index và export: chúng chạy ngoài request nên không có ReadYourWritesFilter
+ * ép về primary, và đọc từ replica đang lag sẽ dựng snapshot thiếu dữ liệu vừa ghi.
+ * Khi read replica tắt, hành vi giống TransactionTemplate thường.
+ */
+public class PrimaryTransactionTemplate extends TransactionTemplate {
+
+    public PrimaryTransactionTemplate(PlatformTransactionManager transactionManager) {
+        super(transactionManager);
+    }
+
+    @Override
+    public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+        return ReadReplicaRoutingDataSource.callOnPrimary(() -> super.execute(action));
+    }
+}
@@ -0,0 +1,104 @@
+package com.michaelcao.bookstore_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica (bật bằng app.datasource.replicas.enabled=true): transaction @Transactional(readOnly = true)
+ * đọc từ các replica trong app.datasource.replicas.urls, phần còn lại dùng primary spring.datasource.*.
+ * Khi tắt, DataSource do Spring Boot tự cấu hình như cũ.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    // Primary giữ nguyên cấu hình spring.datasource.* và spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${app.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${app.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${app.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${app.datasource.replicas.connection-timeout-ms:2000}") long connectionTimeoutMillis,
+            @Value("${app.datasource.replicas.max-lag-seconds:5}") long maxLagSeconds,
+            @Value("${app.datasource.replicas.lag-query:SHOW REPLICA STATUS}") String lagQuery) {
+        // urls[0]=..., urls[1]=... cho URL có dấu phẩy; hoặc một dòng phân tách bằng dấu phẩy
+        List<String> urls = Binder.get(environment)
+                .bind("app.datasource.replicas.urls", Bindable.listOf(String.class))
+                .orElse(List.of());
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setReadOnly(true);
+            // Replica chưa sẵn sàng không được làm app không khởi động được: health check sẽ loại nó
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("app.datasource.replicas.enabled=true requires at least one URL in app.datasource.replicas.urls");
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, replicas, maxLagSeconds, lagQuery, meterRegistry);
+    }
+
+    // Connection thật được lấy ở câu lệnh đầu tiên, khi cờ read-only của transaction đã có (xem ReadReplicaRoutingDataSource)
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${app.datasource.replicas.sticky-window-ms:5000}") long stickyWindowMillis) {
+        return new ReadYourWritesFilter(stickyWindowMillis);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilterRegistration(ReadYourWritesFilter filter) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,239 @@
+package com.michaelcao.bookstore_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Định tuyến connection: transaction read-only đi tới một replica khỏe (round-robin), còn lại đi tới primary.
+ *
+ * Phải được bọc bởi LazyConnectionDataSourceProxy: connection thật chỉ được lấy ở câu lệnh đầu tiên, lúc đó
+ * cờ read-only của transaction đã được đặt (khi JpaTransactionManager mở transaction thì chưa).
+ *
+ * Replica bị loại khi health check lỗi, khi lag vượt max-lag-seconds hoặc khi lấy connection lỗi; không còn replica
+ * nào thì đọc từ primary. Request đang ghi hoặc của user vừa ghi (xem ReadYourWritesFilter) luôn đọc từ primary.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    public static final String READ_ROUTE = "bookstore.db.read.route";
+    public static final String REPLICA_LAG = "bookstore.db.replica.lag";
+    public static final String REPLICA_HEALTHY = "bookstore.db.replica.healthy";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagSeconds;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter toReplica;
+    private final Counter stickyToPrimary;
+    private final Counter fallbackToPrimary;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, long maxLagSeconds,
+                                        String lagQuery, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery == null ? "" : lagQuery.trim();
+        this.toReplica = routeCounter(meterRegistry, "replica", "replica");
+        this.stickyToPrimary = routeCounter(meterRegistry, "primary", "sticky");
+        this.fallbackToPrimary = routeCounter(meterRegistry, "primary", "unavailable");
+        for (Replica replica : replicas) {
+            Gauge.builder(REPLICA_LAG, replica, r -> r.lagSeconds)
+                    .description("Độ trễ replication của replica (giây, -1 nếu không đo được)")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+            Gauge.builder(REPLICA_HEALTHY, replica, r -> r.healthy ? 1 : 0)
+                    .description("1 nếu replica đang nhận truy vấn đọc")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Buộc mọi truy vấn của thread hiện tại (kể cả read-only) đi tới primary cho tới khi clearForcePrimary().
+     */
+    public static void forcePrimary() {
+        FORCE_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void clearForcePrimary() {
+        FORCE_PRIMARY.remove();
+    }
+
+    /**
+     * Chạy action với mọi truy vấn của thread hiện tại đi tới primary, rồi khôi phục trạng thái trước đó
+     * (không xóa cờ do ReadYourWritesFilter đặt khi được gọi lồng trong request).
+     */
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection connect(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return source.open(primary);
+        }
+        if (Boolean.TRUE.equals(FORCE_PRIMARY.get())) {
+            stickyToPrimary.increment();
+            return source.open(primary);
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = source.open(replica.pool);
+                toReplica.increment();
+                return connection;
+            } catch (SQLFeatureNotSupportedException e) {
+                // Lỗi của lời gọi (ví dụ pool không nhận username/password riêng), không phải của replica
+                throw e;
+            } catch (SQLException e) {
+                // Loại replica tới lần health check kế tiếp, thử replica khác
+                replica.healthy = false;
+                log.warn("Replica {} is unavailable, excluding it until the next health check: {}", replica.name, e.getMessage());
+            }
+        }
+        fallbackToPrimary.increment();
+        return source.open(primary);
+    }
+
+    /**
+     * Kiểm tra từng replica: lấy được connection và lag (nếu có lag-query) không vượt ngưỡng.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            boolean firstCheck = !replica.checked;
+            replica.checked = true;
+            try (Connection connection = replica.pool.getConnection()) {
+                long lag = lagQuery.isEmpty() ? 0 : readLagSeconds(connection);
+                replica.lagSeconds = lag;
+                replica.healthy = lag >= 0 && lag <= maxLagSeconds;
+                if (!replica.healthy && (wasHealthy || firstCheck)) {
+                    log.warn("Replica {} excluded from reads: replication lag {} s (max {} s)",
+                            replica.name, lag < 0 ? "unknown" : lag, maxLagSeconds);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.healthy = false;
+                replica.lagSeconds = -1;
+                if (wasHealthy || firstCheck) {
+                    log.warn("Replica {} failed health check: {}", replica.name, e.getMessage());
+                }
+            }
+            if (replica.healthy && !wasHealthy) {
+                log.info("Replica {} is serving reads (lag {} s)", replica.name, replica.lagSeconds);
+            }
+        }
+    }
+
+    // SHOW REPLICA STATUS (MySQL 8.0.22+) / SHOW SLAVE STATUS, hoặc một truy vấn trả về số giây ở cột đầu tiên.
+    // -1: không phải replica hoặc replication đang dừng (Seconds_Behind_Source = NULL).
+    private long readLagSeconds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return -1;
+            }
+            ResultSetMetaData metaData = rs.getMetaData();
+            int column = 1;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                    break;
+                }
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? -1 : lag;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    // Cho Boot tìm thấy pool Hikari của primary (metrics hikaricp.*, DataSourcePoolMetadata)
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? (T) this : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder(READ_ROUTE)
+                .description("Số connection của transaction read-only theo nơi được định tuyến")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource pool;
+        // Chưa kiểm tra thì chưa nhận truy vấn: lần health check đầu chạy ngay khi app khởi động
+        private volatile boolean healthy;
+        private volatile boolean checked;
+        private volatile long lagSeconds = -1;
+
+        private Replica(HikariDataSource pool) {
+            this.name = pool.getPoolName();
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.michaelcao.bookstore_backend.config;
+
+import com.michaelcao.bookstore_backend.entity.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-your-writes khi có read replica: request ghi (POST/PUT/PATCH/DELETE) đọc hoàn toàn từ primary, và trong
+ * sticky-window sau một lần ghi thành công, mọi request của cùng user cũng đọc từ primary (ví dụ xem lịch sử
+ * ngay sau createOrder) cho tới khi replica kịp bắt kịp.
+ *
+ * Trạng thái giữ trong bộ nhớ của từng instance; chạy nhiều instance thì cần sticky session ở load balancer.
+ * Đăng ký sau Spring Security để đọc được user hiện tại.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final long stickyWindowNanos;
+    private final Map<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesFilter(long stickyWindowMillis) {
+        this.stickyWindowNanos = Math.max(0, stickyWindowMillis) * 1_000_000L;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Long userId = currentUserId();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write || (userId != null && isSticky(userId))) {
+            ReadReplicaRoutingDataSource.forcePrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadReplicaRoutingDataSource.clearForcePrimary();
+            if (write && userId != null && response.getStatus() < 400) {
+                stickyUntil.put(userId, System.nanoTime() + stickyWindowNanos);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    private boolean isSticky(Long userId) {
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        stickyUntil.remove(userId, until);
+        return false;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.michaelcao.bookstore_backend.config;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Thống kê SQL (qua Hibernate) của request đang chạy trên thread hiện tại: số câu lệnh, thời gian thực thi JDBC
+ * và số lần lặp của từng "dạng" câu lệnh (để phát hiện N+1).
+ * Vòng đời do SqlStatementMetricsFilter quản lý; ngoài request (scheduler, outbox relay...) current() trả về null.
+ */
+public final class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_SHAPE_LENGTH = 300;
+
+    private long statements;
+    private long jdbcNanos;
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private boolean evaluated;
+
+    private RequestSqlStats() {
+    }
+
+    static RequestSqlStats begin() {
+        RequestSqlStats stats = new RequestSqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static RequestSqlStats current() {
+        return CURRENT.get();
+    }
+
+    void recordStatement(String sql) {
+        statements++;
+        shapes.merge(shape(sql), 1, Integer::sum);
+    }
+
+    void recordJdbcTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    /**
+     * Các dạng câu lệnh lặp lại nhiều nhất (count > 1), giảm dần.
+     */
+    public List<Map.Entry<String, Integer>> topRepeatedShapes(int limit) {
+        return shapes.entrySet().stream()
+                .filter(entry -> entry.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    // Budget chỉ được đánh giá một lần mỗi request (trước khi ghi body, hoặc lúc kết thúc nếu không có body)
+    boolean markEvaluated() {
+        boolean first = !evaluated;
+        evaluated = true;
+        return first;
+    }
+
+    // Gom các câu chỉ khác nhau ở độ dài danh sách IN (?, ?, ...) về cùng một dạng
+    private static String shape(String sql) {
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?...)");
+        return normalized.length() > MAX_SHAPE_LENGTH ? normalized.substring(0, MAX_SHAPE_LENGTH) + "..." : normalized;
+    }
+}
@@ -52,6 +52,9 @@ public class SecurityConfig {
                 // Public endpoints
                 .requestMatchers(PUBLIC_MATCHERS).permitAll()
                 
+                // Admin product endpoints (import/export jobs) must be matched before the public GET rule below
+                .requestMatchers("/api/products/admin/**").hasRole("ADMIN")
+
                 // Public GET endpoints for products and categories
                 .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
@@ -62,9 +65,12 @@ public class SecurityConfig {
                 .requestMatchers("/api/wishlist/**").hasRole("CUSTOMER")
                 
                 // Admin-specific endpoints
-                .requestMatchers("/api/products/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 
+                // Actuator: health is public (load balancer probes), metrics/prometheus are admin-only
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                
                 // User profile endpoints require any authenticated user
                 .requestMatchers("/api/profile/**").authenticated()
                 
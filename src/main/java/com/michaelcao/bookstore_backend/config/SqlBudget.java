@@ -0,0 +1,23 @@
+package com.michaelcao.bookstore_backend.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Số câu SQL (qua Hibernate) tối đa một request được phép chạy, đặt trên method hoặc class controller.
+ * Method không có annotation dùng app.sql-budget.default-max. Vượt budget: log cảnh báo kèm các câu lặp lại nhiều nhất,
+ * hoặc trả lỗi 500 khi app.sql-budget.fail-on-violation=true (bật trong profile test) để bắt N+1 ngay khi viết test.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SqlBudget {
+
+    /**
+     * Số câu lệnh tối đa (tính cả câu load user + roles của JwtAuthenticationFilter).
+     */
+    int value();
+}
@@ -0,0 +1,131 @@
+package com.michaelcao.bookstore_backend.config;
+
+import com.michaelcao.bookstore_backend.exception.SqlBudgetExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Kiểm tra budget SQL của request (xem @SqlBudget) và gắn header debug.
+ *
+ * Đánh giá ngay trước khi ghi body (lúc này service/transaction đã xong, header vẫn sửa được và có thể chuyển
+ * thành lỗi khi fail-on-violation); request không có body (204, stream...) được đánh giá lúc kết thúc, chỉ log.
+ */
+@ControllerAdvice
+@Slf4j
+public class SqlBudgetGuard implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+    public static final String BUDGET_EXCEEDED = "bookstore.http.sql.budget.exceeded";
+    private static final int TOP_SHAPES = 5;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int defaultMax;
+    private final boolean failOnViolation;
+    private final boolean debugHeaders;
+
+    public SqlBudgetGuard(MeterRegistry meterRegistry,
+                          @Value("${app.sql-budget.enabled:true}") boolean enabled,
+                          @Value("${app.sql-budget.default-max:30}") int defaultMax,
+                          @Value("${app.sql-budget.fail-on-violation:false}") boolean failOnViolation,
+                          @Value("${app.sql-budget.debug-headers:false}") boolean debugHeaders) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.defaultMax = defaultMax;
+        this.failOnViolation = failOnViolation;
+        this.debugHeaders = debugHeaders;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled || debugHeaders;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats == null || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+        if (debugHeaders) {
+            response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            response.getHeaders().set(TIME_HEADER, String.format(Locale.ROOT, "%.2f", stats.getJdbcNanos() / 1_000_000.0));
+        }
+        evaluate(servletRequest.getServletRequest(), stats, failOnViolation);
+        return body;
+    }
+
+    /**
+     * Gọi khi request kết thúc (SqlStatementMetricsFilter); bỏ qua nếu đã đánh giá trước khi ghi body.
+     */
+    void afterCompletion(HttpServletRequest request, RequestSqlStats stats) {
+        evaluate(request, stats, false);
+    }
+
+    private void evaluate(HttpServletRequest request, RequestSqlStats stats, boolean mayFail) {
+        if (!enabled || !stats.markEvaluated()) {
+            return;
+        }
+        int budget = budgetFor(request);
+        if (budget < 0 || stats.getStatements() <= budget) {
+            return;
+        }
+        String endpoint = request.getMethod() + " " + uriPattern(request);
+        List<Map.Entry<String, Integer>> top = stats.topRepeatedShapes(TOP_SHAPES);
+        String repeated = top.isEmpty() ? " none" : top.stream()
+                .map(entry -> entry.getValue() + "x " + entry.getKey())
+                .collect(Collectors.joining("\n  ", "\n  ", ""));
+        log.warn("SQL budget exceeded for {}: {} statements (budget {}), JDBC time {} ms. Top repeated statements:{}",
+                endpoint, stats.getStatements(), budget, stats.getJdbcNanos() / 1_000_000, repeated);
+        Counter.builder(BUDGET_EXCEEDED)
+                .description("Số request vượt @SqlBudget")
+                .tag("method", request.getMethod())
+                .tag("uri", uriPattern(request))
+                .register(meterRegistry)
+                .increment();
+        if (mayFail) {
+            throw new SqlBudgetExceededException(String.format("%s ran %d SQL statements, budget is %d",
+                    endpoint, stats.getStatements(), budget));
+        }
+    }
+
+    // -1 nếu request không đi qua controller (static, 404...) -> không áp budget
+    private int budgetFor(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return -1;
+        }
+        SqlBudget budget = handlerMethod.getMethodAnnotation(SqlBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), SqlBudget.class);
+        }
+        return budget != null ? budget.value() : defaultMax;
+    }
+
+    static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
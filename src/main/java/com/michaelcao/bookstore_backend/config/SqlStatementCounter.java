@@ -0,0 +1,20 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Ghi nhận mỗi câu SQL Hibernate chuẩn bị vào RequestSqlStats của request hiện tại.
+ * Ngoài request (job nền, scheduler) không ghi gì. Câu lệnh chạy qua JdbcTemplate không đi qua Hibernate
+ * nên không nằm trong số này.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null) {
+            stats.recordStatement(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,62 @@
+package com.michaelcao.bookstore_backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mở RequestSqlStats cho mỗi request và ghi kết quả vào bookstore.http.sql.statements / bookstore.http.sql.time
+ * (tag method + uri pattern như http.server.requests). Đứng trước Spring Security để tính cả câu lệnh của
+ * JwtAuthenticationFilter (load user + roles).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    public static final String SQL_STATEMENTS = "bookstore.http.sql.statements";
+    public static final String SQL_TIME = "bookstore.http.sql.time";
+
+    private final SqlBudgetGuard sqlBudgetGuard;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestSqlStats stats = RequestSqlStats.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestSqlStats.end();
+            // Dùng pattern của handler (/api/products/{id}) thay vì URI thật để không bùng nổ số time series
+            String uri = SqlBudgetGuard.uriPattern(request);
+            DistributionSummary.builder(SQL_STATEMENTS)
+                    .description("Số câu SQL (qua Hibernate) mỗi request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(stats.getStatements());
+            Timer.builder(SQL_TIME)
+                    .description("Tổng thời gian thực thi JDBC mỗi request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+            sqlBudgetGuard.afterCompletion(request, stats);
+        }
+    }
+}
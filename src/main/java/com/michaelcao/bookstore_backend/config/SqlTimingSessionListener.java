@@ -0,0 +1,40 @@
+package com.michaelcao.bookstore_backend.config;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Cộng thời gian thực thi JDBC (execute statement/batch) vào RequestSqlStats của request hiện tại.
+ * Hibernate tạo một instance cho mỗi Session (hibernate.session.events.auto), nên giữ trạng thái trong field là an toàn.
+ */
+public class SqlTimingSessionListener extends BaseSessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(batchStart);
+    }
+
+    private static void record(long start) {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null && start != 0) {
+            stats.recordJdbcTime(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.michaelcao.bookstore_backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Chế độ thread của ứng dụng.
+ *
+ * spring.threads.virtual.enabled=true (cần Java 21+) để Spring Boot chạy request Tomcat, executor @Async
+ * (applicationTaskExecutor) và job @Scheduled (taskScheduler) trên virtual thread; trên Java 17 property này
+ * không có tác dụng và app chạy platform thread như cũ. Khi virtual thread bật, DataSource được bọc bởi
+ * ConcurrencyLimitedDataSource để số thread cùng dùng JDBC không vượt kích thước pool.
+ */
+@Configuration
+@Slf4j
+public class ThreadingConfig {
+
+    public static final String JDBC_PERMITS_AVAILABLE = "bookstore.jdbc.permits.available";
+    public static final String JDBC_PERMITS_WAITING = "bookstore.jdbc.permits.waiting";
+
+    private final Environment environment;
+
+    public ThreadingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    // static: BeanPostProcessor phải được tạo trước các bean thường, không kéo theo ThreadingConfig
+    @Bean
+    static BeanPostProcessor jdbcConcurrencyLimiter(Environment environment) {
+        boolean enabled = environment.getProperty("app.jdbc.concurrency-limit.enabled", Boolean.class,
+                Threading.VIRTUAL.isActive(environment));
+        int permits = environment.getProperty("app.jdbc.concurrency-limit.permits", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        long acquireTimeoutMillis = environment.getProperty("app.jdbc.concurrency-limit.acquire-timeout-ms", Long.class,
+                environment.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30_000L));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    log.info("JDBC concurrency limit enabled: {} permits, acquire timeout {} ms", permits, acquireTimeoutMillis);
+                    return new ConcurrencyLimitedDataSource(dataSource, permits, acquireTimeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder jdbcConcurrencyLimiterMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> {
+            if (dataSource.getIfAvailable() instanceof ConcurrencyLimitedDataSource limited) {
+                Gauge.builder(JDBC_PERMITS_AVAILABLE, limited, ConcurrencyLimitedDataSource::getAvailablePermits)
+                        .description("Số permit JDBC còn trống")
+                        .register(registry);
+                Gauge.builder(JDBC_PERMITS_WAITING, limited, ConcurrencyLimitedDataSource::getWaitingThreads)
+                        .description("Số thread đang chờ permit JDBC")
+                        .register(registry);
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Request handling, @Async and @Scheduled run on virtual threads");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled=true requires Java 21+, running on platform threads (Java {})",
+                    Runtime.version().feature());
+        } else {
+            log.info("Request handling runs on platform threads (Tomcat max {} threads)",
+                    environment.getProperty("server.tomcat.threads.max", "200"));
+        }
+    }
+}
@@ -2,12 +2,25 @@ package com.michaelcao.bookstore_backend.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig {
 
+    // Timeout async riêng cho từng endpoint (@AsyncTimeout), không đổi timeout mặc định của mọi request
+    @Bean
+    public WebMvcConfigurer asyncTimeoutConfigurer(Environment environment) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new AsyncTimeoutInterceptor(environment));
+            }
+        };
+    }
+
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
@@ -1,18 +1,39 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.AsyncTimeout;
+import com.michaelcao.bookstore_backend.config.SqlBudget;
+import com.michaelcao.bookstore_backend.dto.order.BulkOrderStatusResultDTO;
+import com.michaelcao.bookstore_backend.dto.order.BulkUpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.dto.order.OrderCursorPageDTO;
 import com.michaelcao.bookstore_backend.dto.order.OrderDTO;
+import com.michaelcao.bookstore_backend.dto.order.OrderExpiryStatsDTO;
+import com.michaelcao.bookstore_backend.dto.order.OrderExportFormat;
 import com.michaelcao.bookstore_backend.dto.order.UpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.service.OrderArchiveService;
+import com.michaelcao.bookstore_backend.service.OrderExpiryService;
+import com.michaelcao.bookstore_backend.service.OrderExportService;
 import com.michaelcao.bookstore_backend.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/admin/orders") // Base path cho API quản lý đơn hàng của Admin
@@ -21,14 +42,22 @@ import java.util.UUID;
 public class AdminOrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderArchiveService orderArchiveService;
+    private final OrderExpiryService orderExpiryService;
     
-    public AdminOrderController(OrderService orderService) {
+    public AdminOrderController(OrderService orderService, OrderExportService orderExportService,
+                                OrderArchiveService orderArchiveService, OrderExpiryService orderExpiryService) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.orderArchiveService = orderArchiveService;
+        this.orderExpiryService = orderExpiryService;
     }
 
     /**
      * Endpoint cho Admin lấy danh sách tất cả đơn hàng (phân trang).
      */
+    @SqlBudget(8)
     @GetMapping
     public ResponseEntity<Page<OrderDTO>> getAllOrders(
             @PageableDefault(size = 15, sort = "orderDate", direction = org.springframework.data.domain.Sort.Direction.DESC) Pageable pageable) {
@@ -37,9 +66,22 @@ public class AdminOrderController {
         return ResponseEntity.ok(orderPage);
     }
 
+    /**
+     * Endpoint cho Admin lấy danh sách đơn hàng theo cursor (keyset), có thể lọc theo trạng thái.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<OrderCursorPageDTO> getAllOrdersByCursor(
+            @RequestParam(value = "status", required = false) OrderStatus status,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "15") int size) {
+        log.info("Admin request received to get orders by cursor (status {}, size {})", status, size);
+        return ResponseEntity.ok(orderService.getAllOrdersByCursor(status, cursor, size));
+    }
+
     /**
      * Endpoint cho Admin lấy chi tiết một đơn hàng bất kỳ.
      */
+    @SqlBudget(6)
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable UUID orderId) {
         log.info("Admin request received to get details for order ID: {}", orderId);
@@ -58,4 +100,86 @@ public class AdminOrderController {
         OrderDTO updatedOrder = orderService.updateOrderStatus(orderId, request);
         return ResponseEntity.ok(updatedOrder);
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint cho Admin/kho chuyển trạng thái nhiều đơn hàng cùng lúc (ví dụ: đánh dấu hàng trăm đơn SHIPPED).
+     * Trả về kết quả cho từng đơn; đơn không hợp lệ không làm hỏng cả lô.
+     */
+    // Số câu SQL không phụ thuộc số đơn: một SELECT ... FOR UPDATE, một UPDATE, một event outbox cho mỗi trạng thái nguồn
+    @SqlBudget(15)
+    @PostMapping("/status/bulk")
+    public ResponseEntity<BulkOrderStatusResultDTO> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkUpdateOrderStatusRequest request) {
+        log.info("Admin request received to update status of {} orders to {}", request.getOrderIds().size(), request.getStatus());
+        return ResponseEntity.ok(orderService.bulkUpdateOrderStatus(request));
+    }
+
+    /**
+     * Endpoint cho Admin chạy ngay một lượt lưu trữ đơn hàng cũ (bình thường chạy theo lịch app.archive.cron).
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Integer>> archiveOrders() {
+        log.info("Admin request received to run order archival");
+        int archived = orderArchiveService.archiveEligibleOrders();
+        return ResponseEntity.ok(Map.of("archivedOrders", archived));
+    }
+
+    /**
+     * Endpoint cho Admin chạy ngay một lượt hủy đơn chờ thanh toán quá hạn (bình thường chạy theo app.payment-expiry.interval-ms).
+     */
+    @PostMapping("/payment-expiry")
+    public ResponseEntity<Map<String, Integer>> sweepExpiredOrders() {
+        log.info("Admin request received to sweep expired pending-payment orders");
+        int swept = orderExpiryService.sweepExpiredOrders();
+        return ResponseEntity.ok(Map.of("cancelledOrders", swept));
+    }
+
+    /**
+     * Endpoint cho Admin xem số liệu của job hủy đơn quá hạn (số đơn đã hủy, số đơn vị tồn kho đã hoàn lại).
+     */
+    @GetMapping("/payment-expiry/stats")
+    public ResponseEntity<OrderExpiryStatsDTO> getExpiryStats() {
+        return ResponseEntity.ok(orderExpiryService.getStats());
+    }
+
+    /**
+     * Endpoint cho Admin export đơn hàng (mỗi order item một dòng) theo khoảng ngày và trạng thái.
+     * Dữ liệu được stream trực tiếp vào response, phù hợp để kết xuất hàng triệu đơn hàng.
+     * @param from Ngày bắt đầu (UTC, bao gồm).
+     * @param to Ngày kết thúc (UTC, bao gồm).
+     */
+    @GetMapping("/export")
+    @AsyncTimeout("${app.export.request-timeout:30m}")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) List<OrderStatus> statuses,
+            @RequestParam(value = "format", defaultValue = "CSV") OrderExportFormat format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        log.info("Admin request received to export orders from {} to {} (statuses {}, format {}, gzip {})",
+                from, to, statuses, format, gzip);
+        Instant fromInstant = from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        Instant toInstant = to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        List<OrderStatus> statusFilter = statuses != null ? statuses : List.of();
+
+        String fileName = "orders" + (from != null ? "-" + from : "") + (to != null ? "-" + to : "")
+                + (format == OrderExportFormat.CSV ? ".csv" : ".jsonl") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == OrderExportFormat.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true)) {
+                    orderExportService.exportOrders(fromInstant, toInstant, statusFilter, format, gzipOut);
+                }
+            } else {
+                orderExportService.exportOrders(fromInstant, toInstant, statusFilter, format, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+}
@@ -1,5 +1,6 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.SqlBudget;
 import com.michaelcao.bookstore_backend.dto.user.UpdateUserStatusRequest;
 import com.michaelcao.bookstore_backend.dto.user.UserManagementDTO;
 // Optional: import UpdateUserRolesRequest;
@@ -26,6 +27,7 @@ public class AdminUserController {
     /**
      * Endpoint cho Admin lấy danh sách tất cả người dùng (có phân trang và tìm kiếm).
      */
+    @SqlBudget(6)
     @GetMapping
     public ResponseEntity<Page<UserManagementDTO>> getAllUsers(
             @RequestParam(required = false) String keyword, // Tham số tìm kiếm (tùy chọn)
@@ -38,6 +40,7 @@ public class AdminUserController {
     /**
      * Endpoint cho Admin lấy chi tiết một người dùng theo ID.
      */
+    @SqlBudget(6)
     @GetMapping("/{userId}")
     public ResponseEntity<UserManagementDTO> getUserById(@PathVariable Long userId) {
         log.info("Admin request: Get user details for ID: {}", userId);
@@ -1,5 +1,6 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.SqlBudget;
 import com.michaelcao.bookstore_backend.dto.cart.AddToCartRequest;
 import com.michaelcao.bookstore_backend.dto.cart.CartDTO;
 import com.michaelcao.bookstore_backend.dto.cart.UpdateCartItemRequest;
@@ -40,6 +41,7 @@ public class CartController {
     /**
      * Endpoint để lấy giỏ hàng của người dùng hiện tại.
      */
+    @SqlBudget(8)
     @GetMapping
     public ResponseEntity<CartDTO> getUserCart() {
         Long userId = getCurrentUserId();
@@ -51,6 +53,7 @@ public class CartController {
     /**
      * Endpoint để thêm sản phẩm vào giỏ hàng.
      */
+    @SqlBudget(12)
     @PostMapping("/items")
     public ResponseEntity<CartDTO> addItemToCart(@Valid @RequestBody AddToCartRequest request) {
         Long userId = getCurrentUserId();
@@ -3,14 +3,18 @@ package com.michaelcao.bookstore_backend.controller;
 import com.michaelcao.bookstore_backend.dto.category.CategoryDTO;
 import com.michaelcao.bookstore_backend.dto.category.CreateCategoryRequest;
 import com.michaelcao.bookstore_backend.dto.category.UpdateCategoryRequest;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
 import com.michaelcao.bookstore_backend.service.CategoryService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus; // Import HttpStatus
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // Import PreAuthorize
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,6 +25,18 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersionService catalogVersionService;
+    private final CategorySnapshotService categorySnapshotService;
+
+    // Conditional GET cho danh mục: so sánh ETag với version của tập danh mục (một query PK, chung cho mọi instance).
+    // Snapshot chưa kịp nạp lại version đó thì không gắn ETag (nội dung trả về là của version cũ).
+    private boolean checkCategoriesNotModified(WebRequest webRequest) {
+        CatalogVersionService.Versions versions = catalogVersionService.read();
+        if (!categorySnapshotService.isFresh(versions.categoryVersion())) {
+            return false;
+        }
+        return webRequest.checkNotModified(versions.categoryListETag(), versions.categoriesLastModified());
+    }
 
     // --- Endpoint cho Admin ---
 
@@ -52,16 +68,22 @@ public class CategoryController {
     // --- Endpoint cho Public ---
 
     @GetMapping("/categories")
-    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
+    public ResponseEntity<List<CategoryDTO>> getAllCategories(WebRequest webRequest) {
         log.info("Public request received to get all categories");
+        if (checkCategoriesNotModified(webRequest)) {
+            return null; // 304 Not Modified
+        }
         List<CategoryDTO> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(categories);
     }
 
     @GetMapping("/categories/{id}")
-    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long id, WebRequest webRequest) {
         log.info("Public request received to get category ID: {}", id);
+        if (checkCategoriesNotModified(webRequest)) {
+            return null; // 304 Not Modified
+        }
         CategoryDTO category = categoryService.getCategoryById(id);
-        return ResponseEntity.ok(category);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(category);
     }
 }
\ No newline at end of file
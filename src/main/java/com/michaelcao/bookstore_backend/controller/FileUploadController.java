@@ -1,5 +1,7 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +23,8 @@ import java.util.UUID;
 @Slf4j
 public class FileUploadController {
 
+    private final BusinessMetrics businessMetrics;
+
     @Value("${file.upload.directory:uploads}")
     private String uploadDirectory;
 
@@ -34,15 +38,18 @@ public class FileUploadController {
     @PostMapping("/avatar")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Map<String, String>> uploadAvatar(@RequestParam("file") MultipartFile file) {
+        Timer.Sample sample = businessMetrics.startTimer();
         try {
             // Kiểm tra file rỗng
             if (file.isEmpty()) {
+                businessMetrics.recordUpload(sample, "avatar", "rejected", 0);
                 return ResponseEntity.badRequest().body(Map.of("error", "Vui lòng chọn file để tải lên"));
             }
 
             // Kiểm tra định dạng file
             String contentType = file.getContentType();
             if (contentType == null || !contentType.startsWith("image/")) {
+                businessMetrics.recordUpload(sample, "avatar", "rejected", 0);
                 return ResponseEntity.badRequest().body(Map.of("error", "Chỉ chấp nhận file hình ảnh"));
             }
 
@@ -71,10 +78,12 @@ public class FileUploadController {
             Map<String, String> response = new HashMap<>();
             response.put("url", fileUrl);
             log.info("Avatar uploaded successfully: {}", fileUrl);
+            businessMetrics.recordUpload(sample, "avatar", "success", file.getSize());
 
             return ResponseEntity.ok(response);
         } catch (IOException e) {
             log.error("Failed to upload avatar", e);
+            businessMetrics.recordUpload(sample, "avatar", "error", 0);
             return ResponseEntity.internalServerError().body(Map.of("error", "Không thể tải lên avatar: " + e.getMessage()));
         }
     }
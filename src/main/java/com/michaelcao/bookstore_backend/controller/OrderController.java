@@ -1,6 +1,8 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.SqlBudget;
 import com.michaelcao.bookstore_backend.dto.order.CreateOrderRequest;
+import com.michaelcao.bookstore_backend.dto.order.OrderCursorPageDTO;
 import com.michaelcao.bookstore_backend.dto.order.OrderDTO;
 import com.michaelcao.bookstore_backend.entity.User; // Import User
 import com.michaelcao.bookstore_backend.service.OrderService;
@@ -42,6 +44,7 @@ public class OrderController {
     /**
      * Endpoint để tạo một đơn hàng mới từ giỏ hàng của người dùng hiện tại.
      */
+    @SqlBudget(10) // INSERT order_items / UPDATE tồn kho đi theo JDBC batch: không tăng theo số dòng hàng
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody CreateOrderRequest request) {
         Long userId = getCurrentUserId();
@@ -57,6 +60,7 @@ public class OrderController {
     /**
      * Endpoint để lấy lịch sử đơn hàng của người dùng hiện tại (phân trang).
      */
+    @SqlBudget(8)
     @GetMapping("/my-history")
     public ResponseEntity<Page<OrderDTO>> getMyOrderHistory(
             @PageableDefault(size = 10, sort = "orderDate", direction = org.springframework.data.domain.Sort.Direction.DESC) Pageable pageable) {
@@ -66,9 +70,23 @@ public class OrderController {
         return ResponseEntity.ok(orderPage);
     }
 
+    /**
+     * Endpoint lấy lịch sử đơn hàng theo cursor (keyset), trang sâu nhanh như trang đầu.
+     * Gửi lại giá trị nextCursor của response trước để lấy trang tiếp theo.
+     */
+    @GetMapping("/my-history/cursor")
+    public ResponseEntity<OrderCursorPageDTO> getMyOrderHistoryByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        Long userId = getCurrentUserId();
+        log.info("Request received to get order history for user ID: {} by cursor (size {})", userId, size);
+        return ResponseEntity.ok(orderService.getOrderHistory(userId, cursor, size));
+    }
+
     /**
      * Endpoint để lấy chi tiết một đơn hàng cụ thể của người dùng hiện tại.
      */
+    @SqlBudget(6)
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderDTO> getMyOrderDetails(@PathVariable UUID orderId) {
         Long userId = getCurrentUserId();
@@ -81,6 +99,7 @@ public class OrderController {
      * Endpoint để khách hàng hủy đơn hàng của mình.
      * Chỉ cho phép hủy đơn hàng ở trạng thái PENDING hoặc PENDING_PAYMENT.
      */
+    @SqlBudget(8) // Hoàn kho bằng một câu UPDATE cho cả đơn
     @PutMapping("/{orderId}/cancel")
     public ResponseEntity<OrderDTO> cancelOrder(@PathVariable UUID orderId) {
         Long userId = getCurrentUserId();
@@ -1,10 +1,24 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.SqlBudget;
 import com.michaelcao.bookstore_backend.dto.product.CreateProductRequest;
+import com.michaelcao.bookstore_backend.dto.product.FacetedProductPageDTO;
 import com.michaelcao.bookstore_backend.dto.product.ProductDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductSuggestionDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.dto.product.TrendingProductDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductVersionDTO;
 import com.michaelcao.bookstore_backend.dto.product.UpdateProductRequest;
 import com.michaelcao.bookstore_backend.entity.User;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.ProductFacetIndex;
+import com.michaelcao.bookstore_backend.service.ProductRelevanceIndex;
 import com.michaelcao.bookstore_backend.service.ProductService;
+import com.michaelcao.bookstore_backend.service.ProductRelatedIndex;
+import com.michaelcao.bookstore_backend.service.ProductSuggestIndex;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex;
+import com.michaelcao.bookstore_backend.service.RecentlyViewedService;
 import com.michaelcao.bookstore_backend.service.DashboardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +27,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,12 +35,16 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 
 @RestController
@@ -36,6 +55,14 @@ public class ProductController {
 
     private final ProductService productService;
     private final DashboardService dashboardService;
+    private final CatalogVersionService catalogVersionService;
+    private final CategorySnapshotService categorySnapshotService;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductRelevanceIndex productRelevanceIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductTrendingIndex productTrendingIndex;
+    private final ProductRelatedIndex productRelatedIndex;
+    private final RecentlyViewedService recentlyViewedService;
 
     // *** THÊM LẠI PHƯƠNG THỨC HELPER NÀY ***
     private Long getCurrentUserId() {
@@ -50,6 +77,27 @@ public class ProductController {
         // Hoặc: throw new IllegalStateException("User not authenticated properly.");
     }
 
+    // Kiểm tra ETag của danh sách sản phẩm dựa trên version của catalog (một query PK, chung cho mọi instance).
+    // Tên danh mục trong DTO lấy từ snapshot: snapshot chưa kịp nạp lại thì không gắn ETag cho nội dung cũ.
+    private boolean checkCatalogNotModified(WebRequest webRequest) {
+        return checkCatalogNotModified(webRequest, versions -> true);
+    }
+
+    // Như trên, cho response có phần lấy từ index trong bộ nhớ: index chưa dựng lại theo version hiện tại thì cũng không gắn ETag
+    private boolean checkCatalogNotModified(WebRequest webRequest, Predicate<CatalogVersionService.Versions> indexFresh) {
+        CatalogVersionService.Versions versions = catalogVersionService.read();
+        if (!categorySnapshotService.isFresh(versions.categoryVersion()) || !indexFresh.test(versions)) {
+            return false;
+        }
+        return webRequest.checkNotModified(versions.productListETag(), versions.productsLastModified());
+    }
+
+    // sort=relevance: thứ hạng lấy từ index BM25, có thể chưa dựng lại theo version nội dung hiện tại
+    private boolean relevanceFresh(String keyword, Pageable pageable, CatalogVersionService.Versions versions) {
+        return !ProductRelevanceIndex.isRelevanceSort(pageable) || !StringUtils.hasText(keyword)
+                || productRelevanceIndex.isFresh(versions.productContentVersion());
+    }
+
     // --- Admin Endpoints ---
     @PostMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
@@ -75,14 +123,28 @@ public class ProductController {
 
     // --- Public Endpoints ---
 
+    @SqlBudget(6)
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable UUID id) {
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable UUID id, WebRequest webRequest,
+                                                     @AuthenticationPrincipal User currentUser) {
         log.debug("Public request received to get product ID: {}", id);
+        // Conditional GET: kiểm tra ETag/Last-Modified bằng query nhẹ trước khi load chi tiết
+        ProductVersionDTO version = productService.getProductVersion(id);
+        // Sản phẩm tồn tại: ghi nhận lượt xem (chỉ trong bộ nhớ) kể cả khi client trả về từ cache (304)
+        if (currentUser != null) {
+            recentlyViewedService.recordView(currentUser.getId(), id);
+        }
+        if (version.getEtag() != null && webRequest.checkNotModified(version.getEtag(), version.getLastModified())) {
+            log.debug("Product ID {} not modified, returning 304", id);
+            return null; // Spring tự trả 304 Not Modified
+        }
         // Sửa lại: Chỉ gọi 1 lần
         ProductDTO product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(product);
     }
 
+    // sort=relevance: xếp theo độ liên quan với keyword (BM25F, xem ProductService.filterProducts)
+    @SqlBudget(8)
     @GetMapping
     public ResponseEntity<Page<ProductDTO>> filterProducts(
             @RequestParam(required = false) Long categoryId,
@@ -91,7 +153,13 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) Boolean inStockOnly,
             @RequestParam(required = false) String author, // Thêm tham số lọc author
-            @PageableDefault(size = 10, sort = "title") Pageable pageable) {
+            @PageableDefault(size = 10, sort = "title") Pageable pageable,
+            WebRequest webRequest) {
+
+        // ETag phải được tính TRƯỚC khi query để không gắn version mới cho dữ liệu cũ
+        if (checkCatalogNotModified(webRequest, versions -> relevanceFresh(keyword, pageable, versions))) {
+            return null;
+        }
 
         log.debug("Request received to filter products with criteria - CategoryId: {}, Keyword: '{}', MinPrice: {}, MaxPrice: {}, InStockOnly: {}, Author: '{}', Pageable: {}",
                 categoryId, keyword, minPrice, maxPrice, inStockOnly, author, pageable);
@@ -100,26 +168,107 @@ public class ProductController {
         Page<ProductDTO> productPage = productService.filterProducts(
                 categoryId, keyword, minPrice, maxPrice, inStockOnly, author, pageable
         );
-        return ResponseEntity.ok(productPage);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(productPage);
     }
 
 
+    // Như filterProducts, kèm số lượng theo danh mục / tác giả / khoảng giá / còn hàng cho bộ lọc trên UI
+    // Budget: như filter (index facet dựng lại trên thread nền, không query trong request)
+    @SqlBudget(8)
+    @GetMapping("/faceted")
+    public ResponseEntity<FacetedProductPageDTO> filterProductsWithFacets(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) String author,
+            @PageableDefault(size = 10, sort = "title") Pageable pageable,
+            WebRequest webRequest) {
+        if (checkCatalogNotModified(webRequest, versions -> productFacetIndex.isFresh(versions.productVersion()))) {
+            return null;
+        }
+        log.debug("Request received to filter products with facets - CategoryId: {}, Keyword: '{}', MinPrice: {}, MaxPrice: {}, InStockOnly: {}, Author: '{}', Pageable: {}",
+                categoryId, keyword, minPrice, maxPrice, inStockOnly, author, pageable);
+        FacetedProductPageDTO result = productService.filterProductsWithFacets(
+                categoryId, keyword, minPrice, maxPrice, inStockOnly, author, pageable
+        );
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(result);
+    }
+
+    @SqlBudget(8)
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<Page<ProductDTO>> getProductsByCategory(
             @PathVariable Long categoryId,
-            @PageableDefault(size = 10, sort = "title") Pageable pageable) {
+            @PageableDefault(size = 10, sort = "title") Pageable pageable,
+            WebRequest webRequest) {
+        if (checkCatalogNotModified(webRequest)) {
+            return null;
+        }
         log.debug("Public request received to get products for category ID: {} with pagination: {}", categoryId, pageable);
         Page<ProductDTO> productPage = productService.getProductsByCategory(categoryId, pageable);
-        return ResponseEntity.ok(productPage);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(productPage);
     }
 
+    // sort=relevance: xếp theo độ liên quan với keyword thay vì title
+    @SqlBudget(8)
     @GetMapping("/search")
     public ResponseEntity<Page<ProductDTO>> searchProducts(
             @RequestParam String keyword,
-            @PageableDefault(size = 10, sort = "title") Pageable pageable) {
+            @PageableDefault(size = 10, sort = "title") Pageable pageable,
+            WebRequest webRequest) {
+        if (checkCatalogNotModified(webRequest, versions -> relevanceFresh(keyword, pageable, versions))) {
+            return null;
+        }
         log.debug("Public request received to search products with keyword: '{}', pagination: {}", keyword, pageable);
         Page<ProductDTO> productPage = productService.searchProducts(keyword, pageable);
-        return ResponseEntity.ok(productPage);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(productPage);
+    }
+
+    /**
+     * Gợi ý cho ô tìm kiếm (gọi theo từng phím gõ): title, tác giả hoặc ISBN bắt đầu bằng q, từ index trong bộ nhớ.
+     * Budget 2: chỉ lần gọi đầu tiên (dựng index) mới query DB.
+     */
+    @SqlBudget(2)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        List<ProductSuggestionDTO> suggestions = productSuggestIndex.suggest(q, limit);
+        // Cho phép browser/CDN cache ngắn: cùng tiền tố được gõ lại liên tục
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic()).body(suggestions);
+    }
+
+    /**
+     * "Khách hàng cũng mua": sản phẩm hay được đặt cùng đơn với sản phẩm này, từ mô hình mua kèm trong bộ nhớ.
+     * Thường 3 query: sản phẩm + danh mục + thống kê review (thêm kiểm tra tồn tại khi chưa có dữ liệu mua kèm);
+     * budget 6 cho lần gọi đầu khi snapshot danh mục chưa được nạp.
+     */
+    @SqlBudget(6)
+    @GetMapping("/{id}/also-bought")
+    public ResponseEntity<List<ProductDTO>> getAlsoBoughtProducts(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Integer limit) {
+        List<ProductDTO> products = productService.getAlsoBoughtProducts(id, limit);
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic()).body(products);
+    }
+
+    /**
+     * "Cùng danh mục": sản phẩm chung danh mục với sản phẩm này, xếp theo số danh mục chung, cùng tác giả và độ phổ biến.
+     * Danh sách được tính trước trong bộ nhớ (ProductRelatedIndex, dựng trên thread nền) nên không query DB; budget 1
+     * khi sản phẩm chưa có trong index (kiểm tra tồn tại).
+     */
+    @SqlBudget(1)
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductSummaryDTO>> getRelatedProducts(
+            @PathVariable UUID id,
+            @RequestParam(required = false, defaultValue = "8") int limit) {
+        List<ProductSummaryDTO> products = productRelatedIndex.related(id, limit);
+        if (products == null) {
+            productService.getProductVersion(id); // 404 nếu sản phẩm không tồn tại
+            products = List.of(); // Sản phẩm vừa tạo (hoặc index đang dựng lần đầu): có danh sách sau lần dựng kế tiếp
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic()).body(products);
     }
 
     /**
@@ -145,6 +294,7 @@ public class ProductController {
      * Get top selling products
      * @return List of top selling products
      */
+    @SqlBudget(4)
     @GetMapping("/top-selling")
     public ResponseEntity<List<ProductDTO>> getTopSellingProducts() {
         log.debug("Request received to get top selling products");
@@ -152,5 +302,17 @@ public class ProductController {
         return ResponseEntity.ok(topProducts);
     }
 
+    /**
+     * Sản phẩm thịnh hành (điểm suy giảm theo thời gian từ lượt xem, giỏ hàng, wishlist, đơn hàng).
+     * Đọc snapshot publish định kỳ, không query DB; budget 2 chỉ cho câu load user khi request có token.
+     */
+    @SqlBudget(2)
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingProductDTO>> getTrendingProducts(
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        List<TrendingProductDTO> products = productTrendingIndex.trending(limit);
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofSeconds(10)).cachePublic()).body(products);
+    }
+
     // --- Optional Endpoints ---
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.michaelcao.bookstore_backend.controller;
+
+import com.michaelcao.bookstore_backend.config.AsyncTimeout;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+import com.michaelcao.bookstore_backend.service.ProductExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export catalog cho Admin. Dữ liệu được ghi trực tiếp vào response (StreamingResponseBody),
+ * không dựng toàn bộ file trong bộ nhớ.
+ */
+@RestController
+@RequestMapping("/api/products/admin/export")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class ProductExportController {
+
+    private final ProductExportService productExportService;
+
+    @GetMapping
+    @AsyncTimeout("${app.export.request-timeout:30m}")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = "CSV") ProductImportFormat format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        log.info("Admin request received to export products (format {}, gzip {})", format, gzip);
+        String extension = format == ProductImportFormat.CSV ? "csv" : "jsonl";
+        String fileName = "products-" + LocalDate.now() + "." + extension + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == ProductImportFormat.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush=true để mỗi chunk đã flush được nén và gửi đi ngay
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true)) {
+                    productExportService.exportProducts(format, gzipOut);
+                }
+            } else {
+                productExportService.exportProducts(format, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+}
@@ -0,0 +1,92 @@
+package com.michaelcao.bookstore_backend.controller;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportJobDTO;
+import com.michaelcao.bookstore_backend.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Import sản phẩm hàng loạt (CSV/JSONL). Job chạy nền, client poll trạng thái qua jobId.
+ * - Multipart: phù hợp file nhỏ (bị giới hạn bởi spring.servlet.multipart.max-file-size).
+ * - Raw body (text/csv, application/x-ndjson): cho feed lớn, được stream thẳng xuống đĩa.
+ */
+@RestController
+@RequestMapping("/api/products/admin/import")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class ProductImportController {
+
+    private final ProductImportService productImportService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductImportJobDTO> importFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) ProductImportFormat format) throws IOException {
+        ProductImportFormat resolved = format != null ? format : guessFormat(file.getOriginalFilename());
+        log.info("Admin request received to import products from file '{}' ({} bytes, format {})",
+                file.getOriginalFilename(), file.getSize(), resolved);
+        try (InputStream input = file.getInputStream()) {
+            ProductImportJobDTO job = productImportService.startImport(input, resolved, file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job); // 202: job đang chạy nền
+        }
+    }
+
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson", "application/jsonl"})
+    public ResponseEntity<ProductImportJobDTO> importStream(
+            HttpServletRequest request,
+            @RequestParam(value = "fileName", required = false) String fileName) throws IOException {
+        ProductImportFormat format = request.getContentType().startsWith("text/csv")
+                ? ProductImportFormat.CSV : ProductImportFormat.JSONL;
+        log.info("Admin request received to import products from request body (format {})", format);
+        try (InputStream input = request.getInputStream()) {
+            ProductImportJobDTO job = productImportService.startImport(input, format, fileName);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ProductImportJobDTO>> getRecentJobs() {
+        return ResponseEntity.ok(productImportService.getRecentJobs());
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ProductImportJobDTO> getJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(productImportService.getJob(jobId));
+    }
+
+    @GetMapping("/{jobId}/errors")
+    public ResponseEntity<StreamingResponseBody> getErrorReport(@PathVariable UUID jobId) {
+        productImportService.getJob(jobId); // 404 nếu job không tồn tại, trước khi bắt đầu stream
+        StreamingResponseBody body = out -> productImportService.writeErrorReport(jobId, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + jobId + "-errors.csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
+    private ProductImportFormat guessFormat(String fileName) {
+        if (fileName != null) {
+            String lower = fileName.toLowerCase();
+            if (lower.endsWith(".jsonl") || lower.endsWith(".ndjson") || lower.endsWith(".json")) {
+                return ProductImportFormat.JSONL;
+            }
+        }
+        return ProductImportFormat.CSV;
+    }
+}
@@ -1,5 +1,7 @@
 package com.michaelcao.bookstore_backend.controller;
 
+import com.michaelcao.bookstore_backend.config.SqlBudget;
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
 import com.michaelcao.bookstore_backend.dto.user.ChangePasswordRequest;
 import com.michaelcao.bookstore_backend.dto.user.UpdateProfileRequest;
 import com.michaelcao.bookstore_backend.dto.user.UserProfileDTO;
@@ -9,12 +11,15 @@ import com.michaelcao.bookstore_backend.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/profile") // Base path cho các API liên quan đến profile người dùng
 @RequiredArgsConstructor
@@ -74,6 +79,20 @@ public class UserController {
         return ResponseEntity.ok(updatedProfile);
     }
 
+    /**
+     * Endpoint để lấy các sản phẩm đã xem gần đây (mới nhất trước).
+     * Danh sách nằm trong bộ nhớ; tối đa một query đọc lịch sử đã lưu và một query lấy thông tin sản phẩm.
+     */
+    @SqlBudget(3)
+    @GetMapping("/recently-viewed")
+    public ResponseEntity<List<ProductSummaryDTO>> getRecentlyViewedProducts() {
+        Long userId = getCurrentUserId();
+        log.debug("Request received to get recently viewed products for user ID: {}", userId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(userService.getRecentlyViewedProducts(userId));
+    }
+
     /**
      * Endpoint để cập nhật thông tin profile (ví dụ: tên).
      */
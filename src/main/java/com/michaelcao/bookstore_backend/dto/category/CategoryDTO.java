@@ -1,5 +1,6 @@
 package com.michaelcao.bookstore_backend.dto.category;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor; // Thêm constructor không tham số nếu cần
 
@@ -10,10 +11,19 @@ public class CategoryDTO {
     private String name;
     private String description;
 
+    // Số sản phẩm thuộc danh mục (qua product_categories). Chỉ có trong danh sách danh mục, null khi nhúng trong ProductDTO
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long productCount;
+
     // Constructor với tham số (hữu ích khi mapping)
     public CategoryDTO(Long id, String name, String description) {
         this.id = id;
         this.name = name;
         this.description = description;
     }
+
+    public CategoryDTO(Long id, String name, String description, Long productCount) {
+        this(id, name, description);
+        this.productCount = productCount;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kết quả chuyển trạng thái hàng loạt, kèm kết quả cho từng đơn hàng (theo thứ tự của request).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusResultDTO {
+
+    public enum Outcome {
+        UPDATED,            // Đã chuyển sang trạng thái mới
+        UNCHANGED,          // Đơn đã ở sẵn trạng thái đích
+        NOT_FOUND,          // Không có trong bảng orders (không tồn tại hoặc đã lưu trữ)
+        INVALID_TRANSITION  // Trạng thái hiện tại không được phép chuyển sang trạng thái đích
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderResult {
+        private UUID orderId;
+        private Outcome outcome;
+        private OrderStatus previousStatus; // null nếu NOT_FOUND
+    }
+
+    private OrderStatus targetStatus;
+    private int requested;
+    private int updated;
+    private List<OrderResult> results;
+}
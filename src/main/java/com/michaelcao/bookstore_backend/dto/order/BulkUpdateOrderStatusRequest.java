@@ -0,0 +1,23 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BulkUpdateOrderStatusRequest {
+
+    public static final int MAX_ORDERS = 1000;
+
+    @NotEmpty(message = "Order IDs cannot be empty")
+    @Size(max = MAX_ORDERS, message = "At most 1000 orders can be updated at once")
+    private List<UUID> orderIds;
+
+    @NotNull(message = "New status cannot be null")
+    private OrderStatus status;
+}
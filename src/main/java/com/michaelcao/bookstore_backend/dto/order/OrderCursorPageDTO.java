@@ -0,0 +1,18 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Một trang đơn hàng theo cursor (keyset). Gửi lại nextCursor để lấy trang kế tiếp.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCursorPageDTO {
+    private List<OrderDTO> content;
+    private String nextCursor; // null nếu đã hết dữ liệu
+    private boolean hasNext;
+    private int size;
+}
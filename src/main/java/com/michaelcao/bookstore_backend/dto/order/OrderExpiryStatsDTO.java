@@ -0,0 +1,21 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Số liệu của job hủy đơn chờ thanh toán quá hạn (tính từ lúc instance khởi động).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExpiryStatsDTO {
+    private long runs;             // Số lượt đã chạy trên instance này (có giữ lease)
+    private long sweptOrders;      // Tổng số đơn đã hủy
+    private long releasedUnits;    // Tổng số đơn vị tồn kho đã hoàn lại
+    private Instant lastRunAt;
+    private int lastRunSwept;
+}
@@ -0,0 +1,7 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+// Định dạng file export đơn hàng
+public enum OrderExportFormat {
+    CSV,   // Mỗi dòng là một order item (thông tin đơn hàng lặp lại), dòng đầu là header
+    JSONL  // Mỗi dòng là một JSON object với cùng các trường như CSV
+}
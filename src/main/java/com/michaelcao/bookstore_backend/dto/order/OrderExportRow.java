@@ -0,0 +1,46 @@
+package com.michaelcao.bookstore_backend.dto.order;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.entity.PaymentMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// Một dòng export: thông tin đơn hàng + một order item (dạng phẳng, tiện cho bảng tính của kế toán)
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"orderId", "orderDate", "status", "paymentMethod", "totalAmount", "userId", "userEmail", "userName",
+        "recipientName", "shippingPhone", "shippingStreet", "shippingDistrict", "shippingCity", "shippingCountry",
+        "productId", "productTitle", "productIsbn", "quantity", "priceAtPurchase", "lineTotal"})
+public class OrderExportRow {
+    private UUID orderId;
+    private Instant orderDate;
+    private OrderStatus status;
+    private PaymentMethod paymentMethod;
+    private BigDecimal totalAmount;
+    private Long userId;
+    private String userEmail;
+    private String userName;
+    private String recipientName;
+    private String shippingPhone;
+    private String shippingStreet;
+    private String shippingDistrict;
+    private String shippingCity;
+    private String shippingCountry;
+
+    // --- Thông tin order item ---
+    private UUID productId;
+    private String productTitle;
+    private String productIsbn;
+    private Integer quantity;
+    private BigDecimal priceAtPurchase;
+    private BigDecimal lineTotal;
+}
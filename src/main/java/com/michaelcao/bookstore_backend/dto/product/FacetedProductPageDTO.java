@@ -0,0 +1,15 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+// Trang kết quả lọc sản phẩm kèm số lượng theo facet
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductPageDTO {
+    private Page<ProductDTO> products;
+    private ProductFacetsDTO facets; // null nếu index facet chưa sẵn sàng (vừa khởi động)
+}
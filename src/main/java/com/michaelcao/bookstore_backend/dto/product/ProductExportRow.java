@@ -0,0 +1,32 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// Một dòng trong file export catalog. Tên cột trùng với ProductImportRow nên file export có thể import lại.
+@Data
+@JsonPropertyOrder({"id", "title", "author", "isbn", "description", "price", "stockQuantity", "soldCount",
+        "imageUrl", "publishedDate", "categoryId", "categoryName", "categoryIds", "createdAt", "updatedAt"})
+public class ProductExportRow {
+    private UUID id;
+    private String title;
+    private String author;
+    private String isbn;
+    private String description;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private Integer soldCount;
+    private String imageUrl;
+    private LocalDate publishedDate;
+    private Long categoryId;
+    private String categoryName;
+    private List<Long> categoryIds;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Số sản phẩm theo từng giá trị facet cho điều kiện lọc hiện tại.
+// Mỗi facet được đếm với mọi điều kiện KHÁC (bỏ qua lựa chọn của chính nó) để UI hiển thị được các lựa chọn thay thế.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    private long total;                     // Số sản phẩm khớp toàn bộ điều kiện
+    private List<FacetValue> categories;    // Theo danh mục chính (value = categoryId)
+    private List<FacetValue> authors;       // Các tác giả nhiều sản phẩm nhất (value dùng lại được cho tham số author)
+    private List<PriceRange> priceRanges;
+    private long inStock;                   // Số sản phẩm còn hàng
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value;
+        private String label;
+        private long count;
+        private boolean selected;
+    }
+
+    // Khoảng giá [min, max); max = null ở khoảng cuối cùng
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceRange {
+        private BigDecimal min;
+        private BigDecimal max;
+        private long count;
+    }
+}
@@ -0,0 +1,7 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+// Định dạng file import sản phẩm hàng loạt
+public enum ProductImportFormat {
+    CSV,   // Dòng đầu là header, categoryIds phân tách bằng dấu ';'
+    JSONL  // Mỗi dòng là một JSON object
+}
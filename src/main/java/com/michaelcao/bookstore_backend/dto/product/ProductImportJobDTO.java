@@ -0,0 +1,28 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Trạng thái và tiến độ của một job import sản phẩm
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportJobDTO {
+    private UUID jobId;
+    private ProductImportFormat format;
+    private String fileName;
+    private String status;        // PENDING, RUNNING, COMPLETED, FAILED
+    private long processedRows;   // Số dòng đã đọc
+    private long insertedRows;    // Số sản phẩm mới được thêm
+    private long updatedRows;     // Số sản phẩm đã tồn tại (theo ISBN) được cập nhật
+    private long failedRows;      // Số dòng lỗi (xem error report)
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String message;
+}
@@ -0,0 +1,54 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Một dòng trong file import (CSV hoặc JSONL). Validation giống CreateProductRequest.
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"title", "author", "isbn", "description", "price", "stockQuantity",
+        "imageUrl", "publishedDate", "categoryId", "categoryIds"})
+public class ProductImportRow {
+
+    @NotBlank(message = "Product title cannot be blank")
+    @Size(max = 255)
+    private String title;
+
+    @NotBlank(message = "Author name cannot be blank")
+    @Size(max = 150)
+    private String author;
+
+    @Size(max = 20, message = "ISBN cannot exceed 20 characters")
+    private String isbn; // Dùng làm khóa upsert nếu có
+
+    private String description;
+
+    @NotNull(message = "Price cannot be null")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Price must be positive")
+    @Digits(integer = 10, fraction = 2, message = "Price format invalid (max 10 integer, 2 fraction digits)")
+    private BigDecimal price;
+
+    @NotNull(message = "Stock quantity cannot be null")
+    @Min(value = 0, message = "Stock quantity cannot be negative")
+    private Integer stockQuantity;
+
+    @Size(max = 500, message = "Image URL cannot exceed 500 characters")
+    private String imageUrl;
+
+    private LocalDate publishedDate;
+
+    @Min(value = 1, message = "Category ID must be positive")
+    private Long categoryId; // Danh mục chính (có thể bỏ trống nếu có categoryIds)
+
+    private List<Long> categoryIds;
+
+    @JsonIgnore
+    private long lineNumber; // Số dòng trong file, dùng cho báo cáo lỗi
+}
@@ -0,0 +1,18 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Một gợi ý cho ô tìm kiếm; matchedField: title | author | isbn
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+    private UUID id;
+    private String title;
+    private String author;
+    private String matchedField;
+}
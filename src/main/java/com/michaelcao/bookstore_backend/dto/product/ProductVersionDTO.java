@@ -0,0 +1,14 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Thông tin phiên bản của một sản phẩm, dùng cho conditional GET (ETag / Last-Modified)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductVersionDTO {
+    private String etag;        // Weak ETag, ví dụ: W/"18c3f...-12-345-c...-3"
+    private long lastModified;  // updatedAt của sản phẩm (epoch millis)
+}
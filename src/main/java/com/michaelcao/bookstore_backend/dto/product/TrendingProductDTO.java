@@ -0,0 +1,22 @@
+package com.michaelcao.bookstore_backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Một sản phẩm đang thịnh hành; score là điểm đã suy giảm theo thời gian tại lúc publish snapshot
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingProductDTO {
+    private UUID id;
+    private String title;
+    private String author;
+    private BigDecimal price;
+    private String imageUrl;
+    private Integer stockQuantity;
+    private double score;
+}
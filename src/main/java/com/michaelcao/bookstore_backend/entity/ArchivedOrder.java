@@ -0,0 +1,62 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bản lưu trữ (tầng "lạnh") của một đơn hàng đã kết thúc (DELIVERED/CANCELLED) và đủ cũ.
+ * Cùng cấu trúc cột với bảng orders (thêm archived_at) để có thể chuyển bằng INSERT ... SELECT.
+ * Chỉ đọc: bản ghi được tạo bởi OrderArchiveService, không bao giờ sửa qua JPA.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_order_archive_user_date", columnList = "user_id, order_date DESC, id"),
+        @Index(name = "idx_order_archive_date", columnList = "order_date, id") // Keyset cho export
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchivedOrder {
+
+    @Id
+    @Column(name = "id", updatable = false, nullable = false, columnDefinition = "BINARY(16)")
+    private UUID id; // Giữ nguyên ID của đơn hàng gốc
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "order_date", nullable = false, updatable = false)
+    private Instant orderDate;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 50)
+    private OrderStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false, length = 50)
+    private PaymentMethod paymentMethod;
+
+    @Embedded
+    private Address shippingAddress;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Column(name = "archived_at", nullable = false, updatable = false)
+    private Instant archivedAt;
+
+    @OneToMany(mappedBy = "order", fetch = FetchType.LAZY)
+    private Set<ArchivedOrderItem> orderItems = new HashSet<>();
+}
@@ -0,0 +1,39 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Bản lưu trữ của một OrderItem, đi kèm ArchivedOrder
+@Entity
+@Table(name = "order_items_archive", indexes = {
+        @Index(name = "idx_orderitem_archive_order", columnList = "order_id"),
+        @Index(name = "idx_orderitem_archive_product", columnList = "product_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchivedOrderItem {
+
+    @Id
+    @Column(name = "id", updatable = false, nullable = false, columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private ArchivedOrder order;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "price_at_purchase", nullable = false, precision = 12, scale = 2)
+    private BigDecimal priceAtPurchase;
+}
@@ -0,0 +1,37 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Phiên bản của một phần catalog (mỗi phần một dòng), dùng chung cho mọi instance để ETag và cache
+ * của các instance khác nhau luôn dựa trên cùng một giá trị. Chỉ được ghi bởi CatalogVersionRepository (JDBC).
+ */
+@Entity
+@Table(name = "catalog_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CatalogVersion {
+
+    public static final String PRODUCTS = "products";
+    public static final String CATEGORIES = "categories";
+    public static final String PRODUCT_CONTENT = "product_content"; // Chỉ đổi khi nội dung sản phẩm đổi (không phải tồn kho/review)
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
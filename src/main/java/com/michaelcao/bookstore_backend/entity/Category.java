@@ -6,6 +6,8 @@ import jakarta.validation.constraints.Size;   // Import validation constraint
 import lombok.Getter; // Dùng Getter/Setter thay cho @Data để tránh lỗi hashCode/equals với relationship
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet; // Import HashSet
 import java.util.Set;     // Import Set
@@ -17,6 +19,8 @@ import java.util.Set;     // Import Set
 @Getter // Lombok: Chỉ tạo Getters
 @Setter // Lombok: Chỉ tạo Setters
 @NoArgsConstructor // Lombok: Constructor không tham số (cần cho JPA)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category") // Dữ liệu tham chiếu, hiếm khi đổi
 public class Category {
 
     @Id
@@ -21,7 +21,11 @@ import java.util.UUID;
 
 
 @Entity
-@Table(name = "orders") // Tên bảng là 'orders' (số nhiều)
+@Table(name = "orders", indexes = { // Tên bảng là 'orders' (số nhiều)
+        @Index(name = "idx_order_date", columnList = "order_date, id"), // Keyset cho export/báo cáo theo khoảng ngày
+        @Index(name = "idx_order_user_date", columnList = "user_id, order_date DESC, id"), // Lịch sử đơn hàng của khách
+        @Index(name = "idx_order_status_date", columnList = "status, order_date, id") // Danh sách Admin lọc theo trạng thái
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -1,5 +1,11 @@
 package com.michaelcao.bookstore_backend.entity; // Hoặc com.michaelcao.bookstore_backend.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 // *** ĐẶT LÀ PUBLIC ***
 public enum OrderStatus {
     PENDING,          // Mới tạo, chờ xử lý (COD) hoặc chờ thanh toán (Online)
@@ -8,5 +14,43 @@ public enum OrderStatus {
     SHIPPED,          // Đã giao cho đơn vị vận chuyển
     DELIVERED,        // Đã giao thành công
     CANCELLED,        // Đã hủy
-    PAYMENT_FAILED    // Thanh toán online thất bại
-}
\ No newline at end of file
+    PAYMENT_FAILED;   // Thanh toán online thất bại
+
+    // --- Đồ thị chuyển trạng thái: trạng thái hiện tại -> các trạng thái được phép chuyển tới ---
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+    // Chiều ngược lại: trạng thái đích -> các trạng thái nguồn hợp lệ (dùng cho UPDATE ... WHERE status IN (...))
+    private static final Map<OrderStatus, Set<OrderStatus>> SOURCES = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(PENDING_PAYMENT, EnumSet.of(PENDING, PROCESSING, PAYMENT_FAILED, CANCELLED));
+        TRANSITIONS.put(PAYMENT_FAILED, EnumSet.of(PENDING_PAYMENT, CANCELLED));
+        TRANSITIONS.put(PENDING, EnumSet.of(PROCESSING, SHIPPED, CANCELLED));
+        TRANSITIONS.put(PROCESSING, EnumSet.of(SHIPPED, DELIVERED, CANCELLED));
+        TRANSITIONS.put(SHIPPED, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.noneOf(OrderStatus.class)); // Trạng thái cuối
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class)); // Trạng thái cuối
+
+        for (OrderStatus target : values()) {
+            SOURCES.put(target, EnumSet.noneOf(OrderStatus.class));
+        }
+        TRANSITIONS.forEach((source, targets) -> targets.forEach(target -> SOURCES.get(target).add(source)));
+    }
+
+    /**
+     * Kiểm tra có được chuyển từ trạng thái này sang trạng thái next không (giữ nguyên không tính là chuyển).
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    /**
+     * Các trạng thái nguồn được phép chuyển sang target.
+     */
+    public static Set<OrderStatus> allowedSourcesFor(OrderStatus target) {
+        return Collections.unmodifiableSet(SOURCES.get(target));
+    }
+
+    public boolean isTerminal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Một domain event trong outbox. Được ghi trong CÙNG transaction với thay đổi nghiệp vụ,
+ * sau đó OutboxRelay đọc theo thứ tự id và giao cho các subscriber trong process (at-least-once).
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_status_id", columnList = "status, id") // Relay quét các event PENDING theo thứ tự id
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // Tăng dần -> thứ tự ghi, dùng để giữ thứ tự event của cùng aggregate
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false, length = 64)
+    private String aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload; // JSON của event
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "published_at")
+    private Instant publishedAt;
+
+    public OutboxEvent(String aggregateType, String aggregateId, String eventType, String payload, Instant now) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+    }
+}
@@ -0,0 +1,7 @@
+package com.michaelcao.bookstore_backend.entity;
+
+public enum OutboxEventStatus {
+    PENDING,    // Chưa được giao (hoặc đang chờ retry)
+    PUBLISHED,  // Đã giao thành công tới mọi subscriber
+    FAILED      // Vượt quá số lần retry, cần xử lý thủ công
+}
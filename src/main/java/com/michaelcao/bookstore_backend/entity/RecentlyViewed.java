@@ -0,0 +1,35 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Sản phẩm xem gần đây của một user, lưu gọn trong MỘT dòng: product_ids là các UUID 16 byte nối liền,
+ * mới nhất trước. Bảng chỉ được ghi theo batch bởi RecentlyViewedService (JDBC), không ghi mỗi lượt xem.
+ */
+@Entity
+@Table(name = "recently_viewed")
+@Getter
+@Setter
+@NoArgsConstructor
+public class RecentlyViewed {
+
+    public static final int MAX_PRODUCTS = 32; // product_ids tối đa 32 * 16 byte
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId; // Không đặt khóa ngoại: dòng của user đã xóa chỉ là rác nhỏ, không chặn việc xóa user
+
+    @Column(name = "product_ids", nullable = false, length = MAX_PRODUCTS * 16)
+    private byte[] productIds;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -2,6 +2,8 @@ package com.michaelcao.bookstore_backend.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Builder
@@ -11,6 +13,8 @@ import lombok.*;
 @Table(name = "roles", uniqueConstraints = {
         @UniqueConstraint(columnNames = "name")
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "role")
 public class Role {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,39 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Lease (khóa có thời hạn) cho các job định kỳ: mỗi job là một dòng, node nào giữ lease còn hạn thì node đó chạy.
+ * Node chết giữa chừng không giữ khóa mãi: lease tự hết hạn sau lease_until.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SchedulerLease {
+
+    @Id
+    @Column(length = 100)
+    private String name; // Tên job
+
+    @Column(nullable = false, length = 200)
+    private String owner; // Node đang giữ lease
+
+    @Column(name = "lease_until", nullable = false)
+    private Instant leaseUntil;
+
+    public SchedulerLease(String name, String owner, Instant leaseUntil) {
+        this.name = name;
+        this.owner = owner;
+        this.leaseUntil = leaseUntil;
+    }
+}
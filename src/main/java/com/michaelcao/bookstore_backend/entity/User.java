@@ -44,6 +44,8 @@ public class User implements UserDetails {
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
+    // KHÔNG cache L2: roles quyết định quyền của mọi request (JwtAuthenticationFilter), thu hồi quyền phải có hiệu lực
+    // ngay trên mọi node. findByEmail nạp roles cùng câu SELECT user (EntityGraph) nên không tốn thêm câu lệnh.
     @Builder.Default
     private Set<Role> roles = new HashSet<>();
     // *** THÊM QUAN HỆ WISHLIST ***
@@ -0,0 +1,13 @@
+package com.michaelcao.bookstore_backend.event;
+
+/**
+ * Domain event được ghi vào outbox (bảng outbox_events) trong cùng transaction với thay đổi nghiệp vụ.
+ * Payload được serialize bằng Jackson, nên các class con cần constructor rỗng và getter/setter.
+ * Event của cùng một aggregate (aggregateType + aggregateId) được giao theo đúng thứ tự ghi.
+ */
+public interface DomainEvent {
+
+    String aggregateType();
+
+    String aggregateId();
+}
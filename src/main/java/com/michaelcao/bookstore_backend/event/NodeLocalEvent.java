@@ -0,0 +1,20 @@
+package com.michaelcao.bookstore_backend.event;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * Bản giao "cục bộ" của một domain event: MỌI node đều nhận (mỗi node một lần), dùng cho subscriber chỉ cập nhật
+ * trạng thái trong bộ nhớ của node đó (index, cache). Subscriber có side effect ra ngoài (ghi DB, gửi mail) phải
+ * nghe event gốc, vốn chỉ được giao trên node đang giữ lease của relay.
+ *
+ * Nghe bằng {@code @EventListener void on(NodeLocalEvent<OrderPlacedEvent> event)}.
+ * Không có retry và không giữ thứ tự theo aggregate: subscriber lỗi chỉ được ghi log.
+ */
+public record NodeLocalEvent<T extends DomainEvent>(T event) implements ResolvableTypeProvider {
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return ResolvableType.forClassWithGenerics(NodeLocalEvent.class, ResolvableType.forInstance(event));
+    }
+}
@@ -0,0 +1,35 @@
+package com.michaelcao.bookstore_backend.event;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPlacedEvent implements DomainEvent {
+
+    private UUID orderId;
+    private Long userId;
+    private OrderStatus status;
+    private Instant orderDate; // Null với event ghi trước khi có trường này
+    private BigDecimal totalAmount;
+    private List<UUID> productIds = new ArrayList<>();
+
+    @Override
+    public String aggregateType() {
+        return "Order";
+    }
+
+    @Override
+    public String aggregateId() {
+        return orderId.toString();
+    }
+}
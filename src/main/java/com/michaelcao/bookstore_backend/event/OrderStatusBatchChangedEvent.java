@@ -0,0 +1,36 @@
+package com.michaelcao.bookstore_backend.event;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Một lần chuyển trạng thái hàng loạt (cùng trạng thái nguồn -> đích): một event cho cả nhóm đơn hàng
+ * thay vì một event cho mỗi đơn.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusBatchChangedEvent implements DomainEvent {
+
+    private UUID batchId;
+    private OrderStatus oldStatus;
+    private OrderStatus newStatus;
+    private List<UUID> orderIds = new ArrayList<>();
+    private boolean stockRestored; // true nếu tồn kho của các đơn đã được hoàn lại (ví dụ: hủy đơn quá hạn thanh toán)
+
+    @Override
+    public String aggregateType() {
+        return "OrderBatch";
+    }
+
+    @Override
+    public String aggregateId() {
+        return batchId.toString();
+    }
+}
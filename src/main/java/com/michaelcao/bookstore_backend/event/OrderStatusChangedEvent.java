@@ -0,0 +1,30 @@
+package com.michaelcao.bookstore_backend.event;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent implements DomainEvent {
+
+    private UUID orderId;
+    private Long userId;
+    private OrderStatus oldStatus;
+    private OrderStatus newStatus;
+    private boolean stockRestored; // true nếu tồn kho đã được hoàn lại (ví dụ: hủy đơn)
+
+    @Override
+    public String aggregateType() {
+        return "Order";
+    }
+
+    @Override
+    public String aggregateId() {
+        return orderId.toString();
+    }
+}
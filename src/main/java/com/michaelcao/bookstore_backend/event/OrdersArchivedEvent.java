@@ -0,0 +1,30 @@
+package com.michaelcao.bookstore_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Một batch đơn hàng vừa được chuyển sang tầng lưu trữ (ghi cùng transaction với batch đó).
+ * Mọi node nghe bản NodeLocalEvent để bỏ cache tổng doanh thu/số đơn của tầng lưu trữ.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrdersArchivedEvent implements DomainEvent {
+
+    private UUID batchId;
+    private int orderCount;
+
+    @Override
+    public String aggregateType() {
+        return "OrderArchive";
+    }
+
+    @Override
+    public String aggregateId() {
+        return batchId.toString();
+    }
+}
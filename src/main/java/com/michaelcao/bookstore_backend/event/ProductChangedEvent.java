@@ -0,0 +1,30 @@
+package com.michaelcao.bookstore_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangedEvent implements DomainEvent {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private UUID productId;
+    private ChangeType changeType;
+
+    @Override
+    public String aggregateType() {
+        return "Product";
+    }
+
+    @Override
+    public String aggregateId() {
+        return productId.toString();
+    }
+}
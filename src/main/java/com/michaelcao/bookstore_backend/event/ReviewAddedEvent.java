@@ -0,0 +1,29 @@
+package com.michaelcao.bookstore_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewAddedEvent implements DomainEvent {
+
+    private Long reviewId;
+    private UUID productId;
+    private Long userId;
+    private Integer rating;
+
+    // Aggregate là sản phẩm: các review của cùng sản phẩm được giao theo thứ tự
+    @Override
+    public String aggregateType() {
+        return "Product";
+    }
+
+    @Override
+    public String aggregateId() {
+        return productId.toString();
+    }
+}
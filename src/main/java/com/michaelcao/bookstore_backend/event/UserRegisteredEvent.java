@@ -0,0 +1,26 @@
+package com.michaelcao.bookstore_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRegisteredEvent implements DomainEvent {
+
+    private Long userId;
+    private String email;
+    private String name;
+    // KHÔNG chứa verification token: payload nằm trong outbox nhiều ngày, subscriber đọc token theo userId
+
+    @Override
+    public String aggregateType() {
+        return "User";
+    }
+
+    @Override
+    public String aggregateId() {
+        return userId.toString();
+    }
+}
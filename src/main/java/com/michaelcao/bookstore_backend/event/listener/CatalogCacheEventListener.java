@@ -0,0 +1,29 @@
+package com.michaelcao.bookstore_backend.event.listener;
+
+import com.michaelcao.bookstore_backend.event.NodeLocalEvent;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.ProductSuggestIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Làm mất hiệu lực snapshot danh mục và cập nhật index gợi ý khi sản phẩm thay đổi.
+ * Version catalog (ETag) KHÔNG tăng ở đây: service ghi dữ liệu tăng version trong cùng transaction.
+ * Listener chỉ dọn cache trong bộ nhớ, trên từng node qua NodeLocalEvent.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogCacheEventListener {
+
+    private final CategorySnapshotService categorySnapshotService;
+    private final ProductSuggestIndex productSuggestIndex;
+
+    @EventListener
+    public void onProductChangedLocally(NodeLocalEvent<ProductChangedEvent> local) {
+        ProductChangedEvent event = local.event();
+        categorySnapshotService.invalidate(); // Số sản phẩm theo danh mục có thể thay đổi
+        productSuggestIndex.onProductChanged(event.getProductId(), event.getChangeType());
+    }
+}
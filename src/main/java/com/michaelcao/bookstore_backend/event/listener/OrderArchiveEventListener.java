@@ -0,0 +1,24 @@
+package com.michaelcao.bookstore_backend.event.listener;
+
+import com.michaelcao.bookstore_backend.event.NodeLocalEvent;
+import com.michaelcao.bookstore_backend.event.OrdersArchivedEvent;
+import com.michaelcao.bookstore_backend.service.OrderArchiveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bỏ cache tổng của tầng lưu trữ trên MỌI node khi có batch đơn hàng mới được lưu trữ
+ * (job lưu trữ chỉ chạy trên node giữ lease, cache thì nằm trong bộ nhớ của từng node).
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderArchiveEventListener {
+
+    private final OrderArchiveService orderArchiveService;
+
+    @EventListener
+    public void onOrdersArchived(NodeLocalEvent<OrdersArchivedEvent> local) {
+        orderArchiveService.invalidateTotals();
+    }
+}
@@ -0,0 +1,33 @@
+package com.michaelcao.bookstore_backend.event.listener;
+
+import com.michaelcao.bookstore_backend.event.NodeLocalEvent;
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.service.ProductCoPurchaseIndex;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cập nhật các mô hình gợi ý sản phẩm từ event đơn hàng (ngoài request, sau commit).
+ * Mô hình nằm trong bộ nhớ của từng node nên nghe bản NodeLocalEvent (mọi node đều nhận).
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationEventListener {
+
+    private final ProductCoPurchaseIndex productCoPurchaseIndex;
+    private final ProductTrendingIndex productTrendingIndex;
+
+    // Mỗi node nhận mỗi event một lần (con trỏ riêng trên outbox). Nếu vẫn bị giao lại, mô hình mua kèm không đếm trùng
+    // (nhớ ID các đơn gần đây), điểm thịnh hành thì có thể bị cộng thêm một lần (chấp nhận được với một chỉ số xấp xỉ)
+    @EventListener
+    public void onOrderPlaced(NodeLocalEvent<OrderPlacedEvent> local) {
+        OrderPlacedEvent event = local.event();
+        productCoPurchaseIndex.onOrderPlaced(event);
+        if (event.getProductIds() != null) {
+            event.getProductIds().stream().distinct()
+                    .forEach(productId -> productTrendingIndex.record(productId, ProductTrendingIndex.Signal.PURCHASE));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.michaelcao.bookstore_backend.event.listener;
+
+import com.michaelcao.bookstore_backend.entity.VerificationToken;
+import com.michaelcao.bookstore_backend.event.UserRegisteredEvent;
+import com.michaelcao.bookstore_backend.repository.VerificationTokenRepository;
+import com.michaelcao.bookstore_backend.service.EmailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserNotificationEventListener {
+
+    private final EmailService emailService;
+    private final VerificationTokenRepository verificationTokenRepository;
+
+    @Value("${app.frontend-url}")
+    private String frontendUrl;
+
+    // Gửi mail ngoài request: SMTP chậm/lỗi không còn làm chậm hay rollback việc đăng ký, lỗi sẽ được relay retry.
+    // Token được đọc lại từ DB (transaction ghi -> primary, không bị replica trễ) thay vì lấy từ payload của outbox
+    @EventListener
+    @Transactional
+    public void onUserRegistered(UserRegisteredEvent event) {
+        Optional<VerificationToken> token = verificationTokenRepository.findByUser_Id(event.getUserId());
+        if (token.isEmpty() || token.get().isExpired()) {
+            log.info("Skipping verification email for user ID {}: no valid token (already verified or expired)", event.getUserId());
+            return;
+        }
+        String verificationUrl = frontendUrl + "/verify-email?token=" + token.get().getToken();
+        emailService.sendVerificationEmail(event.getEmail(), event.getName(), verificationUrl);
+    }
+}
@@ -67,6 +67,12 @@ public class GlobalExceptionHandler {
         log.warn("Invalid token encountered: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
+    // Chỉ xảy ra khi app.sql-budget.fail-on-violation=true (profile test): trả rõ lý do thay vì thông báo chung
+    @ExceptionHandler(SqlBudgetExceededException.class)
+    public ResponseEntity<String> handleSqlBudgetExceeded(SqlBudgetExceededException ex, WebRequest request) {
+        log.error("SQL budget exceeded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+    }
     // Catch-all for other unexpected RuntimeExceptions
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
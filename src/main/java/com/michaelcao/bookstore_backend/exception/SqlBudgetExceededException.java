@@ -0,0 +1,11 @@
+package com.michaelcao.bookstore_backend.exception;
+
+/**
+ * Request chạy nhiều câu SQL hơn @SqlBudget cho phép (chỉ ném khi app.sql-budget.fail-on-violation=true).
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,55 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.ArchivedOrder;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, UUID> {
+
+    // Chi tiết đơn hàng đã lưu trữ, kèm User, items và Product trong MỘT query
+    @Query("SELECT o FROM ArchivedOrder o " +
+            "LEFT JOIN FETCH o.user u " +
+            "LEFT JOIN FETCH o.orderItems oi " +
+            "LEFT JOIN FETCH oi.product p " +
+            "WHERE o.id = :orderId")
+    Optional<ArchivedOrder> findByIdWithDetails(@Param("orderId") UUID orderId);
+
+    long countByUserId(Long userId);
+
+    // Cùng thứ tự và cùng dạng keyset với OrderRepository để trộn hai tầng theo (orderDate DESC, id ASC)
+    @Query("SELECT o FROM ArchivedOrder o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id ASC")
+    List<ArchivedOrder> findFirstPageByUserId(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT o FROM ArchivedOrder o WHERE o.user.id = :userId " +
+            "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.id > :cursorId)) " +
+            "ORDER BY o.orderDate DESC, o.id ASC")
+    List<ArchivedOrder> findPageByUserIdAfter(@Param("userId") Long userId,
+                                              @Param("cursorDate") Instant cursorDate,
+                                              @Param("cursorId") UUID cursorId,
+                                              Pageable limit);
+
+    // Load items + product cho các đơn hàng đã chọn trên trang (entity trong persistence context được khởi tạo luôn)
+    @Query("SELECT DISTINCT o FROM ArchivedOrder o LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product " +
+            "WHERE o.id IN :ids")
+    List<ArchivedOrder> findAllByIdInWithItems(@Param("ids") List<UUID> ids);
+
+    @Query("SELECT COUNT(o.id) > 0 FROM ArchivedOrder o JOIN o.orderItems oi " +
+            "WHERE o.user.id = :userId AND oi.product.id = :productId AND o.status = :status")
+    boolean existsByUserIdAndItemsProductIdAndStatus(@Param("userId") Long userId,
+                                                     @Param("productId") UUID productId,
+                                                     @Param("status") OrderStatus status);
+
+    @Query("SELECT SUM(o.totalAmount) FROM ArchivedOrder o")
+    BigDecimal getTotalRevenue();
+}
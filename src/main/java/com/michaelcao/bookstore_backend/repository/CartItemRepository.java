@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.Set; // Import Set
 import java.util.UUID;
@@ -51,6 +52,14 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> { // E
     @Query("DELETE FROM CartItem ci WHERE ci.id = :cartItemId AND ci.cart.id = :cartId")
     void deleteByIdAndCartId(@Param("cartItemId") Long cartItemId, @Param("cartId") Long cartId);
 
+    /**
+     * Xóa các CartItem đã được đặt hàng khỏi giỏ.
+     * @return số dòng thực sự bị xóa: nhỏ hơn số ID nghĩa là transaction khác (checkout song song) đã xóa trước.
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.id IN :cartItemIds AND ci.cart.id = :cartId")
+    int deleteByIdInAndCartId(@Param("cartItemIds") Collection<Long> cartItemIds, @Param("cartId") Long cartId);
+
     /**
      * Xóa tất cả các CartItem thuộc về một Cart ID.
      * Hữu ích khi cần xóa sạch giỏ hàng (ví dụ sau khi checkout).
@@ -0,0 +1,81 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.CatalogVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Truy cập JDBC cho bảng catalog_versions (entity CatalogVersion).
+ * Thời gian được bind/đọc dưới dạng LocalDateTime theo UTC (giống cách Hibernate lưu Instant).
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return Map tên -> version hiện tại (chỉ một query, bảng chỉ có vài dòng).
+     */
+    public Map<String, CatalogVersion> findAll() {
+        Map<String, CatalogVersion> result = new HashMap<>();
+        jdbcTemplate.query("SELECT name, version, updated_at FROM catalog_versions", rs -> {
+            CatalogVersion version = new CatalogVersion();
+            version.setName(rs.getString("name"));
+            version.setVersion(rs.getLong("version"));
+            version.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class).toInstant(ZoneOffset.UTC));
+            result.put(version.getName(), version);
+        });
+        return result;
+    }
+
+    /**
+     * Tăng version của các dòng trong transaction hiện tại (nếu có), thêm dòng nếu chưa tồn tại.
+     * Các dòng luôn được khóa theo cùng thứ tự tên để hai writer không deadlock lẫn nhau.
+     */
+    public void increment(Collection<String> names, Instant now) {
+        LocalDateTime updatedAt = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        for (String name : new TreeSet<>(names)) {
+            int updated = jdbcTemplate.update(
+                    "UPDATE catalog_versions SET version = version + 1, updated_at = ? WHERE name = ?", updatedAt, name);
+            if (updated == 0 && !insert(name, 1, updatedAt)) {
+                // Instance khác vừa thêm dòng này
+                jdbcTemplate.update(
+                        "UPDATE catalog_versions SET version = version + 1, updated_at = ? WHERE name = ?", updatedAt, name);
+            }
+        }
+    }
+
+    /**
+     * Thêm các dòng chưa có với version 0 (gọi lúc khởi động).
+     */
+    public void createMissing(Collection<String> names, Instant now) {
+        LocalDateTime updatedAt = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        Map<String, CatalogVersion> existing = findAll();
+        for (String name : names) {
+            if (!existing.containsKey(name)) {
+                insert(name, 0, updatedAt);
+            }
+        }
+    }
+
+    private boolean insert(String name, long version, LocalDateTime updatedAt) {
+        try {
+            jdbcTemplate.update("INSERT INTO catalog_versions (name, version, updated_at) VALUES (?, ?, ?)",
+                    name, version, updatedAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
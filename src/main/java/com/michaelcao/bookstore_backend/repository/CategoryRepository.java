@@ -1,9 +1,15 @@
 package com.michaelcao.bookstore_backend.repository;
 
 import com.michaelcao.bookstore_backend.entity.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional; // Import Optional
 
 @Repository // Đánh dấu đây là một Spring Data repository bean
@@ -11,12 +17,62 @@ import java.util.Optional; // Import Optional
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     // Spring Data JPA tự động tạo query dựa trên tên phương thức:
+    // Các truy vấn danh mục dùng query cache (region reference-queries); Hibernate tự vô hiệu
+    // kết quả khi bảng categories được ghi qua JPA (thêm/sửa/xóa danh mục của admin)
+
+    // Toàn bộ danh mục (dựng CategorySnapshotService)
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")
+    })
+    List<Category> findAll();
+
     // Tìm Category bằng tên (không phân biệt chữ hoa/thường)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")
+    })
     Optional<Category> findByNameIgnoreCase(String name);
 
     // Kiểm tra xem Category với tên cho trước có tồn tại không (không phân biệt chữ hoa/thường)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")
+    })
     boolean existsByNameIgnoreCase(String name);
 
+    // --- Projection cho số lượng sản phẩm theo danh mục ---
+    interface CategoryProductCount {
+        Long getCategoryId();
+        Long getProductCount();
+    }
+
+    /**
+     * Đếm số sản phẩm của TẤT CẢ danh mục trong một lần GROUP BY trên bảng join product_categories.
+     * Dùng để dựng snapshot danh mục (không cần query count riêng cho từng danh mục).
+     */
+    @Query(value = "SELECT pc.category_id AS categoryId, COUNT(*) AS productCount " +
+            "FROM product_categories pc GROUP BY pc.category_id", nativeQuery = true)
+    List<CategoryProductCount> countProductsPerCategory();
+
+    /**
+     * Đếm số sản phẩm nhận danh mục làm danh mục CHÍNH (cột products.categoryId), gom nhóm theo danh mục.
+     * Dùng cho kiểm tra trước khi xóa danh mục.
+     */
+    @Query("SELECT p.category.id AS categoryId, COUNT(p.id) AS productCount " +
+            "FROM Product p WHERE p.category IS NOT NULL GROUP BY p.category.id")
+    List<CategoryProductCount> countPrimaryProductsPerCategory();
+
+    /**
+     * Số sản phẩm gắn với MỘT danh mục (danh mục chính + bảng join product_categories), đếm trực tiếp trong DB.
+     * Dùng khi snapshot danh mục chưa kịp nạp lại.
+     */
+    @Query("SELECT (SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId) + " +
+            "(SELECT COUNT(p2) FROM Product p2 JOIN p2.categories c2 WHERE c2.id = :categoryId) " +
+            "FROM Category c WHERE c.id = :categoryId")
+    long countProductsByCategoryId(@Param("categoryId") Long categoryId);
+
     // Bạn có thể thêm các phương thức truy vấn khác ở đây nếu cần
     // Ví dụ: Tìm tất cả danh mục cha (nếu có parentCategory)
     // List<Category> findByParentCategoryIsNull();
@@ -0,0 +1,65 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Câu lệnh JDBC để chuyển đơn hàng từ bảng nóng (orders, order_items) sang bảng lưu trữ
+ * (orders_archive, order_items_archive). Các hàm phải được gọi trong cùng một transaction cho mỗi batch.
+ * Danh sách cột phải khớp với entity Order/OrderItem và ArchivedOrder/ArchivedOrderItem.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private static final String ORDER_COLUMNS = "id, user_id, order_date, total_amount, status, payment_method, " +
+            "shipping_street, shipping_city, shipping_district, shipping_country, shipping_phone, recipient_name, notes";
+    private static final String ITEM_COLUMNS = "id, order_id, product_id, quantity, price_at_purchase";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Chọn và khóa (FOR UPDATE) tối đa `limit` đơn hàng đủ điều kiện lưu trữ, cũ nhất trước.
+     * @return ID (dạng BINARY(16)) của các đơn hàng được chọn.
+     */
+    public List<byte[]> lockArchivableOrderIds(Instant cutoff, Collection<OrderStatus> statuses, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", LocalDateTime.ofInstant(cutoff, ZoneOffset.UTC))
+                .addValue("statuses", statuses.stream().map(Enum::name).toList())
+                .addValue("limit", limit);
+        return namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE order_date < :cutoff AND status IN (:statuses) " +
+                        "ORDER BY order_date, id LIMIT :limit FOR UPDATE",
+                params, byte[].class);
+    }
+
+    /**
+     * Chép đơn hàng và item sang bảng lưu trữ rồi xóa khỏi bảng nóng.
+     * @return Số đơn hàng đã chuyển.
+     */
+    public int moveToArchive(List<byte[]> orderIds, Instant archivedAt) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", orderIds)
+                .addValue("archivedAt", LocalDateTime.ofInstant(archivedAt, ZoneOffset.UTC));
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO orders_archive (" + ORDER_COLUMNS + ", archived_at) " +
+                        "SELECT " + ORDER_COLUMNS + ", :archivedAt FROM orders WHERE id IN (:ids)", params);
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO order_items_archive (" + ITEM_COLUMNS + ") " +
+                        "SELECT " + ITEM_COLUMNS + " FROM order_items WHERE order_id IN (:ids)", params);
+        namedParameterJdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (:ids)", params);
+        return namedParameterJdbcTemplate.update("DELETE FROM orders WHERE id IN (:ids)", params);
+    }
+}
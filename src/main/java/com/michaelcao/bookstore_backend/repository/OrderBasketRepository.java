@@ -0,0 +1,78 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Đọc "giỏ hàng" (danh sách sản phẩm của từng đơn) để dựng mô hình mua kèm (ProductCoPurchaseIndex).
+ * Đơn hàng được đọc theo keyset (order_date, id) trên index idx_order_date / idx_order_archive_date như
+ * OrderExportRepository; mỗi trang là MỘT query (trang đơn hàng JOIN item), không giữ cursor/transaction dài.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBasketRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Lấy trang giỏ hàng kế tiếp sau vị trí (afterDate, afterId).
+     * @param to Mốc kết thúc (không bao gồm).
+     * @param excludedStatuses Trạng thái bị bỏ qua (đơn hủy, thanh toán lỗi).
+     * @param afterDate orderDate của giỏ cuối trang trước (null cho trang đầu).
+     * @param afterId ID của giỏ cuối trang trước (null cho trang đầu).
+     * @param archived true để đọc từ bảng lưu trữ.
+     * @return Tối đa limit giỏ theo (order_date, id); đơn không có item cho giỏ rỗng (vẫn giữ để keyset tiến lên).
+     */
+    public List<Basket> findBasketPage(Instant to, Collection<OrderStatus> excludedStatuses,
+                                       Instant afterDate, UUID afterId, int limit, boolean archived) {
+        StringBuilder page = new StringBuilder("SELECT id, order_date FROM ")
+                .append(archived ? "orders_archive" : "orders").append(" WHERE order_date < :to");
+        MapSqlParameterSource params = new MapSqlParameterSource("to", toUtc(to)).addValue("limit", limit);
+        if (!excludedStatuses.isEmpty()) {
+            page.append(" AND status NOT IN (:excluded)");
+            params.addValue("excluded", excludedStatuses.stream().map(Enum::name).toList());
+        }
+        if (afterDate != null && afterId != null) {
+            page.append(" AND (order_date > :afterDate OR (order_date = :afterDate AND id > :afterId))");
+            params.addValue("afterDate", toUtc(afterDate));
+            params.addValue("afterId", ProductBulkRepository.toBytes(afterId));
+        }
+        page.append(" ORDER BY order_date, id LIMIT :limit");
+        String sql = "SELECT o.id, o.order_date, oi.product_id FROM (" + page + ") o LEFT JOIN "
+                + (archived ? "order_items_archive" : "order_items") + " oi ON oi.order_id = o.id ORDER BY o.order_date, o.id";
+
+        List<Basket> baskets = new ArrayList<>(limit);
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            UUID orderId = ProductBulkRepository.fromBytes(rs.getBytes("id"));
+            Basket last = baskets.isEmpty() ? null : baskets.get(baskets.size() - 1);
+            if (last == null || !last.orderId().equals(orderId)) {
+                last = new Basket(orderId, rs.getObject("order_date", LocalDateTime.class).toInstant(ZoneOffset.UTC), new ArrayList<>());
+                baskets.add(last);
+            }
+            byte[] productId = rs.getBytes("product_id");
+            if (productId != null) {
+                last.productIds().add(ProductBulkRepository.fromBytes(productId));
+            }
+        });
+        return baskets;
+    }
+
+    private static LocalDateTime toUtc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    // Sản phẩm của một đơn hàng (có thể trùng nếu đơn có nhiều dòng cùng sản phẩm)
+    public record Basket(UUID orderId, Instant orderDate, List<UUID> productIds) {
+    }
+}
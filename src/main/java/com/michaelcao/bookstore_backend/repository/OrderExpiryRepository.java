@@ -0,0 +1,80 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Câu lệnh JDBC dạng set-based cho việc hủy các đơn chờ thanh toán đã quá hạn và hoàn kho.
+ * Các hàm phải được gọi trong cùng một transaction cho mỗi batch (sau lockExpiredOrderIds).
+ * restoreStock cũng được admin dùng khi hủy đơn, sau khi UPDATE trạng thái có điều kiện đã thành công.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderExpiryRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Chọn và khóa (FOR UPDATE) tối đa `limit` đơn PENDING_PAYMENT đặt trước cutoff, cũ nhất trước.
+     * Dùng index idx_order_status_date (status, order_date, id).
+     * @return ID (dạng BINARY(16)) của các đơn hàng được chọn.
+     */
+    public List<byte[]> lockExpiredOrderIds(Instant cutoff, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("status", OrderStatus.PENDING_PAYMENT.name())
+                .addValue("cutoff", LocalDateTime.ofInstant(cutoff, ZoneOffset.UTC))
+                .addValue("limit", limit);
+        return namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE status = :status AND order_date < :cutoff " +
+                        "ORDER BY order_date, id LIMIT :limit FOR UPDATE",
+                params, byte[].class);
+    }
+
+    /**
+     * Tổng số lượng sản phẩm của các đơn hàng (số đơn vị tồn kho sẽ được hoàn lại).
+     */
+    public long sumItemQuantities(List<byte[]> orderIds) {
+        Long total = namedParameterJdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE order_id IN (:ids)",
+                new MapSqlParameterSource("ids", orderIds), Long.class);
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Chuyển các đơn sang CANCELLED, chỉ khi vẫn còn ở PENDING_PAYMENT.
+     * @return Số đơn đã hủy.
+     */
+    public int cancelPendingPayment(List<byte[]> orderIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", orderIds)
+                .addValue("cancelled", OrderStatus.CANCELLED.name())
+                .addValue("pending", OrderStatus.PENDING_PAYMENT.name());
+        return namedParameterJdbcTemplate.update(
+                "UPDATE orders SET status = :cancelled WHERE id IN (:ids) AND status = :pending", params);
+    }
+
+    /**
+     * Hoàn kho cho toàn bộ item của các đơn trong MỘT câu UPDATE (mỗi sản phẩm được cộng tổng số lượng của nó).
+     * updated_at được cập nhật để ETag chi tiết sản phẩm thay đổi theo.
+     * @return Số sản phẩm đã được cập nhật.
+     */
+    public int restoreStock(List<byte[]> orderIds, Instant now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", orderIds)
+                .addValue("now", LocalDateTime.ofInstant(now, ZoneOffset.UTC));
+        return namedParameterJdbcTemplate.update(
+                "UPDATE products SET stock_quantity = stock_quantity + " +
+                        "(SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.product_id = products.id AND oi.order_id IN (:ids)), " +
+                        "updated_at = :now " +
+                        "WHERE id IN (SELECT oi.product_id FROM order_items oi WHERE oi.order_id IN (:ids))",
+                params);
+    }
+}
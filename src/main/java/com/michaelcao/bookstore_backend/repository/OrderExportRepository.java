@@ -0,0 +1,137 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.dto.order.OrderExportRow;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.entity.PaymentMethod;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Truy vấn JDBC cho export đơn hàng.
+ * Đơn hàng được đọc theo keyset (order_date, id): mỗi trang là một query ngắn dùng index
+ * idx_order_date, nên trang thứ N nhanh như trang đầu và không giữ cursor/transaction dài.
+ * Thời gian được bind/đọc dưới dạng LocalDateTime theo UTC (giống cách Hibernate lưu Instant).
+ * Tham số `archived` chọn tầng dữ liệu: orders/order_items hoặc orders_archive/order_items_archive.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderExportRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Lấy trang đơn hàng kế tiếp sau vị trí (afterDate, afterId).
+     * @param from Mốc bắt đầu (bao gồm), null = không giới hạn.
+     * @param to Mốc kết thúc (không bao gồm), null = không giới hạn.
+     * @param statuses Lọc theo trạng thái, rỗng = tất cả.
+     * @param afterDate orderDate của dòng cuối trang trước (null cho trang đầu).
+     * @param afterId ID của dòng cuối trang trước (null cho trang đầu).
+     * @param archived true để đọc từ bảng lưu trữ.
+     * @return Các dòng chứa thông tin đơn hàng (chưa có thông tin item), sắp xếp theo (order_date, id).
+     */
+    public List<OrderExportRow> findOrderPage(Instant from, Instant to, Collection<OrderStatus> statuses,
+                                              Instant afterDate, UUID afterId, int limit, boolean archived) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id, o.order_date, o.status, o.payment_method, o.total_amount, o.user_id, u.email, u.name, " +
+                "o.recipient_name, o.shipping_phone, o.shipping_street, o.shipping_district, o.shipping_city, " +
+                "o.shipping_country FROM " + (archived ? "orders_archive" : "orders") + " o JOIN users u ON u.id = o.user_id WHERE 1 = 1");
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        if (from != null) {
+            sql.append(" AND o.order_date >= :from");
+            params.addValue("from", toUtc(from));
+        }
+        if (to != null) {
+            sql.append(" AND o.order_date < :to");
+            params.addValue("to", toUtc(to));
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            sql.append(" AND o.status IN (:statuses)");
+            params.addValue("statuses", statuses.stream().map(Enum::name).toList());
+        }
+        if (afterDate != null && afterId != null) {
+            // Viết dạng OR thay vì (a, b) > (x, y) để MySQL dùng được range scan trên index
+            sql.append(" AND (o.order_date > :afterDate OR (o.order_date = :afterDate AND o.id > :afterId))");
+            params.addValue("afterDate", toUtc(afterDate));
+            params.addValue("afterId", ProductBulkRepository.toBytes(afterId));
+        }
+        sql.append(" ORDER BY o.order_date, o.id LIMIT :limit");
+
+        return namedParameterJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> OrderExportRow.builder()
+                .orderId(ProductBulkRepository.fromBytes(rs.getBytes("id")))
+                .orderDate(fromUtc(rs.getObject("order_date", LocalDateTime.class)))
+                .status(OrderStatus.valueOf(rs.getString("status")))
+                .paymentMethod(PaymentMethod.valueOf(rs.getString("payment_method")))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .userId(rs.getLong("user_id"))
+                .userEmail(rs.getString("email"))
+                .userName(rs.getString("name"))
+                .recipientName(rs.getString("recipient_name"))
+                .shippingPhone(rs.getString("shipping_phone"))
+                .shippingStreet(rs.getString("shipping_street"))
+                .shippingDistrict(rs.getString("shipping_district"))
+                .shippingCity(rs.getString("shipping_city"))
+                .shippingCountry(rs.getString("shipping_country"))
+                .build());
+    }
+
+    /**
+     * Lấy item (kèm tên/ISBN sản phẩm) của một nhóm đơn hàng trong MỘT query.
+     * @return Map ID đơn hàng -> danh sách item.
+     */
+    public Map<UUID, List<OrderItemLine>> findItemsByOrderIds(Collection<UUID> orderIds, boolean archived) {
+        Map<UUID, List<OrderItemLine>> result = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return result;
+        }
+        List<byte[]> ids = orderIds.stream().map(ProductBulkRepository::toBytes).toList();
+        namedParameterJdbcTemplate.query(
+                "SELECT oi.order_id, oi.product_id, p.title, p.isbn, oi.quantity, oi.price_at_purchase " +
+                        "FROM " + (archived ? "order_items_archive" : "order_items") + " oi LEFT JOIN products p ON p.id = oi.product_id " +
+                        "WHERE oi.order_id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    UUID orderId = ProductBulkRepository.fromBytes(rs.getBytes("order_id"));
+                    result.computeIfAbsent(orderId, k -> new ArrayList<>()).add(new OrderItemLine(
+                            ProductBulkRepository.fromBytes(rs.getBytes("product_id")),
+                            rs.getString("title"),
+                            rs.getString("isbn"),
+                            rs.getInt("quantity"),
+                            rs.getBigDecimal("price_at_purchase")));
+                });
+        return result;
+    }
+
+    private static LocalDateTime toUtc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant fromUtc(LocalDateTime value) {
+        return value != null ? value.toInstant(ZoneOffset.UTC) : null;
+    }
+
+    // Một order item đã được làm phẳng cho export
+    @Getter
+    @AllArgsConstructor
+    public static class OrderItemLine {
+        private final UUID productId;
+        private final String productTitle;
+        private final String productIsbn;
+        private final int quantity;
+        private final BigDecimal priceAtPurchase;
+    }
+}
@@ -5,12 +5,18 @@ import com.michaelcao.bookstore_backend.entity.OrderStatus; // Import Enum nếu
 import com.michaelcao.bookstore_backend.entity.User;
 import org.springframework.data.domain.Page; // Import Page
 import org.springframework.data.domain.Pageable; // Import Pageable
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query; // Import Query
 import org.springframework.data.repository.query.Param; // Import Param
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional; // Import Optional
 import java.util.UUID;
 
@@ -78,6 +84,44 @@ public interface OrderRepository extends JpaRepository<Order, UUID> { // Entity:
     Page<Order> findByUserIdWithUserOrderByOrderDateDesc(@Param("userId") Long userId, Pageable pageable);
 
 
+    // --- Keyset (cursor) pagination ---
+    // Không dùng OFFSET và không có count query: trang sâu cũng chỉ đọc đúng `limit` dòng trên index.
+    // Lịch sử của khách hàng: ORDER BY order_date DESC, id ASC khớp index idx_order_user_date (user_id, order_date DESC, id).
+    // Danh sách của Admin: ORDER BY order_date DESC, id DESC = backward scan trên idx_order_date / idx_order_status_date.
+    // Khách hàng xem đơn của chính mình nên không JOIN FETCH user (tránh lặp dữ liệu user trên mỗi dòng).
+
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id ASC")
+    List<Order> findFirstPageByUserId(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
+            "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.id > :cursorId)) " +
+            "ORDER BY o.orderDate DESC, o.id ASC")
+    List<Order> findPageByUserIdAfter(@Param("userId") Long userId,
+                                      @Param("cursorDate") Instant cursorDate,
+                                      @Param("cursorId") UUID cursorId,
+                                      Pageable limit);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageWithUser(Pageable limit);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user " +
+            "WHERE o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.id < :cursorId) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageWithUserAfter(@Param("cursorDate") Instant cursorDate,
+                                      @Param("cursorId") UUID cursorId,
+                                      Pageable limit);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user WHERE o.status = :status ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageByStatusWithUser(@Param("status") OrderStatus status, Pageable limit);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user WHERE o.status = :status " +
+            "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.id < :cursorId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByStatusWithUserAfter(@Param("status") OrderStatus status,
+                                              @Param("cursorDate") Instant cursorDate,
+                                              @Param("cursorId") UUID cursorId,
+                                              Pageable limit);
+
     // Bạn có thể thêm các phương thức khác dựa trên nhu cầu
     // Ví dụ: tìm đơn hàng theo trạng thái
     // Page<Order> findByStatus(OrderStatus status, Pageable pageable);
@@ -97,6 +141,43 @@ public interface OrderRepository extends JpaRepository<Order, UUID> { // Entity:
             @Param("status") OrderStatus status // Truyền vào OrderStatus.DELIVERED
     );
 
+    // Projection nhẹ cho chuyển trạng thái hàng loạt: không load entity/User/items
+    interface OrderStatusView {
+        UUID getId();
+        OrderStatus getStatus();
+        Long getUserId();
+    }
+
+    /**
+     * Đọc trạng thái và khóa (SELECT ... FOR UPDATE) các đơn hàng tới hết transaction: trạng thái đọc được là trạng thái
+     * mà UPDATE hàng loạt sau đó sẽ thấy. user_id là cột của bảng orders nên không khóa thêm bảng users.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id AS id, o.status AS status, o.user.id AS userId FROM Order o WHERE o.id IN :ids")
+    List<OrderStatusView> lockStatusesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Chuyển trạng thái nhiều đơn hàng bằng một câu UPDATE, chỉ với đơn đang ở một trong các trạng thái nguồn hợp lệ.
+     * @return Số đơn đã cập nhật.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :target WHERE o.id IN :ids AND o.status IN :sources")
+    int updateStatusWhereIdInAndStatusIn(@Param("ids") Collection<UUID> ids,
+                                         @Param("sources") Collection<OrderStatus> sources,
+                                         @Param("target") OrderStatus target);
+
+    /**
+     * Chuyển trạng thái MỘT đơn hàng, chỉ khi đơn vẫn đang ở trạng thái đã đọc trước đó (compare-and-set).
+     * Kết quả theo từng dòng: 0 nghĩa là đơn đã bị đổi trạng thái đồng thời, người gọi không được làm side effect
+     * (hoàn kho, phát event) cho đơn đó.
+     * @return 1 nếu đã cập nhật, 0 nếu trạng thái hiện tại khác expected.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :target WHERE o.id = :id AND o.status = :expected")
+    int updateStatusIfCurrent(@Param("id") UUID id,
+                              @Param("expected") OrderStatus expected,
+                              @Param("target") OrderStatus target);
+
     // Hoặc cách đơn giản hơn nếu chỉ cần biết user có từng đặt hàng sản phẩm đó (không cần biết trạng thái)
     // @Query("SELECT COUNT(o.id) > 0 FROM Order o JOIN o.orderItems oi WHERE o.user.id = :userId AND oi.product.id = :productId")
     // boolean existsByUserIdAndItemsProductId(@Param("userId") Long userId, @Param("productId") Long productId);
@@ -0,0 +1,54 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.OutboxEvent;
+import com.michaelcao.bookstore_backend.entity.OutboxEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Lấy một batch event chưa giao theo thứ tự ghi (id tăng dần).
+     * Bao gồm cả event đang chờ retry: relay tự bỏ qua chúng để không giao event sau vượt lên trước.
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status AND e.id > :afterId ORDER BY e.id")
+    List<OutboxEvent> findBatch(@Param("status") OutboxEventStatus status,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    /**
+     * Đánh dấu cả batch đã giao trong MỘT câu UPDATE.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids,
+                      @Param("status") OutboxEventStatus status,
+                      @Param("publishedAt") Instant publishedAt);
+
+    /**
+     * Lấy các event ghi sau afterId theo thứ tự id, BẤT KỂ trạng thái: mỗi node dùng để giao bản cục bộ (NodeLocalEvent).
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id > :afterId ORDER BY e.id")
+    List<OutboxEvent> findAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM OutboxEvent e")
+    long findMaxId();
+
+    /**
+     * Dọn các event đã kết thúc (đã giao hoặc FAILED) được ghi trước thời điểm cutoff.
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status IN :statuses AND e.createdAt < :cutoff")
+    int deleteFinishedBefore(@Param("statuses") Collection<OutboxEventStatus> statuses, @Param("cutoff") Instant cutoff);
+
+    long countByStatus(OutboxEventStatus status);
+}
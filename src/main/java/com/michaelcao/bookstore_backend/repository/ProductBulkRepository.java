@@ -0,0 +1,165 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductImportRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Truy cập JDBC trực tiếp cho các thao tác hàng loạt trên bảng products
+ * (import, v.v.), nơi mà việc đi qua persistence context của JPA quá tốn kém.
+ * Các câu lệnh được gửi theo JDBC batch; với MySQL nên bật rewriteBatchedStatements=true.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Tra cứu ID sản phẩm theo danh sách ISBN trong MỘT query.
+     * @return Map ISBN -> ID sản phẩm (chỉ chứa các ISBN đã tồn tại).
+     */
+    public Map<String, UUID> findIdsByIsbnIn(Collection<String> isbns) {
+        Map<String, UUID> result = new HashMap<>();
+        if (isbns.isEmpty()) {
+            return result;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT id, isbn FROM products WHERE isbn IN (:isbns)",
+                new MapSqlParameterSource("isbns", isbns),
+                rs -> {
+                    result.put(rs.getString("isbn"), fromBytes(rs.getBytes("id")));
+                });
+        return result;
+    }
+
+    /**
+     * Thêm mới sản phẩm theo batch.
+     * @param rows Các dòng đã được validate.
+     * @param ids ID tương ứng cho từng dòng (cùng thứ tự).
+     */
+    public void batchInsert(List<ProductImportRow> rows, List<UUID> ids, Instant now, int batchSize) {
+        Timestamp ts = Timestamp.from(now);
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductImportRow row = rows.get(i);
+            args.add(new Object[]{
+                    toBytes(ids.get(i)), row.getTitle(), row.getAuthor(), emptyToNull(row.getIsbn()),
+                    row.getDescription(), row.getPrice(), row.getStockQuantity(), 0, row.getImageUrl(),
+                    row.getPublishedDate() != null ? Date.valueOf(row.getPublishedDate()) : null,
+                    row.getCategoryId(), ts, ts
+            });
+        }
+        executeInBatches(
+                "INSERT INTO products (id, title, author, isbn, description, price, stock_quantity, sold_count, " +
+                        "image_url, published_date, category_id, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                args, batchSize);
+    }
+
+    /**
+     * Cập nhật các sản phẩm đã tồn tại (theo ISBN) theo batch. sold_count và created_at được giữ nguyên.
+     */
+    public void batchUpdate(List<ProductImportRow> rows, List<UUID> ids, Instant now, int batchSize) {
+        Timestamp ts = Timestamp.from(now);
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductImportRow row = rows.get(i);
+            args.add(new Object[]{
+                    row.getTitle(), row.getAuthor(), row.getDescription(), row.getPrice(),
+                    row.getStockQuantity(), row.getImageUrl(),
+                    row.getPublishedDate() != null ? Date.valueOf(row.getPublishedDate()) : null,
+                    row.getCategoryId(), ts, toBytes(ids.get(i))
+            });
+        }
+        executeInBatches(
+                "UPDATE products SET title = ?, author = ?, description = ?, price = ?, stock_quantity = ?, " +
+                        "image_url = ?, published_date = ?, category_id = ?, updated_at = ? WHERE id = ?",
+                args, batchSize);
+    }
+
+    /**
+     * Thay toàn bộ danh mục (bảng product_categories) của các sản phẩm đã cho.
+     * @param categoriesByProduct Map ID sản phẩm -> tập ID danh mục mới.
+     * @param deleteExisting true nếu cần xóa liên kết cũ trước (trường hợp update).
+     */
+    public void replaceCategories(Map<UUID, Set<Long>> categoriesByProduct, boolean deleteExisting, int batchSize) {
+        if (categoriesByProduct.isEmpty()) {
+            return;
+        }
+        if (deleteExisting) {
+            List<Object[]> deleteArgs = new ArrayList<>(categoriesByProduct.size());
+            for (UUID productId : categoriesByProduct.keySet()) {
+                deleteArgs.add(new Object[]{toBytes(productId)});
+            }
+            executeInBatches("DELETE FROM product_categories WHERE product_id = ?", deleteArgs, batchSize);
+        }
+        List<Object[]> insertArgs = new ArrayList<>();
+        categoriesByProduct.forEach((productId, categoryIds) -> {
+            byte[] idBytes = toBytes(productId);
+            for (Long categoryId : categoryIds) {
+                insertArgs.add(new Object[]{idBytes, categoryId});
+            }
+        });
+        executeInBatches("INSERT INTO product_categories (product_id, category_id) VALUES (?, ?)", insertArgs, batchSize);
+    }
+
+    /**
+     * Lấy ID danh mục (bảng product_categories) cho một nhóm sản phẩm trong MỘT query.
+     * @return Map ID sản phẩm -> danh sách ID danh mục (sản phẩm không có danh mục sẽ không có key).
+     */
+    public Map<UUID, List<Long>> findCategoryIdsByProductIds(Collection<UUID> productIds) {
+        Map<UUID, List<Long>> result = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return result;
+        }
+        List<byte[]> idBytes = productIds.stream().map(ProductBulkRepository::toBytes).toList();
+        namedParameterJdbcTemplate.query(
+                "SELECT product_id, category_id FROM product_categories WHERE product_id IN (:ids) ORDER BY category_id",
+                new MapSqlParameterSource("ids", idBytes),
+                rs -> {
+                    result.computeIfAbsent(fromBytes(rs.getBytes("product_id")), k -> new ArrayList<>())
+                            .add(rs.getLong("category_id"));
+                });
+        return result;
+    }
+
+    private void executeInBatches(String sql, List<Object[]> args, int batchSize) {
+        for (int from = 0; from < args.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, args.subList(from, Math.min(from + batchSize, args.size())));
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // UUID được Hibernate lưu dưới dạng BINARY(16) theo thứ tự big-endian (most significant bits trước)
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -1,13 +1,21 @@
 package com.michaelcao.bookstore_backend.repository;
 
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.entity.CatalogVersion;
 import com.michaelcao.bookstore_backend.entity.Product;
 import org.springframework.data.domain.Page; // Import Page for pagination
 import org.springframework.data.domain.Pageable; // Import Pageable for pagination info
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Import Query for custom JPQL/SQL
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param; // Import Param for named parameters
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -57,5 +65,123 @@ public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpec
     @Query("SELECT p FROM Product p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.author) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<Product> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
+    // --- Projection nhẹ dùng để tính ETag cho chi tiết sản phẩm (không load entity) ---
+    interface ProductVersion {
+        Instant getUpdatedAt();
+        Long getReviewCount();
+        Long getLastReviewId();
+        Long getCategoryVersion();
+    }
+
+    /**
+     * Lấy updatedAt của sản phẩm cùng số review, ID review mới nhất và version của tập danh mục trong MỘT query.
+     * Dùng cho conditional GET: nếu ETag khớp thì không cần chạy query chi tiết + mapping.
+     * @param productId ID của Product.
+     * @return Optional rỗng nếu sản phẩm không tồn tại.
+     */
+    @Query("SELECT p.updatedAt as updatedAt, COUNT(r.id) as reviewCount, MAX(r.id) as lastReviewId, " +
+            "(SELECT v.version FROM CatalogVersion v WHERE v.name = '" + CatalogVersion.CATEGORIES + "') as categoryVersion " +
+            "FROM Product p LEFT JOIN Review r ON r.product = p " +
+            "WHERE p.id = :productId GROUP BY p.id, p.updatedAt")
+    Optional<ProductVersion> findVersionById(@Param("productId") UUID productId);
+
+    /**
+     * Trang sản phẩm đầu tiên (kèm danh mục chính) cho export, theo thứ tự id.
+     * Export đọc theo keyset (id): mỗi trang là một query ngắn trên primary key, không giữ cursor hay
+     * transaction dài và không cần cấu hình driver riêng (useCursorFetch) cho toàn bộ connection.
+     * Entity được load ở chế độ read-only (không giữ snapshot dirty-checking).
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    List<Product> findExportPage(Pageable pageable);
+
+    /**
+     * Trang sản phẩm kế tiếp sau afterId (id của dòng cuối trang trước) cho export.
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id > :afterId ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    List<Product> findExportPageAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
+    // --- Projection cho index facet: chỉ các cột dùng để lọc/đếm, không load entity ---
+    interface FacetRow {
+        String getTitle();
+        String getAuthor();
+        BigDecimal getPrice();
+        Integer getStockQuantity();
+        Long getCategoryId();
+    }
+
+    /**
+     * Toàn bộ sản phẩm sắp xếp theo giá, dùng để dựng ProductFacetIndex (thứ tự này là ordinal trong index).
+     */
+    @Query("SELECT p.title as title, p.author as author, p.price as price, p.stockQuantity as stockQuantity, " +
+            "c.id as categoryId FROM Product p LEFT JOIN p.category c ORDER BY p.price, p.id")
+    List<FacetRow> findAllFacetRows();
+
+    // --- Projection cho các index tìm kiếm trong bộ nhớ: gợi ý, trigram (gần đúng), BM25 (độ liên quan) ---
+    interface SuggestRow {
+        UUID getId();
+        String getTitle();
+        String getAuthor();
+        String getIsbn();
+        Integer getSoldCount();
+    }
+
+    @Query("SELECT p.id as id, p.title as title, p.author as author, p.isbn as isbn, p.soldCount as soldCount FROM Product p")
+    List<SuggestRow> findAllSuggestRows();
+
+    @Query("SELECT p.id as id, p.title as title, p.author as author, p.isbn as isbn, p.soldCount as soldCount " +
+            "FROM Product p WHERE p.id = :productId")
+    Optional<SuggestRow> findSuggestRowById(@Param("productId") UUID productId);
+
+    // --- Projection cho snapshot sản phẩm thịnh hành (ProductTrendingIndex) ---
+    interface TrendingRow {
+        UUID getId();
+        String getTitle();
+        String getAuthor();
+        BigDecimal getPrice();
+        String getImageUrl();
+        Integer getStockQuantity();
+    }
+
+    @Query("SELECT p.id as id, p.title as title, p.author as author, p.price as price, p.imageUrl as imageUrl, " +
+            "p.stockQuantity as stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<TrendingRow> findTrendingRowsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // --- Projection để dựng danh sách sản phẩm liên quan (ProductRelatedIndex) ---
+    interface RelatedRow {
+        UUID getId();
+        String getTitle();
+        String getAuthor();
+        BigDecimal getPrice();
+        String getImageUrl();
+        Integer getSoldCount();
+        String getCategoryName();
+    }
+
+    @Query("SELECT p.id as id, p.title as title, p.author as author, p.price as price, p.imageUrl as imageUrl, " +
+            "p.soldCount as soldCount, c.name as categoryName FROM Product p LEFT JOIN p.category c")
+    List<RelatedRow> findAllRelatedRows();
+
+    interface ProductCategoryRow {
+        UUID getProductId();
+        Long getCategoryId();
+    }
+
+    // Các cặp (sản phẩm, danh mục) của bảng product_categories
+    @Query("SELECT p.id as productId, c.id as categoryId FROM Product p JOIN p.categories c")
+    List<ProductCategoryRow> findAllProductCategoryRows();
+
+    // --- Thông tin tóm tắt cho danh sách sản phẩm xem gần đây (MỘT query cho cả danh sách) ---
+    @Query("SELECT new com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO(" +
+            "p.id, p.title, p.author, p.price, p.imageUrl, c.name) FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
+
     // Bạn có thể thêm nhiều phương thức truy vấn khác dựa trên nhu cầu
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Truy cập JDBC cho bảng recently_viewed (entity RecentlyViewed): đọc nhiều user trong MỘT query
+ * và ghi đè theo batch bằng upsert, không đi qua persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RecentlyViewedRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * @return Map user ID -> product_ids đã lưu (user chưa có dòng sẽ không có key).
+     */
+    public Map<Long, byte[]> findByUserIdIn(Collection<Long> userIds) {
+        Map<Long, byte[]> result = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT user_id, product_ids FROM recently_viewed WHERE user_id IN (:userIds)",
+                new MapSqlParameterSource("userIds", userIds),
+                rs -> {
+                    result.put(rs.getLong("user_id"), rs.getBytes("product_ids"));
+                });
+        return result;
+    }
+
+    /**
+     * Ghi đè product_ids của từng user (thêm dòng nếu chưa có) trong MỘT JDBC batch.
+     */
+    public void batchUpsert(Map<Long, byte[]> productIdsByUser, Instant now) {
+        Timestamp ts = Timestamp.from(now);
+        List<Object[]> args = new ArrayList<>(productIdsByUser.size());
+        productIdsByUser.forEach((userId, productIds) -> args.add(new Object[]{userId, productIds, ts}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO recently_viewed (user_id, product_ids, updated_at) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE product_ids = VALUES(product_ids), updated_at = VALUES(updated_at)",
+                args);
+    }
+}
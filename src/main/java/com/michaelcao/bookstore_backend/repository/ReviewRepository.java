@@ -87,4 +87,9 @@ public interface ReviewRepository extends JpaRepository<Review, Long> { // Entit
             "GROUP BY r.product.id")
     List<ReviewStats> findReviewStatsByProductIdsProjection(@Param("productIds") List<UUID> productIds);
 
-}
\ No newline at end of file
+    // Aggregate review của toàn bộ sản phẩm có review (dựng index gợi ý)
+    @Query("SELECT r.product.id as productId, AVG(r.rating) as averageRating, COUNT(r.id) as reviewCount " +
+            "FROM Review r GROUP BY r.product.id")
+    List<ReviewStats> findAllReviewStats();
+
+}
@@ -2,12 +2,20 @@ package com.michaelcao.bookstore_backend.repository;
 
 
 import com.michaelcao.bookstore_backend.entity.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Integer> {
+    // Gọi mỗi lần register / đổi role: kết quả nằm trong query cache, tự vô hiệu khi bảng roles thay đổi
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")
+    })
     Optional<Role> findByName(String name);
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.michaelcao.bookstore_backend.repository;
+
+import com.michaelcao.bookstore_backend.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Giành (hoặc gia hạn) lease bằng MỘT câu UPDATE có điều kiện: thành công nếu lease đã hết hạn
+     * hoặc đang do chính owner này giữ. Hai node cùng gọi thì chỉ một node cập nhật được dòng.
+     * @return 1 nếu giành được lease, 0 nếu node khác đang giữ (hoặc dòng chưa tồn tại).
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = :owner, l.leaseUntil = :until " +
+            "WHERE l.name = :name AND (l.leaseUntil < :now OR l.owner = :owner)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") Instant now, @Param("until") Instant until);
+
+    /**
+     * Tạo dòng lease cho job lần đầu. Node khác tạo trước thì bị từ chối bởi khóa chính.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_leases (name, owner, lease_until) VALUES (:name, :owner, :until)", nativeQuery = true)
+    int insert(@Param("name") String name, @Param("owner") String owner, @Param("until") Instant until);
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = :now WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now);
+}
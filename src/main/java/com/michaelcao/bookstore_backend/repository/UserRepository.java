@@ -3,6 +3,7 @@ package com.michaelcao.bookstore_backend.repository;
 import com.michaelcao.bookstore_backend.entity.User;
 import org.springframework.data.domain.Page; // Import Page
 import org.springframework.data.domain.Pageable; // Import Pageable
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,6 +12,8 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // Dùng mỗi request (JwtAuthenticationFilter): nạp roles trong cùng câu SELECT (roles không nằm trong cache L2)
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
 
@@ -10,5 +10,6 @@ import java.util.Optional;
 public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
     Optional<VerificationToken> findByToken(String token);
     Optional<VerificationToken> findByUser(User user);
+    Optional<VerificationToken> findByUser_Id(Long userId);
     void deleteByUser(User user); // Added for cleaning up old tokens
 }
\ No newline at end of file
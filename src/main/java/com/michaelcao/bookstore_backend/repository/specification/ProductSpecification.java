@@ -8,7 +8,9 @@ import org.springframework.util.StringUtils; // Import StringUtils
 
 import java.math.BigDecimal;
 import java.util.ArrayList; // Import ArrayList
+import java.util.Collection;
 import java.util.List;    // Import List
+import java.util.UUID;
 
 public class ProductSpecification {
 
@@ -92,6 +94,13 @@ public class ProductSpecification {
         };
     }
 
+    /**
+     * Tạo Specification để lọc theo danh sách ID (kết quả tìm kiếm gần đúng từ ProductTrigramIndex).
+     */
+    public static Specification<Product> hasIdIn(Collection<UUID> ids) {
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
     // --- Phương thức kết hợp các Specification ---
     public static Specification<Product> buildSpecification(String keyword, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author) {
         Specification<Product> spec = Specification.where(null); // Bắt đầu với spec luôn đúng
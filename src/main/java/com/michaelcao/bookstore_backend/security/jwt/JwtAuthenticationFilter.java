@@ -1,5 +1,7 @@
 package com.michaelcao.bookstore_backend.security.jwt; // Ensure correct package
 
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final BusinessMetrics businessMetrics;
 
     @Override
     protected void doFilterInternal(
@@ -32,6 +35,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         
+        Timer.Sample authSample = null;
+        String authOutcome = null;
         try {
             // Extract JWT from the Authorization header
             String jwt = extractJwtFromRequest(request);
@@ -42,6 +47,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
             
+            // Time spent authenticating the token (parse + user lookup + validation)
+            authSample = businessMetrics.startTimer();
+            authOutcome = "invalid";
+
             // Extract username from JWT
             String username = jwtUtil.extractUsername(jwt);
             
@@ -52,6 +61,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 
                 // Validate token
                 if (jwtUtil.isTokenValid(jwt, userDetails)) {
+                    authOutcome = "authenticated";
                     // Create authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
@@ -68,11 +78,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 } else {
                     log.debug("Invalid JWT token for user '{}'", username);
                 }
+            } else if (username != null) {
+                authOutcome = "authenticated"; // Already authenticated earlier in the chain
             }
         } catch (Exception e) {
+            authOutcome = "error";
             log.error("Could not authenticate user with JWT token", e);
             // Don't throw exception, just continue with filter chain
         }
+        if (authSample != null) {
+            businessMetrics.recordJwtAuth(authSample, authOutcome);
+        }
         
         // Continue filter chain
         filterChain.doFilter(request, response);
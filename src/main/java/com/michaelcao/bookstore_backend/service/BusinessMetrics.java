@@ -0,0 +1,199 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.exception.DuplicateResourceException;
+import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException;
+import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tên và cách ghi các metric nghiệp vụ (Micrometer), xuất ra /actuator/prometheus cùng metric HTTP, JVM,
+ * HikariCP và Hibernate do Spring Boot tự đăng ký.
+ *
+ * Quy ước tag "outcome": success | rejected (lỗi nghiệp vụ: 400/404/409) | error (lỗi hệ thống).
+ */
+@Component
+public class BusinessMetrics {
+
+    public static final String ORDER_CREATE = "bookstore.order.create";
+    public static final String ORDER_CREATE_PHASE = "bookstore.order.create.phase";
+    public static final String CART_MUTATION = "bookstore.cart.mutation";
+    public static final String PRODUCT_SEARCH = "bookstore.product.search";
+    public static final String PRODUCT_SEARCH_MATCHED = "bookstore.product.search.matched";
+    public static final String JWT_AUTH = "bookstore.security.jwt.auth";
+    public static final String EMAIL_SEND = "bookstore.email.send";
+    public static final String UPLOAD = "bookstore.upload";
+    public static final String UPLOAD_SIZE = "bookstore.upload.size";
+    public static final String JOB_RUN = "bookstore.job.run";
+    public static final String JOB_LAST_RUN = "bookstore.job.last.run";
+    public static final String PAYMENT_EXPIRY_CANCELLED = "bookstore.order.payment.expiry.cancelled";
+    public static final String PAYMENT_EXPIRY_RELEASED_UNITS = "bookstore.order.payment.expiry.released.units";
+    public static final String ORDER_ARCHIVE_ARCHIVED = "bookstore.order.archive.archived";
+
+    /**
+     * Các pha của createOrder. CART_CLEAR chỉ có với đơn không chờ thanh toán.
+     */
+    public enum OrderPhase {
+        CART_LOAD, STOCK_CHECK, INSERT, CART_CLEAR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Các job định kỳ chạy theo lease (chỉ node giữ lease ghi nhận một lượt chạy).
+     */
+    public enum Job {
+        PAYMENT_EXPIRY, ORDER_ARCHIVE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final Map<OrderPhase, Timer> orderPhaseTimers = new EnumMap<>(OrderPhase.class);
+    private final DistributionSummary searchMatched;
+
+    public BusinessMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (OrderPhase phase : OrderPhase.values()) {
+            orderPhaseTimers.put(phase, Timer.builder(ORDER_CREATE_PHASE)
+                    .description("Thời gian từng pha của createOrder")
+                    .tag("phase", phase.tag)
+                    .register(registry));
+        }
+        this.searchMatched = DistributionSummary.builder(PRODUCT_SEARCH_MATCHED)
+                .description("Số sản phẩm khớp điều kiện tìm kiếm/lọc")
+                .baseUnit("rows")
+                .register(registry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    public void recordOrderPhase(Timer.Sample sample, OrderPhase phase) {
+        sample.stop(orderPhaseTimers.get(phase));
+    }
+
+    public <T> T recordOrderCreate(Supplier<T> action) {
+        return record(ORDER_CREATE, action);
+    }
+
+    /**
+     * @param operation add | update | remove | clear
+     */
+    public <T> T recordCartMutation(String operation, Supplier<T> action) {
+        return record(CART_MUTATION, action, "operation", operation);
+    }
+
+    /**
+     * @param type keyword (ô tìm kiếm) | filter (lọc nhiều điều kiện) | relevance (sort=relevance) | fuzzy (không có kết quả chính xác, dùng kết quả gần đúng)
+     */
+    public void recordSearch(Timer.Sample sample, String type, long matchedRows) {
+        sample.stop(Timer.builder(PRODUCT_SEARCH).tag("type", type).register(registry));
+        searchMatched.record(matchedRows);
+    }
+
+    /**
+     * @param outcome authenticated | invalid | error
+     */
+    public void recordJwtAuth(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder(JWT_AUTH).tag("outcome", outcome).register(registry));
+    }
+
+    /**
+     * @param type verification | password_reset
+     */
+    public void recordEmail(Timer.Sample sample, String type, boolean success) {
+        sample.stop(Timer.builder(EMAIL_SEND)
+                .tag("type", type)
+                .tag("outcome", success ? "success" : "error")
+                .register(registry));
+    }
+
+    public void recordUpload(Timer.Sample sample, String type, String outcome, long bytes) {
+        sample.stop(Timer.builder(UPLOAD).tag("type", type).tag("outcome", outcome).register(registry));
+        if (bytes > 0) {
+            DistributionSummary.builder(UPLOAD_SIZE).baseUnit("bytes").tag("type", type).register(registry).record(bytes);
+        }
+    }
+
+    /**
+     * Số liệu của job hủy đơn quá hạn: đọc trực tiếp bộ đếm của job nên khớp với /api/admin/orders/payment-expiry/stats.
+     */
+    public void registerPaymentExpiry(AtomicLong cancelledOrders, AtomicLong releasedUnits) {
+        FunctionCounter.builder(PAYMENT_EXPIRY_CANCELLED, cancelledOrders, AtomicLong::get)
+                .description("Số đơn chờ thanh toán quá hạn đã bị hủy")
+                .baseUnit("orders")
+                .register(registry);
+        FunctionCounter.builder(PAYMENT_EXPIRY_RELEASED_UNITS, releasedUnits, AtomicLong::get)
+                .description("Số đơn vị tồn kho đã hoàn lại khi hủy đơn quá hạn")
+                .baseUnit("units")
+                .register(registry);
+    }
+
+    public void registerOrderArchive(AtomicLong archivedOrders) {
+        FunctionCounter.builder(ORDER_ARCHIVE_ARCHIVED, archivedOrders, AtomicLong::get)
+                .description("Số đơn hàng đã chuyển sang tầng lưu trữ")
+                .baseUnit("orders")
+                .register(registry);
+    }
+
+    /**
+     * Thời điểm kết thúc lượt chạy gần nhất của job (epoch), NaN nếu chưa chạy lần nào trên instance này.
+     * Cảnh báo khi time() - bookstore_job_last_run_seconds vượt vài chu kỳ của job.
+     */
+    public <T> void registerJobLastRun(Job job, T owner, Function<T, Instant> lastRunAt) {
+        TimeGauge.builder(JOB_LAST_RUN, owner, TimeUnit.MILLISECONDS, o -> {
+                    Instant at = lastRunAt.apply(o);
+                    return at != null ? at.toEpochMilli() : Double.NaN;
+                })
+                .description("Thời điểm kết thúc lượt chạy gần nhất của job")
+                .tag("job", job.tag)
+                .register(registry);
+    }
+
+    /**
+     * Một lượt chạy của job trên node giữ lease (count của timer = số lượt chạy).
+     */
+    public void recordJobRun(Timer.Sample sample, Job job) {
+        sample.stop(Timer.builder(JOB_RUN)
+                .description("Thời gian một lượt chạy của job định kỳ")
+                .tag("job", job.tag)
+                .register(registry));
+    }
+
+    private <T> T record(String name, Supplier<T> action, String... tags) {
+        Timer.Sample sample = Timer.start(registry);
+        Throwable error = null;
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(name).tags(tags).tag("outcome", outcome(error)).register(registry));
+        }
+    }
+
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        return error instanceof ResourceNotFoundException
+                || error instanceof OperationNotAllowedException
+                || error instanceof DuplicateResourceException ? "rejected" : "error";
+    }
+}
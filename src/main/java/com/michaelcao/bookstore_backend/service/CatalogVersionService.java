@@ -0,0 +1,177 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.entity.CatalogVersion;
+import com.michaelcao.bookstore_backend.repository.CatalogVersionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Giữ "phiên bản" của catalog (sản phẩm) và của tập danh mục.
+ * Mỗi lần ghi (tạo/sửa/xóa sản phẩm, danh mục, review, thay đổi tồn kho) sẽ tăng version tương ứng trong bảng
+ * catalog_versions ngay trong transaction ghi, nên mọi instance dùng cùng một version cho ETag của các trang danh sách
+ * và version mới có hiệu lực đúng lúc dữ liệu được commit.
+ *
+ * ETag của request được tính từ DB (read(), một query vài dòng) để instance khác vừa ghi không làm trả về 304 sai.
+ * Cache/index trong bộ nhớ dùng bản sao cục bộ (getProductVersion(), getCategoryVersion()), được đọc lại sau mỗi
+ * lần ghi ở instance này và định kỳ mỗi version-poll-interval-ms để thấy thay đổi từ instance khác.
+ *
+ * Version "product_content" chỉ tăng khi chính sản phẩm được tạo/sửa/xóa/import (không tăng theo đơn hàng, review):
+ * index chỉ dựa trên title/tác giả/ISBN dùng version này để không phải dựng lại sau mỗi đơn hàng.
+ */
+@Service
+@Slf4j
+public class CatalogVersionService implements SmartInitializingSingleton {
+
+    private static final List<String> NAMES = List.of(CatalogVersion.PRODUCTS, CatalogVersion.CATEGORIES, CatalogVersion.PRODUCT_CONTENT);
+
+    private final CatalogVersionRepository catalogVersionRepository;
+    private volatile Versions cached;
+
+    public CatalogVersionService(CatalogVersionRepository catalogVersionRepository) {
+        this.catalogVersionRepository = catalogVersionRepository;
+    }
+
+    // Sau khi Hibernate đã tạo bảng (ddl-auto) thì mới thêm các dòng còn thiếu
+    @Override
+    public void afterSingletonsInstantiated() {
+        catalogVersionRepository.createMissing(NAMES, Instant.now());
+        refresh();
+    }
+
+    /**
+     * Đánh dấu dữ liệu sản phẩm đã thay đổi.
+     * Nếu đang trong transaction, version được tăng trong CÙNG transaction nên reader không bao giờ thấy version mới
+     * gắn với dữ liệu cũ.
+     */
+    public void markProductsChanged() {
+        increment(List.of(CatalogVersion.PRODUCTS));
+    }
+
+    /**
+     * Đánh dấu chính sản phẩm đã được tạo/sửa/xóa (kể cả import): tăng cả version sản phẩm và version nội dung.
+     */
+    public void markProductContentChanged() {
+        increment(List.of(CatalogVersion.PRODUCTS, CatalogVersion.PRODUCT_CONTENT));
+    }
+
+    /**
+     * Đánh dấu tập danh mục đã thay đổi. Tên danh mục nằm trong ProductDTO nên danh sách sản phẩm cũng bị ảnh hưởng.
+     */
+    public void markCategoriesChanged() {
+        increment(List.of(CatalogVersion.PRODUCTS, CatalogVersion.CATEGORIES));
+    }
+
+    /**
+     * Đọc version hiện tại từ DB (dùng cho ETag/Last-Modified của request).
+     */
+    public Versions read() {
+        Map<String, CatalogVersion> rows = catalogVersionRepository.findAll();
+        CatalogVersion products = rows.get(CatalogVersion.PRODUCTS);
+        CatalogVersion categories = rows.get(CatalogVersion.CATEGORIES);
+        CatalogVersion content = rows.get(CatalogVersion.PRODUCT_CONTENT);
+        Versions versions = new Versions(
+                products != null ? products.getVersion() : 0L,
+                categories != null ? categories.getVersion() : 0L,
+                content != null ? content.getVersion() : 0L,
+                products != null ? products.getUpdatedAt().toEpochMilli() : -1L,
+                categories != null ? categories.getUpdatedAt().toEpochMilli() : -1L);
+        updateCached(versions);
+        return versions;
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.version-poll-interval-ms:1000}")
+    public void refresh() {
+        read();
+    }
+
+    public long getProductVersion() {
+        return current().productVersion();
+    }
+
+    public long getCategoryVersion() {
+        return current().categoryVersion();
+    }
+
+    public long getProductContentVersion() {
+        return current().productContentVersion();
+    }
+
+    /**
+     * Weak ETag cho chi tiết một sản phẩm, dựa trên updatedAt của sản phẩm, aggregate review
+     * và version của tập danh mục (vì DTO chứa tên/mô tả danh mục).
+     */
+    public String productETag(Instant updatedAt, long reviewCount, Long lastReviewId, long categoryVersion) {
+        long updatedMillis = updatedAt != null ? updatedAt.toEpochMilli() : 0L;
+        return "W/\"" + Long.toHexString(updatedMillis) + "-" + reviewCount + "-" + (lastReviewId != null ? lastReviewId : 0L)
+                + "-c" + categoryVersion + "\"";
+    }
+
+    private Versions current() {
+        Versions versions = cached;
+        return versions != null ? versions : read();
+    }
+
+    // Lần đọc chậm hơn (poll song song với refresh sau commit) không được ghi đè version mới hơn
+    private synchronized void updateCached(Versions versions) {
+        Versions previous = cached;
+        if (previous == null || (versions.productVersion() >= previous.productVersion()
+                && versions.categoryVersion() >= previous.categoryVersion()
+                && versions.productContentVersion() >= previous.productContentVersion())) {
+            cached = versions;
+        }
+    }
+
+    private void increment(List<String> names) {
+        catalogVersionRepository.increment(names, Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshQuietly();
+                }
+            });
+        } else {
+            refreshQuietly();
+        }
+        log.debug("Catalog versions {} incremented", names);
+    }
+
+    // Bản sao cục bộ chỉ để cache thấy thay đổi sớm hơn lần poll kế tiếp, lỗi ở đây không được làm hỏng writer
+    private void refreshQuietly() {
+        try {
+            read();
+        } catch (RuntimeException e) {
+            log.warn("Could not reload catalog versions after a change: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Version của catalog tại một thời điểm. lastModified = -1 nếu chưa có dòng trong DB.
+     */
+    public record Versions(long productVersion, long categoryVersion, long productContentVersion,
+                           long productsLastModified, long categoriesLastModified) {
+
+        /**
+         * Weak ETag cho các trang danh sách sản phẩm (filter, category, search).
+         * Phải được tính TRƯỚC khi gọi service để tránh race với writer.
+         */
+        public String productListETag() {
+            return "W/\"p" + productVersion + "-" + categoryVersion + "-" + Long.toHexString(productsLastModified) + "\"";
+        }
+
+        /**
+         * Weak ETag cho danh sách danh mục.
+         */
+        public String categoryListETag() {
+            return "W/\"c" + categoryVersion + "-" + Long.toHexString(categoriesLastModified) + "\"";
+        }
+    }
+}
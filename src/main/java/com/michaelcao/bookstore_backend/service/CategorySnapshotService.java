@@ -0,0 +1,266 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.category.CategoryDTO;
+import com.michaelcao.bookstore_backend.entity.Category;
+import com.michaelcao.bookstore_backend.repository.CategoryRepository;
+import com.michaelcao.bookstore_backend.repository.CategoryRepository.CategoryProductCount;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cache toàn bộ danh mục (kèm số sản phẩm) dưới dạng một snapshot bất biến.
+ *
+ * - Đọc: trả về snapshot hiện tại, không query DB và không bao giờ chờ DB khi đã có snapshot.
+ * - Ghi (danh mục hoặc sản phẩm thay đổi): tăng generation SAU KHI commit; thay đổi từ instance khác được thấy
+ *   qua version danh mục trong CatalogVersionService.
+ * - Refresh: snapshot stale vẫn được trả về trong khi thread nền "category-snapshot" dựng snapshot mới
+ *   (single-flight), nên request đang giữ connection không phải chờ một connection thứ hai.
+ *
+ * Snapshot đầu tiên được nạp lúc khởi động. Chỉ khi lần nạp đó lỗi, request mới chờ lần nạp nền (tối đa
+ * cold-wait-ms) thay vì nhận danh sách rỗng.
+ */
+@Service
+@Slf4j
+public class CategorySnapshotService implements SmartInitializingSingleton {
+
+    private final CategoryRepository categoryRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final TransactionTemplate readOnlyTx;
+    private final long coldWaitMillis;
+
+    private final AtomicLong generation = new AtomicLong(1);
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>(CategorySnapshot.EMPTY);
+    private final AtomicReference<CompletableFuture<CategorySnapshot>> inFlight = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "category-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CategorySnapshotService(CategoryRepository categoryRepository,
+                                   CatalogVersionService catalogVersionService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.category-snapshot.cold-wait-ms:5000}") long coldWaitMillis) {
+        this.categoryRepository = categoryRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.coldWaitMillis = coldWaitMillis;
+        // Load snapshot trong transaction RIÊNG (read-only) để không bao giờ đọc dữ liệu chưa commit của transaction gọi tới
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            refreshAsync().get(coldWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Initial category snapshot load failed, it will be loaded on first use: {}", e.toString());
+        }
+    }
+
+    /**
+     * Lấy snapshot hiện tại; nếu đã stale thì kích hoạt refresh nền và vẫn trả về snapshot cũ.
+     */
+    public CategorySnapshot current() {
+        CategorySnapshot current = snapshot.get();
+        if (current.generation == generation.get() && current.categoryVersion == catalogVersionService.getCategoryVersion()) {
+            return current;
+        }
+        CompletableFuture<CategorySnapshot> refresh = refreshAsync();
+        return current != CategorySnapshot.EMPTY ? current : await(refresh);
+    }
+
+    private CategorySnapshot await(CompletableFuture<CategorySnapshot> refresh) {
+        try {
+            return refresh.get(coldWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the category snapshot", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Category snapshot is not available", e);
+        }
+    }
+
+    /**
+     * Snapshot đã nạp lại sau lần thay đổi gần nhất (của instance này và của version danh mục cho trước)?
+     * Dùng trước khi gắn ETag: không được gắn version mới cho nội dung lấy từ snapshot cũ.
+     */
+    public boolean isFresh(long categoryVersion) {
+        CategorySnapshot current = snapshot.get();
+        boolean fresh = current.generation == generation.get() && current.categoryVersion >= categoryVersion;
+        if (!fresh) {
+            refreshAsync();
+        }
+        return fresh;
+    }
+
+    /**
+     * Snapshot đã nạp lại sau mọi thay đổi đã biết, chờ lần nạp nền nếu cần.
+     * Chỉ gọi từ job nền KHÔNG giữ connection/transaction (ví dụ import), không gọi từ request.
+     */
+    public CategorySnapshot awaitFresh() {
+        CategorySnapshot current = snapshot.get();
+        if (current.generation == generation.get() && current.categoryVersion == catalogVersionService.getCategoryVersion()) {
+            return current;
+        }
+        CategorySnapshot loaded = await(refreshAsync());
+        // Lần nạp đang chạy có thể đã bắt đầu trước thay đổi gần nhất
+        return loaded.generation == generation.get() ? loaded : await(refreshAsync());
+    }
+
+    /**
+     * Đánh dấu snapshot stale. Gọi sau khi tạo/sửa/xóa danh mục hoặc sản phẩm (số lượng sản phẩm thay đổi).
+     * Trong transaction thì chỉ có hiệu lực sau khi commit để không dựng snapshot từ dữ liệu chưa commit.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<CategorySnapshot> refreshAsync() {
+        CompletableFuture<CategorySnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<CategorySnapshot> existing = inFlight.compareAndExchange(null, mine);
+        if (existing != null) {
+            return existing; // Đã có lần refresh đang chạy (single-flight)
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    // Lấy generation/version TRƯỚC khi đọc DB
+                    long targetGeneration = generation.get();
+                    long targetCategoryVersion = catalogVersionService.getCategoryVersion();
+                    CategorySnapshot loaded = readOnlyTx.execute(status -> load(targetGeneration, targetCategoryVersion));
+                    snapshot.set(loaded); // Swap nguyên tử
+                    mine.complete(loaded);
+                } catch (RuntimeException e) {
+                    log.warn("Category snapshot refresh failed, keeping the previous snapshot: {}", e.getMessage());
+                    mine.completeExceptionally(e);
+                } finally {
+                    inFlight.set(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.set(null); // Đang shutdown
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    private CategorySnapshot load(long targetGeneration, long targetCategoryVersion) {
+        log.debug("Rebuilding category snapshot (generation {})", targetGeneration);
+        List<Category> categories = categoryRepository.findAll();
+
+        Map<Long, Long> productCounts = toCountMap(categoryRepository.countProductsPerCategory());
+        Map<Long, Long> primaryCounts = toCountMap(categoryRepository.countPrimaryProductsPerCategory());
+
+        Map<Long, CategoryDTO> byId = new LinkedHashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), new CategoryDTO(
+                    category.getId(),
+                    category.getName(),
+                    category.getDescription(),
+                    productCounts.getOrDefault(category.getId(), 0L)));
+        }
+        log.info("Category snapshot rebuilt: {} categories (generation {})", byId.size(), targetGeneration);
+        return new CategorySnapshot(targetGeneration, targetCategoryVersion, byId, primaryCounts);
+    }
+
+    private Map<Long, Long> toCountMap(List<CategoryProductCount> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (CategoryProductCount row : rows) {
+            if (row.getCategoryId() != null) {
+                counts.put(row.getCategoryId(), row.getProductCount() != null ? row.getProductCount() : 0L);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Snapshot bất biến của tập danh mục.
+     */
+    public static final class CategorySnapshot {
+
+        static final CategorySnapshot EMPTY = new CategorySnapshot(0L, -1L, Collections.emptyMap(), Collections.emptyMap());
+
+        private final long generation;
+        private final long categoryVersion;
+        private final Map<Long, CategoryDTO> byId;
+        private final List<CategoryDTO> all;
+        private final Map<Long, Long> primaryProductCounts;
+
+        private CategorySnapshot(long generation, long categoryVersion, Map<Long, CategoryDTO> byId,
+                                 Map<Long, Long> primaryProductCounts) {
+            this.generation = generation;
+            this.categoryVersion = categoryVersion;
+            this.byId = Collections.unmodifiableMap(byId);
+            this.all = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+            this.primaryProductCounts = Collections.unmodifiableMap(primaryProductCounts);
+        }
+
+        public List<CategoryDTO> getAll() {
+            return all;
+        }
+
+        public CategoryDTO get(Long id) {
+            return id != null ? byId.get(id) : null;
+        }
+
+        public boolean contains(Long id) {
+            return id != null && byId.containsKey(id);
+        }
+
+        /**
+         * Số sản phẩm gắn với danh mục qua product_categories.
+         */
+        public long getProductCount(Long id) {
+            CategoryDTO dto = get(id);
+            return dto != null && dto.getProductCount() != null ? dto.getProductCount() : 0L;
+        }
+
+        /**
+         * Số sản phẩm nhận danh mục làm danh mục chính (products.categoryId).
+         */
+        public long getPrimaryProductCount(Long id) {
+            return primaryProductCounts.getOrDefault(id, 0L);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michaelcao.bookstore_backend.entity.OutboxEvent;
+import com.michaelcao.bookstore_backend.event.DomainEvent;
+import com.michaelcao.bookstore_backend.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Ghi domain event vào outbox trong transaction của nơi gọi.
+ * Request path chỉ tốn đúng MỘT câu INSERT; việc giao event cho subscriber do OutboxRelay làm sau khi commit.
+ * Nếu transaction rollback thì event cũng biến mất cùng thay đổi nghiệp vụ.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DomainEventPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY) // Bắt buộc đi cùng transaction nghiệp vụ
+    public void publish(DomainEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize domain event " + event.getClass().getSimpleName(), e);
+        }
+        outboxEventRepository.save(new OutboxEvent(event.aggregateType(), event.aggregateId(),
+                event.getClass().getSimpleName(), payload, Instant.now()));
+        log.debug("Domain event {} recorded for {} {}", event.getClass().getSimpleName(), event.aggregateType(), event.aggregateId());
+
+        // Đánh thức relay ngay sau commit thay vì chờ lượt poll kế tiếp
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.mail.javamail.MimeMessageHelper; // Import MimeMessag
 import org.springframework.scheduling.annotation.Async; // Import Async (nếu muốn bất đồng bộ)
 import org.springframework.stereotype.Service;
 import com.michaelcao.bookstore_backend.entity.PasswordResetToken;
+import io.micrometer.core.instrument.Timer;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.mail.MailException;
@@ -24,6 +25,7 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 public class EmailService {
 
     private final JavaMailSender mailSender; // Inject MailSender Bean
+    private final BusinessMetrics businessMetrics;
 
     // private final SpringTemplateEngine templateEngine;
 
@@ -67,15 +69,21 @@ public class EmailService {
 
             helper.setText(htmlContent, true);
 
-            mailSender.send(mimeMessage); // Gửi mail
+            Timer.Sample sample = businessMetrics.startTimer();
+            try {
+                mailSender.send(mimeMessage); // Gửi mail (I/O SMTP)
+                businessMetrics.recordEmail(sample, "verification", true);
+            } catch (MailException e) {
+                businessMetrics.recordEmail(sample, "verification", false);
+                throw e;
+            }
             log.info("Verification email sent successfully to {}", recipientEmail);
 
         } catch (MessagingException | MailException | java.io.UnsupportedEncodingException e) {
             // Bắt các lỗi có thể xảy ra khi tạo hoặc gửi mail
             log.error("Failed to send verification email to {}: {}", recipientEmail, e.getMessage());
-            // Ném lại exception runtime để báo hiệu lỗi nếu cần xử lý ở nơi gọi
-            // Hoặc chỉ log lỗi và tiếp tục (như đã làm trong AuthServiceImpl)
-            // throw new RuntimeException("Failed to send email", e);
+            // Ném lại để OutboxRelay retry event UserRegistered (mail được gửi ngoài request đăng ký)
+            throw new IllegalStateException("Failed to send verification email", e);
         }
     }
     public void sendPasswordResetEmail(String recipientEmail, String recipientName, String resetUrl) {
@@ -115,7 +123,14 @@ public class EmailService {
 
             helper.setText(htmlContent, true);
 
-            mailSender.send(mimeMessage);
+            Timer.Sample sample = businessMetrics.startTimer();
+            try {
+                mailSender.send(mimeMessage);
+                businessMetrics.recordEmail(sample, "password_reset", true);
+            } catch (MailException e) {
+                businessMetrics.recordEmail(sample, "password_reset", false);
+                throw e;
+            }
             log.info("Password reset email sent successfully to {}", recipientEmail);
 
         } catch (MessagingException | MailException | java.io.UnsupportedEncodingException e) {
@@ -0,0 +1,189 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.OrdersArchivedEvent;
+import com.michaelcao.bookstore_backend.repository.ArchivedOrderRepository;
+import com.michaelcao.bookstore_backend.repository.OrderArchiveRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lưu trữ đơn hàng (hot/cold): chuyển các đơn DELIVERED/CANCELLED cũ hơn app.archive.min-age-days
+ * sang orders_archive/order_items_archive theo từng batch nhỏ, có nghỉ giữa các batch để không
+ * giữ lock lâu hay làm nghẽn replication. Nhờ đó bảng orders và index của nó chỉ chứa tập dữ liệu "nóng".
+ *
+ * Đơn hàng đã lưu trữ là bất biến (trạng thái cuối), nên tổng doanh thu/số lượng của tầng lạnh
+ * được cache và chỉ tính lại sau mỗi lần lưu trữ.
+ *
+ * - Nhiều node: chỉ node giữ lease "order-archive" (bảng scheduler_leases) mới chạy; lease được gia hạn sau mỗi batch.
+ * - Mỗi batch ghi một OrdersArchivedEvent vào outbox trong cùng transaction: mọi node (không chỉ node chạy job)
+ *   bỏ cache tổng của tầng lưu trữ khi nhận bản NodeLocalEvent.
+ * - Số đơn đã lưu trữ, thời gian và thời điểm của lượt chạy được xuất qua Micrometer (BusinessMetrics).
+ */
+@Service
+@Slf4j
+public class OrderArchiveService {
+
+    private static final Set<OrderStatus> ARCHIVABLE_STATUSES = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+    private static final String LEASE_NAME = "order-archive";
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final BusinessMetrics businessMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatchesPerRun;
+    private final Duration leaseDuration;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong archivedOrders = new AtomicLong(); // Tổng số đơn đã lưu trữ từ lúc instance khởi động
+    private volatile Instant lastRunAt;
+    private volatile BigDecimal archivedRevenue;   // null = cần tính lại
+    private volatile Long archivedOrderCount;      // null = cần tính lại
+
+    public OrderArchiveService(OrderArchiveRepository orderArchiveRepository,
+                               ArchivedOrderRepository archivedOrderRepository,
+                               SchedulerLeaseService schedulerLeaseService,
+                               DomainEventPublisher domainEventPublisher,
+                               BusinessMetrics businessMetrics,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.archive.enabled:true}") boolean enabled,
+                               @Value("${app.archive.min-age-days:180}") int minAgeDays,
+                               @Value("${app.archive.batch-size:500}") int batchSize,
+                               @Value("${app.archive.pause-ms:200}") long pauseMillis,
+                               @Value("${app.archive.max-batches-per-run:200}") int maxBatchesPerRun,
+                               @Value("${app.archive.lease-seconds:600}") int leaseSeconds) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.domainEventPublisher = domainEventPublisher;
+        this.businessMetrics = businessMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.leaseDuration = Duration.ofSeconds(Math.max(10, leaseSeconds));
+        businessMetrics.registerOrderArchive(archivedOrders);
+        businessMetrics.registerJobLastRun(BusinessMetrics.Job.ORDER_ARCHIVE, this, service -> service.lastRunAt);
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        archiveEligibleOrders();
+    }
+
+    /**
+     * Chạy một lượt lưu trữ (tối đa app.archive.max-batches-per-run batch).
+     * @return Số đơn hàng đã chuyển sang tầng lưu trữ, 0 nếu lượt khác đang chạy (trên instance này hoặc node khác).
+     */
+    public int archiveEligibleOrders() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Order archival is already running, skipping");
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        int total = 0;
+        try {
+            if (!schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+                log.info("Order archival skipped: lease held by another node");
+                return 0;
+            }
+            Timer.Sample sample = businessMetrics.startTimer();
+            try {
+                Instant cutoff = Instant.now().minus(minAge);
+                for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                    Integer moved = transactionTemplate.execute(status -> {
+                        List<byte[]> ids = orderArchiveRepository.lockArchivableOrderIds(cutoff, ARCHIVABLE_STATUSES, batchSize);
+                        int count = orderArchiveRepository.moveToArchive(ids, Instant.now());
+                        if (count > 0) {
+                            domainEventPublisher.publish(new OrdersArchivedEvent(UUID.randomUUID(), count));
+                        }
+                        return count;
+                    });
+                    int count = moved != null ? moved : 0;
+                    total += count;
+                    archivedOrders.addAndGet(count); // Sau khi transaction của batch đã commit
+                    if (count > 0) {
+                        invalidateTotals(); // Node này thấy ngay, không chờ outbox
+                    }
+                    if (count < batchSize || !schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+                        break; // Hết đơn cần lưu trữ, hoặc mất lease (node khác tiếp quản)
+                    }
+                    if (pauseMillis > 0) {
+                        Thread.sleep(pauseMillis); // Throttle: nhường I/O và lock cho traffic thật
+                    }
+                }
+            } finally {
+                schedulerLeaseService.release(LEASE_NAME);
+                lastRunAt = Instant.now();
+                businessMetrics.recordJobRun(sample, BusinessMetrics.Job.ORDER_ARCHIVE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Order archival interrupted after {} orders", total);
+        } finally {
+            running.set(false);
+        }
+        log.info("Order archival moved {} orders older than {} days in {} ms",
+                total, minAge.toDays(), (System.nanoTime() - startNanos) / 1_000_000);
+        return total;
+    }
+
+    /**
+     * Tổng doanh thu của các đơn hàng đã lưu trữ (cache).
+     */
+    public BigDecimal getArchivedRevenue() {
+        BigDecimal revenue = archivedRevenue;
+        if (revenue == null) {
+            BigDecimal sum = archivedOrderRepository.getTotalRevenue();
+            revenue = sum != null ? sum : BigDecimal.ZERO;
+            archivedRevenue = revenue;
+        }
+        return revenue;
+    }
+
+    /**
+     * Số đơn hàng đã lưu trữ (cache).
+     */
+    public long getArchivedOrderCount() {
+        Long count = archivedOrderCount;
+        if (count == null) {
+            count = archivedOrderRepository.count();
+            archivedOrderCount = count;
+        }
+        return count;
+    }
+
+    /**
+     * Bỏ cache tổng của tầng lưu trữ (tính lại ở lần đọc sau). Gọi từ OrdersArchivedEvent trên mọi node.
+     */
+    public void invalidateTotals() {
+        archivedRevenue = null;
+        archivedOrderCount = null;
+    }
+}
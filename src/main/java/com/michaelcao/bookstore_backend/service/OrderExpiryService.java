@@ -0,0 +1,162 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.order.OrderExpiryStatsDTO;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.OrderStatusBatchChangedEvent;
+import com.michaelcao.bookstore_backend.repository.OrderExpiryRepository;
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hủy các đơn PENDING_PAYMENT quá app.payment-expiry.ttl-minutes và hoàn lại tồn kho đã bị trừ lúc đặt hàng.
+ *
+ * - Chạy định kỳ theo batch: mỗi batch là một transaction (khóa đơn -> hủy -> hoàn kho bằng một câu UPDATE).
+ * - Nhiều node: chỉ node giữ lease "order-payment-expiry" (bảng scheduler_leases) mới chạy; lease được gia hạn
+ *   sau mỗi batch. Ngoài ra các đơn bị khóa FOR UPDATE và UPDATE có điều kiện trạng thái, nên hủy trùng là không thể.
+ * - Mỗi batch ghi một OrderStatusBatchChangedEvent (PENDING_PAYMENT -> CANCELLED) vào outbox.
+ * - Số liệu (getStats) cũng được xuất qua Micrometer (BusinessMetrics), đọc từ cùng các bộ đếm.
+ */
+@Service
+@Slf4j
+public class OrderExpiryService {
+
+    private static final String LEASE_NAME = "order-payment-expiry";
+
+    private final OrderExpiryRepository orderExpiryRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final CatalogVersionService catalogVersionService;
+    private final BusinessMetrics businessMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration leaseDuration;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong sweptOrders = new AtomicLong();
+    private final AtomicLong releasedUnits = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile int lastRunSwept;
+
+    public OrderExpiryService(OrderExpiryRepository orderExpiryRepository,
+                              SchedulerLeaseService schedulerLeaseService,
+                              DomainEventPublisher domainEventPublisher,
+                              CatalogVersionService catalogVersionService,
+                              BusinessMetrics businessMetrics,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.payment-expiry.enabled:true}") boolean enabled,
+                              @Value("${app.payment-expiry.ttl-minutes:30}") int ttlMinutes,
+                              @Value("${app.payment-expiry.batch-size:200}") int batchSize,
+                              @Value("${app.payment-expiry.max-batches-per-run:50}") int maxBatchesPerRun,
+                              @Value("${app.payment-expiry.lease-seconds:300}") int leaseSeconds) {
+        this.orderExpiryRepository = orderExpiryRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.domainEventPublisher = domainEventPublisher;
+        this.catalogVersionService = catalogVersionService;
+        this.businessMetrics = businessMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.leaseDuration = Duration.ofSeconds(Math.max(10, leaseSeconds));
+        businessMetrics.registerPaymentExpiry(sweptOrders, releasedUnits);
+        businessMetrics.registerJobLastRun(BusinessMetrics.Job.PAYMENT_EXPIRY, this, service -> service.lastRunAt);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment-expiry.interval-ms:60000}",
+            initialDelayString = "${app.payment-expiry.interval-ms:60000}")
+    public void scheduledSweep() {
+        if (!enabled) {
+            return;
+        }
+        sweepExpiredOrders();
+    }
+
+    /**
+     * Chạy một lượt hủy đơn quá hạn (tối đa app.payment-expiry.max-batches-per-run batch).
+     * @return Số đơn đã hủy, 0 nếu lượt khác đang chạy (trên instance này hoặc node khác).
+     */
+    public int sweepExpiredOrders() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        int total = 0;
+        try {
+            if (!schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+                log.debug("Payment expiry sweep skipped: lease held by another node");
+                return 0;
+            }
+            Timer.Sample sample = businessMetrics.startTimer();
+            try {
+                Instant cutoff = Instant.now().minus(ttl);
+                for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                    BatchResult result = transactionTemplate.execute(status -> sweepBatch(cutoff));
+                    int count = result != null ? result.orders() : 0;
+                    total += count;
+                    if (result != null) {
+                        // Chỉ cộng số liệu sau khi transaction của batch đã commit
+                        sweptOrders.addAndGet(result.orders());
+                        releasedUnits.addAndGet(result.units());
+                    }
+                    if (count < batchSize || !schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+                        break; // Hết đơn quá hạn, hoặc mất lease (node khác tiếp quản)
+                    }
+                }
+            } finally {
+                schedulerLeaseService.release(LEASE_NAME);
+            }
+            runs.incrementAndGet();
+            lastRunAt = Instant.now();
+            lastRunSwept = total;
+            businessMetrics.recordJobRun(sample, BusinessMetrics.Job.PAYMENT_EXPIRY);
+        } finally {
+            running.set(false);
+        }
+        if (total > 0) {
+            log.info("Payment expiry sweep cancelled {} orders older than {} minutes in {} ms",
+                    total, ttl.toMinutes(), (System.nanoTime() - startNanos) / 1_000_000);
+        }
+        return total;
+    }
+
+    private record BatchResult(int orders, long units) {
+    }
+
+    // Chạy trong transaction của một batch
+    private BatchResult sweepBatch(Instant cutoff) {
+        List<byte[]> ids = orderExpiryRepository.lockExpiredOrderIds(cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+        long units = orderExpiryRepository.sumItemQuantities(ids);
+        int cancelled = orderExpiryRepository.cancelPendingPayment(ids);
+        orderExpiryRepository.restoreStock(ids, Instant.now());
+        catalogVersionService.markProductsChanged(); // Tồn kho đổi -> ETag danh sách sản phẩm đổi cùng commit
+        List<UUID> orderIds = ids.stream().map(ProductBulkRepository::fromBytes).toList();
+        domainEventPublisher.publish(new OrderStatusBatchChangedEvent(
+                UUID.randomUUID(), OrderStatus.PENDING_PAYMENT, OrderStatus.CANCELLED, orderIds, true));
+        return new BatchResult(cancelled, units);
+    }
+
+    public OrderExpiryStatsDTO getStats() {
+        return new OrderExpiryStatsDTO(runs.get(), sweptOrders.get(), releasedUnits.get(), lastRunAt, lastRunSwept);
+    }
+}
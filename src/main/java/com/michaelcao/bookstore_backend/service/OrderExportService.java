@@ -0,0 +1,23 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.order.OrderExportFormat;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Collection;
+
+public interface OrderExportService {
+
+    /**
+     * Ghi đơn hàng (mỗi order item một dòng) trong khoảng thời gian cho trước ra output stream.
+     * Đọc theo từng trang keyset nên bộ nhớ sử dụng không phụ thuộc số lượng đơn hàng.
+     * @param from Mốc bắt đầu (bao gồm), null = không giới hạn.
+     * @param to Mốc kết thúc (không bao gồm), null = không giới hạn.
+     * @param statuses Lọc theo trạng thái, rỗng = tất cả.
+     * @return Số đơn hàng đã ghi.
+     */
+    long exportOrders(Instant from, Instant to, Collection<OrderStatus> statuses,
+                      OrderExportFormat format, OutputStream out) throws IOException;
+}
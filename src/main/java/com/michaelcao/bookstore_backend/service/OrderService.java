@@ -1,8 +1,12 @@
 package com.michaelcao.bookstore_backend.service;
 
 import com.michaelcao.bookstore_backend.dto.order.CreateOrderRequest;
+import com.michaelcao.bookstore_backend.dto.order.OrderCursorPageDTO;
 import com.michaelcao.bookstore_backend.dto.order.OrderDTO;
 import com.michaelcao.bookstore_backend.dto.order.UpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.dto.order.BulkOrderStatusResultDTO;
+import com.michaelcao.bookstore_backend.dto.order.BulkUpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -50,6 +54,23 @@ public interface OrderService {
      */
     OrderDTO cancelOrder(Long userId, UUID orderId);
 
+    /**
+     * Lấy lịch sử đơn hàng của User theo cursor (keyset), mới nhất trước.
+     * Chi phí mỗi trang không phụ thuộc độ sâu (không OFFSET, không count).
+     * @param userId ID của User.
+     * @param cursor nextCursor của trang trước, null cho trang đầu.
+     * @param size Số đơn hàng mỗi trang.
+     * @throws com.michaelcao.bookstore_backend.exception.OperationNotAllowedException Nếu cursor không hợp lệ.
+     */
+    OrderCursorPageDTO getOrderHistory(Long userId, String cursor, int size);
+
+    /**
+     * Kiểm tra user đã mua và nhận (DELIVERED) sản phẩm chưa, trên cả đơn hàng hiện hành lẫn đơn đã lưu trữ.
+     * @param userId ID của User.
+     * @param productId ID của Product.
+     */
+    boolean hasPurchasedProduct(Long userId, UUID productId);
+
     // --- Admin Methods ---
 
     /**
@@ -67,14 +88,30 @@ public interface OrderService {
      */
     OrderDTO getOrderByIdForAdmin(UUID orderId); // Bỏ comment hoặc thêm mới
 
+    /**
+     * Lấy danh sách đơn hàng cho Admin theo cursor (keyset), mới nhất trước.
+     * @param status Lọc theo trạng thái, null = tất cả.
+     * @param cursor nextCursor của trang trước, null cho trang đầu.
+     * @param size Số đơn hàng mỗi trang.
+     */
+    OrderCursorPageDTO getAllOrdersByCursor(OrderStatus status, String cursor, int size);
+
     /**
      * Cập nhật trạng thái đơn hàng (dành cho Admin).
      * @param orderId ID của đơn hàng.
      * @param request DTO chứa trạng thái mới.
      * @return OrderDTO sau khi cập nhật.
      * @throws com.michaelcao.bookstore_backend.exception.ResourceNotFoundException Nếu không tìm thấy đơn hàng.
-     * @throws IllegalArgumentException Nếu trạng thái không hợp lệ hoặc chuyển đổi trạng thái không hợp lệ.
+     * @throws com.michaelcao.bookstore_backend.exception.OperationNotAllowedException Nếu chuyển đổi trạng thái không hợp lệ.
      */
     OrderDTO updateOrderStatus(UUID orderId, UpdateOrderStatusRequest request); // Sửa tham số thành DTO
 
+    /**
+     * Chuyển trạng thái nhiều đơn hàng cùng lúc (dành cho Admin/kho), theo đồ thị chuyển trạng thái của OrderStatus.
+     * Đơn không hợp lệ không làm hỏng cả lô: kết quả được trả về cho từng đơn.
+     * @param request Danh sách ID đơn hàng và trạng thái đích.
+     * @return Kết quả tổng hợp và kết quả của từng đơn hàng.
+     */
+    BulkOrderStatusResultDTO bulkUpdateOrderStatus(BulkUpdateOrderStatusRequest request);
+
 }
\ No newline at end of file
@@ -0,0 +1,317 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michaelcao.bookstore_backend.entity.OutboxEvent;
+import com.michaelcao.bookstore_backend.entity.OutboxEventStatus;
+import com.michaelcao.bookstore_backend.event.DomainEvent;
+import com.michaelcao.bookstore_backend.event.NodeLocalEvent;
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusBatchChangedEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusChangedEvent;
+import com.michaelcao.bookstore_backend.event.OrdersArchivedEvent;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent;
+import com.michaelcao.bookstore_backend.event.ReviewAddedEvent;
+import com.michaelcao.bookstore_backend.event.UserRegisteredEvent;
+import com.michaelcao.bookstore_backend.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Đọc outbox và giao event cho các subscriber trong process (@EventListener) - at-least-once.
+ *
+ * - Một thread duy nhất xử lý outbox, được đánh thức sau mỗi commit có event và bởi lượt poll định kỳ
+ *   (phòng trường hợp restart/crash giữa commit và lúc giao). Nhiều lần đánh thức liên tiếp được gộp lại.
+ * - Đọc theo batch (app.outbox.batch-size) theo thứ tự id; các event đã giao được đánh dấu bằng MỘT câu UPDATE.
+ * - Thứ tự theo aggregate: khi một event giao lỗi (hoặc đang chờ retry), mọi event sau của cùng aggregate
+ *   bị giữ lại cho tới khi event đó thành công hoặc bị đánh dấu FAILED.
+ * - Event có thể được giao lại (crash trước khi đánh dấu, retry), nên subscriber phải idempotent.
+ * - Nhiều node: chỉ node giữ lease "outbox-relay" (SchedulerLeaseService) giao event gốc, nên mail, ghi DB...
+ *   chỉ chạy một lần. Lease được gia hạn sau mỗi batch và giữ qua các lượt poll; node chết thì node khác giành lại
+ *   sau khi lease hết hạn (event đang giao dở sẽ được giao lại).
+ * - Ngoài ra MỌI node tự đọc outbox theo id (con trỏ riêng, không phụ thuộc trạng thái) và giao bản NodeLocalEvent
+ *   cho subscriber chỉ cập nhật trạng thái trong bộ nhớ của node (index, cache).
+ */
+@Service
+@Slf4j
+public class OutboxRelay implements SmartInitializingSingleton {
+
+    private static final Map<String, Class<? extends DomainEvent>> EVENT_TYPES = Stream.of(
+                    OrderPlacedEvent.class, OrderStatusChangedEvent.class, OrderStatusBatchChangedEvent.class,
+                    ReviewAddedEvent.class, ProductChangedEvent.class, UserRegisteredEvent.class, OrdersArchivedEvent.class)
+            .collect(Collectors.toMap(Class::getSimpleName, Function.identity()));
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String LEASE_NAME = "outbox-relay";
+    // Giới hạn số id còn thiếu được theo dõi (auto_increment có thể nhảy cóc rất xa sau restart MySQL)
+    private static final int MAX_TAIL_GAPS = 10_000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Duration retention;
+    private final Duration leaseDuration;
+    private final Duration tailGapTimeout;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    // Trạng thái giao cục bộ, chỉ dùng trên thread "outbox-relay"
+    private long tailCursor = -1; // Id lớn nhất đã đọc; -1 = chưa khởi tạo
+    // Id nhỏ hơn con trỏ nhưng chưa thấy: transaction ghi nó có thể commit SAU event có id lớn hơn -> thời điểm phát hiện
+    private final Map<Long, Instant> tailGaps = new HashMap<>();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       ApplicationEventPublisher applicationEventPublisher,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       SchedulerLeaseService schedulerLeaseService,
+                       @Value("${app.outbox.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.retry-backoff-ms:1000}") long retryBackoffMillis,
+                       @Value("${app.outbox.retention-days:7}") int retentionDays,
+                       @Value("${app.outbox.lease-seconds:30}") long leaseSeconds,
+                       @Value("${app.outbox.tail-gap-timeout-ms:60000}") long tailGapTimeoutMillis) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager); // Không readOnly -> luôn đọc từ primary
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
+        this.retention = Duration.ofDays(Math.max(1, retentionDays));
+        this.leaseDuration = Duration.ofSeconds(Math.max(1, leaseSeconds));
+        this.tailGapTimeout = Duration.ofMillis(Math.max(0, tailGapTimeoutMillis));
+    }
+
+    // Event ghi trước khi node khởi động đã nằm trong dữ liệu mà index/cache dựng từ DB, không cần giao cục bộ lại
+    @Override
+    public void afterSingletonsInstantiated() {
+        executor.execute(() -> {
+            try {
+                initTailCursor();
+            } catch (RuntimeException e) {
+                log.warn("Could not initialise outbox tail cursor, retrying on next run: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Yêu cầu relay xử lý outbox. Không chặn thread gọi; nếu đã có một lượt đang chờ chạy thì không xếp thêm.
+     */
+    public void wakeUp() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                drainScheduled.set(false); // Event ghi trong lúc đang drain sẽ xếp thêm một lượt mới
+                try {
+                    drain();
+                } catch (RuntimeException e) {
+                    log.error("Outbox relay run failed: {}", e.getMessage(), e);
+                }
+                try {
+                    tail();
+                } catch (RuntimeException e) {
+                    log.error("Outbox node-local delivery failed: {}", e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            drainScheduled.set(false); // Đang shutdown: event còn lại sẽ được giao ở lần khởi động sau
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:5000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 15 4 * * *}")
+    public void cleanup() {
+        // FAILED cũng bị dọn: lỗi đã nằm trong log, giữ lại quá thời gian lưu giữ chỉ làm bảng phình ra
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteFinishedBefore(
+                EnumSet.of(OutboxEventStatus.PUBLISHED, OutboxEventStatus.FAILED), Instant.now().minus(retention)));
+        log.info("Outbox cleanup removed {} published/failed events older than {} days", deleted, retention.toDays());
+    }
+
+    // Chỉ chạy trên thread "outbox-relay"
+    private void drain() {
+        if (!schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+            return; // Node khác đang giao event gốc
+        }
+        Set<String> blockedAggregates = new HashSet<>();
+        long afterId = 0;
+        while (true) {
+            long cursor = afterId;
+            List<OutboxEvent> batch = transactionTemplate.execute(status -> outboxEventRepository.findBatch(
+                    OutboxEventStatus.PENDING, cursor, PageRequest.of(0, batchSize)));
+            if (batch.isEmpty()) {
+                return;
+            }
+            Instant now = Instant.now();
+            List<Long> delivered = new ArrayList<>(batch.size());
+            for (OutboxEvent event : batch) {
+                String aggregateKey = event.getAggregateType() + ":" + event.getAggregateId();
+                if (blockedAggregates.contains(aggregateKey)) {
+                    continue;
+                }
+                if (event.getNextAttemptAt().isAfter(now)) {
+                    blockedAggregates.add(aggregateKey); // Đang chờ retry: giữ các event sau của aggregate này
+                    continue;
+                }
+                if (deliver(event)) {
+                    delivered.add(event.getId());
+                } else {
+                    blockedAggregates.add(aggregateKey);
+                }
+            }
+            if (!delivered.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markPublished(
+                        delivered, OutboxEventStatus.PUBLISHED, Instant.now()));
+                log.debug("Outbox relay delivered {} events", delivered.size());
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+            if (!schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+                log.warn("Outbox relay lease lost, stopping delivery on this node");
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    // Chỉ chạy trên thread "outbox-relay". Giao cục bộ mọi event mới (và event đến muộn trong các khoảng trống id)
+    private void tail() {
+        if (tailCursor < 0) {
+            initTailCursor();
+            return;
+        }
+        Instant now = Instant.now();
+        if (!tailGaps.isEmpty()) {
+            List<Long> missing = new ArrayList<>(tailGaps.keySet());
+            List<OutboxEvent> late = transactionTemplate.execute(status -> outboxEventRepository.findAllById(missing));
+            for (OutboxEvent event : late) {
+                tailGaps.remove(event.getId());
+                deliverLocally(event);
+            }
+            // Id bị bỏ qua vĩnh viễn (transaction rollback, auto_increment nhảy cóc) không được giữ mãi
+            Instant expired = now.minus(tailGapTimeout);
+            tailGaps.values().removeIf(firstSeen -> firstSeen.isBefore(expired));
+        }
+        while (true) {
+            long cursor = tailCursor;
+            List<OutboxEvent> batch = transactionTemplate.execute(status ->
+                    outboxEventRepository.findAfter(cursor, PageRequest.of(0, batchSize)));
+            for (OutboxEvent event : batch) {
+                for (long id = tailCursor + 1; id < event.getId() && tailGaps.size() < MAX_TAIL_GAPS; id++) {
+                    tailGaps.putIfAbsent(id, now);
+                }
+                tailCursor = event.getId();
+                deliverLocally(event);
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void initTailCursor() {
+        if (tailCursor < 0) {
+            tailCursor = transactionTemplate.execute(status -> outboxEventRepository.findMaxId());
+        }
+    }
+
+    private boolean deliver(OutboxEvent event) {
+        Class<? extends DomainEvent> type = EVENT_TYPES.get(event.getEventType());
+        try {
+            applicationEventPublisher.publishEvent(readPayload(event)); // Gọi đồng bộ các @EventListener
+            return true;
+        } catch (Exception e) {
+            recordFailure(event, type == null, e);
+            return false;
+        }
+    }
+
+    // Không retry: trạng thái cục bộ được dựng lại từ DB theo version/lịch rebuild của từng index
+    private void deliverLocally(OutboxEvent event) {
+        try {
+            applicationEventPublisher.publishEvent(new NodeLocalEvent<>(readPayload(event)));
+        } catch (Exception e) {
+            log.warn("Node-local delivery of outbox event {} ({}) failed: {}", event.getId(), event.getEventType(), e.getMessage());
+        }
+    }
+
+    private DomainEvent readPayload(OutboxEvent event) throws JsonProcessingException {
+        Class<? extends DomainEvent> type = EVENT_TYPES.get(event.getEventType());
+        if (type == null) {
+            throw new IllegalStateException("Unknown event type: " + event.getEventType());
+        }
+        return objectMapper.readValue(event.getPayload(), type);
+    }
+
+    private void recordFailure(OutboxEvent event, boolean permanent, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (permanent || attempts >= maxAttempts) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            log.error("Outbox event {} ({} for {} {}) failed permanently after {} attempts: {}", event.getId(),
+                    event.getEventType(), event.getAggregateType(), event.getAggregateId(), attempts, message);
+        } else {
+            // Backoff lũy thừa: base * 2^(attempts - 1), tối đa 1 giờ
+            long delay = Math.min(retryBackoffMillis << Math.min(attempts - 1, 20), Duration.ofHours(1).toMillis());
+            event.setNextAttemptAt(Instant.now().plusMillis(delay));
+            log.warn("Outbox event {} ({}) failed (attempt {}), retrying in {} ms: {}",
+                    event.getId(), event.getEventType(), attempts, delay, message);
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.save(event));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            schedulerLeaseService.release(LEASE_NAME); // Node khác nhận giao event ngay, không chờ lease hết hạn
+        } catch (RuntimeException e) {
+            log.debug("Could not release outbox relay lease: {}", e.getMessage());
+        }
+    }
+}
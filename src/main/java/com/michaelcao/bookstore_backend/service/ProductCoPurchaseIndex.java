@@ -0,0 +1,685 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository.Basket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Mô hình "khách hàng cũng mua" (đồng xuất hiện item-to-item) trong bộ nhớ: với mỗi sản phẩm, số đơn hàng chứa
+ * đồng thời sản phẩm đó và từng sản phẩm khác.
+ *
+ * - Ma trận thưa theo ordinal int: mỗi hàng là bảng băm địa chỉ mở int -> int (sản phẩm kia -> số đơn chung).
+ *   Hàng đầy row-capacity thì chỉ giữ lại nửa số cặp có số đếm cao nhất, nên bộ nhớ mỗi sản phẩm bị chặn:
+ *   cặp hiếm (đuôi dài) có thể bị quên, cặp phổ biến thì không.
+ * - Cập nhật tăng dần từ OrderPlacedEvent (at-least-once): ID các đơn gần đây được nhớ để bỏ qua event giao lại.
+ *   Đơn bị hủy sau khi đặt vẫn được tính cho tới lần dựng lại kế tiếp.
+ * - Dựng lại toàn bộ hằng đêm: đọc đơn hàng (cả tầng lưu trữ) theo từng chunk và đếm cặp trên ForkJoinPool trong lúc
+ *   đọc chunk kế tiếp. Mỗi task chỉ ghi các hàng thuộc phân vùng của mình (ordinal % số task) nên không cần khóa.
+ *   Event của đơn đặt từ (mốc bắt đầu - journal-margin) được ghi nhận và áp dụng vào mô hình mới trước khi thay thế:
+ *   order_date được gán trước khi transaction đặt hàng commit, nên đơn có order_date ngay trước mốc có thể chưa
+ *   hiện ra lúc quét. Đơn trong khoảng chồng lấn đã được quét thì bị bỏ qua nhờ danh sách ID đơn gần đây.
+ * - Nhiều node: mỗi node có mô hình riêng nhưng chỉ node giữ lease "co-purchase-rebuild" mới quét lịch sử đơn hàng
+ *   (trên primary); node khác thử lại mỗi rebuild-retry-ms cho tới khi tới lượt, nên các node dựng lại lần lượt.
+ * - Snapshot nhị phân được ghi ra file định kỳ (khi có thay đổi) và khi tắt app; lúc khởi động đọc snapshot thay vì
+ *   quét lại lịch sử đơn hàng. Chưa có snapshot thì dựng lại ở background.
+ */
+@Service
+@Slf4j
+public class ProductCoPurchaseIndex {
+
+    public static final String INDEX_BYTES = "bookstore.product.co-purchase.index.bytes";
+
+    private static final Set<OrderStatus> EXCLUDED_STATUSES = EnumSet.of(OrderStatus.CANCELLED, OrderStatus.PAYMENT_FAILED);
+    private static final int SNAPSHOT_MAGIC = 0x43505831; // "CPX1"
+
+    private static final String LEASE_NAME = "co-purchase-rebuild";
+
+    private final OrderBasketRepository orderBasketRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    private final int maxResults;
+    private final int rowCapacity;
+    private final int maxBasketSize;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int recentOrders;
+    private final Path snapshotFile; // null = không ghi snapshot
+    private final Duration journalMargin;
+    private final Duration leaseDuration;
+
+    // Khóa bảo vệ model và journal: đọc gợi ý dùng read lock, áp dụng event / thay model dùng write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CoPurchaseModel model;
+    private List<OrderPlacedEvent> journal; // Khác null trong lúc dựng lại
+    private Instant journalSince;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile boolean rebuildDue; // Đến lịch (hoặc thiếu mô hình lúc khởi động) nhưng chưa dựng lại được
+    private final AtomicLong changes = new AtomicLong();
+    private long savedChanges; // Chỉ đọc/ghi trong saveSnapshot (synchronized)
+
+    public ProductCoPurchaseIndex(OrderBasketRepository orderBasketRepository,
+                                  SchedulerLeaseService schedulerLeaseService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.recommendation.also-bought.enabled:true}") boolean enabled,
+                                  @Value("${app.recommendation.also-bought.max-results:20}") int maxResults,
+                                  @Value("${app.recommendation.also-bought.row-capacity:200}") int rowCapacity,
+                                  @Value("${app.recommendation.also-bought.max-basket-size:50}") int maxBasketSize,
+                                  @Value("${app.recommendation.also-bought.chunk-size:1000}") int chunkSize,
+                                  @Value("${app.recommendation.also-bought.parallelism:0}") int parallelism,
+                                  @Value("${app.recommendation.also-bought.recent-orders:10000}") int recentOrders,
+                                  @Value("${app.recommendation.also-bought.snapshot-file:}") String snapshotFile,
+                                  @Value("${app.recommendation.also-bought.journal-margin-seconds:300}") int journalMarginSeconds,
+                                  @Value("${app.recommendation.also-bought.lease-seconds:1800}") int leaseSeconds) {
+        this.orderBasketRepository = orderBasketRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxResults = Math.max(1, maxResults);
+        this.rowCapacity = Math.max(2 * this.maxResults, rowCapacity); // Sau khi cắt vẫn còn đủ max-results cặp
+        this.maxBasketSize = Math.max(2, maxBasketSize);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.recentOrders = Math.max(0, recentOrders);
+        this.snapshotFile = StringUtils.hasText(snapshotFile) ? Path.of(snapshotFile) : null;
+        this.journalMargin = Duration.ofSeconds(Math.max(0, journalMarginSeconds));
+        this.leaseDuration = Duration.ofSeconds(Math.max(60, leaseSeconds));
+        this.model = new CoPurchaseModel(this.rowCapacity, this.recentOrders);
+        Gauge.builder(INDEX_BYTES, this, ProductCoPurchaseIndex::estimatedBytes)
+                .description("Bộ nhớ ước tính của mô hình mua kèm")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ID các sản phẩm thường được mua cùng productId, theo số đơn chung giảm dần (tối đa max-results).
+     * Danh sách rỗng nếu tính năng bị tắt hoặc sản phẩm chưa có dữ liệu.
+     */
+    public List<UUID> alsoBought(UUID productId, int limit) {
+        if (!enabled || productId == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return model.top(productId, Math.min(Math.max(1, limit), maxResults));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cộng các cặp sản phẩm của đơn vừa đặt. Idempotent với event giao lại (trong phạm vi recent-orders đơn gần nhất).
+     */
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (!enabled || event.getOrderId() == null || event.getProductIds() == null || event.getProductIds().size() < 2
+                || EXCLUDED_STATUSES.contains(event.getStatus())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (journal != null && (event.getOrderDate() == null || !event.getOrderDate().isBefore(journalSince))) {
+                journal.add(event); // Đơn nằm ngoài phạm vi đang quét, áp dụng lại vào model mới
+            }
+            if (model.apply(event, maxBasketSize)) {
+                changes.incrementAndGet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PostConstruct
+    void loadSnapshot() {
+        if (!enabled || snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            CoPurchaseModel loaded = CoPurchaseModel.read(in, rowCapacity, recentOrders);
+            lock.writeLock().lock();
+            try {
+                model = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product co-purchase index loaded from {}: {} orders, {} products, {} pairs in {} ms (covers orders before {})",
+                    snapshotFile, loaded.orders, loaded.products.size(), loaded.pairCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loaded.coveredUntil);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot load product co-purchase snapshot {}, a full rebuild will run: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        boolean missing;
+        lock.readLock().lock();
+        try {
+            missing = model.coveredUntil == null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (enabled && missing) {
+            rebuildDue = true; // Dựng ở lần thử kế tiếp (khi giành được lease)
+        }
+    }
+
+    @Scheduled(cron = "${app.recommendation.also-bought.rebuild-cron:0 0 2 * * *}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuildDue = true;
+            rebuildIfDue();
+        }
+    }
+
+    /**
+     * Dựng lại nếu đã đến lượt và node này giành được lease; node khác đang dựng thì để lần thử sau.
+     */
+    @Scheduled(fixedDelayString = "${app.recommendation.also-bought.rebuild-retry-ms:60000}",
+            initialDelayString = "${app.recommendation.also-bought.rebuild-retry-initial-delay-ms:5000}")
+    public void rebuildIfDue() {
+        if (!enabled || !rebuildDue || rebuilding.get()) {
+            return;
+        }
+        if (!schedulerLeaseService.tryAcquire(LEASE_NAME, leaseDuration)) {
+            log.debug("Product co-purchase rebuild postponed: another node is rebuilding");
+            return;
+        }
+        try {
+            if (rebuild() >= 0) {
+                rebuildDue = false;
+            }
+        } finally {
+            schedulerLeaseService.release(LEASE_NAME);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommendation.also-bought.snapshot-interval-ms:600000}",
+            initialDelayString = "${app.recommendation.also-bought.snapshot-interval-ms:600000}")
+    public void scheduledSnapshot() {
+        saveSnapshot();
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        saveSnapshot();
+    }
+
+    /**
+     * Dựng lại toàn bộ mô hình từ lịch sử đơn hàng rồi thay thế mô hình hiện tại và ghi snapshot.
+     * Không lấy lease (dùng trực tiếp cho benchmark/test); job định kỳ đi qua rebuildIfDue().
+     * @return Số đơn hàng đã đọc, 0 nếu đang có lượt khác chạy, -1 nếu lỗi.
+     */
+    public long rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("Product co-purchase rebuild is already running, skipping");
+            return 0;
+        }
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now();
+        Instant since = cutoff.minus(journalMargin);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            lock.writeLock().lock();
+            try {
+                journal = new ArrayList<>();
+                journalSince = since;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            CoPurchaseModel built = new CoPurchaseModel(rowCapacity, recentOrders);
+            long scanned = scan(built, cutoff, since, true, pool) + scan(built, cutoff, since, false, pool);
+            built.coveredUntil = since; // Event trong [since, cutoff) vẫn được áp dụng, trừ đơn đã quét (nhớ trong recent)
+
+            lock.writeLock().lock();
+            try {
+                for (OrderPlacedEvent event : journal) {
+                    built.apply(event, maxBasketSize);
+                }
+                built.remember(model.recent.keySet()); // Event giao lại sau khi thay model vẫn bị bỏ qua
+                model = built;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            changes.incrementAndGet();
+            log.info("Product co-purchase index rebuilt: {} orders scanned, {} products, {} pairs in {} ms (parallelism {})",
+                    scanned, built.products.size(), built.pairCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), parallelism);
+            saveSnapshot();
+            return scanned;
+        } catch (RuntimeException e) {
+            log.error("Product co-purchase rebuild failed: {}", e.getMessage(), e);
+            return -1;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            pool.shutdown();
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Ghi snapshot nếu mô hình đã thay đổi từ lần ghi trước. Ghi ra file tạm rồi đổi tên (không để lại file dở dang).
+     */
+    public synchronized void saveSnapshot() {
+        long current = changes.get();
+        if (!enabled || snapshotFile == null || current == savedChanges) {
+            return;
+        }
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            model.write(out); // Ghi vào bộ nhớ dưới read lock, ghi file ngoài khóa
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize co-purchase model", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedChanges = current;
+            log.info("Product co-purchase snapshot written to {}: {} KB in {} ms",
+                    snapshotFile, bytes.size() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            log.warn("Cannot write product co-purchase snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    // Đọc một tầng dữ liệu theo chunk; chunk N được đếm trên pool trong lúc đọc chunk N + 1.
+    // Đơn đặt từ mốc since được nhớ vào recent để event của chúng trong journal không bị đếm lần hai.
+    private long scan(CoPurchaseModel built, Instant cutoff, Instant since, boolean archived, ForkJoinPool pool) {
+        long scanned = 0;
+        Instant afterDate = null;
+        UUID afterId = null;
+        ForkJoinTask<?> counting = null;
+        while (true) {
+            Instant pageAfterDate = afterDate;
+            UUID pageAfterId = afterId;
+            List<Basket> page = readOnlyTx.execute(status -> orderBasketRepository.findBasketPage(
+                    cutoff, EXCLUDED_STATUSES, pageAfterDate, pageAfterId, chunkSize, archived));
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            scanned += page.size();
+            afterDate = page.get(page.size() - 1).orderDate();
+            afterId = page.get(page.size() - 1).orderId();
+            if (counting != null) {
+                counting.join(); // Gán ordinal / nới mảng hàng chỉ khi không có task nào đang ghi
+            }
+            int[][] baskets = built.baskets(page, maxBasketSize);
+            for (Basket basket : page) {
+                if (!basket.orderDate().isBefore(since)) {
+                    built.remember(basket.orderId()); // Chỉ ghi recent, task đếm không đụng tới
+                }
+            }
+            counting = pool.submit(() -> ForkJoinTask.invokeAll(IntStream.range(0, parallelism)
+                    .mapToObj(partition -> ForkJoinTask.adapt(() -> built.count(baskets, partition, parallelism)))
+                    .toList()));
+            if (page.size() < chunkSize) {
+                break;
+            }
+        }
+        if (counting != null) {
+            counting.join();
+        }
+        return scanned;
+    }
+
+    private long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return model.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ma trận đồng xuất hiện. Không thread-safe: index bảo vệ bằng khóa, lúc dựng lại thì mỗi task chỉ ghi hàng của mình.
+     */
+    static final class CoPurchaseModel {
+
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        private final List<UUID> products = new ArrayList<>();
+        private CoRow[] rows = new CoRow[1024];
+        private final int rowCapacity;
+        private final LinkedHashMap<UUID, Boolean> recent; // ID đơn đã áp dụng gần đây (chống giao lại)
+        private Instant coveredUntil; // Đơn đặt trước mốc này đã nằm trong lần dựng lại gần nhất
+        private long orders;
+
+        CoPurchaseModel(int rowCapacity, int recentOrders) {
+            this.rowCapacity = rowCapacity;
+            this.recent = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                    return size() > recentOrders;
+                }
+            };
+        }
+
+        boolean apply(OrderPlacedEvent event, int maxBasketSize) {
+            if (coveredUntil != null && event.getOrderDate() != null && event.getOrderDate().isBefore(coveredUntil)) {
+                return false; // Đã được đếm khi dựng lại
+            }
+            if (recent.put(event.getOrderId(), Boolean.TRUE) != null) {
+                return false; // Event giao lại
+            }
+            int[] basket = basket(event.getProductIds(), maxBasketSize);
+            if (basket.length < 2) {
+                return false;
+            }
+            count(new int[][]{basket}, 0, 1);
+            return true;
+        }
+
+        void remember(Set<UUID> orderIds) {
+            orderIds.forEach(this::remember);
+        }
+
+        void remember(UUID orderId) {
+            recent.put(orderId, Boolean.TRUE);
+        }
+
+        int[][] baskets(List<Basket> page, int maxBasketSize) {
+            List<int[]> baskets = new ArrayList<>(page.size());
+            for (Basket basket : page) {
+                int[] ordinals = basket(basket.productIds(), maxBasketSize);
+                if (ordinals.length >= 2) {
+                    baskets.add(ordinals);
+                }
+            }
+            return baskets.toArray(int[][]::new);
+        }
+
+        // Ordinal khác nhau của các sản phẩm trong giỏ, tối đa maxBasketSize (giỏ quá lớn chủ yếu là nhiễu)
+        private int[] basket(List<UUID> productIds, int maxBasketSize) {
+            int[] basket = new int[Math.min(productIds.size(), maxBasketSize)];
+            int size = 0;
+            for (UUID productId : productIds) {
+                if (size == basket.length) {
+                    break;
+                }
+                int ordinal = ordinals.computeIfAbsent(productId, id -> {
+                    products.add(id);
+                    return products.size() - 1;
+                });
+                boolean duplicate = false;
+                for (int i = 0; i < size && !duplicate; i++) {
+                    duplicate = basket[i] == ordinal;
+                }
+                if (!duplicate) {
+                    basket[size++] = ordinal;
+                }
+            }
+            if (rows.length < products.size()) {
+                rows = Arrays.copyOf(rows, Math.max(rows.length * 2, products.size()));
+            }
+            return size == basket.length ? basket : Arrays.copyOf(basket, size);
+        }
+
+        // Cộng mọi cặp (a, b) có a thuộc phân vùng partition (a % partitions)
+        void count(int[][] baskets, int partition, int partitions) {
+            CoRow[] rows = this.rows;
+            for (int[] basket : baskets) {
+                for (int a : basket) {
+                    if (a % partitions != partition) {
+                        continue;
+                    }
+                    CoRow row = rows[a];
+                    if (row == null) {
+                        row = new CoRow();
+                        rows[a] = row;
+                    }
+                    for (int b : basket) {
+                        if (b != a) {
+                            row.increment(b, 1, rowCapacity);
+                        }
+                    }
+                }
+                if (partition == 0) {
+                    orders++;
+                }
+            }
+        }
+
+        List<UUID> top(UUID productId, int limit) {
+            Integer ordinal = ordinals.get(productId);
+            CoRow row = ordinal != null ? rows[ordinal] : null;
+            if (row == null) {
+                return List.of();
+            }
+            int[] top = row.top(limit);
+            List<UUID> result = new ArrayList<>(top.length);
+            for (int other : top) {
+                result.add(products.get(other));
+            }
+            return result;
+        }
+
+        long pairCount() {
+            long pairs = 0;
+            for (int i = 0; i < products.size(); i++) {
+                pairs += rows[i] != null ? rows[i].size : 0;
+            }
+            return pairs;
+        }
+
+        long estimatedBytes() {
+            long bytes = (long) products.size() * 96 + (long) rows.length * 4 + (long) recent.size() * 80;
+            for (int i = 0; i < products.size(); i++) {
+                bytes += rows[i] != null ? 32 + 8L * rows[i].keys.length : 0;
+            }
+            return bytes;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(coveredUntil != null ? coveredUntil.toEpochMilli() : -1);
+            out.writeLong(orders);
+            out.writeInt(products.size());
+            for (UUID productId : products) {
+                out.writeLong(productId.getMostSignificantBits());
+                out.writeLong(productId.getLeastSignificantBits());
+            }
+            for (int i = 0; i < products.size(); i++) {
+                CoRow row = rows[i];
+                out.writeInt(row != null ? row.size : 0);
+                if (row != null) {
+                    for (int slot = 0; slot < row.keys.length; slot++) {
+                        if (row.keys[slot] != 0) {
+                            out.writeInt(row.keys[slot] - 1);
+                            out.writeInt(row.counts[slot]);
+                        }
+                    }
+                }
+            }
+            out.writeInt(recent.size());
+            for (UUID orderId : recent.keySet()) {
+                out.writeLong(orderId.getMostSignificantBits());
+                out.writeLong(orderId.getLeastSignificantBits());
+            }
+        }
+
+        static CoPurchaseModel read(DataInputStream in, int rowCapacity, int recentOrders) throws IOException {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("not a co-purchase snapshot");
+            }
+            CoPurchaseModel model = new CoPurchaseModel(rowCapacity, recentOrders);
+            long coveredUntil = in.readLong();
+            model.coveredUntil = coveredUntil >= 0 ? Instant.ofEpochMilli(coveredUntil) : null;
+            model.orders = in.readLong();
+            int productCount = in.readInt();
+            for (int i = 0; i < productCount; i++) {
+                UUID productId = new UUID(in.readLong(), in.readLong());
+                model.ordinals.put(productId, i);
+                model.products.add(productId);
+            }
+            model.rows = new CoRow[Math.max(1024, productCount)];
+            for (int i = 0; i < productCount; i++) {
+                int size = in.readInt();
+                if (size > 0) {
+                    CoRow row = new CoRow();
+                    for (int j = 0; j < size; j++) {
+                        row.increment(in.readInt(), in.readInt(), rowCapacity);
+                    }
+                    model.rows[i] = row;
+                }
+            }
+            int recentCount = in.readInt();
+            for (int i = 0; i < recentCount; i++) {
+                model.recent.put(new UUID(in.readLong(), in.readLong()), Boolean.TRUE);
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Một hàng của ma trận: bảng băm địa chỉ mở ordinal -> số đơn chung. Khóa lưu ordinal + 1 (0 = ô trống).
+     */
+    static final class CoRow {
+
+        private int[] keys = new int[8];
+        private int[] counts = new int[8];
+        private int size;
+
+        void increment(int ordinal, int by, int capacity) {
+            int key = ordinal + 1;
+            int slot = slot(key);
+            if (keys[slot] == key) {
+                counts[slot] += by;
+                return;
+            }
+            if (size >= capacity) {
+                prune(capacity / 2);
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            counts[slot] = by;
+            if (++size * 2 > keys.length) {
+                rehash(keys.length * 2, keys.length);
+            }
+        }
+
+        // Ordinal của tối đa limit cặp nhiều đơn chung nhất; bằng nhau thì ordinal nhỏ trước
+        int[] top(int limit) {
+            long[] packed = packed();
+            Arrays.sort(packed);
+            int[] result = new int[Math.min(limit, packed.length)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Integer.MAX_VALUE - (int) packed[packed.length - 1 - i];
+            }
+            return result;
+        }
+
+        // Giữ lại keep cặp có số đếm cao nhất
+        private void prune(int keep) {
+            long[] packed = packed();
+            Arrays.sort(packed);
+            keys = new int[Math.max(8, Integer.highestOneBit(Math.max(1, keep) * 4 - 1))];
+            counts = new int[keys.length];
+            size = 0;
+            for (int i = packed.length - 1; i >= 0 && size < keep; i--) {
+                int key = Integer.MAX_VALUE - (int) packed[i] + 1;
+                int slot = slot(key);
+                keys[slot] = key;
+                counts[slot] = (int) (packed[i] >>> 32);
+                size++;
+            }
+        }
+
+        // (số đếm, MAX - ordinal) gói vào long: sắp xếp tăng dần thì cặp tốt nhất đứng cuối
+        private long[] packed() {
+            long[] packed = new long[size];
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    packed[n++] = (long) counts[slot] << 32 | (Integer.MAX_VALUE - (keys[slot] - 1));
+                }
+            }
+            return packed;
+        }
+
+        private void rehash(int length, int oldLength) {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[length];
+            counts = new int[length];
+            for (int i = 0; i < oldLength; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        // Ô chứa key, hoặc ô trống đầu tiên trên đường dò
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
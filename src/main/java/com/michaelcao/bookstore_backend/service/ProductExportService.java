@@ -0,0 +1,16 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ProductExportService {
+
+    /**
+     * Ghi toàn bộ catalog ra output stream theo kiểu streaming (bộ nhớ không phụ thuộc kích thước catalog).
+     * Định dạng giống file import nên có thể import lại.
+     * @return Số sản phẩm đã ghi.
+     */
+    long exportProducts(ProductImportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,346 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.category.CategoryDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductFacetsDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductFacetsDTO.FacetValue;
+import com.michaelcao.bookstore_backend.dto.product.ProductFacetsDTO.PriceRange;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.FacetRow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index facet trong bộ nhớ: đếm số sản phẩm theo danh mục chính, tác giả, khoảng giá và còn hàng cho một điều kiện
+ * lọc trong MỘT lần duyệt, không query DB (ngoài lần dựng lại index).
+ *
+ * - Mỗi sản phẩm có một ordinal; ordinal được gán theo thứ tự giá tăng dần nên điều kiện giá và mỗi khoảng giá
+ *   là một dải ordinal liên tục (tìm bằng binary search).
+ * - Danh mục chính và tác giả được mã hóa thành mã số nguyên theo ordinal; còn hàng là một BitSet dựng sẵn.
+ * - Keyword được so khớp một lần thành BitSet (tác giả chỉ so một lần cho mỗi tác giả khác nhau), sau đó duyệt
+ *   các bit: sản phẩm khớp mọi điều kiện được đếm cho mọi facet, sản phẩm chỉ trượt đúng một điều kiện
+ *   được đếm cho facet của điều kiện đó.
+ *
+ * Điều kiện lọc giống ProductSpecification. Keyword/tác giả được so không phân biệt hoa thường và dấu, theo
+ * collation mặc định utf8mb4_0900_ai_ci của MySQL.
+ *
+ * Index dựng lại trên thread nền (VersionedSnapshotHolder) khi version catalog (CatalogVersionService) thay đổi, tối đa
+ * một lần mỗi min-rebuild-interval: trong khoảng đó (ví dụ đơn hàng liên tục trừ kho, hoặc lần dựng lại bị lỗi) số đếm
+ * lấy từ index trước và có thể trễ so với trang kết quả. Request không bao giờ quét bảng sản phẩm.
+ */
+@Service
+@Slf4j
+public class ProductFacetIndex implements SmartInitializingSingleton {
+
+    private static final int NONE = -1;
+
+    private final ProductRepository productRepository;
+    private final CategorySnapshotService categorySnapshotService;
+    private final TransactionTemplate readOnlyTx;
+    private final BigDecimal[] priceBands;
+    private final int maxAuthors;
+    private final VersionedSnapshotHolder<FacetSnapshot> snapshot;
+
+    public ProductFacetIndex(ProductRepository productRepository,
+                             CatalogVersionService catalogVersionService,
+                             CategorySnapshotService categorySnapshotService,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.facets.price-bands:10,20,50,100}") BigDecimal[] priceBands,
+                             @Value("${app.facets.max-authors:20}") int maxAuthors,
+                             @Value("${app.facets.min-rebuild-interval-ms:1000}") long minRebuildIntervalMillis) {
+        this.productRepository = productRepository;
+        this.categorySnapshotService = categorySnapshotService;
+        // Dựng index trong transaction RIÊNG (read-only), giống CategorySnapshotService
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.priceBands = Arrays.stream(priceBands).sorted().distinct().toArray(BigDecimal[]::new);
+        this.maxAuthors = Math.max(0, maxAuthors);
+        this.snapshot = new VersionedSnapshotHolder<>("facet-index", catalogVersionService::getProductVersion,
+                version -> readOnlyTx.execute(status -> load(version)), minRebuildIntervalMillis);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshot.refreshAsync(); // Dựng trước trên thread nền
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * Index đã dựng từ version sản phẩm >= productVersion? Chưa thì nơi gọi không gắn ETag của version đó cho số đếm.
+     */
+    public boolean isFresh(long productVersion) {
+        boolean fresh = snapshot.isFresh(productVersion);
+        if (!fresh) {
+            snapshot.get(); // Kích hoạt dựng lại nền nếu cần
+        }
+        return fresh;
+    }
+
+    /**
+     * Đếm facet cho điều kiện lọc (cùng tham số và ý nghĩa với ProductService.filterProducts).
+     * @return null nếu index chưa dựng xong lần nào (vừa khởi động, hoặc mọi lần dựng đều lỗi).
+     */
+    public ProductFacetsDTO facets(String keyword, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                   Boolean inStockOnly, String author) {
+        FacetSnapshot index = snapshot.get();
+        if (index == null) {
+            return null;
+        }
+        int size = index.size;
+
+        // Các điều kiện được chuẩn hóa giống ProductSpecification.buildSpecification
+        BitSet candidates = StringUtils.hasText(keyword) ? index.keywordMatches(TextNormalizer.fold(keyword.trim())) : null;
+        int selectedCategory = NONE;
+        if (categoryId != null && categoryId > 0) {
+            // Danh mục không có sản phẩm nào: mọi sản phẩm đều trượt điều kiện danh mục
+            selectedCategory = index.categoryCodes.getOrDefault(categoryId, Integer.MIN_VALUE);
+        }
+        int selectedAuthor = NONE;
+        if (StringUtils.hasText(author)) {
+            selectedAuthor = index.authorCodes.getOrDefault(TextNormalizer.fold(author.trim()), Integer.MIN_VALUE);
+        }
+        int priceFrom = 0;
+        int priceTo = size;
+        if (minPrice != null && minPrice.compareTo(BigDecimal.ZERO) > 0) {
+            priceFrom = index.firstAtLeast(minPrice);
+        }
+        if (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0 && (minPrice == null || maxPrice.compareTo(minPrice) >= 0)) {
+            priceTo = index.firstAbove(maxPrice);
+        }
+        boolean stockFilter = inStockOnly != null && inStockOnly;
+
+        long total = 0;
+        long inStock = 0;
+        long[] categoryCounts = new long[index.categoryIds.length];
+        long[] authorCounts = new long[index.authorLabels.length];
+        long[] bandCounts = new long[priceBands.length + 1];
+        int band = 0;
+
+        int first = candidates == null ? (size > 0 ? 0 : -1) : candidates.nextSetBit(0);
+        for (int i = first; i >= 0 && i < size; i = candidates == null ? i + 1 : candidates.nextSetBit(i + 1)) {
+            int missed = NONE;
+            if (selectedCategory != NONE && index.categoryOf[i] != selectedCategory) {
+                missed = Facet.CATEGORY;
+            }
+            if (selectedAuthor != NONE && index.authorOf[i] != selectedAuthor) {
+                if (missed != NONE) continue;
+                missed = Facet.AUTHOR;
+            }
+            if (i < priceFrom || i >= priceTo) {
+                if (missed != NONE) continue;
+                missed = Facet.PRICE;
+            }
+            boolean available = index.inStock.get(i);
+            if (stockFilter && !available) {
+                if (missed != NONE) continue;
+                missed = Facet.STOCK;
+            }
+
+            if (missed == NONE) {
+                total++;
+            }
+            if ((missed == NONE || missed == Facet.CATEGORY) && index.categoryOf[i] != NONE) {
+                categoryCounts[index.categoryOf[i]]++;
+            }
+            if (missed == NONE || missed == Facet.AUTHOR) {
+                authorCounts[index.authorOf[i]]++;
+            }
+            if (missed == NONE || missed == Facet.PRICE) {
+                while (band < priceBands.length && i >= index.bandStarts[band]) {
+                    band++; // Ordinal tăng dần nên khoảng giá chỉ tiến lên
+                }
+                bandCounts[band]++;
+            }
+            if ((missed == NONE || missed == Facet.STOCK) && available) {
+                inStock++;
+            }
+        }
+
+        return new ProductFacetsDTO(total,
+                categoryFacet(index, categoryCounts, selectedCategory),
+                authorFacet(index, authorCounts, selectedAuthor),
+                priceFacet(bandCounts),
+                inStock);
+    }
+
+    private List<FacetValue> categoryFacet(FacetSnapshot index, long[] counts, int selected) {
+        List<FacetValue> values = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] == 0 && code != selected) {
+                continue;
+            }
+            Long id = index.categoryIds[code];
+            CategoryDTO category = categorySnapshotService.current().get(id);
+            values.add(new FacetValue(String.valueOf(id), category != null ? category.getName() : null, counts[code], code == selected));
+        }
+        values.sort(Comparator.comparingLong(FacetValue::getCount).reversed()
+                .thenComparing(FacetValue::getLabel, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return values;
+    }
+
+    private List<FacetValue> authorFacet(FacetSnapshot index, long[] counts, int selected) {
+        List<FacetValue> values = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0 || code == selected) {
+                values.add(new FacetValue(index.authorLabels[code], index.authorLabels[code], counts[code], code == selected));
+            }
+        }
+        values.sort(Comparator.comparing(FacetValue::isSelected).reversed()
+                .thenComparing(Comparator.comparingLong(FacetValue::getCount).reversed())
+                .thenComparing(FacetValue::getLabel, String.CASE_INSENSITIVE_ORDER));
+        return values.size() > maxAuthors ? new ArrayList<>(values.subList(0, maxAuthors)) : values;
+    }
+
+    private List<PriceRange> priceFacet(long[] counts) {
+        List<PriceRange> ranges = new ArrayList<>(counts.length);
+        for (int band = 0; band < counts.length; band++) {
+            BigDecimal min = band == 0 ? BigDecimal.ZERO : priceBands[band - 1];
+            BigDecimal max = band < priceBands.length ? priceBands[band] : null;
+            ranges.add(new PriceRange(min, max, counts[band]));
+        }
+        return ranges;
+    }
+
+    private FacetSnapshot load(long targetVersion) {
+        long start = System.nanoTime();
+        List<FacetRow> rows = productRepository.findAllFacetRows();
+        FacetSnapshot loaded = new FacetSnapshot(targetVersion, rows, priceBands);
+        log.info("Product facet index rebuilt: {} products, {} categories, {} authors in {} ms (catalog version {})",
+                loaded.size, loaded.categoryIds.length, loaded.authorLabels.length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), targetVersion);
+        return loaded;
+    }
+
+    private static final class Facet {
+        static final int CATEGORY = 0;
+        static final int AUTHOR = 1;
+        static final int PRICE = 2;
+        static final int STOCK = 3;
+    }
+
+    /**
+     * Dữ liệu bất biến của index, theo ordinal (thứ tự giá tăng dần).
+     */
+    private static final class FacetSnapshot {
+
+        private final long version;
+        private final int size;
+        private final String[] titles;          // Đã fold
+        private final BigDecimal[] prices;      // Tăng dần
+        private final int[] categoryOf;         // Mã danh mục chính, NONE nếu không có
+        private final int[] authorOf;           // Mã tác giả
+        private final BitSet inStock;
+        private final Long[] categoryIds;       // Mã -> categoryId
+        private final Map<Long, Integer> categoryCodes = new HashMap<>();
+        private final String[] authorKeys;      // Mã -> tên tác giả đã fold
+        private final String[] authorLabels;    // Mã -> tên tác giả gốc (lần gặp đầu tiên)
+        private final Map<String, Integer> authorCodes = new HashMap<>();
+        private final int[] bandStarts;         // Ordinal đầu tiên của mỗi khoảng giá sau khoảng đầu
+
+        private FacetSnapshot(long version, List<FacetRow> rows, BigDecimal[] priceBands) {
+            this.version = version;
+            this.size = rows.size();
+            this.titles = new String[size];
+            this.prices = new BigDecimal[size];
+            this.categoryOf = new int[size];
+            this.authorOf = new int[size];
+            this.inStock = new BitSet(size);
+            List<Long> categories = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                FacetRow row = rows.get(i);
+                titles[i] = row.getTitle() != null ? TextNormalizer.fold(row.getTitle()) : "";
+                prices[i] = row.getPrice();
+                Long categoryId = row.getCategoryId();
+                categoryOf[i] = categoryId == null ? NONE : categoryCodes.computeIfAbsent(categoryId, id -> {
+                    categories.add(id);
+                    return categories.size() - 1;
+                });
+                String authorLabel = row.getAuthor() != null ? row.getAuthor() : "";
+                authorOf[i] = authorCodes.computeIfAbsent(TextNormalizer.fold(authorLabel), key -> {
+                    keys.add(key);
+                    labels.add(authorLabel);
+                    return keys.size() - 1;
+                });
+                if (row.getStockQuantity() != null && row.getStockQuantity() > 0) {
+                    inStock.set(i);
+                }
+            }
+            this.categoryIds = categories.toArray(new Long[0]);
+            this.authorKeys = keys.toArray(new String[0]);
+            this.authorLabels = labels.toArray(new String[0]);
+            this.bandStarts = new int[priceBands.length];
+            for (int band = 0; band < priceBands.length; band++) {
+                bandStarts[band] = firstAtLeast(priceBands[band]);
+            }
+        }
+
+        // Sản phẩm có title hoặc author chứa keyword (đã fold)
+        private BitSet keywordMatches(String keyword) {
+            boolean[] authorMatches = new boolean[authorKeys.length];
+            for (int code = 0; code < authorKeys.length; code++) {
+                authorMatches[code] = authorKeys[code].contains(keyword);
+            }
+            BitSet matches = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if (authorMatches[authorOf[i]] || titles[i].contains(keyword)) {
+                    matches.set(i);
+                }
+            }
+            return matches;
+        }
+
+        // Ordinal đầu tiên có giá >= price
+        private int firstAtLeast(BigDecimal price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid].compareTo(price) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Ordinal đầu tiên có giá > price
+        private int firstAbove(BigDecimal price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid].compareTo(price) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportJobDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductImportService {
+
+    /**
+     * Bắt đầu một job import sản phẩm hàng loạt.
+     * Nội dung được stream xuống file tạm (không giữ trong bộ nhớ), sau đó job chạy bất đồng bộ:
+     * parse từng dòng, validate song song theo chunk, tra ISBN theo batch và upsert bằng JDBC batch.
+     * @param input Stream nội dung file (CSV có header hoặc JSONL).
+     * @param format Định dạng file.
+     * @param fileName Tên file gốc (chỉ để hiển thị).
+     * @return ProductImportJobDTO với trạng thái PENDING.
+     * @throws IOException Nếu không thể ghi file tạm.
+     */
+    ProductImportJobDTO startImport(InputStream input, ProductImportFormat format, String fileName) throws IOException;
+
+    /**
+     * Lấy tiến độ của một job import.
+     * @param jobId ID của job.
+     * @return ProductImportJobDTO.
+     * @throws com.michaelcao.bookstore_backend.exception.ResourceNotFoundException Nếu không tìm thấy job.
+     */
+    ProductImportJobDTO getJob(UUID jobId);
+
+    /**
+     * Lấy danh sách các job import gần đây (mới nhất trước).
+     */
+    List<ProductImportJobDTO> getRecentJobs();
+
+    /**
+     * Ghi báo cáo lỗi (CSV: line,isbn,error) của job ra output stream.
+     * @throws com.michaelcao.bookstore_backend.exception.ResourceNotFoundException Nếu không tìm thấy job.
+     */
+    void writeErrorReport(UUID jobId, OutputStream out) throws IOException;
+}
@@ -0,0 +1,310 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.ProductCategoryRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.RelatedRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sản phẩm liên quan ("cùng danh mục") tính trước cho mọi sản phẩm, đọc không query DB.
+ *
+ * - Ứng viên là sản phẩm có chung ít nhất một danh mục (product_categories). Điểm = số danh mục chung * weight.category
+ *   + cùng tác giả * weight.author + độ phổ biến (log số lượng đã bán, chuẩn hóa về 0..1) * weight.popularity.
+ * - Ordinal được gán theo độ phổ biến giảm dần, nên danh sách thành viên của mỗi danh mục (sắp theo ordinal) cũng là
+ *   thứ tự phổ biến. Mỗi danh mục chỉ xét candidates-per-category thành viên đầu (cộng các sản phẩm cùng tác giả),
+ *   nên dựng lại là O(số sản phẩm * số danh mục mỗi sản phẩm * candidates-per-category), không phải O(n^2).
+ * - Kết quả lưu dạng mảng ordinal liền nhau (offsets + neighbors, mỗi sản phẩm tối đa max-results); thông tin
+ *   hiển thị (ProductSummaryDTO) của mỗi sản phẩm được giữ một bản trong snapshot.
+ *
+ * Index dựng lại trên thread nền (VersionedSnapshotHolder) khi version nội dung sản phẩm (tạo/sửa/xóa, import - kể cả
+ * từ node khác) hoặc version tập danh mục đổi, tối đa một lần mỗi min-rebuild-interval: nhiều thay đổi liên tiếp chỉ
+ * gây một lần dựng lại. Sản phẩm vừa tạo chưa có danh sách cho tới lúc đó. Index được dựng lúc khởi động; trong lúc
+ * chưa dựng xong, mọi sản phẩm được coi như chưa có trong index.
+ */
+@Service
+@Slf4j
+public class ProductRelatedIndex implements SmartInitializingSingleton {
+
+    public static final String INDEX_BYTES = "bookstore.product.related.index.bytes";
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxResults;
+    private final int candidatesPerCategory;
+    private final double categoryWeight;
+    private final double authorWeight;
+    private final double popularityWeight;
+    private final VersionedSnapshotHolder<RelatedSnapshot> snapshot;
+
+    public ProductRelatedIndex(ProductRepository productRepository,
+                               CatalogVersionService catalogVersionService,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.related.max-results:12}") int maxResults,
+                               @Value("${app.related.candidates-per-category:200}") int candidatesPerCategory,
+                               @Value("${app.related.weight.category:1.0}") double categoryWeight,
+                               @Value("${app.related.weight.author:1.5}") double authorWeight,
+                               @Value("${app.related.weight.popularity:0.5}") double popularityWeight,
+                               @Value("${app.related.min-rebuild-interval-ms:5000}") long minRebuildIntervalMillis) {
+        this.productRepository = productRepository;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxResults = Math.max(1, maxResults);
+        this.candidatesPerCategory = Math.max(this.maxResults, candidatesPerCategory);
+        this.categoryWeight = categoryWeight;
+        this.authorWeight = authorWeight;
+        this.popularityWeight = popularityWeight;
+        // Hai version đều chỉ tăng: tổng đổi khi một trong hai đổi
+        this.snapshot = new VersionedSnapshotHolder<>("related-index",
+                () -> catalogVersionService.getCategoryVersion() + catalogVersionService.getProductContentVersion(),
+                version -> readOnlyTx.execute(status -> load(version)), minRebuildIntervalMillis);
+        Gauge.builder(INDEX_BYTES, snapshot, s -> s.peek() != null ? s.peek().estimatedBytes : 0)
+                .description("Bộ nhớ ước tính của danh sách sản phẩm liên quan")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshot.refreshAsync(); // Dựng trước trên thread nền, không để request đầu tiên chịu
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * Tối đa limit sản phẩm liên quan, liên quan nhất trước.
+     * @return null nếu sản phẩm chưa có trong index (không tồn tại, vừa tạo sau lần dựng gần nhất, hoặc index đang
+     * dựng lần đầu).
+     */
+    public List<ProductSummaryDTO> related(UUID productId, int limit) {
+        RelatedSnapshot current = snapshot.get();
+        Integer ordinal = current != null ? current.ordinals.get(productId) : null;
+        if (ordinal == null) {
+            return null;
+        }
+        int from = current.offsets[ordinal];
+        int to = Math.min(current.offsets[ordinal + 1], from + Math.max(0, limit));
+        List<ProductSummaryDTO> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(current.summaries[current.neighbors[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Dựng lại index ngay và chờ xong (benchmark, test).
+     */
+    void rebuildNow() {
+        snapshot.refreshAsync().join();
+    }
+
+    private RelatedSnapshot load(long targetVersion) {
+        long start = System.nanoTime();
+        RelatedSnapshot built = build(productRepository.findAllRelatedRows(), productRepository.findAllProductCategoryRows());
+        log.info("Product related index rebuilt: {} products, {} categories, {} neighbors, {} KB in {} ms (version {})",
+                built.summaries.length, built.categoryCount, built.neighbors.length, built.estimatedBytes / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), targetVersion);
+        return built;
+    }
+
+    private RelatedSnapshot build(List<RelatedRow> rows, List<ProductCategoryRow> pairs) {
+        int n = rows.size();
+        List<RelatedRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(ProductRelatedIndex::soldCount).reversed().thenComparing(RelatedRow::getId));
+
+        Map<UUID, Integer> ordinals = new HashMap<>(n * 4 / 3 + 1);
+        ProductSummaryDTO[] summaries = new ProductSummaryDTO[n];
+        int[] authorOf = new int[n];
+        double[] popularity = new double[n];
+        Map<String, Integer> authorCodes = new HashMap<>();
+        double maxPopularity = n > 0 ? Math.log1p(soldCount(sorted.get(0))) : 0;
+        for (int i = 0; i < n; i++) {
+            RelatedRow row = sorted.get(i);
+            ordinals.put(row.getId(), i);
+            summaries[i] = new ProductSummaryDTO(row.getId(), row.getTitle(), row.getAuthor(), row.getPrice(),
+                    row.getImageUrl(), row.getCategoryName());
+            authorOf[i] = StringUtils.hasText(row.getAuthor())
+                    ? authorCodes.computeIfAbsent(TextNormalizer.fold(row.getAuthor().trim()), key -> authorCodes.size())
+                    : -1;
+            popularity[i] = maxPopularity > 0 ? Math.log1p(soldCount(row)) / maxPopularity : 0;
+        }
+
+        // Danh mục của mỗi sản phẩm (mã danh mục tăng dần) và thành viên của mỗi danh mục (ordinal tăng dần)
+        Map<Long, Integer> categoryCodes = new HashMap<>();
+        int[] pairProduct = new int[pairs.size()];
+        int[] pairCategory = new int[pairs.size()];
+        int pairCount = 0;
+        for (ProductCategoryRow pair : pairs) {
+            Integer ordinal = ordinals.get(pair.getProductId());
+            if (ordinal != null) {
+                pairProduct[pairCount] = ordinal;
+                pairCategory[pairCount] = categoryCodes.computeIfAbsent(pair.getCategoryId(), key -> categoryCodes.size());
+                pairCount++;
+            }
+        }
+        Adjacency categoriesOf = Adjacency.of(n, pairProduct, pairCategory, pairCount);
+        Adjacency membersOf = Adjacency.of(categoryCodes.size(), pairCategory, pairProduct, pairCount);
+        int[] productIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            productIndex[i] = i;
+        }
+        Adjacency byAuthor = Adjacency.of(authorCodes.size(), authorOf, productIndex, n);
+
+        int[] offsets = new int[n + 1];
+        int[] neighbors = new int[n * maxResults];
+        int[] seen = new int[n]; // seen[q] == p + 1: q đã được xét cho p
+        int[] topIds = new int[maxResults];
+        double[] topScores = new double[maxResults];
+        int size = 0;
+        for (int p = 0; p < n; p++) {
+            int count = 0;
+            for (int c = categoriesOf.offsets[p]; c < categoriesOf.offsets[p + 1]; c++) {
+                int category = categoriesOf.values[c];
+                int end = Math.min(membersOf.offsets[category + 1], membersOf.offsets[category] + candidatesPerCategory);
+                for (int m = membersOf.offsets[category]; m < end; m++) {
+                    count = consider(p, membersOf.values[m], seen, categoriesOf, authorOf, popularity, topIds, topScores, count);
+                }
+            }
+            if (authorOf[p] >= 0) {
+                int author = authorOf[p];
+                int end = Math.min(byAuthor.offsets[author + 1], byAuthor.offsets[author] + candidatesPerCategory);
+                for (int m = byAuthor.offsets[author]; m < end; m++) {
+                    count = consider(p, byAuthor.values[m], seen, categoriesOf, authorOf, popularity, topIds, topScores, count);
+                }
+            }
+            System.arraycopy(topIds, 0, neighbors, size, count);
+            size += count;
+            offsets[p + 1] = size;
+        }
+        neighbors = Arrays.copyOf(neighbors, size);
+        return new RelatedSnapshot(ordinals, summaries, offsets, neighbors, categoryCodes.size());
+    }
+
+    // Chấm điểm ứng viên q cho p và chèn vào top (sắp điểm giảm dần, bằng điểm thì phổ biến hơn trước)
+    private int consider(int p, int q, int[] seen, Adjacency categoriesOf, int[] authorOf, double[] popularity,
+                         int[] topIds, double[] topScores, int count) {
+        if (q == p || seen[q] == p + 1) {
+            return count;
+        }
+        seen[q] = p + 1;
+        int shared = categoriesOf.intersectionSize(p, q);
+        if (shared == 0) {
+            return count;
+        }
+        double score = shared * categoryWeight + popularity[q] * popularityWeight
+                + (authorOf[p] >= 0 && authorOf[p] == authorOf[q] ? authorWeight : 0);
+        int position = count;
+        while (position > 0 && (topScores[position - 1] < score
+                || (topScores[position - 1] == score && topIds[position - 1] > q))) {
+            position--;
+        }
+        if (position >= maxResults) {
+            return count;
+        }
+        int moved = Math.min(count, maxResults - 1) - position;
+        System.arraycopy(topIds, position, topIds, position + 1, moved);
+        System.arraycopy(topScores, position, topScores, position + 1, moved);
+        topIds[position] = q;
+        topScores[position] = score;
+        return Math.min(count + 1, maxResults);
+    }
+
+    private static int soldCount(RelatedRow row) {
+        return row.getSoldCount() != null ? Math.max(0, row.getSoldCount()) : 0;
+    }
+
+    /**
+     * Quan hệ một-nhiều dạng mảng liền nhau: giá trị của key k nằm trong values[offsets[k], offsets[k + 1]), tăng dần.
+     */
+    private record Adjacency(int[] offsets, int[] values) {
+
+        static Adjacency of(int keys, int[] from, int[] to, int length) {
+            int[] offsets = new int[keys + 1];
+            for (int i = 0; i < length; i++) {
+                if (from[i] >= 0) {
+                    offsets[from[i] + 1]++;
+                }
+            }
+            for (int k = 0; k < keys; k++) {
+                offsets[k + 1] += offsets[k];
+            }
+            int[] values = new int[offsets[keys]];
+            int[] next = Arrays.copyOf(offsets, keys);
+            for (int i = 0; i < length; i++) {
+                if (from[i] >= 0) {
+                    values[next[from[i]]++] = to[i];
+                }
+            }
+            for (int k = 0; k < keys; k++) {
+                Arrays.sort(values, offsets[k], offsets[k + 1]);
+            }
+            return new Adjacency(offsets, values);
+        }
+
+        // Số giá trị chung của hai key (merge hai dải đã sắp xếp)
+        int intersectionSize(int a, int b) {
+            int i = offsets[a];
+            int iEnd = offsets[a + 1];
+            int j = offsets[b];
+            int jEnd = offsets[b + 1];
+            int shared = 0;
+            while (i < iEnd && j < jEnd) {
+                if (values[i] == values[j]) {
+                    shared++;
+                    i++;
+                    j++;
+                } else if (values[i] < values[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return shared;
+        }
+    }
+
+    private static final class RelatedSnapshot {
+        final Map<UUID, Integer> ordinals;
+        final ProductSummaryDTO[] summaries;
+        final int[] offsets;
+        final int[] neighbors;
+        final int categoryCount;
+        final long estimatedBytes;
+
+        RelatedSnapshot(Map<UUID, Integer> ordinals, ProductSummaryDTO[] summaries, int[] offsets, int[] neighbors,
+                        int categoryCount) {
+            this.ordinals = ordinals;
+            this.summaries = summaries;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.categoryCount = categoryCount;
+            // Ước lượng thô: entry HashMap + UUID ~ 80 byte, DTO + chuỗi ~ 200 byte mỗi sản phẩm
+            this.estimatedBytes = (long) summaries.length * 280 + 4L * (offsets.length + neighbors.length);
+        }
+    }
+}
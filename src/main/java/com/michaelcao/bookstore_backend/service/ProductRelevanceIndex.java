@@ -0,0 +1,606 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Index BM25F trong bộ nhớ cho chế độ sắp xếp theo độ liên quan (sort=relevance) của tìm kiếm sản phẩm.
+ *
+ * - Term là từ của TextNormalizer.searchKey (bỏ dấu, "đ" = "d") trong title và tác giả; ISBN là một term
+ *   (chỉ giữ chữ số và x).
+ * - Sản phẩm khớp khi chứa MỌI từ của truy vấn (ở trường bất kỳ). Từ cuối được so theo tiền tố (người dùng có thể
+ *   chưa gõ hết), tối đa MAX_PREFIX_EXPANSIONS term phổ biến nhất; sản phẩm khớp nhiều term lấy điểm cao nhất.
+ * - Điểm BM25F: tf của từng trường được chuẩn hóa theo độ dài trường, nhân boost rồi cộng lại trước khi bão hòa
+ *   theo k1, nên một từ lặp ở nhiều trường không được cộng điểm vô hạn.
+ * - Top-k bằng min-heap kích thước k: O(m log k) với m sản phẩm khớp. Điểm bằng nhau thì theo thứ tự title
+ *   (ordinal được gán theo title đã chuẩn hóa).
+ *
+ * Dựng lại trên thread nền (VersionedSnapshotHolder) khi version nội dung sản phẩm
+ * (CatalogVersionService.getProductContentVersion) thay đổi, tối đa một lần mỗi min-rebuild-interval. Đơn hàng, review,
+ * tồn kho không làm thay đổi title/tác giả/ISBN nên không gây dựng lại. Khi chưa dựng xong lần đầu (isReady() = false),
+ * nơi gọi tìm kiếm như bình thường, không xếp hạng.
+ */
+@Service
+@Slf4j
+public class ProductRelevanceIndex implements SmartInitializingSingleton {
+
+    /** Giá trị của tham số sort kích hoạt chế độ này: ?sort=relevance. */
+    public static final String SORT_PROPERTY = "relevance";
+    public static final String INDEX_BYTES = "bookstore.product.relevance.index.bytes";
+
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int ISBN = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 16;
+    private static final int MAX_FIELD_TF = 7; // tf của title / tác giả được lưu 3 bit
+    private static final Pattern ISBN_LIKE = Pattern.compile("[0-9xX][0-9xX\\- ]{8,}[0-9xX]");
+    private static final Pattern NON_ISBN = Pattern.compile("[^0-9x]");
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final double[] boosts;
+    private final int maxWindow;
+    private final VersionedSnapshotHolder<RelevanceSnapshot> snapshot;
+
+    public ProductRelevanceIndex(ProductRepository productRepository,
+                                 CatalogVersionService catalogVersionService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.search.relevance.boost.title:3.0}") double titleBoost,
+                                 @Value("${app.search.relevance.boost.author:2.0}") double authorBoost,
+                                 @Value("${app.search.relevance.boost.isbn:10.0}") double isbnBoost,
+                                 @Value("${app.search.relevance.max-window:1000}") int maxWindow,
+                                 @Value("${app.search.relevance.min-rebuild-interval-ms:5000}") long minRebuildIntervalMillis) {
+        this.productRepository = productRepository;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.boosts = new double[]{Math.max(0, titleBoost), Math.max(0, authorBoost), Math.max(0, isbnBoost)};
+        this.maxWindow = Math.max(1, maxWindow);
+        this.snapshot = new VersionedSnapshotHolder<>("relevance-index", catalogVersionService::getProductContentVersion,
+                version -> readOnlyTx.execute(status -> load(version)), minRebuildIntervalMillis);
+        Gauge.builder(INDEX_BYTES, snapshot, s -> s.peek() != null ? s.peek().estimatedBytes : 0)
+                .description("Bộ nhớ ước tính của index BM25 sản phẩm")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshot.refreshAsync(); // Dựng trước trên thread nền
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * Index đã dựng xong ít nhất một lần (sau đó luôn true). Gọi cũng kích hoạt dựng lại nền nếu cần.
+     */
+    public boolean isReady() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * Index đã dựng từ version nội dung >= contentVersion? Chưa thì nơi gọi không gắn ETag của version đó cho thứ hạng.
+     */
+    public boolean isFresh(long contentVersion) {
+        boolean fresh = snapshot.isFresh(contentVersion);
+        if (!fresh) {
+            snapshot.get(); // Kích hoạt dựng lại nền nếu cần
+        }
+        return fresh;
+    }
+
+    /**
+     * Dựng lại index ngay và chờ xong (benchmark, test).
+     */
+    void rebuildNow() {
+        snapshot.refreshAsync().join();
+    }
+
+    /**
+     * Kết quả xếp hạng: ID theo điểm giảm dần và tổng số sản phẩm khớp (tối đa max-window, trang sau đó không đọc được).
+     */
+    public record Ranking(List<UUID> ids, long total) {
+        static final Ranking EMPTY = new Ranking(List.of(), 0);
+    }
+
+    public static boolean isRelevanceSort(Pageable pageable) {
+        return pageable.getSort().getOrderFor(SORT_PROPERTY) != null;
+    }
+
+    /**
+     * Top-k sản phẩm khớp keyword theo điểm BM25F; k bị giới hạn bởi max-window.
+     */
+    public Ranking rank(String keyword, long k) {
+        if (keyword == null) {
+            return Ranking.EMPTY;
+        }
+        String[] terms = queryTerms(keyword);
+        if (terms.length == 0) {
+            return Ranking.EMPTY;
+        }
+        RelevanceSnapshot current = snapshot.get();
+        if (current == null) {
+            return Ranking.EMPTY; // Chưa dựng xong: nơi gọi nên kiểm tra isReady() trước
+        }
+        return current.rank(terms, boosts, (int) Math.min(k, maxWindow), maxWindow);
+    }
+
+    // ISBN gõ có gạch nối ("978-604-1-23456-7") là một term; còn lại tách từ như khi dựng index
+    static String[] queryTerms(String keyword) {
+        String trimmed = keyword.trim();
+        if (ISBN_LIKE.matcher(trimmed).matches()) {
+            return new String[]{isbnTerm(trimmed)};
+        }
+        String key = TextNormalizer.searchKey(trimmed);
+        if (key.isEmpty()) {
+            return new String[0];
+        }
+        String[] terms = key.split(" ");
+        return terms.length > MAX_QUERY_TERMS ? Arrays.copyOf(terms, MAX_QUERY_TERMS) : terms;
+    }
+
+    private static String isbnTerm(String isbn) {
+        return NON_ISBN.matcher(isbn.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    private RelevanceSnapshot load(long targetVersion) {
+        long start = System.nanoTime();
+        RelevanceSnapshot loaded = RelevanceSnapshot.build(targetVersion, productRepository.findAllSuggestRows());
+        log.info("Product relevance index rebuilt: {} products, {} terms, {} KB in {} ms (content version {})",
+                loaded.size, loaded.terms.length, loaded.estimatedBytes / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), targetVersion);
+        return loaded;
+    }
+
+    /**
+     * Dữ liệu bất biến của index. Ordinal theo thứ tự title đã chuẩn hóa; posting list của mỗi term là các ordinal
+     * tăng dần (tìm một sản phẩm bằng binary search) kèm tf của các trường gói trong một byte:
+     * bit 0-2 title, bit 3-5 tác giả, bit 6 ISBN.
+     */
+    static final class RelevanceSnapshot {
+
+        private final long version;
+        private final int size;
+        private final long[] idBits;           // 2 long cho mỗi ordinal
+        private final short[] titleLengths;    // Số từ
+        private final short[] authorLengths;
+        private final double averageTitleLength;
+        private final double averageAuthorLength;
+        private final String[] terms;          // Tăng dần; vị trí = mã term
+        private final int[] postingStarts;     // terms.length + 1
+        private final int[] postingDocs;
+        private final byte[] postingTfs;
+        private final long estimatedBytes;
+
+        private RelevanceSnapshot(long version, int size, long[] idBits, short[] titleLengths, short[] authorLengths,
+                                  String[] terms, int[] postingStarts, int[] postingDocs, byte[] postingTfs) {
+            this.version = version;
+            this.size = size;
+            this.idBits = idBits;
+            this.titleLengths = titleLengths;
+            this.authorLengths = authorLengths;
+            this.averageTitleLength = average(titleLengths);
+            this.averageAuthorLength = average(authorLengths);
+            this.terms = terms;
+            this.postingStarts = postingStarts;
+            this.postingDocs = postingDocs;
+            this.postingTfs = postingTfs;
+            long termBytes = 0;
+            for (String term : terms) {
+                termBytes += 48L + term.length(); // String + byte[] (Latin-1) + tham chiếu
+            }
+            this.estimatedBytes = idBits.length * 8L + size * 4L + termBytes + postingStarts.length * 4L
+                    + postingDocs.length * 5L;
+        }
+
+        static RelevanceSnapshot build(long version, List<SuggestRow> rows) {
+            int size = rows.size();
+            String[] titleKeys = new String[size];
+            for (int i = 0; i < size; i++) {
+                String title = rows.get(i).getTitle();
+                titleKeys[i] = title != null ? TextNormalizer.searchKey(title) : "";
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing((Integer i) -> titleKeys[i]));
+
+            // Lượt 1: (mã term tạm << 2 | trường) của từng sản phẩm, theo ordinal
+            Map<String, Integer> termCodes = new HashMap<>();
+            List<String> termList = new ArrayList<>();
+            long[] idBits = new long[size * 2];
+            short[] titleLengths = new short[size];
+            short[] authorLengths = new short[size];
+            int[] docStarts = new int[size + 1];
+            int[] entries = new int[Math.max(16, size * 8)];
+            int entryCount = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                SuggestRow row = rows.get(order[ordinal]);
+                idBits[2 * ordinal] = row.getId().getMostSignificantBits();
+                idBits[2 * ordinal + 1] = row.getId().getLeastSignificantBits();
+                String[] titleTerms = split(titleKeys[order[ordinal]]);
+                String[] authorTerms = split(row.getAuthor() != null ? TextNormalizer.searchKey(row.getAuthor()) : "");
+                String isbn = row.getIsbn() != null ? isbnTerm(row.getIsbn()) : "";
+                titleLengths[ordinal] = (short) Math.min(titleTerms.length, Short.MAX_VALUE);
+                authorLengths[ordinal] = (short) Math.min(authorTerms.length, Short.MAX_VALUE);
+                int needed = entryCount + titleTerms.length + authorTerms.length + 1;
+                if (needed > entries.length) {
+                    entries = Arrays.copyOf(entries, Math.max(needed, entries.length * 2));
+                }
+                for (String term : titleTerms) {
+                    entries[entryCount++] = code(term, termCodes, termList) << 2 | TITLE;
+                }
+                for (String term : authorTerms) {
+                    entries[entryCount++] = code(term, termCodes, termList) << 2 | AUTHOR;
+                }
+                if (!isbn.isEmpty()) {
+                    entries[entryCount++] = code(isbn, termCodes, termList) << 2 | ISBN;
+                }
+                Arrays.sort(entries, docStarts[ordinal], entryCount);
+                docStarts[ordinal + 1] = entryCount;
+            }
+
+            // Mã term cuối cùng theo thứ tự chữ cái (để tìm theo tiền tố bằng binary search)
+            String[] terms = termList.toArray(new String[0]);
+            Integer[] termOrder = new Integer[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                termOrder[i] = i;
+            }
+            Arrays.sort(termOrder, Comparator.comparing((Integer i) -> terms[i]));
+            int[] remap = new int[terms.length];
+            String[] sortedTerms = new String[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                remap[termOrder[i]] = i;
+                sortedTerms[i] = terms[termOrder[i]];
+            }
+
+            // Lượt 2: đếm số sản phẩm của mỗi term, rồi ghi posting list (ordinal tăng dần)
+            int[] postingStarts = new int[terms.length + 1];
+            forEachDocTerm(entries, docStarts, size, (ordinal, code, tfs) -> postingStarts[remap[code] + 1]++);
+            for (int t = 0; t < terms.length; t++) {
+                postingStarts[t + 1] += postingStarts[t];
+            }
+            int[] cursor = Arrays.copyOf(postingStarts, terms.length);
+            int[] postingDocs = new int[postingStarts[terms.length]];
+            byte[] postingTfs = new byte[postingDocs.length];
+            forEachDocTerm(entries, docStarts, size, (ordinal, code, tfs) -> {
+                int position = cursor[remap[code]]++;
+                postingDocs[position] = ordinal;
+                postingTfs[position] = tfs;
+            });
+            return new RelevanceSnapshot(version, size, idBits, titleLengths, authorLengths, sortedTerms,
+                    postingStarts, postingDocs, postingTfs);
+        }
+
+        private interface DocTermConsumer {
+            void accept(int ordinal, int code, byte tfs);
+        }
+
+        // Gộp các entry (đã sắp xếp) của mỗi sản phẩm thành (term, tf theo trường)
+        private static void forEachDocTerm(int[] entries, int[] docStarts, int size, DocTermConsumer consumer) {
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                int i = docStarts[ordinal];
+                int end = docStarts[ordinal + 1];
+                while (i < end) {
+                    int code = entries[i] >>> 2;
+                    int titleTf = 0;
+                    int authorTf = 0;
+                    int isbnTf = 0;
+                    for (; i < end && entries[i] >>> 2 == code; i++) {
+                        switch (entries[i] & 3) {
+                            case TITLE -> titleTf++;
+                            case AUTHOR -> authorTf++;
+                            default -> isbnTf = 1;
+                        }
+                    }
+                    int packed = Math.min(titleTf, MAX_FIELD_TF) | Math.min(authorTf, MAX_FIELD_TF) << 3 | isbnTf << 6;
+                    consumer.accept(ordinal, code, (byte) packed);
+                }
+            }
+        }
+
+        private static int code(String term, Map<String, Integer> termCodes, List<String> termList) {
+            Integer code = termCodes.get(term);
+            if (code == null) {
+                code = termList.size();
+                termCodes.put(term, code);
+                termList.add(term);
+            }
+            return code;
+        }
+
+        private static String[] split(String key) {
+            return key.isEmpty() ? new String[0] : key.split(" ");
+        }
+
+        private static double average(short[] lengths) {
+            long sum = 0;
+            for (short length : lengths) {
+                sum += length;
+            }
+            return lengths.length == 0 ? 1 : Math.max(1.0, (double) sum / lengths.length);
+        }
+
+        Ranking rank(String[] queryTerms, double[] boosts, int k, int maxWindow) {
+            if (size == 0 || k <= 0) {
+                return Ranking.EMPTY;
+            }
+            // Mỗi từ của truy vấn -> các term khớp (từ cuối: theo tiền tố)
+            int[][] matches = new int[queryTerms.length][];
+            long[] frequencies = new long[queryTerms.length];
+            for (int q = 0; q < queryTerms.length; q++) {
+                boolean prefix = q == queryTerms.length - 1 && queryTerms[q].length() >= MIN_PREFIX_LENGTH;
+                matches[q] = matchingTerms(queryTerms[q], prefix);
+                if (matches[q].length == 0) {
+                    return Ranking.EMPTY;
+                }
+                for (int term : matches[q]) {
+                    frequencies[q] += postingStarts[term + 1] - postingStarts[term];
+                }
+            }
+            // Từ hiếm nhất sinh ứng viên; các từ còn lại được kiểm tra bằng binary search trên posting list
+            Integer[] byFrequency = new Integer[queryTerms.length];
+            for (int q = 0; q < queryTerms.length; q++) {
+                byFrequency[q] = q;
+            }
+            Arrays.sort(byFrequency, Comparator.comparingLong(q -> frequencies[q]));
+
+            Candidates candidates = collect(matches[byFrequency[0]], boosts);
+            for (int i = 1; i < byFrequency.length && candidates.count > 0; i++) {
+                int[] termsOfWord = matches[byFrequency[i]];
+                double[] idf = new double[termsOfWord.length];
+                for (int t = 0; t < termsOfWord.length; t++) {
+                    idf[t] = idf(termsOfWord[t]);
+                }
+                int kept = 0;
+                for (int c = 0; c < candidates.count; c++) {
+                    int ordinal = candidates.ordinals[c];
+                    double best = -1;
+                    for (int t = 0; t < termsOfWord.length; t++) {
+                        int term = termsOfWord[t];
+                        int position = Arrays.binarySearch(postingDocs, postingStarts[term], postingStarts[term + 1], ordinal);
+                        if (position >= 0) {
+                            best = Math.max(best, score(ordinal, postingTfs[position], idf[t], boosts));
+                        }
+                    }
+                    if (best >= 0) {
+                        candidates.ordinals[kept] = ordinal;
+                        candidates.scores[kept++] = candidates.scores[c] + best;
+                    }
+                }
+                candidates.count = kept;
+            }
+
+            // Top-k: min-heap theo (điểm, -ordinal), gốc là phần tử kém nhất đang giữ
+            TopK top = new TopK(Math.min(k, candidates.count));
+            for (int c = 0; c < candidates.count; c++) {
+                top.offer(candidates.scores[c], candidates.ordinals[c]);
+            }
+            int[] ranked = top.drainDescending();
+            List<UUID> ids = new ArrayList<>(ranked.length);
+            for (int ordinal : ranked) {
+                ids.add(new UUID(idBits[2 * ordinal], idBits[2 * ordinal + 1]));
+            }
+            return new Ranking(ids, Math.min(candidates.count, maxWindow));
+        }
+
+        // Term trùng khớp, và nếu prefix thì thêm các term bắt đầu bằng word (giữ MAX_PREFIX_EXPANSIONS term phổ biến nhất)
+        private int[] matchingTerms(String word, boolean prefix) {
+            int exact = Arrays.binarySearch(terms, word);
+            if (!prefix) {
+                return exact >= 0 ? new int[]{exact} : new int[0];
+            }
+            int from = exact >= 0 ? exact : -exact - 1;
+            int to = from;
+            while (to < terms.length && terms[to].startsWith(word)) {
+                to++;
+            }
+            if (to - from <= MAX_PREFIX_EXPANSIONS) {
+                int[] range = new int[to - from];
+                for (int i = 0; i < range.length; i++) {
+                    range[i] = from + i;
+                }
+                return range;
+            }
+            Integer[] expansions = new Integer[to - from];
+            for (int i = 0; i < expansions.length; i++) {
+                expansions[i] = from + i;
+            }
+            // Từ gõ đủ luôn được giữ, các term còn lại theo số sản phẩm giảm dần
+            Arrays.sort(expansions, Comparator.comparingInt((Integer t) -> t == exact ? 0 : 1)
+                    .thenComparingInt(t -> postingStarts[t] - postingStarts[t + 1]));
+            int[] kept = new int[MAX_PREFIX_EXPANSIONS];
+            for (int i = 0; i < kept.length; i++) {
+                kept[i] = expansions[i];
+            }
+            return kept;
+        }
+
+        // Ứng viên từ posting list của các term của một từ; sản phẩm có nhiều term (tiền tố) lấy điểm cao nhất
+        private Candidates collect(int[] termsOfWord, double[] boosts) {
+            if (termsOfWord.length == 1) {
+                int term = termsOfWord[0];
+                double idf = idf(term);
+                Candidates candidates = new Candidates(postingStarts[term + 1] - postingStarts[term]);
+                for (int p = postingStarts[term]; p < postingStarts[term + 1]; p++) {
+                    candidates.ordinals[candidates.count] = postingDocs[p];
+                    candidates.scores[candidates.count++] = score(postingDocs[p], postingTfs[p], idf, boosts);
+                }
+                return candidates;
+            }
+            // Gói (ordinal, điểm float) vào long: sắp xếp tăng dần thì điểm cao nhất của một ordinal đứng cuối
+            int total = 0;
+            for (int term : termsOfWord) {
+                total += postingStarts[term + 1] - postingStarts[term];
+            }
+            long[] packed = new long[total];
+            int n = 0;
+            for (int term : termsOfWord) {
+                double idf = idf(term);
+                for (int p = postingStarts[term]; p < postingStarts[term + 1]; p++) {
+                    float score = (float) score(postingDocs[p], postingTfs[p], idf, boosts);
+                    packed[n++] = (long) postingDocs[p] << 32 | (Float.floatToRawIntBits(score) & 0xFFFFFFFFL);
+                }
+            }
+            Arrays.sort(packed);
+            Candidates candidates = new Candidates(total);
+            for (int i = 0; i < total; i++) {
+                if (i + 1 < total && packed[i + 1] >>> 32 == packed[i] >>> 32) {
+                    continue;
+                }
+                candidates.ordinals[candidates.count] = (int) (packed[i] >>> 32);
+                candidates.scores[candidates.count++] = Float.intBitsToFloat((int) packed[i]);
+            }
+            return candidates;
+        }
+
+        private double idf(int term) {
+            int df = postingStarts[term + 1] - postingStarts[term];
+            return Math.log(1 + (size - df + 0.5) / (df + 0.5));
+        }
+
+        // BM25F: tf theo trường (chuẩn hóa độ dài, nhân boost) cộng lại rồi mới bão hòa
+        private double score(int ordinal, byte tfs, double idf, double[] boosts) {
+            int titleTf = tfs & 7;
+            int authorTf = (tfs >>> 3) & 7;
+            int isbnTf = (tfs >>> 6) & 1;
+            double tf = 0;
+            if (titleTf > 0) {
+                tf += boosts[TITLE] * titleTf / (1 - B + B * titleLengths[ordinal] / averageTitleLength);
+            }
+            if (authorTf > 0) {
+                tf += boosts[AUTHOR] * authorTf / (1 - B + B * authorLengths[ordinal] / averageAuthorLength);
+            }
+            tf += boosts[ISBN] * isbnTf;
+            return idf * tf * (K1 + 1) / (tf + K1);
+        }
+    }
+
+    private static final class Candidates {
+        private final int[] ordinals;
+        private final double[] scores;
+        private int count;
+
+        private Candidates(int capacity) {
+            this.ordinals = new int[capacity];
+            this.scores = new double[capacity];
+        }
+    }
+
+    /**
+     * Min-heap kích thước cố định giữ k phần tử tốt nhất. Điểm bằng nhau thì ordinal nhỏ hơn (title đứng trước) tốt hơn.
+     */
+    static final class TopK {
+        private final double[] scores;
+        private final int[] ordinals;
+        private int count;
+
+        TopK(int capacity) {
+            this.scores = new double[capacity];
+            this.ordinals = new int[capacity];
+        }
+
+        void offer(double score, int ordinal) {
+            if (scores.length == 0) {
+                return;
+            }
+            if (count < scores.length) {
+                scores[count] = score;
+                ordinals[count] = ordinal;
+                siftUp(count++);
+            } else if (better(score, ordinal, scores[0], ordinals[0])) {
+                scores[0] = score;
+                ordinals[0] = ordinal;
+                siftDown(0);
+            }
+        }
+
+        // Lấy lần lượt gốc (kém nhất) ra, ghi từ cuối mảng về đầu
+        int[] drainDescending() {
+            int[] result = new int[count];
+            while (count > 0) {
+                result[count - 1] = ordinals[0];
+                count--;
+                scores[0] = scores[count];
+                ordinals[0] = ordinals[count];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private static boolean better(double score, int ordinal, double otherScore, int otherOrdinal) {
+            return score > otherScore || (score == otherScore && ordinal < otherOrdinal);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!better(scores[parent], ordinals[parent], scores[i], ordinals[i])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < count && better(scores[worst], ordinals[worst], scores[left], ordinals[left])) {
+                    worst = left;
+                }
+                if (right < count && better(scores[worst], ordinals[worst], scores[right], ordinals[right])) {
+                    worst = right;
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+            int ordinal = ordinals[a];
+            ordinals[a] = ordinals[b];
+            ordinals[b] = ordinal;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.michaelcao.bookstore_backend.service;
 
 import com.michaelcao.bookstore_backend.dto.product.CreateProductRequest;
+import com.michaelcao.bookstore_backend.dto.product.FacetedProductPageDTO;
 import com.michaelcao.bookstore_backend.dto.product.ProductDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductVersionDTO;
 import com.michaelcao.bookstore_backend.dto.product.UpdateProductRequest;
 import org.springframework.data.domain.Page; // Import Page
 import org.springframework.data.domain.Pageable; // Import Pageable
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 public interface ProductService {
@@ -27,6 +30,15 @@ public interface ProductService {
      */
     ProductDTO getProductById(UUID id);
 
+    /**
+     * Lấy phiên bản (ETag + Last-Modified) của một sản phẩm bằng một query nhẹ,
+     * để controller có thể trả 304 Not Modified trước khi chạy query chi tiết.
+     * @param id ID của sản phẩm.
+     * @return ProductVersionDTO chứa ETag và thời điểm cập nhật cuối.
+     * @throws com.michaelcao.bookstore_backend.exception.ResourceNotFoundException Nếu không tìm thấy sản phẩm.
+     */
+    ProductVersionDTO getProductVersion(UUID id);
+
     /**
      * Lấy danh sách tất cả sản phẩm (có phân trang).
      * @param pageable Thông tin phân trang và sắp xếp.
@@ -36,12 +48,15 @@ public interface ProductService {
     /**
      * Lấy danh sách sản phẩm có phân trang và hỗ trợ lọc nâng cao.
      * @param categoryId (Optional) Lọc theo ID danh mục.
-     * @param keyword (Optional) Lọc theo từ khóa trong tên hoặc tác giả.
+     * @param keyword (Optional) Lọc theo từ khóa trong tên hoặc tác giả. Không có kết quả chính xác thì trả về kết quả
+     *                gần đúng (ProductTrigramIndex) theo điểm liên quan, bỏ qua sort của pageable.
      * @param minPrice (Optional) Giá tối thiểu.
      * @param maxPrice (Optional) Giá tối đa.
      * @param inStockOnly (Optional) Chỉ lấy sản phẩm còn hàng (true) hay không (null hoặc false).
      * @param author (Optional) Lọc theo tên tác giả chính xác (không phân biệt hoa thường).
-     * @param pageable Thông tin phân trang và sắp xếp.
+     * @param pageable Thông tin phân trang và sắp xếp. sort=relevance (khi có keyword): sản phẩm chứa mọi từ của keyword
+     *                 (từ cuối theo tiền tố) trong title / tác giả / ISBN, xếp theo điểm BM25F (ProductRelevanceIndex),
+     *                 chỉ đọc được tối đa app.search.relevance.max-window kết quả đầu.
      * @return Page chứa danh sách ProductDTO thỏa mãn điều kiện.
      */
     Page<ProductDTO> filterProducts( // Đổi tên thành filterProducts hoặc giữ getAllProducts và thêm tham số
@@ -52,6 +67,18 @@ public interface ProductService {
                                      Boolean inStockOnly,
                                      String author,
                                      Pageable pageable);
+    /**
+     * Giống filterProducts, kèm số sản phẩm theo danh mục, tác giả, khoảng giá và còn hàng (tính từ ProductFacetIndex).
+     * Không dùng kết quả gần đúng hay sort=relevance (sắp theo title) để facet luôn khớp với trang kết quả.
+     * @return Trang kết quả và facet cho cùng điều kiện lọc.
+     */
+    FacetedProductPageDTO filterProductsWithFacets(Long categoryId,
+                                                   String keyword,
+                                                   BigDecimal minPrice,
+                                                   BigDecimal maxPrice,
+                                                   Boolean inStockOnly,
+                                                   String author,
+                                                   Pageable pageable);
     /**
      * Lấy danh sách sản phẩm thuộc một danh mục cụ thể (có phân trang).
      * @param categoryId ID của danh mục.
@@ -82,8 +109,8 @@ public interface ProductService {
     // Page<ProductDTO> searchProducts(String keyword, Pageable pageable);
     /**
      * Tìm kiếm sản phẩm theo từ khóa trong tiêu đề hoặc tác giả (có phân trang).
-     * @param keyword Từ khóa tìm kiếm.
-     * @param pageable Thông tin phân trang và sắp xếp.
+     * @param keyword Từ khóa tìm kiếm. Không có kết quả chính xác thì dùng kết quả gần đúng như filterProducts.
+     * @param pageable Thông tin phân trang và sắp xếp, hỗ trợ sort=relevance như filterProducts.
      * @return Page chứa danh sách ProductDTO tìm thấy.
      */
     Page<ProductDTO> searchProducts(String keyword, Pageable pageable);
@@ -96,4 +123,15 @@ public interface ProductService {
      * @return true nếu người dùng đã mua và nhận hàng sản phẩm này, false nếu chưa
      */
     boolean hasUserPurchasedProduct(Long userId, UUID productId);
-}
\ No newline at end of file
+
+    /**
+     * Sản phẩm thường được mua cùng một sản phẩm ("khách hàng cũng mua"), theo số đơn chung giảm dần.
+     * Đọc từ mô hình trong bộ nhớ (ProductCoPurchaseIndex); sản phẩm đã xóa bị bỏ qua.
+     *
+     * @param productId ID của sản phẩm.
+     * @param limit Số sản phẩm tối đa (null = 10, bị chặn bởi app.recommendation.also-bought.max-results).
+     * @return Danh sách ProductDTO, rỗng nếu chưa có dữ liệu mua kèm.
+     * @throws com.michaelcao.bookstore_backend.exception.ResourceNotFoundException Nếu không tìm thấy sản phẩm.
+     */
+    List<ProductDTO> getAlsoBoughtProducts(UUID productId, Integer limit);
+}
@@ -0,0 +1,633 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.product.ProductSuggestionDTO;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent.ChangeType;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Gợi ý theo tiền tố (autocomplete) cho ô tìm kiếm: title, tác giả và ISBN, xếp theo số lượng đã bán rồi điểm
+ * đánh giá trung bình, không query DB.
+ *
+ * Cấu trúc (SuggestSnapshot, bất biến):
+ * - Title/tác giả đã chuẩn hóa (TextNormalizer.searchKey) được nối vào MỘT mảng byte UTF-8, mỗi chuỗi kết thúc bằng
+ *   byte 0. Khóa là vị trí bắt đầu của từng từ trong chuỗi (gõ "potter" vẫn ra "Harry Potter"), nên các khóa của
+ *   cùng một title dùng chung byte. ISBN được lưu dạng chỉ gồm chữ số.
+ * - Khóa được sắp xếp nên mọi khóa có cùng tiền tố nằm liền nhau (hai lần binary search).
+ * - Segment tree giữ khóa có hạng cao nhất của từng đoạn: top-k trong dải khóa lấy bằng heap trong O(k log n),
+ *   không phụ thuộc số khóa khớp tiền tố.
+ *
+ * Cập nhật: index dựng lại trên thread nền (VersionedSnapshotHolder) khi version nội dung sản phẩm thay đổi, tối đa
+ * một lần mỗi min-rebuild-interval. Trên node ghi, sản phẩm vừa tạo/sửa/xóa (ProductChangedEvent) được ghi ngay vào
+ * một overlay nhỏ (copy-on-write) và ghép vào kết quả. Job định kỳ dựng lại khi overlay quá lớn và sau mỗi
+ * rebuild-interval (cập nhật thứ hạng theo số lượng bán / review). Index được dựng lúc khởi động; trong lúc chưa dựng
+ * xong, gợi ý trả danh sách rỗng.
+ */
+@Service
+@Slf4j
+public class ProductSuggestIndex implements SmartInitializingSingleton {
+
+    public static final String INDEX_BYTES = "bookstore.product.suggest.index.bytes";
+
+    static final int TITLE = 0;
+    static final int AUTHOR = 1;
+    static final int ISBN = 2;
+    private static final String[] FIELD_NAMES = {"title", "author", "isbn"};
+    private static final Pattern ISBN_LIKE = Pattern.compile("[0-9x]+");
+    private static final int MAX_QUERY_LENGTH = 100;
+    private static final int MAX_WORD_KEYS = 8; // Số khóa tối đa cho một title / tác giả
+
+    private final ProductRepository productRepository;
+    private final ReviewRepository reviewRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxResults;
+    private final int minPrefixLength;
+    private final int maxOverlaySize;
+    private final long rebuildIntervalNanos;
+    private final VersionedSnapshotHolder<Base> snapshot;
+
+    private final Object lock = new Object();
+    private volatile State state = new State(null, Map.of());
+    private long changeSeq; // Chỉ đọc/ghi trong synchronized (lock)
+
+    public ProductSuggestIndex(ProductRepository productRepository,
+                               ReviewRepository reviewRepository,
+                               CatalogVersionService catalogVersionService,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.suggest.max-results:10}") int maxResults,
+                               @Value("${app.suggest.min-prefix-length:2}") int minPrefixLength,
+                               @Value("${app.suggest.max-overlay-size:500}") int maxOverlaySize,
+                               @Value("${app.suggest.rebuild-interval-ms:600000}") long rebuildIntervalMillis,
+                               @Value("${app.suggest.min-rebuild-interval-ms:60000}") long minRebuildIntervalMillis) {
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxResults = Math.max(1, maxResults);
+        this.minPrefixLength = Math.max(1, minPrefixLength);
+        this.maxOverlaySize = Math.max(0, maxOverlaySize);
+        this.rebuildIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rebuildIntervalMillis);
+        this.snapshot = new VersionedSnapshotHolder<>("suggest-index", catalogVersionService::getProductContentVersion,
+                version -> load(), minRebuildIntervalMillis);
+        Gauge.builder(INDEX_BYTES, snapshot, s -> s.peek() != null ? s.peek().snapshot().estimatedBytes : 0)
+                .description("Bộ nhớ ước tính của index gợi ý sản phẩm")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshot.refreshAsync(); // Dựng trước trên thread nền, không để request đầu tiên chịu
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * Tối đa limit sản phẩm có title, tác giả (từ bất kỳ) hoặc ISBN bắt đầu bằng query; không phân biệt hoa thường và dấu.
+     * Danh sách rỗng trong lúc index đang dựng lần đầu.
+     */
+    public List<ProductSuggestionDTO> suggest(String query, Integer limit) {
+        if (!StringUtils.hasText(query)) {
+            return Collections.emptyList();
+        }
+        String prefix = TextNormalizer.searchKey(query.length() > MAX_QUERY_LENGTH ? query.substring(0, MAX_QUERY_LENGTH) : query);
+        if (prefix.length() < minPrefixLength) {
+            return Collections.emptyList();
+        }
+        State current = current();
+        if (current == null) {
+            return Collections.emptyList(); // Index đang dựng lần đầu
+        }
+        // ISBN có thể được gõ kèm dấu gạch: "978-604" -> "978604"
+        String compact = prefix.replace(" ", "");
+        boolean isbnLike = ISBN_LIKE.matcher(compact).matches();
+        int k = limit != null ? Math.max(1, Math.min(limit, maxResults)) : maxResults;
+
+        SuggestSnapshot base = current.base.snapshot();
+        Set<UUID> overridden = current.overlay.keySet();
+        List<Suggestion> candidates = new ArrayList<>();
+        base.collect(prefix, k, overridden, candidates);
+        if (isbnLike && !compact.equals(prefix)) {
+            base.collect(compact, k, overridden, candidates);
+        }
+        for (Change change : current.overlay.values()) {
+            if (change.entry() != null) {
+                int field = matchField(change.entry(), prefix, isbnLike ? compact : null);
+                if (field >= 0) {
+                    Entry entry = change.entry();
+                    candidates.add(new Suggestion(entry.id(), entry.title(), entry.author(), field, entry.rank()));
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingLong(Suggestion::rank).reversed());
+        List<ProductSuggestionDTO> result = new ArrayList<>(k);
+        Set<UUID> seen = new HashSet<>();
+        for (Suggestion candidate : candidates) {
+            if (result.size() == k) {
+                break;
+            }
+            if (seen.add(candidate.id())) {
+                result.add(new ProductSuggestionDTO(candidate.id(), candidate.title(), candidate.author(), FIELD_NAMES[candidate.field()]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cập nhật index cho một sản phẩm vừa thay đổi (gọi sau commit, từ subscriber của ProductChangedEvent).
+     * Node khác thấy thay đổi khi version nội dung sản phẩm tăng và index được dựng lại.
+     */
+    public void onProductChanged(UUID productId, ChangeType changeType) {
+        Entry entry;
+        try {
+            entry = changeType == ChangeType.DELETED ? null : readOnlyTx.execute(status -> loadEntry(productId));
+        } catch (RuntimeException e) {
+            log.warn("Could not load product {} for the suggest index, scheduling a full rebuild: {}", productId, e.getMessage());
+            snapshot.refreshAsync();
+            return;
+        }
+        synchronized (lock) {
+            // Ghi cả khi index chưa dựng xong: lần dựng đang chạy có thể đã đọc dữ liệu trước thay đổi này
+            State current = state;
+            Map<UUID, Change> overlay = new HashMap<>(current.overlay);
+            overlay.put(productId, new Change(++changeSeq, entry));
+            state = new State(current.base, overlay);
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ index trên thread nền (ví dụ sau import hàng loạt không phát event).
+     */
+    public void requestRebuild() {
+        snapshot.refreshAsync();
+    }
+
+    /**
+     * Dựng lại định kỳ để cập nhật thứ hạng theo số lượng bán / review (không làm tăng version nội dung sản phẩm),
+     * hoặc khi overlay đã quá lớn.
+     */
+    @Scheduled(fixedDelayString = "${app.suggest.check-interval-ms:5000}")
+    public void refreshIfNeeded() {
+        Base base = snapshot.peek();
+        if (base == null) {
+            return; // Lần dựng đầu chưa xong (hoặc lỗi): get() tự thử lại
+        }
+        if (state.overlay.size() > maxOverlaySize || System.nanoTime() - base.builtAtNanos() >= rebuildIntervalNanos) {
+            snapshot.refreshAsync();
+        }
+    }
+
+    /**
+     * Dựng lại index ngay và chờ xong (benchmark, test).
+     */
+    void rebuildNow() {
+        snapshot.refreshAsync().join();
+    }
+
+    // State gắn với snapshot mới nhất; null nếu chưa dựng xong lần nào
+    private State current() {
+        Base base = snapshot.get();
+        if (base == null) {
+            return null;
+        }
+        State current = state;
+        if (current.base == base) {
+            return current;
+        }
+        synchronized (lock) {
+            current = state;
+            if (current.base != null && current.base.builtAtNanos() - base.builtAtNanos() >= 0) {
+                return current; // Thread khác đã gắn snapshot này (hoặc mới hơn)
+            }
+            // Bỏ các thay đổi snapshot mới đã thấy; giữ các thay đổi đến sau khi bắt đầu đọc DB
+            Map<UUID, Change> overlay = new HashMap<>();
+            current.overlay.forEach((id, change) -> {
+                if (change.seq() > base.fromSeq()) {
+                    overlay.put(id, change);
+                }
+            });
+            state = new State(base, overlay);
+            return state;
+        }
+    }
+
+    private Base load() {
+        long fromSeq;
+        synchronized (lock) {
+            fromSeq = changeSeq;
+        }
+        long start = System.nanoTime();
+        SuggestSnapshot base = readOnlyTx.execute(status -> SuggestSnapshot.build(loadEntries()));
+        log.info("Product suggest index rebuilt: {} products, {} keys, {} KB (~{} MB per 100k products) in {} ms",
+                base.size(), base.keyCount(), base.estimatedBytes / 1024,
+                base.size() > 0 ? String.format("%.1f", base.estimatedBytes * 100_000.0 / base.size() / (1024 * 1024)) : "0",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Base(base, fromSeq, System.nanoTime());
+    }
+
+    private List<Entry> loadEntries() {
+        Map<UUID, ReviewStats> stats = new HashMap<>();
+        for (ReviewStats row : reviewRepository.findAllReviewStats()) {
+            stats.put(row.getProductId(), row);
+        }
+        List<SuggestRow> rows = productRepository.findAllSuggestRows();
+        List<Entry> entries = new ArrayList<>(rows.size());
+        for (SuggestRow row : rows) {
+            entries.add(Entry.of(row, stats.get(row.getId())));
+        }
+        return entries;
+    }
+
+    private Entry loadEntry(UUID productId) {
+        return productRepository.findSuggestRowById(productId)
+                .map(row -> Entry.of(row, reviewRepository.findReviewStatsByProductIdsProjection(List.of(productId))
+                        .stream().findFirst().orElse(null)))
+                .orElse(null);
+    }
+
+    // Trường đầu tiên của sản phẩm khớp tiền tố (cùng quy tắc với khóa trong SuggestSnapshot), -1 nếu không khớp
+    private static int matchField(Entry entry, String prefix, String isbnPrefix) {
+        if (matchesWordStart(TextNormalizer.searchKey(entry.title()), prefix)) {
+            return TITLE;
+        }
+        if (matchesWordStart(TextNormalizer.searchKey(entry.author()), prefix)) {
+            return AUTHOR;
+        }
+        String isbn = isbnKey(entry.isbn());
+        if (!isbn.isEmpty() && (isbn.startsWith(prefix) || (isbnPrefix != null && isbn.startsWith(isbnPrefix)))) {
+            return ISBN;
+        }
+        return -1;
+    }
+
+    private static boolean matchesWordStart(String key, String prefix) {
+        for (int start : wordStarts(key)) {
+            if (key.startsWith(prefix, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Vị trí bắt đầu của các từ dùng làm khóa: từ đầu tiên và các từ dài từ 2 ký tự, tối đa MAX_WORD_KEYS
+    static int[] wordStarts(String key) {
+        if (key.isEmpty()) {
+            return new int[0];
+        }
+        int[] starts = new int[MAX_WORD_KEYS];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < key.length() - 2 && count < MAX_WORD_KEYS; i++) {
+            if (key.charAt(i) == ' ' && key.charAt(i + 2) != ' ') {
+                starts[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    static String isbnKey(String isbn) {
+        return isbn != null ? TextNormalizer.searchKey(isbn).replace(" ", "") : "";
+    }
+
+    /**
+     * Sản phẩm như được đánh chỉ mục. rank: số lượng đã bán, rồi điểm đánh giá trung bình.
+     */
+    record Entry(UUID id, String title, String author, String isbn, long rank) {
+
+        static Entry of(SuggestRow row, ReviewStats stats) {
+            return new Entry(row.getId(), row.getTitle(), row.getAuthor(), row.getIsbn(),
+                    rank(row.getSoldCount(), stats != null ? stats.getAverageRating() : null));
+        }
+
+        static long rank(Integer soldCount, Double averageRating) {
+            long sold = soldCount != null ? Math.max(0, soldCount) : 0L;
+            long rating = averageRating != null ? Math.round(averageRating * 100) : 0L; // 0..500
+            return sold * 1024 + rating;
+        }
+    }
+
+    private record Change(long seq, Entry entry) { // entry = null: sản phẩm đã bị xóa
+    }
+
+    // fromSeq: changeSeq lúc bắt đầu đọc DB, snapshot đã thấy mọi thay đổi có seq <= fromSeq
+    private record Base(SuggestSnapshot snapshot, long fromSeq, long builtAtNanos) {
+    }
+
+    private record State(Base base, Map<UUID, Change> overlay) { // base = null: chưa dựng xong lần nào
+    }
+
+    private record Suggestion(UUID id, String title, String author, int field, long rank) {
+    }
+
+    /**
+     * Index bất biến, dựng một lần từ toàn bộ sản phẩm.
+     */
+    static final class SuggestSnapshot {
+
+        private final long[] idBits;        // (msb, lsb) của UUID theo ordinal sản phẩm
+        private final long[] ranks;
+        private final byte[] display;       // Title và tác giả gốc (UTF-8) để trả về, theo ordinal
+        private final int[] displayOffsets; // Title của ordinal i: [2i, 2i+1), tác giả: [2i+1, 2i+2)
+        private final byte[] text;          // Các chuỗi UTF-8 đã chuẩn hóa, kết thúc bằng byte 0
+        private final int[] keys;           // Vị trí bắt đầu của khóa trong text, đã sắp xếp
+        private final int[] refs;           // ordinal << 2 | field, cùng thứ tự với keys
+        private final int[] tree;           // Segment tree 2n node (lá ở [n, 2n)): khóa có hạng cao nhất của node
+        private final long estimatedBytes;
+
+        private SuggestSnapshot(List<Entry> entries) {
+            int size = entries.size();
+            idBits = new long[size * 2];
+            ranks = new long[size];
+            displayOffsets = new int[size * 2 + 1];
+            List<byte[]> displayChunks = new ArrayList<>(size * 2);
+            int displayLength = 0;
+
+            List<byte[]> chunks = new ArrayList<>();
+            int[] keyStarts = new int[Math.max(16, size * 4)];
+            int[] keyRefs = new int[keyStarts.length];
+            int keyCount = 0;
+            int offset = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                Entry entry = entries.get(ordinal);
+                idBits[ordinal * 2] = entry.id().getMostSignificantBits();
+                idBits[ordinal * 2 + 1] = entry.id().getLeastSignificantBits();
+                ranks[ordinal] = entry.rank();
+                for (String value : new String[]{entry.title(), entry.author()}) {
+                    byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                    displayChunks.add(bytes);
+                    displayLength += bytes.length;
+                    displayOffsets[displayChunks.size()] = displayLength;
+                }
+
+                String[] fieldKeys = {
+                        entry.title() != null ? TextNormalizer.searchKey(entry.title()) : "",
+                        entry.author() != null ? TextNormalizer.searchKey(entry.author()) : "",
+                        isbnKey(entry.isbn())
+                };
+                for (int field = TITLE; field <= ISBN; field++) {
+                    String key = fieldKeys[field];
+                    if (key.isEmpty()) {
+                        continue;
+                    }
+                    int[] starts = field == ISBN ? new int[]{0} : wordStarts(key);
+                    if (keyCount + starts.length > keyStarts.length) {
+                        keyStarts = Arrays.copyOf(keyStarts, Math.max(keyStarts.length * 2, keyCount + starts.length));
+                        keyRefs = Arrays.copyOf(keyRefs, keyStarts.length);
+                    }
+                    // Vị trí ký tự -> vị trí byte UTF-8
+                    int charIndex = 0;
+                    int byteIndex = 0;
+                    for (int start : starts) {
+                        byteIndex += utf8Length(key, charIndex, start);
+                        charIndex = start;
+                        keyStarts[keyCount] = offset + byteIndex;
+                        keyRefs[keyCount] = ordinal << 2 | field;
+                        keyCount++;
+                    }
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    chunks.add(bytes);
+                    offset += bytes.length + 1;
+                }
+            }
+            display = new byte[displayLength];
+            int position = 0;
+            for (byte[] chunk : displayChunks) {
+                System.arraycopy(chunk, 0, display, position, chunk.length);
+                position += chunk.length;
+            }
+            text = new byte[offset];
+            position = 0;
+            for (byte[] chunk : chunks) {
+                System.arraycopy(chunk, 0, text, position, chunk.length);
+                position += chunk.length + 1; // Byte 0 kết thúc chuỗi
+            }
+
+            int[] order = sortKeys(keyStarts, keyCount);
+            keys = new int[keyCount];
+            refs = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                keys[i] = keyStarts[order[i]];
+                refs[i] = keyRefs[order[i]];
+            }
+
+            tree = new int[Math.max(2, keyCount * 2)];
+            for (int i = 0; i < keyCount; i++) {
+                tree[keyCount + i] = i;
+            }
+            for (int node = keyCount - 1; node >= 1; node--) {
+                tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+            }
+
+            estimatedBytes = text.length + display.length
+                    + 4L * (keys.length + refs.length + tree.length + displayOffsets.length)
+                    + 8L * (idBits.length + ranks.length);
+        }
+
+        /**
+         * Thứ tự khóa theo byte (MSD radix theo từng nhóm 4 byte): mỗi lượt sắp xếp mảng long nguyên thủy
+         * (4 byte của khóa | chỉ số khóa), chỉ các nhóm khóa trùng 4 byte đó mới được sắp tiếp ở 4 byte sau.
+         */
+        private int[] sortKeys(int[] keyStarts, int keyCount) {
+            int[] order = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                order[i] = i;
+            }
+            sortRange(keyStarts, order, 0, keyCount, 0);
+            return order;
+        }
+
+        private void sortRange(int[] keyStarts, int[] order, int from, int to, int offset) {
+            long[] packed = new long[to - from];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (chunk(keyStarts[order[from + i]], offset) & 0xffffffffL) << 31 | order[from + i];
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < packed.length; i++) {
+                order[from + i] = (int) (packed[i] & Integer.MAX_VALUE);
+            }
+            int runStart = 0;
+            for (int i = 1; i <= packed.length; i++) {
+                if (i < packed.length && packed[i] >>> 31 == packed[runStart] >>> 31) {
+                    continue;
+                }
+                // Byte cuối của nhóm là 0: các khóa đã kết thúc, bằng nhau hoàn toàn
+                if (i - runStart > 1 && (packed[runStart] >>> 31 & 0xff) != 0) {
+                    sortRange(keyStarts, order, from + runStart, from + i, offset + 4);
+                }
+                runStart = i;
+            }
+        }
+
+        // 4 byte của khóa từ vị trí offset (big-endian); sau byte 0 kết thúc được coi là 0
+        private int chunk(int start, int offset) {
+            int value = 0;
+            boolean ended = false;
+            for (int i = 0; i < 4; i++) {
+                int b = ended ? 0 : text[start + offset + i] & 0xff;
+                ended |= b == 0;
+                value = value << 8 | b;
+            }
+            return value;
+        }
+
+        static SuggestSnapshot build(List<Entry> entries) {
+            return new SuggestSnapshot(entries);
+        }
+
+        int size() {
+            return ranks.length;
+        }
+
+        int keyCount() {
+            return keys.length;
+        }
+
+        long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        /**
+         * Thêm vào out tối đa limit sản phẩm (hạng giảm dần) có khóa bắt đầu bằng prefix, bỏ qua sản phẩm trong excluded.
+         */
+        void collect(String prefix, int limit, Set<UUID> excluded, List<Suggestion> out) {
+            byte[] p = prefix.getBytes(StandardCharsets.UTF_8);
+            int lo = bound(p, false);
+            int hi = bound(p, true);
+            if (lo >= hi) {
+                return;
+            }
+            PriorityQueue<Integer> heap = new PriorityQueue<>((x, y) -> tree[x] == tree[y] ? 0
+                    : (better(tree[x], tree[y]) == tree[x] ? -1 : 1));
+            int leaves = keys.length;
+            // Các node phủ đúng đoạn [lo, hi)
+            for (int l = lo + leaves, r = hi + leaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    heap.add(l++);
+                }
+                if ((r & 1) == 1) {
+                    heap.add(--r);
+                }
+            }
+            Set<Integer> seen = new HashSet<>();
+            int found = 0;
+            while (found < limit && !heap.isEmpty()) {
+                int node = heap.poll();
+                if (node < leaves) {
+                    heap.add(node * 2);
+                    heap.add(node * 2 + 1);
+                    continue;
+                }
+                int ref = refs[tree[node]];
+                int ordinal = ref >>> 2;
+                if (!seen.add(ordinal)) {
+                    continue; // Cùng sản phẩm khớp ở khóa khác (title và tác giả...)
+                }
+                UUID id = new UUID(idBits[ordinal * 2], idBits[ordinal * 2 + 1]);
+                if (!excluded.isEmpty() && excluded.contains(id)) {
+                    continue; // Đã thay đổi sau khi dựng index: overlay có phiên bản mới
+                }
+                out.add(new Suggestion(id, displayText(ordinal * 2), displayText(ordinal * 2 + 1), ref & 3, ranks[ordinal]));
+                found++;
+            }
+        }
+
+        private String displayText(int slot) {
+            int from = displayOffsets[slot];
+            return new String(display, from, displayOffsets[slot + 1] - from, StandardCharsets.UTF_8);
+        }
+
+        // Khóa có hạng cao hơn (rank lớn hơn, bằng nhau thì khóa đứng trước theo thứ tự chữ cái)
+        private int better(int a, int b) {
+            long rankA = ranks[refs[a] >>> 2];
+            long rankB = ranks[refs[b] >>> 2];
+            if (rankA != rankB) {
+                return rankA > rankB ? a : b;
+            }
+            return Math.min(a, b);
+        }
+
+        // Vị trí khóa đầu tiên >= prefix (upper = false) hoặc đầu tiên > mọi khóa bắt đầu bằng prefix (upper = true)
+        private int bound(byte[] prefix, boolean upper) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparePrefix(keys[mid], prefix);
+                if (cmp < 0 || (upper && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int comparePrefix(int start, byte[] prefix) {
+            for (int i = 0; i < prefix.length; i++) {
+                int b = text[start + i] & 0xff;
+                if (b == 0) {
+                    return -1; // Khóa ngắn hơn tiền tố
+                }
+                int diff = b - (prefix[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+
+        private static int utf8Length(String value, int from, int to) {
+            int length = 0;
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c)) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+    }
+}
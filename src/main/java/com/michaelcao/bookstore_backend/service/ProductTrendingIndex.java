@@ -0,0 +1,264 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.product.TrendingProductDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.TrendingRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Sản phẩm thịnh hành: điểm mỗi sản phẩm suy giảm theo hàm mũ với chu kỳ bán rã app.trending.half-life-hours,
+ * nên hoạt động tuần này lấn át sản phẩm bán chạy từ năm ngoái.
+ *
+ * - Tín hiệu: xem chi tiết, thêm vào giỏ, thêm vào wishlist, đặt hàng (mỗi loại một trọng số). Trong transaction thì
+ *   chỉ được ghi nhận sau khi commit.
+ * - Không cần giảm điểm của mọi sản phẩm theo thời gian: tín hiệu lúc t được cộng với trọng số w * e^(λ(t - epoch)),
+ *   điểm hiện tại = tổng * e^(-λ(now - epoch)). Bộ đếm là DoubleAdder (striped) theo sản phẩm.
+ *   Khi số mũ quá lớn, epoch được dời tới hiện tại và các bộ đếm được nhân lại cho cùng thang. Ghi nhận tín hiệu giữ
+ *   read lock của một StampedLock, đổi thang giữ write lock, nên không tín hiệu nào bị tính theo epoch cũ rồi nhân thêm.
+ * - Mỗi app.trending.publish-interval-ms, top-k được chọn bằng heap kích thước k và publish thành snapshot bất biến;
+ *   endpoint chỉ đọc snapshot, không query DB. Thông tin sản phẩm trong snapshot được cache tới khi catalog thay đổi.
+ * - Sản phẩm có điểm dưới min-score bị bỏ khỏi bộ đếm. Mỗi node chỉ thấy tín hiệu của chính nó.
+ */
+@Service
+@Slf4j
+public class ProductTrendingIndex {
+
+    public static final String TRACKED_PRODUCTS = "bookstore.product.trending.tracked";
+
+    private static final double MAX_EXPONENT = 30; // e^30 ~ 1e13: còn xa giới hạn double, vẫn đủ chính xác
+
+    public enum Signal {
+        VIEW, CART, WISHLIST, PURCHASE
+    }
+
+    private final ProductRepository productRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    private final double lambda; // Hằng số suy giảm theo mili giây
+    private final double[] weights = new double[Signal.values().length];
+    private final int topK;
+    private final double minScore;
+
+    private final ConcurrentHashMap<UUID, DoubleAdder> scores = new ConcurrentHashMap<>();
+    private final LongSupplier clock; // Mili giây hiện tại; test thay bằng đồng hồ giả
+    private volatile long epochMillis;
+    private final StampedLock rebaseLock = new StampedLock(); // read: add(), write: rebaseIfNeeded()
+    private final AtomicReference<TrendingSnapshot> snapshot = new AtomicReference<>(TrendingSnapshot.EMPTY);
+
+    // Chỉ dùng trong publish() (synchronized)
+    private final Map<UUID, TrendingRow> rowCache = new HashMap<>();
+    private long rowCacheVersion = -1;
+
+    @Autowired
+    public ProductTrendingIndex(ProductRepository productRepository,
+                                CatalogVersionService catalogVersionService,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.trending.enabled:true}") boolean enabled,
+                                @Value("${app.trending.half-life-hours:24}") double halfLifeHours,
+                                @Value("${app.trending.weight.view:1}") double viewWeight,
+                                @Value("${app.trending.weight.cart:3}") double cartWeight,
+                                @Value("${app.trending.weight.wishlist:2}") double wishlistWeight,
+                                @Value("${app.trending.weight.purchase:5}") double purchaseWeight,
+                                @Value("${app.trending.top-k:50}") int topK,
+                                @Value("${app.trending.min-score:0.05}") double minScore) {
+        this(productRepository, catalogVersionService, transactionManager, meterRegistry, enabled, halfLifeHours,
+                viewWeight, cartWeight, wishlistWeight, purchaseWeight, topK, minScore, System::currentTimeMillis);
+    }
+
+    ProductTrendingIndex(ProductRepository productRepository,
+                         CatalogVersionService catalogVersionService,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         boolean enabled,
+                         double halfLifeHours,
+                         double viewWeight,
+                         double cartWeight,
+                         double wishlistWeight,
+                         double purchaseWeight,
+                         int topK,
+                         double minScore,
+                         LongSupplier clock) {
+        this.productRepository = productRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.lambda = Math.log(2) / (Math.max(0.01, halfLifeHours) * 3_600_000);
+        this.weights[Signal.VIEW.ordinal()] = viewWeight;
+        this.weights[Signal.CART.ordinal()] = cartWeight;
+        this.weights[Signal.WISHLIST.ordinal()] = wishlistWeight;
+        this.weights[Signal.PURCHASE.ordinal()] = purchaseWeight;
+        this.topK = Math.max(1, topK);
+        this.minScore = Math.max(0, minScore);
+        this.clock = clock;
+        this.epochMillis = clock.getAsLong();
+        Gauge.builder(TRACKED_PRODUCTS, scores, Map::size)
+                .description("Số sản phẩm đang có điểm thịnh hành")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ghi nhận một tín hiệu cho sản phẩm. Gọi trong transaction thì chỉ có hiệu lực sau khi commit.
+     */
+    public void record(UUID productId, Signal signal) {
+        if (!enabled || productId == null || weights[signal.ordinal()] <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(productId, signal);
+                }
+            });
+        } else {
+            add(productId, signal);
+        }
+    }
+
+    /**
+     * Tối đa limit sản phẩm thịnh hành nhất từ snapshot đã publish (không query DB).
+     */
+    public List<TrendingProductDTO> trending(int limit) {
+        List<TrendingProductDTO> products = snapshot.get().products();
+        return products.subList(0, Math.min(Math.max(0, limit), products.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.publish-interval-ms:10000}")
+    public void scheduledPublish() {
+        if (enabled) {
+            publish();
+        }
+    }
+
+    /**
+     * Chọn top-k theo điểm hiện tại và thay snapshot. Sản phẩm đã xóa hoặc điểm quá nhỏ bị bỏ khỏi bộ đếm.
+     */
+    public synchronized void publish() {
+        long now = clock.getAsLong();
+        rebaseIfNeeded(now);
+        double decay = Math.exp(-lambda * (now - epochMillis));
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Ranked::score));
+        for (Map.Entry<UUID, DoubleAdder> entry : scores.entrySet()) {
+            double score = entry.getValue().sum() * decay;
+            if (score < minScore) {
+                // Đọc lại tổng khi đang giữ mapping: tín hiệu vừa cộng sau lần đọc ở trên thì giữ lại bộ đếm
+                scores.computeIfPresent(entry.getKey(), (id, adder) -> adder.sum() * decay < minScore ? null : adder);
+                continue;
+            }
+            if (heap.size() < topK) {
+                heap.add(new Ranked(entry.getKey(), score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new Ranked(entry.getKey(), score));
+            }
+        }
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(Comparator.comparingDouble(Ranked::score).reversed());
+
+        long version = catalogVersionService.getProductVersion();
+        if (version != rowCacheVersion) {
+            rowCache.clear(); // Giá, tồn kho, title có thể đã đổi
+            rowCacheVersion = version;
+        }
+        Set<UUID> rankedIds = ranked.stream().map(Ranked::productId).collect(Collectors.toSet());
+        rowCache.keySet().retainAll(rankedIds);
+        List<UUID> missing = rankedIds.stream().filter(id -> !rowCache.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            List<TrendingRow> rows = readOnlyTx.execute(status -> productRepository.findTrendingRowsByIdIn(missing));
+            if (rows != null) {
+                rows.forEach(row -> rowCache.put(row.getId(), row));
+            }
+        }
+
+        List<TrendingProductDTO> products = new ArrayList<>(ranked.size());
+        for (Ranked entry : ranked) {
+            TrendingRow row = rowCache.get(entry.productId());
+            if (row == null) {
+                scores.remove(entry.productId()); // Sản phẩm đã bị xóa
+                continue;
+            }
+            products.add(new TrendingProductDTO(row.getId(), row.getTitle(), row.getAuthor(), row.getPrice(),
+                    row.getImageUrl(), row.getStockQuantity(), Math.round(entry.score() * 100) / 100.0));
+        }
+        snapshot.set(new TrendingSnapshot(List.copyOf(products), Instant.ofEpochMilli(now)));
+        log.debug("Trending snapshot published: {} products out of {} tracked", products.size(), scores.size());
+    }
+
+    private void add(UUID productId, Signal signal) {
+        long stamp = rebaseLock.readLock();
+        try {
+            double weight = weights[signal.ordinal()] * Math.exp(lambda * (clock.getAsLong() - epochMillis));
+            while (true) {
+                DoubleAdder adder = scores.get(productId);
+                if (adder == null) {
+                    adder = scores.computeIfAbsent(productId, id -> new DoubleAdder());
+                }
+                adder.add(weight);
+                // publish() có thể vừa bỏ bộ đếm này khỏi map (điểm đã cũ dưới min-score): cộng lại vào bộ đếm mới
+                if (scores.get(productId) == adder) {
+                    return;
+                }
+            }
+        } finally {
+            rebaseLock.unlockRead(stamp);
+        }
+    }
+
+    // Dời epoch tới now và đưa các bộ đếm về cùng thang. Giữ write lock: không add() nào đang chạy giữa lúc đổi epoch
+    // và lúc nhân lại bộ đếm
+    private void rebaseIfNeeded(long now) {
+        if (lambda * (now - epochMillis) < MAX_EXPONENT) {
+            return;
+        }
+        long stamp = rebaseLock.writeLock();
+        try {
+            double scale = Math.exp(-lambda * (now - epochMillis));
+            epochMillis = now;
+            for (DoubleAdder adder : scores.values()) {
+                adder.add(adder.sumThenReset() * scale);
+            }
+        } finally {
+            rebaseLock.unlockWrite(stamp);
+        }
+        log.info("Trending scores rebased: {} products", scores.size());
+    }
+
+    private record Ranked(UUID productId, double score) {
+    }
+
+    private record TrendingSnapshot(List<TrendingProductDTO> products, Instant publishedAt) {
+        static final TrendingSnapshot EMPTY = new TrendingSnapshot(List.of(), Instant.EPOCH);
+    }
+}
@@ -0,0 +1,647 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index trigram trong bộ nhớ cho tìm kiếm chịu lỗi chính tả trên title + tác giả, dùng khi tìm kiếm chính xác
+ * (ProductSpecification.hasKeyword) không có kết quả.
+ *
+ * - Văn bản được chuẩn hóa bằng TextNormalizer.searchKey (bỏ dấu, "đ" = "d"). Mỗi từ sinh trigram có đệm
+ *   (" wo", "wor", ..., "rd "), nên từ ngắn, đầu và cuối từ cũng có trigram.
+ * - Posting list của mỗi trigram là các ordinal tăng dần, lưu delta dạng varint trong một mảng byte (bitmap nếu dày).
+ * - Truy vấn: đếm số trigram chung của mọi sản phẩm trong các posting list, giữ sản phẩm chứa ít nhất
+ *   min-similarity phần trigram của truy vấn, lấy max-candidates sản phẩm nhiều trigram chung nhất rồi kiểm tra lại
+ *   bằng khoảng cách sửa có chặn (Damerau-Levenshtein): mỗi từ của truy vấn phải khớp một từ của sản phẩm với số lỗi
+ *   cho phép theo độ dài từ (tới 2 ký tự: 0, 3-5 ký tự: 1, dài hơn: 2).
+ * - Điểm = 0.8 * độ giống theo khoảng cách sửa + 0.2 * Jaccard trigram (ưu tiên title/tác giả ngắn, sát truy vấn).
+ *
+ * Index dựng lại trên thread nền (VersionedSnapshotHolder) khi version nội dung sản phẩm thay đổi, tối đa một lần mỗi
+ * min-rebuild-interval: trong khoảng đó sản phẩm mới chưa có trong kết quả gần đúng; sản phẩm đã xóa bị loại khi đọc
+ * lại từ DB. Index được dựng lúc khởi động; trong lúc chưa dựng xong, tìm gần đúng không trả kết quả.
+ */
+@Service
+@Slf4j
+public class ProductTrigramIndex implements SmartInitializingSingleton {
+
+    public static final String INDEX_BYTES = "bookstore.product.trigram.index.bytes";
+
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_QUERY_GRAMS = 64; // Số trigram chung được đếm bằng byte
+    private static final int COMPACTNESS_BUCKETS = 256; // Số trigram của sản phẩm khi chọn ứng viên cùng mức
+    private static final double EDIT_WEIGHT = 0.8;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    private final double minSimilarity;
+    private final int maxCandidates;
+    private final int maxResults;
+    private final VersionedSnapshotHolder<TrigramSnapshot> snapshot;
+
+    public ProductTrigramIndex(ProductRepository productRepository,
+                               CatalogVersionService catalogVersionService,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.search.fuzzy.enabled:true}") boolean enabled,
+                               @Value("${app.search.fuzzy.min-similarity:0.3}") double minSimilarity,
+                               @Value("${app.search.fuzzy.max-candidates:200}") int maxCandidates,
+                               @Value("${app.search.fuzzy.max-results:100}") int maxResults,
+                               @Value("${app.search.fuzzy.min-rebuild-interval-ms:60000}") long minRebuildIntervalMillis) {
+        this.productRepository = productRepository;
+        this.readOnlyTx = new PrimaryTransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.minSimilarity = Math.min(1.0, Math.max(0.0, minSimilarity));
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.maxResults = Math.max(1, maxResults);
+        this.snapshot = new VersionedSnapshotHolder<>("trigram-index", catalogVersionService::getProductContentVersion,
+                version -> readOnlyTx.execute(status -> load(version)), minRebuildIntervalMillis);
+        Gauge.builder(INDEX_BYTES, snapshot, s -> s.peek() != null ? s.peek().estimatedBytes : 0)
+                .description("Bộ nhớ ước tính của index trigram sản phẩm")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            snapshot.refreshAsync(); // Dựng trước trên thread nền, không để request đầu tiên chịu
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * ID sản phẩm khớp gần đúng với keyword, theo điểm giảm dần (tối đa max-results).
+     * Danh sách rỗng nếu tính năng bị tắt hoặc keyword không có chữ/số.
+     */
+    public List<UUID> search(String keyword) {
+        if (!enabled || keyword == null) {
+            return List.of();
+        }
+        String key = TextNormalizer.searchKey(keyword);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        String[] tokens = key.split(" ");
+        if (tokens.length > MAX_QUERY_TOKENS) {
+            tokens = Arrays.copyOf(tokens, MAX_QUERY_TOKENS);
+        }
+        TrigramSnapshot current = snapshot.get();
+        if (current == null) {
+            return List.of(); // Index đang dựng lần đầu
+        }
+        return current.search(tokens, minSimilarity, maxCandidates, maxResults);
+    }
+
+    /**
+     * Dựng lại index ngay và chờ xong (benchmark, test).
+     */
+    void rebuildNow() {
+        snapshot.refreshAsync().join();
+    }
+
+    private TrigramSnapshot load(long targetVersion) {
+        long start = System.nanoTime();
+        TrigramSnapshot loaded = TrigramSnapshot.build(targetVersion, productRepository.findAllSuggestRows());
+        log.info("Product trigram index rebuilt: {} products, {} trigrams, {} KB in {} ms (content version {})",
+                loaded.size, loaded.gramCount, loaded.estimatedBytes / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), targetVersion);
+        return loaded;
+    }
+
+    // Số lỗi (thêm/bớt/thay/đảo hai ký tự kề nhau) cho phép với một từ của truy vấn
+    static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    // Trigram = 3 ký tự x 21 bit. Không bao giờ bằng 0 (searchKey không còn ký tự điều khiển).
+    private static long gram(char a, char b, char c) {
+        return ((long) a << 42) | ((long) b << 21) | c;
+    }
+
+    /**
+     * Trigram có đệm một dấu cách của mọi từ trong text (các từ cách nhau đúng một dấu cách): "abc" -> " ab", "abc",
+     * "bc ", từ một ký tự "a" -> " a ". Khác pg_trgm, không sinh trigram đệm hai dấu cách ("  a"): loại trigram này chỉ
+     * mang chữ cái đầu, có ở rất nhiều sản phẩm nên làm dài posting list mà gần như không giúp phân biệt.
+     * Kết quả sắp xếp tăng dần và khác nhau; trả về số trigram, buffer được nới nếu thiếu (lấy lại qua holder[0]).
+     */
+    static int grams(String text, long[][] holder) {
+        long[] out = holder[0];
+        if (out.length < text.length() + 2) {
+            out = new long[text.length() + 2];
+            holder[0] = out;
+        }
+        int n = 0;
+        char p2 = ' ';
+        char p1 = ' ';
+        int wordLength = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c == ' ') {
+                if (wordLength > 0) {
+                    out[n++] = gram(p2, p1, ' ');
+                }
+                p2 = ' ';
+                p1 = ' ';
+                wordLength = 0;
+                continue;
+            }
+            if (wordLength > 0) {
+                out[n++] = gram(p2, p1, c);
+            }
+            p2 = p1;
+            p1 = c;
+            wordLength++;
+        }
+        Arrays.sort(out, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || out[unique - 1] != out[i]) {
+                out[unique++] = out[i];
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Dữ liệu bất biến của index, theo ordinal (thứ tự của findAllSuggestRows).
+     *
+     * Posting list dày (trigram có ở hơn 1/8 số sản phẩm, ví dụ " th", "ng ") được lưu dạng bitmap: nhỏ hơn varint
+     * và cho phép kiểm tra một sản phẩm trong O(1).
+     */
+    static final class TrigramSnapshot {
+
+        private final long version;
+        private final int size;
+        private final long[] idBits;           // 2 long cho mỗi ordinal
+        private final byte[] text;             // searchKey(title + " " + tác giả), UTF-8
+        private final int[] textOffsets;       // size + 1
+        private final int[] docGrams;          // Số trigram khác nhau của mỗi sản phẩm
+        private final GramTable table;         // Trigram -> mã
+        private final int gramCount;
+        private final int[] docFrequency;      // Mã -> số sản phẩm
+        private final int[] postingOffsets;    // gramCount + 1: vị trí trong postings, hoặc trong bitmaps (theo word)
+        private final boolean[] dense;         // Mã -> posting list là bitmap
+        private final byte[] postings;         // Delta ordinal dạng varint
+        private final long[] bitmaps;
+        private final long estimatedBytes;
+
+        private TrigramSnapshot(long version, int size, long[] idBits, byte[] text, int[] textOffsets, int[] docGrams,
+                                GramTable table, int[] docFrequency, int[] postingOffsets, boolean[] dense,
+                                byte[] postings, long[] bitmaps) {
+            this.version = version;
+            this.size = size;
+            this.idBits = idBits;
+            this.text = text;
+            this.textOffsets = textOffsets;
+            this.docGrams = docGrams;
+            this.table = table;
+            this.gramCount = table.size;
+            this.docFrequency = docFrequency;
+            this.postingOffsets = postingOffsets;
+            this.dense = dense;
+            this.postings = postings;
+            this.bitmaps = bitmaps;
+            this.estimatedBytes = idBits.length * 8L + text.length + textOffsets.length * 4L + docGrams.length * 4L
+                    + table.keys.length * 12L + gramCount * 9L + postings.length + bitmaps.length * 8L;
+        }
+
+        static TrigramSnapshot build(long version, List<SuggestRow> rows) {
+            int size = rows.size();
+            long[] idBits = new long[size * 2];
+            String[] keys = new String[size];
+            int[] textOffsets = new int[size + 1];
+            List<byte[]> encoded = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                SuggestRow row = rows.get(i);
+                idBits[2 * i] = row.getId().getMostSignificantBits();
+                idBits[2 * i + 1] = row.getId().getLeastSignificantBits();
+                String title = row.getTitle() != null ? row.getTitle() : "";
+                String author = row.getAuthor() != null ? row.getAuthor() : "";
+                keys[i] = TextNormalizer.searchKey(title + " " + author);
+                byte[] bytes = keys[i].getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                textOffsets[i + 1] = textOffsets[i] + bytes.length;
+            }
+            byte[] text = new byte[textOffsets[size]];
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = encoded.get(i);
+                System.arraycopy(bytes, 0, text, textOffsets[i], bytes.length);
+            }
+
+            // Lượt 1: gán mã trigram, đếm số sản phẩm của mỗi trigram
+            long[][] buffer = {new long[64]};
+            GramTable table = new GramTable();
+            int[] docFrequency = new int[1024];
+            int[] docGrams = new int[size];
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                int count = grams(keys[i], buffer);
+                docGrams[i] = count;
+                total += count;
+                for (int g = 0; g < count; g++) {
+                    int code = table.add(buffer[0][g]);
+                    if (code >= docFrequency.length) {
+                        docFrequency = Arrays.copyOf(docFrequency, docFrequency.length * 2);
+                    }
+                    docFrequency[code]++;
+                }
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Trigram index is too large: " + total + " postings");
+            }
+            int gramCount = table.size;
+            docFrequency = Arrays.copyOf(docFrequency, gramCount);
+
+            // Lượt 2: posting list (ordinal tăng dần vì duyệt sản phẩm theo thứ tự)
+            int[] starts = new int[gramCount + 1];
+            for (int code = 0; code < gramCount; code++) {
+                starts[code + 1] = starts[code] + docFrequency[code];
+            }
+            int[] cursor = Arrays.copyOf(starts, gramCount);
+            int[] flat = new int[(int) total];
+            for (int i = 0; i < size; i++) {
+                int count = grams(keys[i], buffer);
+                for (int g = 0; g < count; g++) {
+                    flat[cursor[table.get(buffer[0][g])]++] = i;
+                }
+            }
+
+            // Nén: bitmap cho list dày, còn lại delta so với ordinal trước, varint 7 bit
+            int words = (size + 63) >>> 6;
+            boolean[] dense = new boolean[gramCount];
+            long encodedSize = 0;
+            int denseCount = 0;
+            for (int code = 0; code < gramCount; code++) {
+                dense[code] = docFrequency[code] * 8L > size;
+                if (dense[code]) {
+                    denseCount++;
+                    continue;
+                }
+                int previous = -1;
+                for (int p = starts[code]; p < starts[code + 1]; p++) {
+                    encodedSize += varintLength(flat[p] - previous);
+                    previous = flat[p];
+                }
+            }
+            int[] postingOffsets = new int[gramCount + 1];
+            byte[] postings = new byte[(int) encodedSize];
+            long[] bitmaps = new long[denseCount * words];
+            int position = 0;
+            int bitmapPosition = 0;
+            for (int code = 0; code < gramCount; code++) {
+                if (dense[code]) {
+                    postingOffsets[code] = bitmapPosition;
+                    for (int p = starts[code]; p < starts[code + 1]; p++) {
+                        bitmaps[bitmapPosition + (flat[p] >>> 6)] |= 1L << flat[p];
+                    }
+                    bitmapPosition += words;
+                    continue;
+                }
+                postingOffsets[code] = position;
+                int previous = -1;
+                for (int p = starts[code]; p < starts[code + 1]; p++) {
+                    int delta = flat[p] - previous;
+                    previous = flat[p];
+                    while (delta >= 0x80) {
+                        postings[position++] = (byte) (delta | 0x80);
+                        delta >>>= 7;
+                    }
+                    postings[position++] = (byte) delta;
+                }
+                postingOffsets[code + 1] = position;
+            }
+            return new TrigramSnapshot(version, size, idBits, text, textOffsets, docGrams, table, docFrequency,
+                    postingOffsets, dense, postings, bitmaps);
+        }
+
+        List<UUID> search(String[] tokens, double minSimilarity, int maxCandidates, int limit) {
+            if (size == 0) {
+                return List.of();
+            }
+            long[][] buffer = {new long[64]};
+            int queryGrams = Math.min(grams(String.join(" ", tokens), buffer), MAX_QUERY_GRAMS);
+            int minShared = Math.max(1, (int) Math.ceil(minSimilarity * queryGrams));
+
+            // Trigram có trong index, hiếm trước; trigram không có vẫn tính vào mẫu số
+            int known = 0;
+            int[] codes = new int[queryGrams];
+            for (int g = 0; g < queryGrams; g++) {
+                int code = table.get(buffer[0][g]);
+                if (code >= 0) {
+                    codes[known++] = code;
+                }
+            }
+            codes = Arrays.stream(codes, 0, known).boxed()
+                    .sorted((a, b) -> Integer.compare(docFrequency[a], docFrequency[b]))
+                    .mapToInt(Integer::intValue).toArray();
+            // Sản phẩm có ít nhất minShared trigram chung phải chứa một trong (known - minShared + 1) trigram hiếm
+            // nhất: chỉ các trigram này sinh ứng viên, trigram phổ biến chỉ cộng điểm cho ứng viên đã có
+            int generating = known - minShared + 1;
+            if (generating <= 0) {
+                return List.of();
+            }
+            byte[] shared = new byte[size];
+            int[] touched = new int[256];
+            int touchedCount = 0;
+            for (int g = 0; g < generating; g++) {
+                int code = codes[g];
+                if (dense[code]) {
+                    int base = postingOffsets[code];
+                    for (int w = 0; w < (size + 63) >>> 6; w++) {
+                        for (long bits = bitmaps[base + w]; bits != 0; bits &= bits - 1) {
+                            int ordinal = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            if (shared[ordinal]++ == 0) {
+                                if (touchedCount == touched.length) {
+                                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                                }
+                                touched[touchedCount++] = ordinal;
+                            }
+                        }
+                    }
+                    continue;
+                }
+                int ordinal = -1;
+                for (int position = postingOffsets[code], end = postingOffsets[code + 1]; position < end; ) {
+                    int delta = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = postings[position++];
+                        delta |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    ordinal += delta;
+                    if (shared[ordinal]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                }
+            }
+            for (int g = generating; g < known; g++) {
+                int code = codes[g];
+                if (dense[code]) {
+                    int base = postingOffsets[code];
+                    for (int t = 0; t < touchedCount; t++) {
+                        int ordinal = touched[t];
+                        if ((bitmaps[base + (ordinal >>> 6)] & (1L << ordinal)) != 0) {
+                            shared[ordinal]++;
+                        }
+                    }
+                    continue;
+                }
+                int ordinal = -1;
+                for (int position = postingOffsets[code], end = postingOffsets[code + 1]; position < end; ) {
+                    int delta = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = postings[position++];
+                        delta |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    ordinal += delta;
+                    if (shared[ordinal] != 0) {
+                        shared[ordinal]++;
+                    }
+                }
+            }
+
+            // Ứng viên: đủ tỷ lệ trigram chung, tối đa maxCandidates; nhiều trigram chung hơn rồi ít trigram hơn
+            // (sát truy vấn hơn) được ưu tiên. Chọn bằng histogram (số trigram chung, số trigram của sản phẩm đều nhỏ)
+            // thay vì sắp xếp mọi sản phẩm đạt ngưỡng.
+            int[] sharedHistogram = new int[queryGrams + 1];
+            for (int t = 0; t < touchedCount; t++) {
+                sharedHistogram[shared[touched[t]]]++;
+            }
+            int cutoff = queryGrams;
+            int taken = 0;
+            while (cutoff >= minShared && taken + sharedHistogram[cutoff] <= maxCandidates) {
+                taken += sharedHistogram[cutoff--];
+            }
+            // Lấy hết sản phẩm có shared > cutoff; ở mức cutoff chỉ lấy phần còn lại, ít trigram trước
+            int gramLimit = -1;
+            int tiesAtLimit = 0;
+            if (cutoff >= minShared) {
+                int[] gramHistogram = new int[COMPACTNESS_BUCKETS];
+                for (int t = 0; t < touchedCount; t++) {
+                    if (shared[touched[t]] == cutoff) {
+                        gramHistogram[Math.min(docGrams[touched[t]], COMPACTNESS_BUCKETS - 1)]++;
+                    }
+                }
+                int remaining = maxCandidates - taken;
+                for (gramLimit = 0; remaining > gramHistogram[gramLimit]; gramLimit++) {
+                    remaining -= gramHistogram[gramLimit];
+                }
+                tiesAtLimit = remaining;
+            }
+            int[] candidates = new int[Math.min(maxCandidates, touchedCount)];
+            int candidateCount = 0;
+            for (int t = 0; t < touchedCount && candidateCount < candidates.length; t++) {
+                int ordinal = touched[t];
+                if (shared[ordinal] > cutoff) {
+                    candidates[candidateCount++] = ordinal;
+                } else if (shared[ordinal] == cutoff && cutoff >= minShared) {
+                    int bucket = Math.min(docGrams[ordinal], COMPACTNESS_BUCKETS - 1);
+                    if (bucket < gramLimit || (bucket == gramLimit && tiesAtLimit-- > 0)) {
+                        candidates[candidateCount++] = ordinal;
+                    }
+                }
+            }
+
+            // Kiểm tra lại bằng khoảng cách sửa và chấm điểm
+            EditDistance distance = new EditDistance();
+            int totalWeight = 0;
+            for (String token : tokens) {
+                totalWeight += token.length();
+            }
+            double[] scores = new double[candidateCount];
+            int[] ordinals = new int[candidateCount];
+            int matched = 0;
+            for (int c = 0; c < candidateCount; c++) {
+                int ordinal = candidates[c];
+                String[] words = new String(text, textOffsets[ordinal], textOffsets[ordinal + 1] - textOffsets[ordinal],
+                        StandardCharsets.UTF_8).split(" ");
+                double editSimilarity = 0;
+                boolean accepted = true;
+                for (String token : tokens) {
+                    int allowed = maxEdits(token.length());
+                    int best = allowed + 1;
+                    for (int w = 0; w < words.length && best > 0; w++) {
+                        best = Math.min(best, distance.bounded(token, words[w], allowed));
+                    }
+                    if (best > allowed) {
+                        accepted = false;
+                        break;
+                    }
+                    editSimilarity += token.length() * (1.0 - (double) best / (token.length() + 1));
+                }
+                if (!accepted) {
+                    continue;
+                }
+                int common = shared[ordinal];
+                double jaccard = (double) common / (queryGrams + docGrams[ordinal] - common);
+                scores[matched] = EDIT_WEIGHT * editSimilarity / totalWeight + (1 - EDIT_WEIGHT) * jaccard;
+                ordinals[matched++] = ordinal;
+            }
+
+            Integer[] order = new Integer[matched];
+            for (int i = 0; i < matched; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(ordinals[a], ordinals[b]));
+            List<UUID> result = new ArrayList<>(Math.min(limit, matched));
+            for (int i = 0; i < matched && result.size() < limit; i++) {
+                int ordinal = ordinals[order[i]];
+                result.add(new UUID(idBits[2 * ordinal], idBits[2 * ordinal + 1]));
+            }
+            return result;
+        }
+
+        private static int varintLength(int value) {
+            int length = 1;
+            while (value >= 0x80) {
+                value >>>= 7;
+                length++;
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Bảng băm địa chỉ mở trigram -> mã (mã gán theo thứ tự gặp). Khóa 0 là ô trống.
+     */
+    static final class GramTable {
+
+        private long[] keys = new long[1 << 12];
+        private int[] codes = new int[1 << 12];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return codes[slot];
+                }
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        int add(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return codes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            codes[slot] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCodes = codes;
+            keys = new long[oldKeys.length * 2];
+            codes = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    codes[slot] = oldCodes[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Khoảng cách Damerau-Levenshtein (optimal string alignment) có chặn: dừng sớm và trả về max + 1 khi mọi ô
+     * của một hàng đã vượt max. Các hàng được dùng lại giữa các lần gọi trong một truy vấn.
+     */
+    static final class EditDistance {
+
+        private int[] twoBack = new int[32];
+        private int[] previous = new int[32];
+        private int[] row = new int[32];
+
+        int bounded(String a, String b, int max) {
+            int la = a.length();
+            int lb = b.length();
+            if (Math.abs(la - lb) > max) {
+                return max + 1;
+            }
+            if (row.length <= lb) {
+                twoBack = new int[lb + 1];
+                previous = new int[lb + 1];
+                row = new int[lb + 1];
+            }
+            for (int j = 0; j <= lb; j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= la; i++) {
+                row[0] = i;
+                int rowMin = i;
+                char ca = a.charAt(i - 1);
+                for (int j = 1; j <= lb; j++) {
+                    char cb = b.charAt(j - 1);
+                    int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + (ca == cb ? 0 : 1));
+                    if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                        value = Math.min(value, twoBack[j - 2] + 1);
+                    }
+                    row[j] = value;
+                    rowMin = Math.min(rowMin, value);
+                }
+                if (rowMin > max) {
+                    return max + 1;
+                }
+                int[] recycled = twoBack;
+                twoBack = previous;
+                previous = row;
+                row = recycled;
+            }
+            return Math.min(previous[lb], max + 1);
+        }
+    }
+}
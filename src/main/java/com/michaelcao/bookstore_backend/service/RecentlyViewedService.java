@@ -0,0 +1,370 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.entity.RecentlyViewed;
+import com.michaelcao.bookstore_backend.repository.RecentlyViewedRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sản phẩm xem gần đây theo user: mỗi user một ring buffer kích thước cố định (app.recently-viewed.capacity)
+ * trong bộ nhớ, nên một lượt xem chỉ là vài phép gán, không ghi DB.
+ *
+ * - Xem lại sản phẩm đã có trong ring thì nó được đưa lên đầu (không trùng lặp).
+ * - Các ring nằm trong 16 segment LRU (LinkedHashMap access-order); tổng số user được giới hạn theo
+ *   app.recently-viewed.max-memory-mb. User ít hoạt động nhất bị bỏ khỏi bộ nhớ trước; ring còn thay đổi chưa ghi
+ *   thì được giữ lại tới lần flush kế tiếp.
+ * - Ring có thay đổi được ghi xuống bảng recently_viewed theo batch (upsert) mỗi app.recently-viewed.flush-interval-ms.
+ * - User chưa có trong bộ nhớ: lượt xem mới được ghi vào ring "chưa gộp"; lịch sử trong DB được gộp vào (phía cũ)
+ *   khi flush hoặc khi đọc, nên lượt xem không bao giờ phải chờ query.
+ * - Mỗi node giữ ring riêng; user dùng nhiều node cùng lúc thì node flush sau cùng thắng.
+ */
+@Service
+@Slf4j
+public class RecentlyViewedService {
+
+    public static final String TRACKED_USERS = "bookstore.recently-viewed.users";
+
+    private static final int SEGMENTS = 16;
+    // Ước lượng phần cố định mỗi user: object ring, 2 header mảng long, key Long, entry LinkedHashMap
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final RecentlyViewedRepository recentlyViewedRepository;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    // Ring có thay đổi chưa ghi (mỗi ring xuất hiện tối đa một lần: chỉ thêm khi chuyển từ sạch sang bẩn)
+    private final ConcurrentLinkedQueue<ViewRing> dirtyRings = new ConcurrentLinkedQueue<>();
+    // Ring bẩn đã bị đẩy khỏi segment, chờ flush; vẫn đọc được để không mất lượt xem vừa ghi nhận
+    private final ConcurrentHashMap<Long, ViewRing> pendingEvicted = new ConcurrentHashMap<>();
+
+    public RecentlyViewedService(RecentlyViewedRepository recentlyViewedRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.recently-viewed.enabled:true}") boolean enabled,
+                                 @Value("${app.recently-viewed.capacity:20}") int capacity,
+                                 @Value("${app.recently-viewed.max-memory-mb:32}") int maxMemoryMb,
+                                 @Value("${app.recently-viewed.flush-batch-size:500}") int batchSize) {
+        this.recentlyViewedRepository = recentlyViewedRepository;
+        this.enabled = enabled;
+        this.capacity = Math.min(RecentlyViewed.MAX_PRODUCTS, Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        long maxUsers = Math.max(SEGMENTS, (long) Math.max(1, maxMemoryMb) * 1024 * 1024
+                / (this.capacity * 16L + ENTRY_OVERHEAD_BYTES));
+        int usersPerSegment = (int) Math.min(Integer.MAX_VALUE, maxUsers / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(usersPerSegment);
+        }
+        Gauge.builder(TRACKED_USERS, this, RecentlyViewedService::trackedUsers)
+                .description("Số user đang có danh sách xem gần đây trong bộ nhớ")
+                .register(meterRegistry);
+        log.info("Recently viewed: {} products per user, up to {} users in memory", this.capacity, maxUsers);
+    }
+
+    /**
+     * Ghi nhận user vừa xem chi tiết sản phẩm. Không query DB.
+     */
+    public void recordView(Long userId, UUID productId) {
+        if (!enabled || userId == null || productId == null) {
+            return;
+        }
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            ViewRing ring = segment.lookup(userId);
+            if (ring == null) {
+                ring = new ViewRing(userId, capacity); // Chưa gộp lịch sử trong DB
+                segment.put(userId, ring);
+            }
+            if (ring.push(productId.getMostSignificantBits(), productId.getLeastSignificantBits()) && !ring.dirty) {
+                ring.dirty = true;
+                dirtyRings.add(ring);
+            }
+        }
+    }
+
+    /**
+     * ID sản phẩm user đã xem, mới nhất trước. Tối đa một query (khi user chưa có trong bộ nhớ hoặc chưa gộp).
+     */
+    public List<UUID> recentlyViewed(Long userId) {
+        if (!enabled) {
+            return List.of();
+        }
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            ViewRing ring = segment.lookup(userId);
+            if (ring != null && ring.merged) {
+                return ring.toList();
+            }
+        }
+        byte[] stored = recentlyViewedRepository.findByUserIdIn(List.of(userId)).get(userId);
+        synchronized (segment) {
+            ViewRing ring = segment.lookup(userId);
+            if (ring == null) {
+                ring = new ViewRing(userId, capacity);
+                segment.put(userId, ring);
+            }
+            ring.mergeStored(stored);
+            return ring.toList();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.recently-viewed.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    /**
+     * Ghi các ring có thay đổi xuống DB theo batch: mỗi batch tối đa một query đọc (gộp ring chưa gộp) và một JDBC batch upsert.
+     * Lỗi DB thì ring được đưa lại vào hàng đợi để thử ở lần sau.
+     * @return Số user đã ghi.
+     */
+    public synchronized int flush() {
+        int written = 0;
+        List<ViewRing> batch = new ArrayList<>(batchSize);
+        // Chỉ lấy số ring đang chờ lúc bắt đầu: ring được đưa lại hàng đợi khi lỗi sẽ đợi lần flush sau
+        for (int pending = dirtyRings.size(); pending > 0; pending--) {
+            ViewRing ring = dirtyRings.poll();
+            if (ring == null) {
+                break;
+            }
+            batch.add(ring);
+            if (batch.size() == batchSize) {
+                written += flushBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += flushBatch(batch);
+        }
+        if (written > 0) {
+            log.debug("Recently viewed flushed: {} users", written);
+        }
+        return written;
+    }
+
+    private int flushBatch(List<ViewRing> batch) {
+        List<Long> unmerged = new ArrayList<>();
+        for (ViewRing ring : batch) {
+            synchronized (segmentFor(ring.userId)) {
+                if (!ring.merged) {
+                    unmerged.add(ring.userId);
+                }
+            }
+        }
+        Map<Long, byte[]> stored;
+        try {
+            stored = recentlyViewedRepository.findByUserIdIn(unmerged);
+        } catch (RuntimeException e) {
+            log.warn("Recently viewed flush failed for {} users, will retry: {}", batch.size(), e.getMessage());
+            dirtyRings.addAll(batch); // Vẫn còn cờ bẩn, chỉ cần đưa lại vào hàng đợi
+            return 0;
+        }
+        Map<Long, byte[]> rows = new LinkedHashMap<>();
+        for (ViewRing ring : batch) {
+            synchronized (segmentFor(ring.userId)) {
+                ring.mergeStored(stored.get(ring.userId));
+                ring.dirty = false; // Thay đổi sau điểm này sẽ đưa ring vào hàng đợi lại
+                rows.put(ring.userId, ring.toBytes());
+            }
+        }
+        try {
+            recentlyViewedRepository.batchUpsert(rows, Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Recently viewed flush failed for {} users, will retry: {}", batch.size(), e.getMessage());
+            for (ViewRing ring : batch) {
+                synchronized (segmentFor(ring.userId)) {
+                    if (!ring.dirty) {
+                        ring.dirty = true;
+                        dirtyRings.add(ring);
+                    }
+                }
+            }
+            return 0;
+        }
+        for (ViewRing ring : batch) {
+            synchronized (segmentFor(ring.userId)) {
+                if (!ring.dirty) {
+                    pendingEvicted.remove(ring.userId, ring);
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    private Segment segmentFor(Long userId) {
+        return segments[Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), SEGMENTS)];
+    }
+
+    private int trackedUsers() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.size();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Một phần của bộ nhớ LRU; mọi thao tác trên segment và trên các ring của nó đều giữ khóa của segment.
+     */
+    private final class Segment extends LinkedHashMap<Long, ViewRing> {
+
+        private final int maxUsers;
+
+        private Segment(int maxUsers) {
+            super(16, 0.75f, true);
+            this.maxUsers = maxUsers;
+        }
+
+        // Tìm trong segment, rồi trong các ring bị đẩy ra nhưng chưa ghi (đưa lại vào segment)
+        private ViewRing lookup(Long userId) {
+            ViewRing ring = get(userId);
+            if (ring == null) {
+                ring = pendingEvicted.get(userId);
+                if (ring != null) {
+                    put(userId, ring);
+                }
+            }
+            return ring;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ViewRing> eldest) {
+            if (size() <= maxUsers) {
+                return false;
+            }
+            if (eldest.getValue().dirty) {
+                pendingEvicted.put(eldest.getKey(), eldest.getValue());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Ring buffer ID sản phẩm (hai nửa UUID trong hai mảng long). Vị trí logic 0 là sản phẩm xem gần nhất.
+     */
+    static final class ViewRing {
+
+        private final Long userId;
+        private final long[] msb;
+        private final long[] lsb;
+        private int head; // Ô sẽ ghi lượt xem mới tiếp theo
+        private int size;
+        private boolean dirty;
+        private boolean merged; // Đã gộp lịch sử trong DB
+
+        ViewRing(Long userId, int capacity) {
+            this.userId = userId;
+            this.msb = new long[capacity];
+            this.lsb = new long[capacity];
+        }
+
+        /**
+         * Đưa sản phẩm lên đầu; sản phẩm cũ nhất bị ghi đè khi ring đầy.
+         * @return false nếu sản phẩm vốn đã ở đầu (không có thay đổi).
+         */
+        boolean push(long hi, long lo) {
+            int found = indexOf(hi, lo);
+            if (found == 0) {
+                return false;
+            }
+            if (found > 0) {
+                // Dời các sản phẩm mới hơn lùi một bậc vào chỗ trống của sản phẩm được xem lại
+                for (int i = found; i > 0; i--) {
+                    int to = slot(i);
+                    int from = slot(i - 1);
+                    msb[to] = msb[from];
+                    lsb[to] = lsb[from];
+                }
+                msb[slot(0)] = hi;
+                lsb[slot(0)] = lo;
+                return true;
+            }
+            msb[head] = hi;
+            lsb[head] = lo;
+            head = (head + 1) % msb.length;
+            size = Math.min(size + 1, msb.length);
+            return true;
+        }
+
+        /**
+         * Gộp lịch sử đã lưu (mới nhất trước) vào phía cũ của ring, bỏ sản phẩm trùng, tới khi đầy. Chỉ gộp một lần.
+         */
+        void mergeStored(byte[] stored) {
+            if (merged) {
+                return;
+            }
+            merged = true;
+            if (stored == null) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(stored);
+            while (buffer.remaining() >= 16 && size < msb.length) {
+                long hi = buffer.getLong();
+                long lo = buffer.getLong();
+                if (indexOf(hi, lo) < 0) {
+                    int to = slot(size);
+                    msb[to] = hi;
+                    lsb[to] = lo;
+                    size++;
+                }
+            }
+        }
+
+        List<UUID> toList() {
+            List<UUID> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(new UUID(msb[slot(i)], lsb[slot(i)]));
+            }
+            return ids;
+        }
+
+        byte[] toBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(size * 16);
+            for (int i = 0; i < size; i++) {
+                buffer.putLong(msb[slot(i)]).putLong(lsb[slot(i)]);
+            }
+            return buffer.array();
+        }
+
+        private int indexOf(long hi, long lo) {
+            for (int i = 0; i < size; i++) {
+                int s = slot(i);
+                if (msb[s] == hi && lsb[s] == lo) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Ô vật lý của vị trí logic i (0 = mới nhất)
+        private int slot(int i) {
+            return Math.floorMod(head - 1 - i, msb.length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.repository.SchedulerLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Điều phối job định kỳ giữa nhiều node qua bảng scheduler_leases: tại một thời điểm chỉ một node giữ lease của một job.
+ * Mỗi thao tác chạy trong transaction RIÊNG và commit ngay, để node khác thấy lease mà không phải chờ job chạy xong.
+ */
+@Service
+@Slf4j
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final TransactionTemplate requiresNewTx;
+    private final String owner;
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.requiresNewTx = new TransactionTemplate(transactionManager);
+        this.requiresNewTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.owner = resolveHostName() + "/" + UUID.randomUUID(); // Duy nhất cho mỗi lần khởi động
+    }
+
+    /**
+     * Giành hoặc gia hạn lease của job trong khoảng ttl.
+     * @return true nếu node này đang giữ lease.
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        Instant now = Instant.now();
+        Integer updated = requiresNewTx.execute(status ->
+                schedulerLeaseRepository.tryAcquire(name, owner, now, now.plus(ttl)));
+        if (updated != null && updated > 0) {
+            return true;
+        }
+        // Node khác đang giữ lease còn hạn, hoặc dòng lease chưa tồn tại (lần chạy đầu tiên) -> tạo mới
+        try {
+            Boolean created = requiresNewTx.execute(status -> !schedulerLeaseRepository.existsById(name)
+                    && schedulerLeaseRepository.insert(name, owner, now.plus(ttl)) > 0);
+            return Boolean.TRUE.equals(created);
+        } catch (DataIntegrityViolationException e) {
+            return false; // Node khác vừa tạo dòng lease trước
+        }
+    }
+
+    /**
+     * Trả lease sớm để lượt sau (có thể trên node khác) không phải chờ hết hạn.
+     */
+    public void release(String name) {
+        requiresNewTx.executeWithoutResult(status -> schedulerLeaseRepository.release(name, owner, Instant.now()));
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+}
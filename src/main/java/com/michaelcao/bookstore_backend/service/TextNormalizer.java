@@ -0,0 +1,40 @@
+package com.michaelcao.bookstore_backend.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi cho các index tìm kiếm trong bộ nhớ (facet, gợi ý).
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Chữ thường, bỏ dấu (NFD rồi bỏ combining mark), gần với so sánh của collation utf8mb4_0900_ai_ci.
+     * Chuỗi ASCII chỉ lowercase.
+     */
+    public static String fold(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) {
+                return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Khóa tìm kiếm: fold, "đ" thành "d" (người dùng thường gõ không dấu), các ký tự không phải chữ/số thành
+     * MỘT dấu cách. Ví dụ "Đắc Nhân Tâm - Dale Carnegie" -> "dac nhan tam dale carnegie".
+     */
+    public static String searchKey(String value) {
+        String folded = fold(value).replace('đ', 'd');
+        return NON_ALPHANUMERIC.matcher(folded).replaceAll(" ").trim();
+    }
+}
@@ -1,5 +1,6 @@
 package com.michaelcao.bookstore_backend.service;
 
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
 import com.michaelcao.bookstore_backend.dto.user.ChangePasswordRequest; // Sẽ tạo DTO này
 import com.michaelcao.bookstore_backend.dto.user.UserProfileDTO;      // Sẽ tạo DTO này
 import com.michaelcao.bookstore_backend.dto.user.UpdateProfileRequest; // Uncomment this
@@ -8,6 +9,9 @@ import com.michaelcao.bookstore_backend.dto.user.UpdateUserStatusRequest; // Imp
 import com.michaelcao.bookstore_backend.dto.user.UpdateAvatarRequest; // Import DTO mới
 import org.springframework.data.domain.Page; // Import Page
 import org.springframework.data.domain.Pageable; // Import Pageable
+
+import java.util.List;
+
 public interface UserService {
 
     /**
@@ -44,6 +48,13 @@ public interface UserService {
      */
     UserProfileDTO updateProfile(Long userId, UpdateProfileRequest request);
 
+    /**
+     * Lấy các sản phẩm người dùng đã xem gần đây (mới nhất trước), thông tin sản phẩm lấy trong MỘT query.
+     * @param userId ID của người dùng đang đăng nhập.
+     * @return Danh sách ProductSummaryDTO (sản phẩm đã bị xóa không xuất hiện).
+     */
+    List<ProductSummaryDTO> getRecentlyViewedProducts(Long userId);
+
     // --- Admin Methods ---
 
     /**
@@ -0,0 +1,121 @@
+package com.michaelcao.bookstore_backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Giữ một snapshot bất biến dựng từ DB, gắn với version của dữ liệu nguồn. Dùng chung cho các index trong bộ nhớ
+ * (facet, trigram, BM25).
+ *
+ * - get() không đọc DB trên thread gọi: trả snapshot hiện có (có thể cũ hơn version hiện tại) và, nếu version đã đổi
+ *   và đã qua min-rebuild-interval kể từ lần dựng trước, xếp MỘT lần dựng lại trên thread nền riêng (single-flight).
+ * - Dựng lại lỗi: giữ snapshot cũ, thử lại sau min-rebuild-interval.
+ * - Chưa có snapshot nào (vừa khởi động, hoặc lần dựng đầu lỗi): get() trả null, nơi gọi tự phục vụ tạm bằng cách khác.
+ */
+@Slf4j
+final class VersionedSnapshotHolder<T> {
+
+    private final String name;
+    private final LongSupplier versionSupplier;
+    private final LongFunction<T> loader; // version -> snapshot; chạy trên thread nền, tự mở transaction
+    private final long minRebuildIntervalNanos;
+    private final ExecutorService executor;
+
+    private final AtomicReference<Versioned<T>> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+    private volatile long nextRebuildNanos = System.nanoTime();
+
+    VersionedSnapshotHolder(String name, LongSupplier versionSupplier, LongFunction<T> loader, long minRebuildIntervalMillis) {
+        this.name = name;
+        this.versionSupplier = versionSupplier;
+        this.loader = loader;
+        this.minRebuildIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minRebuildIntervalMillis));
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Snapshot hiện tại (có thể cũ), hoặc null nếu chưa dựng xong lần nào. Kích hoạt dựng lại nền khi cần.
+     */
+    T get() {
+        Versioned<T> current = snapshot.get();
+        if ((current == null || current.version != versionSupplier.getAsLong())
+                && System.nanoTime() - nextRebuildNanos >= 0) {
+            refreshAsync();
+        }
+        return current != null ? current.value : null;
+    }
+
+    /**
+     * Snapshot hiện tại mà không kích hoạt dựng lại (cho metric).
+     */
+    T peek() {
+        Versioned<T> current = snapshot.get();
+        return current != null ? current.value : null;
+    }
+
+    /**
+     * Snapshot hiện có đã dựng từ version >= version cho trước? Dùng trước khi gắn ETag cho nội dung lấy từ snapshot.
+     */
+    boolean isFresh(long version) {
+        Versioned<T> current = snapshot.get();
+        return current != null && current.version >= version;
+    }
+
+    /**
+     * Xếp một lần dựng lại (bỏ qua min-rebuild-interval). Đang có lần dựng chạy thì trả về chính lần đó.
+     */
+    CompletableFuture<T> refreshAsync() {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.compareAndExchange(null, mine);
+        if (existing != null) {
+            return existing;
+        }
+        nextRebuildNanos = System.nanoTime() + minRebuildIntervalNanos;
+        try {
+            executor.execute(() -> rebuild(mine));
+        } catch (RejectedExecutionException e) {
+            inFlight.set(null); // Đang shutdown
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void rebuild(CompletableFuture<T> result) {
+        T loaded = null;
+        RuntimeException failure = null;
+        try {
+            long targetVersion = versionSupplier.getAsLong(); // Lấy version TRƯỚC khi đọc DB
+            loaded = loader.apply(targetVersion);
+            snapshot.set(new Versioned<>(targetVersion, loaded));
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding {} failed, keeping the previous snapshot: {}", name, e.getMessage());
+            failure = e;
+        }
+        nextRebuildNanos = System.nanoTime() + minRebuildIntervalNanos; // Tính từ lúc dựng xong (hoặc lỗi)
+        inFlight.set(null); // Trước khi báo xong: người chờ gọi refreshAsync() tiếp sẽ được một lần dựng mới
+        if (failure != null) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(loaded);
+        }
+    }
+
+    private record Versioned<T>(long version, T value) {
+    }
+}
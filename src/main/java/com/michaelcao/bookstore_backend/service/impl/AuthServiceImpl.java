@@ -7,6 +7,7 @@ import com.michaelcao.bookstore_backend.entity.Role;
 import com.michaelcao.bookstore_backend.entity.User;
 import com.michaelcao.bookstore_backend.entity.VerificationToken;
 import com.michaelcao.bookstore_backend.entity.PasswordResetToken;
+import com.michaelcao.bookstore_backend.event.UserRegisteredEvent;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
 import com.michaelcao.bookstore_backend.repository.RoleRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
@@ -14,6 +15,7 @@ import com.michaelcao.bookstore_backend.repository.VerificationTokenRepository;
 import com.michaelcao.bookstore_backend.repository.PasswordResetTokenRepository;
 import com.michaelcao.bookstore_backend.security.jwt.JwtUtil;
 import com.michaelcao.bookstore_backend.service.AuthService;
+import com.michaelcao.bookstore_backend.service.DomainEventPublisher;
 import com.michaelcao.bookstore_backend.service.EmailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -46,6 +48,7 @@ public class AuthServiceImpl implements AuthService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final EmailService emailService;
+    private final DomainEventPublisher domainEventPublisher;
     
     @Value("${app.frontend-url}")
     private String frontendUrl;
@@ -83,9 +86,8 @@ public class AuthServiceImpl implements AuthService {
         VerificationToken verificationToken = new VerificationToken(token, savedUser);
         tokenRepository.save(verificationToken);
         
-        // Send verification email
-        String verificationUrl = frontendUrl + "/verify-email?token=" + token;
-        emailService.sendVerificationEmail(savedUser.getEmail(), savedUser.getName(), verificationUrl);
+        // Verification email is sent by UserNotificationEventListener after commit (via the outbox)
+        domainEventPublisher.publish(new UserRegisteredEvent(savedUser.getId(), savedUser.getEmail(), savedUser.getName()));
         
         // Return auth response (user will still need to verify email)
         return AuthResponse.builder()
@@ -14,7 +14,9 @@ import com.michaelcao.bookstore_backend.repository.CartItemRepository;
 import com.michaelcao.bookstore_backend.repository.CartRepository;
 import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
 import com.michaelcao.bookstore_backend.service.CartService;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -31,16 +33,22 @@ public class CartServiceImpl implements CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final BusinessMetrics businessMetrics;
+    private final ProductTrendingIndex productTrendingIndex;
 
     @Autowired
     public CartServiceImpl(CartRepository cartRepository, 
                          CartItemRepository cartItemRepository,
                          ProductRepository productRepository,
-                         UserRepository userRepository) {
+                         UserRepository userRepository,
+                         BusinessMetrics businessMetrics,
+                         ProductTrendingIndex productTrendingIndex) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.businessMetrics = businessMetrics;
+        this.productTrendingIndex = productTrendingIndex;
     }
 
     // --- Helper Method: Lấy hoặc tạo Cart cho User ---
@@ -56,8 +64,8 @@ public class CartServiceImpl implements CartService {
                 });
     }
 
-    // --- Helper Method: Map Cart Entity sang CartDTO và tính toán ---
-    private CartDTO mapCartToCartDTO(Cart cart) {
+    // --- Helper Method: Map Cart Entity sang CartDTO và tính toán (package-private cho benchmark) ---
+    CartDTO mapCartToCartDTO(Cart cart) {
         CartDTO cartDTO = new CartDTO(cart.getId());
         BigDecimal totalPrice = BigDecimal.ZERO;
         int totalItemsCount = 0;
@@ -108,6 +116,10 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional // Thao tác ghi vào DB
     public CartDTO addProductToCart(Long userId, AddToCartRequest request) {
+        return businessMetrics.recordCartMutation("add", () -> doAddProductToCart(userId, request));
+    }
+
+    private CartDTO doAddProductToCart(Long userId, AddToCartRequest request) {
         log.debug("Adding product ID {} with quantity {} to cart for user ID {}",
                 request.getProductId(), request.getQuantity(), userId);
 
@@ -151,6 +163,7 @@ public class CartServiceImpl implements CartService {
 
         // Lưu lại Cart (sẽ tự động cascade đến CartItem nhờ CascadeType.ALL)
         Cart updatedCart = cartRepository.save(cart);
+        productTrendingIndex.record(product.getId(), ProductTrendingIndex.Signal.CART); // Ghi nhận sau commit
         // Tải lại với JOIN FETCH để lấy DTO chính xác
         return getCartByUserId(userId); // Gọi lại hàm này để đảm bảo DTO được tính toán đúng
     }
@@ -158,6 +171,10 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartDTO updateCartItemQuantity(Long userId, Long cartItemId, UpdateCartItemRequest request) {
+        return businessMetrics.recordCartMutation("update", () -> doUpdateCartItemQuantity(userId, cartItemId, request));
+    }
+
+    private CartDTO doUpdateCartItemQuantity(Long userId, Long cartItemId, UpdateCartItemRequest request) {
         log.debug("Updating quantity for cart item ID {} to {} for user ID {}",
                 cartItemId, request.getQuantity(), userId);
 
@@ -199,6 +216,10 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartDTO removeCartItem(Long userId, Long cartItemId) {
+        return businessMetrics.recordCartMutation("remove", () -> doRemoveCartItem(userId, cartItemId));
+    }
+
+    private CartDTO doRemoveCartItem(Long userId, Long cartItemId) {
         log.debug("Removing cart item ID {} for user ID {}", cartItemId, userId);
 
         Cart cart = getOrCreateCart(userId);
@@ -230,6 +251,13 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public void clearCart(Long userId) {
+        businessMetrics.recordCartMutation("clear", () -> {
+            doClearCart(userId);
+            return null;
+        });
+    }
+
+    private void doClearCart(Long userId) {
         log.debug("Clearing cart for user ID: {}", userId);
         Cart cart = getOrCreateCart(userId);
 
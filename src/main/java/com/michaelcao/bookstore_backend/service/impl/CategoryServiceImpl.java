@@ -8,15 +8,16 @@ import com.michaelcao.bookstore_backend.exception.DuplicateResourceException; //
 import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException; // *** TẠO EXCEPTION NÀY ***
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
 import com.michaelcao.bookstore_backend.repository.CategoryRepository;
-import com.michaelcao.bookstore_backend.repository.ProductRepository; // Inject để kiểm tra product trước khi xóa category
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
 import com.michaelcao.bookstore_backend.service.CategoryService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService.CategorySnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Quan trọng cho update/delete
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor // Lombok: Tạo constructor cho các field final
@@ -24,7 +25,8 @@ import java.util.stream.Collectors;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
-    private final ProductRepository productRepository; // Inject ProductRepository
+    private final CatalogVersionService catalogVersionService; // Tăng version để ETag danh sách hết hiệu lực
+    private final CategorySnapshotService categorySnapshotService; // Snapshot danh mục trong bộ nhớ
 
     // --- Helper method for mapping ---
     private CategoryDTO mapToCategoryDTO(Category category) {
@@ -50,6 +52,8 @@ public class CategoryServiceImpl implements CategoryService {
         category.setDescription(request.getDescription());
 
         Category savedCategory = categoryRepository.save(category);
+        catalogVersionService.markCategoriesChanged();
+        categorySnapshotService.invalidate();
         log.info("Category created successfully with ID: {}", savedCategory.getId());
         return mapToCategoryDTO(savedCategory);
     }
@@ -58,23 +62,21 @@ public class CategoryServiceImpl implements CategoryService {
     @Transactional(readOnly = true) // Chỉ đọc dữ liệu
     public CategoryDTO getCategoryById(Long id) {
         log.debug("Fetching category with ID: {}", id);
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Category not found with ID: {}", id);
-                    return new ResourceNotFoundException("Category", "ID", id);
-                });
-        return mapToCategoryDTO(category);
+        // Đọc từ snapshot trong bộ nhớ, không query DB
+        CategoryDTO category = categorySnapshotService.current().get(id);
+        if (category == null) {
+            log.warn("Category not found with ID: {}", id);
+            throw new ResourceNotFoundException("Category", "ID", id);
+        }
+        return category;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CategoryDTO> getAllCategories() {
         log.debug("Fetching all categories");
-        List<Category> categories = categoryRepository.findAll();
-        // Sử dụng Stream API để map danh sách Entity sang DTO
-        return categories.stream()
-                .map(this::mapToCategoryDTO) // Tham chiếu đến phương thức mapToCategoryDTO
-                .collect(Collectors.toList());
+        // Snapshot đã chứa sẵn danh sách DTO (kèm productCount), chỉ refresh khi có thay đổi
+        return categorySnapshotService.current().getAll();
     }
 
     @Override
@@ -100,6 +102,8 @@ public class CategoryServiceImpl implements CategoryService {
         category.setDescription(request.getDescription());
 
         Category updatedCategory = categoryRepository.save(category);
+        catalogVersionService.markCategoriesChanged();
+        categorySnapshotService.invalidate();
         log.info("Category updated successfully with ID: {}", updatedCategory.getId());
         return mapToCategoryDTO(updatedCategory);
     }
@@ -115,14 +119,21 @@ public class CategoryServiceImpl implements CategoryService {
                 });
 
         // Kiểm tra xem có sản phẩm nào thuộc danh mục này không
-        // Dùng count query để hiệu quả hơn là lấy cả danh sách
-        long productCount = productRepository.countByCategoryId(id); // *** CẦN THÊM METHOD NÀY VÀO ProductRepository ***
+        // Cả danh mục chính (products.categoryId) lẫn bảng join product_categories. Snapshot chỉ dùng để từ chối sớm:
+        // nó có thể cũ (sản phẩm vừa được gán vào danh mục), nên số 0 luôn được xác nhận lại bằng một COUNT trong DB
+        CategorySnapshot snapshot = categorySnapshotService.current();
+        long productCount = snapshot.getPrimaryProductCount(id) + snapshot.getProductCount(id);
+        if (productCount == 0) {
+            productCount = categoryRepository.countProductsByCategoryId(id);
+        }
         if (productCount > 0) {
             log.warn("Category deletion failed: Category ID {} still contains {} products.", id, productCount);
             throw new OperationNotAllowedException("Cannot delete category: It contains existing products. Please move or delete products first.");
         }
 
         categoryRepository.delete(category);
+        catalogVersionService.markCategoriesChanged();
+        categorySnapshotService.invalidate();
         log.info("Category deleted successfully with ID: {}", id);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.michaelcao.bookstore_backend.repository.OrderRepository;
 import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
 import com.michaelcao.bookstore_backend.service.DashboardService;
+import com.michaelcao.bookstore_backend.service.OrderArchiveService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -24,6 +25,7 @@ public class DashboardServiceImpl implements DashboardService {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final OrderArchiveService orderArchiveService; // Số liệu của đơn hàng đã lưu trữ (được cache)
 
     @Override
     @Transactional(readOnly = true)
@@ -35,16 +37,16 @@ public class DashboardServiceImpl implements DashboardService {
             long totalProducts = productRepository.count();
             
             // Count total orders
-            long totalOrders = orderRepository.count();
+            long totalOrders = orderRepository.count() + orderArchiveService.getArchivedOrderCount();
             
             // Count total users
             long totalUsers = userRepository.count();
             
             // Get total revenue - using a simple count for now
             // In a real app, you might want to sum completed orders only
-            BigDecimal totalRevenue = orderRepository.getTotalRevenue() != null 
-                ? orderRepository.getTotalRevenue() 
-                : BigDecimal.ZERO;
+            BigDecimal hotRevenue = orderRepository.getTotalRevenue();
+            BigDecimal totalRevenue = (hotRevenue != null ? hotRevenue : BigDecimal.ZERO)
+                .add(orderArchiveService.getArchivedRevenue());
             
             return DashboardStatsDTO.builder()
                     .totalProducts(totalProducts)
@@ -0,0 +1,123 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.michaelcao.bookstore_backend.dto.order.OrderExportFormat;
+import com.michaelcao.bookstore_backend.dto.order.OrderExportRow;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.repository.OrderExportRepository;
+import com.michaelcao.bookstore_backend.repository.OrderExportRepository.OrderItemLine;
+import com.michaelcao.bookstore_backend.service.OrderExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private final OrderExportRepository orderExportRepository;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final int pageSize;
+
+    public OrderExportServiceImpl(OrderExportRepository orderExportRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.export.chunk-size:500}") int pageSize) {
+        this.orderExportRepository = orderExportRepository;
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, pageSize);
+
+        this.csvMapper = new CsvMapper();
+        this.csvMapper.registerModule(new JavaTimeModule());
+        this.csvMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    // Không dùng transaction: mỗi trang là một query độc lập, không giữ connection trong suốt quá trình ghi response
+    @Override
+    public long exportOrders(Instant from, Instant to, Collection<OrderStatus> statuses,
+                             OrderExportFormat format, OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        long written = 0;
+        try (SequenceWriter writer = openWriter(format, out)) {
+            // Tầng lưu trữ (đơn cũ) trước, sau đó tới bảng orders hiện hành
+            written += exportTier(from, to, statuses, true, writer, out);
+            written += exportTier(from, to, statuses, false, writer, out);
+        }
+        log.info("Exported {} orders as {} in {} ms", written, format, (System.nanoTime() - startNanos) / 1_000_000);
+        return written;
+    }
+
+    private long exportTier(Instant from, Instant to, Collection<OrderStatus> statuses, boolean archived,
+                            SequenceWriter writer, OutputStream out) throws IOException {
+        long written = 0;
+        Instant afterDate = null;
+        UUID afterId = null;
+        while (true) {
+            List<OrderExportRow> orders = orderExportRepository.findOrderPage(
+                    from, to, statuses, afterDate, afterId, pageSize, archived);
+            if (orders.isEmpty()) {
+                break;
+            }
+            Map<UUID, List<OrderItemLine>> items = orderExportRepository.findItemsByOrderIds(
+                    orders.stream().map(OrderExportRow::getOrderId).toList(), archived);
+            for (OrderExportRow order : orders) {
+                writeOrder(writer, order, items.getOrDefault(order.getOrderId(), Collections.emptyList()));
+            }
+            writer.flush();
+            out.flush(); // Đẩy từng trang tới client, tránh timeout phía client/proxy
+
+            written += orders.size();
+            OrderExportRow last = orders.get(orders.size() - 1);
+            afterDate = last.getOrderDate();
+            afterId = last.getOrderId();
+            if (orders.size() < pageSize) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    private void writeOrder(SequenceWriter writer, OrderExportRow order, List<OrderItemLine> items) throws IOException {
+        if (items.isEmpty()) {
+            writer.write(order);
+            return;
+        }
+        for (OrderItemLine item : items) {
+            writer.write(order.toBuilder()
+                    .productId(item.getProductId())
+                    .productTitle(item.getProductTitle())
+                    .productIsbn(item.getProductIsbn())
+                    .quantity(item.getQuantity())
+                    .priceAtPurchase(item.getPriceAtPurchase())
+                    .lineTotal(item.getPriceAtPurchase() != null
+                            ? item.getPriceAtPurchase().multiply(BigDecimal.valueOf(item.getQuantity())) : null)
+                    .build());
+        }
+    }
+
+    private SequenceWriter openWriter(OrderExportFormat format, OutputStream out) throws IOException {
+        if (format == OrderExportFormat.CSV) {
+            CsvSchema schema = csvMapper.schemaFor(OrderExportRow.class).withHeader();
+            return csvMapper.writer(schema).writeValues(out);
+        }
+        return objectMapper.writerFor(OrderExportRow.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .withRootValueSeparator("\n")
+                .writeValues(out);
+    }
+}
@@ -1,23 +1,40 @@
 package com.michaelcao.bookstore_backend.service.impl;
 
+import com.michaelcao.bookstore_backend.dto.order.BulkOrderStatusResultDTO;
+import com.michaelcao.bookstore_backend.dto.order.BulkUpdateOrderStatusRequest;
 import com.michaelcao.bookstore_backend.dto.order.CreateOrderRequest;
+import com.michaelcao.bookstore_backend.dto.order.OrderCursorPageDTO;
 import com.michaelcao.bookstore_backend.dto.order.OrderDTO;
 import com.michaelcao.bookstore_backend.dto.order.OrderItemDTO;
 import com.michaelcao.bookstore_backend.dto.order.UpdateOrderStatusRequest;
 import com.michaelcao.bookstore_backend.entity.*; // Import các entity cần thiết (Order, OrderItem, User, Cart, CartItem, Product, Address, OrderStatus, PaymentMethod)
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusBatchChangedEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusChangedEvent;
 import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
 import com.michaelcao.bookstore_backend.repository.*; // Import các repository (Order, OrderItem, User, Cart, CartItem, Product)
-import com.michaelcao.bookstore_backend.service.CartService; // Import CartService để xóa giỏ hàng
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.DomainEventPublisher;
 import com.michaelcao.bookstore_backend.service.OrderService;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // QUAN TRỌNG cho createOrder
 import com.michaelcao.bookstore_backend.entity.OrderStatus; // Import Enum
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet; // Import HashSet
 import java.util.Set;     // Import Set
 import java.util.stream.Collectors;
@@ -36,8 +53,12 @@ public class OrderServiceImpl implements OrderService {
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
-    private final CartService cartService;
     private final CartItemRepository cartItemRepository;
+    private final DomainEventPublisher domainEventPublisher; // Side effect (xóa giỏ, cache...) chạy qua outbox sau commit
+    private final ArchivedOrderRepository archivedOrderRepository; // Tầng lưu trữ (đơn hàng cũ đã kết thúc)
+    private final OrderExpiryRepository orderExpiryRepository; // Hoàn kho set-based khi hủy đơn
+    private final BusinessMetrics businessMetrics;
+    private final CatalogVersionService catalogVersionService; // Tồn kho nằm trong ProductDTO -> tăng version cùng transaction
     // --- Helper method: Map Order entity sang OrderDTO ---
 // Đảm bảo hàm này xử lý trường hợp user/items có thể được fetch sẵn
     private OrderDTO mapToOrderDTO(Order order) {
@@ -77,6 +98,27 @@ public class OrderServiceImpl implements OrderService {
         return dto;
     }
 
+    // --- Helper method: Dựng Order tạm (KHÔNG persist) từ bản lưu trữ để dùng chung mapToOrderDTO ---
+    private Order toOrderView(ArchivedOrder archived) {
+        Order order = new Order();
+        order.setId(archived.getId());
+        order.setUser(archived.getUser());
+        order.setOrderDate(archived.getOrderDate());
+        order.setTotalAmount(archived.getTotalAmount());
+        order.setStatus(archived.getStatus());
+        order.setPaymentMethod(archived.getPaymentMethod());
+        order.setShippingAddress(archived.getShippingAddress());
+        order.setNotes(archived.getNotes());
+        Set<OrderItem> items = new HashSet<>();
+        for (ArchivedOrderItem archivedItem : archived.getOrderItems()) {
+            OrderItem item = new OrderItem(order, archivedItem.getProduct(), archivedItem.getQuantity(), archivedItem.getPriceAtPurchase());
+            item.setId(archivedItem.getId());
+            items.add(item);
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+
     // --- Helper method: Map OrderItem entity sang OrderItemDTO ---
     // Đảm bảo hàm này xử lý product đã được fetch sẵn
     private OrderItemDTO mapToOrderItemDTO(OrderItem item) {
@@ -99,9 +141,15 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional // *** Rất quan trọng: Đảm bảo tất cả thao tác (check, save, update, delete) thành công hoặc rollback ***
     public OrderDTO createOrder(Long userId, CreateOrderRequest request) {
+        return businessMetrics.recordOrderCreate(() -> placeOrder(userId, request));
+    }
+
+    // Thân của createOrder (chạy trong transaction của createOrder), đo thời gian từng pha
+    private OrderDTO placeOrder(Long userId, CreateOrderRequest request) {
         log.info("Attempting to create order for user ID: {}", userId);
 
         // 1. Lấy thông tin User và Cart (dùng JOIN FETCH để lấy cả CartItems và Product)
+        Timer.Sample phase = businessMetrics.startTimer();
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "ID", userId));
         Cart cart = cartRepository.findByUser_IdWithItemsAndProducts(userId)
@@ -110,6 +158,7 @@ public class OrderServiceImpl implements OrderService {
         if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
             throw new OperationNotAllowedException("Cannot create order: Cart is empty.");
         }
+        businessMetrics.recordOrderPhase(phase, BusinessMetrics.OrderPhase.CART_LOAD);
 
         // 2. Tạo đối tượng Order mới
         Order order = new Order();
@@ -131,6 +180,7 @@ public class OrderServiceImpl implements OrderService {
         order.setShippingAddress(shippingAddress);
 
         // 4. Xử lý OrderItems và kiểm tra tồn kho LẦN CUỐI
+        phase = businessMetrics.startTimer();
         Set<OrderItem> orderItems = new HashSet<>();
         BigDecimal calculatedTotalAmount = BigDecimal.ZERO;
 
@@ -172,6 +222,8 @@ public class OrderServiceImpl implements OrderService {
             );
         }
 
+        businessMetrics.recordOrderPhase(phase, BusinessMetrics.OrderPhase.STOCK_CHECK);
+
         // 5. Set tổng tiền và OrderItems vào Order
         order.setTotalAmount(calculatedTotalAmount);
         order.setOrderItems(orderItems); // Set này sẽ tự động cascade lưu OrderItems khi lưu Order
@@ -187,18 +239,35 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // 7. Lưu Order (sẽ cascade lưu OrderItems và cập nhật Product stock)
-        Order savedOrder = orderRepository.save(order);
+        //    Flush ngay để pha "insert" chứa INSERT orders/order_items + UPDATE tồn kho (nếu không sẽ dồn về lúc commit)
+        phase = businessMetrics.startTimer();
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        businessMetrics.recordOrderPhase(phase, BusinessMetrics.OrderPhase.INSERT);
         log.info("Order created successfully with ID: {}", savedOrder.getId());
 
-        // 8. Nếu là COD (hoặc thanh toán thành công ngay), xóa giỏ hàng
+        // 8. Nếu là COD (hoặc thanh toán thành công ngay), xóa các item đã đặt khỏi giỏ TRONG transaction này;
+        //    đơn chờ thanh toán thì giữ nguyên giỏ. Checkout song song cùng giỏ: transaction sau chờ khóa dòng rồi
+        //    xóa được 0 dòng -> rollback, không tạo đơn thứ hai (và không trừ kho hai lần).
         if (savedOrder.getStatus() != OrderStatus.PENDING_PAYMENT && savedOrder.getStatus() != OrderStatus.PAYMENT_FAILED) {
-            // Chỉ xóa giỏ hàng khi đơn hàng không còn ở trạng thái chờ thanh toán
-            cartService.clearCart(userId);
-            log.info("Cart cleared for user ID: {}", userId);
+            phase = businessMetrics.startTimer();
+            List<Long> orderedCartItemIds = cart.getCartItems().stream().map(CartItem::getId).collect(Collectors.toList());
+            int removed = cartItemRepository.deleteByIdInAndCartId(orderedCartItemIds, cart.getId());
+            if (removed != orderedCartItemIds.size()) {
+                log.warn("Order creation for user ID {} aborted: cart changed concurrently ({} of {} items removed)",
+                        userId, removed, orderedCartItemIds.size());
+                throw new OperationNotAllowedException("Cannot create order: Cart was modified or already checked out. Please review your cart.");
+            }
+            businessMetrics.recordOrderPhase(phase, BusinessMetrics.OrderPhase.CART_CLEAR);
         }
 
+        // 9. Tồn kho đã bị trừ: tăng version catalog cùng transaction; ghi event OrderPlaced vào outbox (subscriber: mô hình gợi ý)
+        catalogVersionService.markProductsChanged();
+        domainEventPublisher.publish(new OrderPlacedEvent(
+                savedOrder.getId(), userId, savedOrder.getStatus(), savedOrder.getOrderDate(), savedOrder.getTotalAmount(),
+                orderItems.stream().map(item -> item.getProduct().getId()).collect(Collectors.toList())));
 
-        // 9. Map sang DTO để trả về - *** KHÔNG CẦN QUERY LẠI ***
+
+        // 10. Map sang DTO để trả về - *** KHÔNG CẦN QUERY LẠI ***
         // Map trực tiếp từ savedOrder (đã có user và items được gán)
         // Cần đảm bảo Product trong items cũng được load nếu mapToOrderItemDTO cần
         // (Trong trường hợp này, Product được lấy từ CartItem đã fetch sẵn nên OK)
@@ -210,8 +279,14 @@ public class OrderServiceImpl implements OrderService {
     public Page<OrderDTO> getOrdersByUserId(Long userId, Pageable pageable) {
         log.debug("Fetching orders for user ID: {} with pagination: {}", userId, pageable);
 
-        // 1. Query 1: Lấy Page<Order> với User đã fetch
-        Page<Order> orderPage = orderRepository.findByUserIdWithUserOrderByOrderDateDesc(userId, pageable);
+        long archivedCount = archivedOrderRepository.countByUserId(userId);
+        if (archivedCount > 0) {
+            return getOrdersByUserIdAcrossTiers(userId, pageable, archivedCount);
+        }
+
+        // 1. Query 1: Lấy Page<Order> (không JOIN FETCH user: mọi đơn đều của cùng một user,
+        //    proxy User chỉ được load một lần khi map DTO thay vì lặp lại cột user trên mỗi dòng)
+        Page<Order> orderPage = orderRepository.findByUserIdOrderByOrderDateDesc(userId, pageable);
         List<Order> ordersOnPage = orderPage.getContent();
 
         // 2. Nếu có orders trên trang này, thực hiện Query 2
@@ -245,12 +320,186 @@ public class OrderServiceImpl implements OrderService {
         return orderPage.map(this::mapToOrderDTO);
     }
 
+    // Trộn hai tầng cho phân trang offset: lấy top (offset + size) của mỗi tầng rồi cắt đúng trang.
+    // Chi phí tăng theo offset giống như OFFSET trong SQL; trang sâu nên dùng getOrderHistory (cursor).
+    private Page<OrderDTO> getOrdersByUserIdAcrossTiers(Long userId, Pageable pageable, long archivedCount) {
+        int window = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+        Pageable top = PageRequest.of(0, window);
+        Page<Order> hotPage = orderRepository.findByUserIdOrderByOrderDateDesc(userId, top);
+        List<ArchivedOrder> archived = archivedOrderRepository.findFirstPageByUserId(userId, top);
+
+        List<Order> merged = mergeTiers(hotPage.getContent(), archived, window);
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        List<Order> pageOrders = merged.subList(from, merged.size());
+        attachItemsAcrossTiers(pageOrders, archived);
+        List<OrderDTO> content = pageOrders.stream().map(this::mapToOrderDTO).collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, hotPage.getTotalElements() + archivedCount);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderCursorPageDTO getOrderHistory(Long userId, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        log.debug("Fetching order history for user ID: {} (cursor: {}, size: {})", userId, cursor, pageSize);
+        Pageable limit = PageRequest.of(0, pageSize + 1); // Lấy dư 1 dòng để biết còn trang sau hay không
+        OrderCursor position = decodeCursor(cursor);
+        // Cùng predicate keyset trên cả hai tầng, mỗi tầng là một index seek, rồi trộn theo (orderDate DESC, id ASC)
+        List<Order> hot = position == null
+                ? orderRepository.findFirstPageByUserId(userId, limit)
+                : orderRepository.findPageByUserIdAfter(userId, position.orderDate(), position.orderId(), limit);
+        List<ArchivedOrder> archived = position == null
+                ? archivedOrderRepository.findFirstPageByUserId(userId, limit)
+                : archivedOrderRepository.findPageByUserIdAfter(userId, position.orderDate(), position.orderId(), limit);
+        if (archived.isEmpty()) {
+            return toCursorPage(hot, pageSize);
+        }
+        List<Order> merged = mergeTiers(hot, archived, pageSize + 1);
+        boolean hasNext = merged.size() > pageSize;
+        List<Order> pageOrders = hasNext ? merged.subList(0, pageSize) : merged;
+        attachItemsAcrossTiers(pageOrders, archived);
+        String nextCursor = null;
+        if (hasNext) {
+            Order last = pageOrders.get(pageOrders.size() - 1);
+            nextCursor = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        List<OrderDTO> content = pageOrders.stream().map(this::mapToOrderDTO).collect(Collectors.toList());
+        return new OrderCursorPageDTO(content, nextCursor, hasNext, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasPurchasedProduct(Long userId, UUID productId) {
+        // Tầng nóng trước (thường là nơi có đơn mới), sau đó mới tới tầng lưu trữ
+        return orderRepository.existsByUserIdAndItemsProductIdAndStatusDelivered(userId, productId, OrderStatus.DELIVERED)
+                || archivedOrderRepository.existsByUserIdAndItemsProductIdAndStatus(userId, productId, OrderStatus.DELIVERED);
+    }
+
+    // --- Helper cho đọc hai tầng (orders + orders_archive) ---
+
+    // Thứ tự giống SQL: orderDate DESC, rồi id ASC theo so sánh byte không dấu của BINARY(16)
+    private static final Comparator<Order> HISTORY_ORDER = Comparator
+            .comparing(Order::getOrderDate, Comparator.reverseOrder())
+            .thenComparing(Order::getId, (a, b) -> {
+                int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
+    private List<Order> mergeTiers(List<Order> hot, List<ArchivedOrder> archived, int limit) {
+        List<Order> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        archived.forEach(a -> merged.add(toOrderView(a)));
+        merged.sort(HISTORY_ORDER);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    // Gắn items cho các đơn trên trang: đơn nóng qua OrderItemRepository, đơn lưu trữ qua ArchivedOrderRepository
+    private void attachItemsAcrossTiers(List<Order> pageOrders, List<ArchivedOrder> archivedCandidates) {
+        Map<UUID, ArchivedOrder> archivedById = archivedCandidates.stream()
+                .collect(Collectors.toMap(ArchivedOrder::getId, a -> a));
+        List<Order> hotOrders = new ArrayList<>();
+        List<UUID> archivedIds = new ArrayList<>();
+        for (Order order : pageOrders) {
+            if (archivedById.containsKey(order.getId())) {
+                archivedIds.add(order.getId());
+            } else {
+                hotOrders.add(order);
+            }
+        }
+        attachOrderItems(hotOrders);
+        if (!archivedIds.isEmpty()) {
+            Map<UUID, ArchivedOrder> loaded = archivedOrderRepository.findAllByIdInWithItems(archivedIds).stream()
+                    .collect(Collectors.toMap(ArchivedOrder::getId, a -> a));
+            for (Order order : pageOrders) {
+                ArchivedOrder withItems = loaded.get(order.getId());
+                if (withItems != null) {
+                    order.setOrderItems(toOrderView(withItems).getOrderItems());
+                }
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderCursorPageDTO getAllOrdersByCursor(OrderStatus status, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        log.debug("Admin request: Fetching orders by cursor (status: {}, cursor: {}, size: {})", status, cursor, pageSize);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        OrderCursor position = decodeCursor(cursor);
+        List<Order> orders;
+        if (status == null) {
+            orders = position == null
+                    ? orderRepository.findFirstPageWithUser(limit)
+                    : orderRepository.findPageWithUserAfter(position.orderDate(), position.orderId(), limit);
+        } else {
+            orders = position == null
+                    ? orderRepository.findFirstPageByStatusWithUser(status, limit)
+                    : orderRepository.findPageByStatusWithUserAfter(status, position.orderDate(), position.orderId(), limit);
+        }
+        return toCursorPage(orders, pageSize);
+    }
+
+    // --- Helper cho cursor pagination ---
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // Vị trí cursor: (orderDate, id) của đơn hàng cuối cùng trên trang trước
+    private record OrderCursor(Instant orderDate, UUID orderId) {
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    private OrderCursorPageDTO toCursorPage(List<Order> orders, int pageSize) {
+        boolean hasNext = orders.size() > pageSize;
+        List<Order> pageOrders = hasNext ? orders.subList(0, pageSize) : orders;
+        attachOrderItems(pageOrders);
+        String nextCursor = null;
+        if (hasNext) {
+            Order last = pageOrders.get(pageOrders.size() - 1);
+            nextCursor = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        List<OrderDTO> content = pageOrders.stream().map(this::mapToOrderDTO).collect(Collectors.toList());
+        return new OrderCursorPageDTO(content, nextCursor, hasNext, pageSize);
+    }
+
+    // Load OrderItems + Product của cả trang trong MỘT query rồi gắn vào từng Order
+    private void attachOrderItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<UUID> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        Map<UUID, List<OrderItem>> itemsByOrderId = orderItemRepository.findByOrderIdInWithProduct(orderIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getOrder().getId()));
+        orders.forEach(order ->
+                order.setOrderItems(new HashSet<>(itemsByOrderId.getOrDefault(order.getId(), Collections.emptyList()))));
+    }
+
+    private String encodeCursor(Instant orderDate, UUID orderId) {
+        String raw = orderDate.toString() + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private OrderCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new OrderCursor(Instant.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new OperationNotAllowedException("Invalid cursor");
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public OrderDTO getOrderDetails(Long userId, UUID orderId) {
         // Giữ nguyên implementation này vì findByIdWithDetails đã tối ưu
         log.debug("Fetching order details for order ID: {} and user ID: {}", orderId, userId);
         Order order = orderRepository.findByIdWithDetails(orderId)
+                .or(() -> archivedOrderRepository.findByIdWithDetails(orderId).map(this::toOrderView)) // Tầng lưu trữ
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "ID", orderId));
 
         if (!order.getUser().getId().equals(userId)) {
@@ -277,32 +526,23 @@ public class OrderServiceImpl implements OrderService {
                     "Cannot cancel this order. Only orders with PENDING or PENDING_PAYMENT status can be cancelled.");
         }
         
-        // 3. Cập nhật trạng thái đơn hàng thành CANCELLED
-        order.setStatus(OrderStatus.CANCELLED);
-        
-        // 4. Hoàn lại kho sản phẩm nếu đã trừ kho
-        // Lấy danh sách OrderItems liên quan đến Order này
-        Set<OrderItem> orderItems = order.getOrderItems();
-        if (orderItems != null && !orderItems.isEmpty()) {
-            for (OrderItem item : orderItems) {
-                Product product = productRepository.findById(item.getProduct().getId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + item.getProduct().getId()));
-                
-                // Tăng số lượng sản phẩm trong kho
-                int currentStock = product.getStockQuantity();
-                product.setStockQuantity(currentStock + item.getQuantity());
-                
-                // Lưu thay đổi vào DB
-                productRepository.save(product);
-                log.info("Restored {} units to stock for product ID: {}", item.getQuantity(), product.getId());
-            }
+        // 3. Chuyển sang CANCELLED bằng UPDATE có điều kiện trạng thái vừa đọc: hủy trùng (double click, admin hủy
+        //    cùng lúc) chỉ hoàn kho một lần
+        OrderStatus previousStatus = order.getStatus();
+        if (orderRepository.updateStatusIfCurrent(orderId, previousStatus, OrderStatus.CANCELLED) == 0) {
+            throw new OperationNotAllowedException("Order status was changed concurrently, please reload and try again");
         }
-        
-        // 5. Lưu thay đổi vào DB và trả về DTO
-        Order savedOrder = orderRepository.save(order);
+
+        // 4. Hoàn kho cho mọi dòng hàng trong MỘT câu UPDATE (số câu lệnh không phụ thuộc số dòng hàng)
+        orderExpiryRepository.restoreStock(List.of(ProductBulkRepository.toBytes(orderId)), Instant.now());
+        catalogVersionService.markProductsChanged();
+
+        // 5. Phát event; entity không bị sửa (tránh Hibernate flush thêm một UPDATE), chỉ DTO mang trạng thái mới
+        domainEventPublisher.publish(new OrderStatusChangedEvent(orderId, userId, previousStatus, OrderStatus.CANCELLED, true));
+        OrderDTO dto = mapToOrderDTO(order);
+        dto.setStatus(OrderStatus.CANCELLED);
         log.info("Order ID: {} has been cancelled by user ID: {}", orderId, userId);
-        
-        return mapToOrderDTO(savedOrder);
+        return dto;
     }
 
     // --- Admin Methods ---
@@ -338,6 +578,7 @@ public class OrderServiceImpl implements OrderService {
         // Giữ nguyên implementation này vì findByIdWithDetails đã tối ưu
         log.debug("Admin request: Fetching order details for order ID: {}", orderId);
         Order order = orderRepository.findByIdWithDetails(orderId)
+                .or(() -> archivedOrderRepository.findByIdWithDetails(orderId).map(this::toOrderView)) // Tầng lưu trữ
                 .orElseThrow(() -> {
                     log.warn("Admin request failed: Order not found with ID: {}", orderId);
                     return new ResourceNotFoundException("Order", "ID", orderId);
@@ -349,7 +590,8 @@ public class OrderServiceImpl implements OrderService {
     @Transactional
     public OrderDTO updateOrderStatus(UUID orderId, UpdateOrderStatusRequest request) {
         log.info("Admin request: Updating status for order ID: {} to {}", orderId, request.getStatus());
-        Order order = orderRepository.findById(orderId) // Chỉ cần tìm order theo ID
+        // Load MỘT lần kèm User + items + product: đủ để map DTO, không cần fetch lại sau khi cập nhật
+        Order order = orderRepository.findByIdWithDetails(orderId)
                 .orElseThrow(() -> {
                     log.warn("Admin status update failed: Order not found with ID: {}", orderId);
                     return new ResourceNotFoundException("Order", "ID", orderId);
@@ -357,39 +599,93 @@ public class OrderServiceImpl implements OrderService {
 
         OrderStatus newStatus = request.getStatus();
         OrderStatus currentStatus = order.getStatus();
-
-        // Optional: Thêm logic kiểm tra việc chuyển đổi trạng thái có hợp lệ không
-        // Ví dụ: không thể chuyển từ DELIVERED về PENDING
-        if (!isValidStatusTransition(currentStatus, newStatus)) {
+        if (currentStatus == newStatus) {
+            return mapToOrderDTO(order); // Giữ nguyên: không ghi, không phát event
+        }
+        if (!currentStatus.canTransitionTo(newStatus)) {
             log.warn("Invalid status transition requested for order ID {}: from {} to {}", orderId, currentStatus, newStatus);
-            throw new IllegalArgumentException("Invalid status transition from " + currentStatus + " to " + newStatus);
+            throw new OperationNotAllowedException("Invalid status transition from " + currentStatus + " to " + newStatus);
         }
 
-        order.setStatus(newStatus);
-        Order updatedOrder = orderRepository.save(order); // Lưu trạng thái mới
+        // UPDATE có điều kiện trạng thái đã đọc: hai admin cùng hủy một đơn thì chỉ một người hoàn kho
+        if (orderRepository.updateStatusIfCurrent(orderId, currentStatus, newStatus) == 0) {
+            log.warn("Order ID {} changed status concurrently, expected {}", orderId, currentStatus);
+            throw new OperationNotAllowedException("Order status was changed concurrently, please reload and try again");
+        }
+        // Mọi lần chuyển sang CANCELLED đều hoàn kho (giống OrderExpiryService)
+        boolean stockRestored = newStatus == OrderStatus.CANCELLED;
+        if (stockRestored) {
+            orderExpiryRepository.restoreStock(List.of(ProductBulkRepository.toBytes(orderId)), Instant.now());
+            catalogVersionService.markProductsChanged();
+        }
+        domainEventPublisher.publish(new OrderStatusChangedEvent(
+                orderId, order.getUser().getId(), currentStatus, newStatus, stockRestored));
         log.info("Order status updated successfully for order ID: {}", orderId);
 
-        // *** KHÔNG CẦN QUERY LẠI - Map từ updatedOrder ***
-        // Tuy nhiên, updatedOrder có thể không có User/Items nếu query gốc findById không fetch.
-        // Để đảm bảo DTO trả về đầy đủ sau khi update, có 2 cách:
-        // Cách 1: Fetch lại (như code cũ - tốn thêm query)
-        Order fetchedOrder = orderRepository.findByIdWithDetails(updatedOrder.getId()).orElse(updatedOrder);
-        return mapToOrderDTO(fetchedOrder);
-
-        // Cách 2: Map từ updatedOrder, chấp nhận User/Items có thể là proxy/null nếu DTO không cần
-        // Cần đảm bảo `mapToOrderDTO` xử lý null an toàn.
-        // return mapToOrderDTO(updatedOrder);
+        // Entity không bị sửa (tránh Hibernate flush thêm một UPDATE): chỉ DTO mang trạng thái mới
+        OrderDTO dto = mapToOrderDTO(order);
+        dto.setStatus(newStatus);
+        return dto;
     }
 
-    // Optional: Helper method để kiểm tra logic chuyển đổi trạng thái
-    private boolean isValidStatusTransition(OrderStatus current, OrderStatus next) {
-        if (current == next) return true; // Luôn cho phép giữ nguyên
-        // Ví dụ: không cho quay lại trạng thái cũ hơn PENDING
-        if (next == OrderStatus.PENDING && current != OrderStatus.PENDING_PAYMENT) return false;
-        // Ví dụ: không cho chuyển từ trạng thái cuối (DELIVERED, CANCELLED)
-        if (current == OrderStatus.DELIVERED || current == OrderStatus.CANCELLED) return false;
-        // Thêm các quy tắc khác nếu cần
-        return true;
+    @Override
+    @Transactional
+    public BulkOrderStatusResultDTO bulkUpdateOrderStatus(BulkUpdateOrderStatusRequest request) {
+        OrderStatus target = request.getStatus();
+        List<UUID> orderIds = request.getOrderIds().stream().distinct().collect(Collectors.toList());
+        log.info("Admin request: Bulk updating {} orders to {}", orderIds.size(), target);
+
+        // 1. Đọc và khóa các đơn (một SELECT ... FOR UPDATE) để phân loại từng đơn: tới hết transaction không ai
+        //    đổi được trạng thái của chúng, nên phân loại này cũng là kết quả của UPDATE bên dưới
+        Map<UUID, OrderRepository.OrderStatusView> current = orderRepository.lockStatusesByIdIn(orderIds).stream()
+                .collect(Collectors.toMap(OrderRepository.OrderStatusView::getId, v -> v));
+        Set<OrderStatus> sources = OrderStatus.allowedSourcesFor(target);
+        Set<UUID> updatedIds = orderIds.stream()
+                .filter(id -> current.containsKey(id) && sources.contains(current.get(id).getStatus()))
+                .collect(Collectors.toSet());
+
+        // 2. Một UPDATE set-based cho mọi đơn hợp lệ (điều kiện trạng thái nguồn giữ lại như một lớp bảo vệ)
+        if (!updatedIds.isEmpty()) {
+            int updated = orderRepository.updateStatusWhereIdInAndStatusIn(updatedIds, sources, target);
+            if (updated != updatedIds.size()) {
+                // Không xảy ra khi các dòng đã bị khóa: rollback cả lô thay vì trả kết quả sai
+                throw new IllegalStateException("Bulk status update to " + target + " changed " + updated
+                        + " orders, expected " + updatedIds.size());
+            }
+        }
+
+        // Mọi lần chuyển sang CANCELLED đều hoàn kho (giống OrderExpiryService), một câu UPDATE cho cả batch
+        boolean stockRestored = target == OrderStatus.CANCELLED && !updatedIds.isEmpty();
+        if (stockRestored) {
+            orderExpiryRepository.restoreStock(
+                    updatedIds.stream().map(ProductBulkRepository::toBytes).toList(), Instant.now());
+            catalogVersionService.markProductsChanged();
+        }
+
+        // 3. Kết quả từng đơn + một event cho mỗi cặp (trạng thái nguồn -> đích)
+        Map<OrderStatus, List<UUID>> transitions = new EnumMap<>(OrderStatus.class);
+        List<BulkOrderStatusResultDTO.OrderResult> results = new ArrayList<>(orderIds.size());
+        for (UUID id : orderIds) {
+            OrderRepository.OrderStatusView view = current.get(id);
+            BulkOrderStatusResultDTO.Outcome outcome;
+            if (view == null) {
+                outcome = BulkOrderStatusResultDTO.Outcome.NOT_FOUND;
+            } else if (updatedIds.contains(id)) {
+                outcome = BulkOrderStatusResultDTO.Outcome.UPDATED;
+                transitions.computeIfAbsent(view.getStatus(), s -> new ArrayList<>()).add(id);
+            } else if (view.getStatus() == target) {
+                outcome = BulkOrderStatusResultDTO.Outcome.UNCHANGED;
+            } else {
+                outcome = BulkOrderStatusResultDTO.Outcome.INVALID_TRANSITION;
+            }
+            results.add(new BulkOrderStatusResultDTO.OrderResult(id, outcome, view != null ? view.getStatus() : null));
+        }
+        transitions.forEach((from, ids) -> domainEventPublisher.publish(
+                new OrderStatusBatchChangedEvent(UUID.randomUUID(), from, target, ids, stockRestored)));
+
+        int updatedCount = transitions.values().stream().mapToInt(List::size).sum();
+        log.info("Bulk status update to {}: {} of {} orders updated", target, updatedCount, orderIds.size());
+        return new BulkOrderStatusResultDTO(target, orderIds.size(), updatedCount, results);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.michaelcao.bookstore_backend.config.PrimaryTransactionTemplate;
+import com.michaelcao.bookstore_backend.dto.product.ProductExportRow;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+import com.michaelcao.bookstore_backend.entity.Product;
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.service.ProductExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class ProductExportServiceImpl implements ProductExportService {
+
+    private final ProductRepository productRepository;
+    private final ProductBulkRepository productBulkRepository;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final int chunkSize;
+    // Export luôn đọc từ primary: không đọc hàng loạt dữ liệu từ replica có thể đang lag
+    private final TransactionTemplate exportTx;
+
+    public ProductExportServiceImpl(ProductRepository productRepository,
+                                    ProductBulkRepository productBulkRepository,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.export.chunk-size:500}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.productBulkRepository = productBulkRepository;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.exportTx = new PrimaryTransactionTemplate(transactionManager);
+        this.exportTx.setReadOnly(true);
+
+        this.csvMapper = new CsvMapper();
+        this.csvMapper.registerModule(new JavaTimeModule());
+        this.csvMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Override
+    public long exportProducts(ProductImportFormat format, OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        long written = 0;
+        try (SequenceWriter writer = openWriter(format, out)) {
+            UUID afterId = null;
+            while (true) {
+                List<ProductExportRow> page = loadPage(afterId);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (ProductExportRow row : page) {
+                    writer.write(row);
+                }
+                writer.flush();
+                out.flush(); // Đẩy dữ liệu tới client ngay, không giữ trong buffer
+                written += page.size();
+                if (page.size() < chunkSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        }
+        log.info("Exported {} products as {} in {} ms", written, format, (System.nanoTime() - startNanos) / 1_000_000);
+        return written;
+    }
+
+    // Mỗi trang một transaction ngắn: connection được trả lại pool trước khi ghi ra client (có thể chậm),
+    // và persistence context đóng theo transaction nên heap không tăng theo số dòng
+    private List<ProductExportRow> loadPage(UUID afterId) {
+        return exportTx.execute(status -> {
+            PageRequest page = PageRequest.of(0, chunkSize);
+            List<Product> products = afterId == null
+                    ? productRepository.findExportPage(page)
+                    : productRepository.findExportPageAfter(afterId, page);
+            if (products.isEmpty()) {
+                return List.of();
+            }
+            // Danh mục phụ của cả trang được lấy trong MỘT query (tránh N+1 trên quan hệ LAZY categories)
+            List<UUID> ids = products.stream().map(Product::getId).toList();
+            Map<UUID, List<Long>> categoryIds = productBulkRepository.findCategoryIdsByProductIds(ids);
+            List<ProductExportRow> rows = new ArrayList<>(products.size());
+            for (Product product : products) {
+                ProductExportRow row = mapToExportRow(product);
+                row.setCategoryIds(categoryIds.getOrDefault(product.getId(), Collections.emptyList()));
+                rows.add(row);
+            }
+            return rows;
+        });
+    }
+
+    private SequenceWriter openWriter(ProductImportFormat format, OutputStream out) throws IOException {
+        if (format == ProductImportFormat.CSV) {
+            CsvSchema schema = csvMapper.schemaFor(ProductExportRow.class).withHeader().withArrayElementSeparator(";");
+            return csvMapper.writer(schema).writeValues(out);
+        }
+        return objectMapper.writerFor(ProductExportRow.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .withRootValueSeparator("\n")
+                .writeValues(out);
+    }
+
+    private ProductExportRow mapToExportRow(Product product) {
+        ProductExportRow row = new ProductExportRow();
+        row.setId(product.getId());
+        row.setTitle(product.getTitle());
+        row.setAuthor(product.getAuthor());
+        row.setIsbn(product.getIsbn());
+        row.setDescription(product.getDescription());
+        row.setPrice(product.getPrice());
+        row.setStockQuantity(product.getStockQuantity());
+        row.setSoldCount(product.getSoldCount());
+        row.setImageUrl(product.getImageUrl());
+        row.setPublishedDate(product.getPublishedDate());
+        if (product.getCategory() != null) {
+            row.setCategoryId(product.getCategory().getId());
+            row.setCategoryName(product.getCategory().getName());
+        }
+        row.setCreatedAt(product.getCreatedAt());
+        row.setUpdatedAt(product.getUpdatedAt());
+        return row;
+    }
+}
@@ -0,0 +1,479 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportFormat;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportJobDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductImportRow;
+import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService.CategorySnapshot;
+import com.michaelcao.bookstore_backend.service.ProductImportService;
+import com.michaelcao.bookstore_backend.service.ProductSuggestIndex;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private final ProductBulkRepository productBulkRepository;
+    private final CategorySnapshotService categorySnapshotService;
+    private final CatalogVersionService catalogVersionService;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxRetainedJobs;
+
+    // Các job gần đây (giới hạn số lượng để không giữ bộ nhớ mãi mãi), thứ tự theo thời điểm tạo
+    private final Map<UUID, ImportJob> jobs = new LinkedHashMap<>();
+
+    public ProductImportServiceImpl(ProductBulkRepository productBulkRepository,
+                                    CategorySnapshotService categorySnapshotService,
+                                    CatalogVersionService catalogVersionService,
+                                    ProductSuggestIndex productSuggestIndex,
+                                    Validator validator,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.import.batch-size:1000}") int batchSize,
+                                    @Value("${app.import.max-concurrent-jobs:1}") int maxConcurrentJobs,
+                                    @Value("${app.import.max-retained-jobs:20}") int maxRetainedJobs) {
+        this.productBulkRepository = productBulkRepository;
+        this.categorySnapshotService = categorySnapshotService;
+        this.catalogVersionService = catalogVersionService;
+        this.productSuggestIndex = productSuggestIndex;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetainedJobs = Math.max(1, maxRetainedJobs);
+
+        this.csvMapper = new CsvMapper();
+        this.csvMapper.registerModule(new JavaTimeModule());
+        this.csvMapper.enable(CsvParser.Feature.EMPTY_STRING_AS_NULL); // Ô trống -> null
+        this.csvMapper.enable(CsvParser.Feature.TRIM_SPACES);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs), r -> {
+            Thread t = new Thread(r, "product-import-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ProductImportJobDTO startImport(InputStream input, ProductImportFormat format, String fileName) throws IOException {
+        // Stream nội dung xuống file tạm: không buffer cả file trong heap, và job có thể chạy sau khi request kết thúc
+        Path source = Files.createTempFile("product-import-", "." + format.name().toLowerCase());
+        try {
+            Files.copy(input, source, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(source);
+            throw e;
+        }
+        Path errorFile = Files.createTempFile("product-import-errors-", ".csv");
+
+        ImportJob job = new ImportJob(UUID.randomUUID(), format, fileName, source, errorFile);
+        registerJob(job);
+        log.info("Product import job {} queued (file: {}, format: {}, size: {} bytes)",
+                job.id, fileName, format, Files.size(source));
+        executor.submit(() -> runJob(job));
+        return job.toDTO();
+    }
+
+    @Override
+    public ProductImportJobDTO getJob(UUID jobId) {
+        return findJob(jobId).toDTO();
+    }
+
+    @Override
+    public List<ProductImportJobDTO> getRecentJobs() {
+        List<ProductImportJobDTO> result;
+        synchronized (jobs) {
+            result = jobs.values().stream().map(ImportJob::toDTO).collect(Collectors.toList());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public void writeErrorReport(UUID jobId, OutputStream out) throws IOException {
+        ImportJob job = findJob(jobId);
+        if (Files.exists(job.errorFile)) {
+            Files.copy(job.errorFile, out);
+        }
+    }
+
+    // --- Pipeline ---
+
+    private void runJob(ImportJob job) {
+        job.status = "RUNNING";
+        job.startedAt = Instant.now();
+        long startNanos = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(job.source, StandardCharsets.UTF_8);
+             BufferedWriter errors = Files.newBufferedWriter(job.errorFile, StandardCharsets.UTF_8)) {
+
+            errors.write("row,isbn,error");
+            errors.newLine();
+
+            if (job.format == ProductImportFormat.CSV) {
+                importCsv(job, reader, errors);
+            } else {
+                importJsonLines(job, reader, errors);
+            }
+            job.status = "COMPLETED";
+            job.message = String.format("Imported %d rows in %d ms", job.processed.get(),
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Product import job {} failed", job.id, e);
+            job.status = "FAILED";
+            job.message = e.getMessage();
+        } finally {
+            job.finishedAt = Instant.now();
+            categorySnapshotService.invalidate(); // Số sản phẩm theo danh mục đã thay đổi
+            catalogVersionService.markProductContentChanged(); // Index sản phẩm liên quan dựng lại theo version
+            productSuggestIndex.requestRebuild(); // Import JDBC không phát ProductChangedEvent
+            try {
+                Files.deleteIfExists(job.source);
+            } catch (IOException e) {
+                log.warn("Could not delete import source file {}", job.source);
+            }
+            log.info("Product import job {} finished with status {}: processed={}, inserted={}, updated={}, failed={}",
+                    job.id, job.status, job.processed.get(), job.inserted.get(), job.updated.get(), job.failed.get());
+        }
+    }
+
+    /**
+     * JSONL: mỗi dòng được parse độc lập, nên một dòng hỏng chỉ làm hỏng chính dòng đó
+     * và số dòng trong báo cáo lỗi luôn là số dòng thật của file.
+     */
+    private void importJsonLines(ImportJob job, BufferedReader reader, Writer errors) throws IOException {
+        ObjectReader rowReader = objectMapper.readerFor(ProductImportRow.class);
+        List<ProductImportRow> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ProductImportRow row;
+            try {
+                row = rowReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                job.processed.incrementAndGet();
+                job.failed.incrementAndGet();
+                writeError(errors, lineNumber, null, "Malformed row: " + e.getOriginalMessage());
+                continue;
+            }
+            row.setLineNumber(lineNumber);
+            chunk = addToChunk(job, chunk, row, errors);
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(job, chunk, errors);
+        }
+    }
+
+    /**
+     * CSV: một bản ghi có thể trải nhiều dòng (ô có xuống dòng trong dấu nháy), nên sau lỗi parse không xác định
+     * được bản ghi kế tiếp bắt đầu ở đâu. Job dừng ở lỗi đầu tiên; các dòng trước đó vẫn được import.
+     */
+    private void importCsv(ImportJob job, Reader reader, Writer errors) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema().withHeader().withArrayElementSeparator(";");
+        try (MappingIterator<ProductImportRow> rows = csvMapper.readerFor(ProductImportRow.class).with(schema).readValues(reader)) {
+            List<ProductImportRow> chunk = new ArrayList<>(batchSize);
+            long rowNumber = 0;
+            while (true) {
+                ProductImportRow row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    row = rows.nextValue();
+                } catch (IOException | RuntimeException e) {
+                    if (!chunk.isEmpty()) {
+                        processChunk(job, chunk, errors);
+                    }
+                    job.processed.incrementAndGet();
+                    job.failed.incrementAndGet();
+                    String message = "Malformed row: " + (e instanceof JsonProcessingException jpe ? jpe.getOriginalMessage() : e.getMessage());
+                    writeError(errors, rowNumber + 1, null, message);
+                    throw new IOException("CSV row " + (rowNumber + 1) + " could not be parsed, import stopped: " + message, e);
+                }
+                row.setLineNumber(++rowNumber);
+                chunk = addToChunk(job, chunk, row, errors);
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(job, chunk, errors);
+            }
+        }
+    }
+
+    // Trả về chunk để tiếp tục thêm dòng (chunk mới nếu chunk cũ vừa được xử lý)
+    private List<ProductImportRow> addToChunk(ImportJob job, List<ProductImportRow> chunk, ProductImportRow row,
+                                              Writer errors) throws IOException {
+        chunk.add(row);
+        if (chunk.size() < batchSize) {
+            return chunk;
+        }
+        processChunk(job, chunk, errors);
+        return new ArrayList<>(batchSize);
+    }
+
+    private void processChunk(ImportJob job, List<ProductImportRow> chunk, Writer errors) throws IOException {
+        CategorySnapshot categories = categorySnapshotService.awaitFresh(); // Job nền, không giữ connection
+
+        // 1. Validate song song (Validator và snapshot đều thread-safe)
+        List<String> problems = chunk.parallelStream()
+                .map(row -> validateRow(row, categories))
+                .collect(Collectors.toList());
+
+        // 2. Lọc dòng hợp lệ, loại ISBN trùng lặp trong cùng chunk
+        List<ProductImportRow> valid = new ArrayList<>(chunk.size());
+        Set<String> isbnsInChunk = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            ProductImportRow row = chunk.get(i);
+            String problem = problems.get(i);
+            if (problem == null && row.getIsbn() != null && !isbnsInChunk.add(row.getIsbn())) {
+                problem = "Duplicate ISBN within the same batch";
+            }
+            if (problem != null) {
+                job.failed.incrementAndGet();
+                writeError(errors, row.getLineNumber(), row.getIsbn(), problem);
+            } else {
+                valid.add(row);
+            }
+        }
+        job.processed.addAndGet(chunk.size());
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        // 3. Tra ISBN đã tồn tại trong MỘT query cho cả chunk
+        Map<String, UUID> existing = productBulkRepository.findIdsByIsbnIn(isbnsInChunk);
+
+        List<ProductImportRow> inserts = new ArrayList<>();
+        List<UUID> insertIds = new ArrayList<>();
+        List<ProductImportRow> updates = new ArrayList<>();
+        List<UUID> updateIds = new ArrayList<>();
+        Map<UUID, Set<Long>> insertCategories = new LinkedHashMap<>();
+        Map<UUID, Set<Long>> updateCategories = new LinkedHashMap<>();
+        for (ProductImportRow row : valid) {
+            UUID existingId = row.getIsbn() != null ? existing.get(row.getIsbn()) : null;
+            if (existingId != null) {
+                updates.add(row);
+                updateIds.add(existingId);
+                updateCategories.put(existingId, resolveCategories(row));
+            } else {
+                UUID id = UUID.randomUUID();
+                inserts.add(row);
+                insertIds.add(id);
+                insertCategories.put(id, resolveCategories(row));
+            }
+        }
+
+        // 4. Upsert bằng JDBC batch trong một transaction cho mỗi chunk
+        Instant now = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productBulkRepository.batchInsert(inserts, insertIds, now, batchSize);
+                productBulkRepository.batchUpdate(updates, updateIds, now, batchSize);
+                productBulkRepository.replaceCategories(insertCategories, false, batchSize);
+                productBulkRepository.replaceCategories(updateCategories, true, batchSize);
+                catalogVersionService.markProductContentChanged();
+            });
+            job.inserted.addAndGet(inserts.size());
+            job.updated.addAndGet(updates.size());
+        } catch (RuntimeException e) {
+            // Cả chunk bị rollback -> báo lỗi cho từng dòng để có thể import lại
+            log.warn("Product import job {}: batch ending at row {} failed: {}", job.id,
+                    valid.get(valid.size() - 1).getLineNumber(), e.getMessage());
+            job.failed.addAndGet(valid.size());
+            for (ProductImportRow row : valid) {
+                writeError(errors, row.getLineNumber(), row.getIsbn(), "Batch write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Trả về null nếu hợp lệ, ngược lại trả về mô tả lỗi
+    private String validateRow(ProductImportRow row, CategorySnapshot categories) {
+        if (row.getIsbn() != null) {
+            row.setIsbn(row.getIsbn().isBlank() ? null : row.getIsbn().trim());
+        }
+        Set<ConstraintViolation<ProductImportRow>> violations = validator.validate(row);
+        List<String> messages = violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        boolean hasCategoryIds = row.getCategoryIds() != null && !row.getCategoryIds().isEmpty();
+        if (row.getCategoryId() == null && !hasCategoryIds) {
+            messages.add("categoryId: Category ID cannot be null");
+        }
+        if (row.getCategoryId() != null && !categories.contains(row.getCategoryId())) {
+            messages.add("categoryId: Category not found with ID " + row.getCategoryId());
+        }
+        if (hasCategoryIds) {
+            for (Long categoryId : row.getCategoryIds()) {
+                if (!categories.contains(categoryId)) {
+                    messages.add("categoryIds: Category not found with ID " + categoryId);
+                }
+            }
+        }
+        return messages.isEmpty() ? null : String.join("; ", messages);
+    }
+
+    // Cùng quy tắc với ProductServiceImpl.createProduct: categoryIds nếu có, danh mục chính mặc định là phần tử đầu
+    private Set<Long> resolveCategories(ProductImportRow row) {
+        Set<Long> result = new LinkedHashSet<>();
+        if (row.getCategoryIds() != null && !row.getCategoryIds().isEmpty()) {
+            result.addAll(row.getCategoryIds());
+            if (row.getCategoryId() == null) {
+                row.setCategoryId(row.getCategoryIds().get(0));
+            }
+        } else {
+            result.add(row.getCategoryId());
+        }
+        return result;
+    }
+
+    private void writeError(Writer errors, long rowNumber, String isbn, String message) throws IOException {
+        errors.write(rowNumber + "," + csvEscape(isbn) + "," + csvEscape(message));
+        errors.write(System.lineSeparator());
+    }
+
+    private static String csvEscape(String value) {
+        if (value == null) {
+            return "";
+        }
+        String cleaned = value.replace("\r", " ").replace("\n", " ");
+        if (cleaned.contains(",") || cleaned.contains("\"")) {
+            return "\"" + cleaned.replace("\"", "\"\"") + "\"";
+        }
+        return cleaned;
+    }
+
+    // --- Quản lý job ---
+
+    private void registerJob(ImportJob job) {
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            // Bỏ các job cũ đã kết thúc khi vượt quá giới hạn
+            var iterator = jobs.values().iterator();
+            while (jobs.size() > maxRetainedJobs && iterator.hasNext()) {
+                ImportJob oldest = iterator.next();
+                if (oldest.finishedAt == null) {
+                    continue;
+                }
+                iterator.remove();
+                try {
+                    Files.deleteIfExists(oldest.errorFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete import error report {}", oldest.errorFile);
+                }
+            }
+        }
+    }
+
+    private ImportJob findJob(UUID jobId) {
+        ImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job", "ID", jobId);
+        }
+        return job;
+    }
+
+    // Trạng thái runtime của một job (chỉ thread của job ghi, các thread khác đọc)
+    private static final class ImportJob {
+        private final UUID id;
+        private final ProductImportFormat format;
+        private final String fileName;
+        private final Path source;
+        private final Path errorFile;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile String status = "PENDING";
+        private volatile String message;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+
+        private ImportJob(UUID id, ProductImportFormat format, String fileName, Path source, Path errorFile) {
+            this.id = id;
+            this.format = format;
+            this.fileName = fileName;
+            this.source = source;
+            this.errorFile = errorFile;
+        }
+
+        private ProductImportJobDTO toDTO() {
+            return ProductImportJobDTO.builder()
+                    .jobId(id)
+                    .format(format)
+                    .fileName(fileName)
+                    .status(status)
+                    .processedRows(processed.get())
+                    .insertedRows(inserted.get())
+                    .updatedRows(updated.get())
+                    .failedRows(failed.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .message(message)
+                    .build();
+        }
+    }
+}
@@ -2,22 +2,37 @@ package com.michaelcao.bookstore_backend.service.impl;
 
 import com.michaelcao.bookstore_backend.dto.category.CategoryDTO; // Import CategoryDTO
 import com.michaelcao.bookstore_backend.dto.product.CreateProductRequest;
+import com.michaelcao.bookstore_backend.dto.product.FacetedProductPageDTO;
 import com.michaelcao.bookstore_backend.dto.product.ProductDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductVersionDTO;
 import com.michaelcao.bookstore_backend.dto.product.UpdateProductRequest;
 import com.michaelcao.bookstore_backend.entity.Category;
-import com.michaelcao.bookstore_backend.entity.OrderStatus;
 import com.michaelcao.bookstore_backend.entity.Product;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent;
 import com.michaelcao.bookstore_backend.exception.DuplicateResourceException;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
 import com.michaelcao.bookstore_backend.repository.CategoryRepository;
-import com.michaelcao.bookstore_backend.repository.OrderRepository;
 import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.specification.ProductSpecification;
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.DomainEventPublisher;
+import com.michaelcao.bookstore_backend.service.OrderService;
+import com.michaelcao.bookstore_backend.service.ProductCoPurchaseIndex;
+import com.michaelcao.bookstore_backend.service.ProductFacetIndex;
+import com.michaelcao.bookstore_backend.service.ProductRelevanceIndex;
 import com.michaelcao.bookstore_backend.service.ProductService;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex;
+import com.michaelcao.bookstore_backend.service.ProductTrigramIndex;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +41,7 @@ import com.michaelcao.bookstore_backend.repository.ReviewRepository;
 import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
 import java.util.List; // Import List
 import java.util.Map;  // Import Map
+import java.util.Objects;
 import java.util.function.Function; // Import Function
 import java.util.stream.Collectors;
 import java.util.Collections; // Import Collections
@@ -42,9 +58,19 @@ public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ReviewRepository reviewRepository;
-    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final CatalogVersionService catalogVersionService; // Version tăng trong cùng transaction ghi
+    private final CategorySnapshotService categorySnapshotService;
+    private final DomainEventPublisher domainEventPublisher; // Index/snapshot cục bộ được làm mới qua ProductChangedEvent
+    private final BusinessMetrics businessMetrics;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductTrigramIndex productTrigramIndex;
+    private final ProductRelevanceIndex productRelevanceIndex;
+    private final ProductCoPurchaseIndex productCoPurchaseIndex;
+    private final ProductTrendingIndex productTrendingIndex;
     // --- Helper methods for mapping ---
-    private ProductDTO mapToProductDTO(Product product, ReviewStats stats) {
+    // Package-private (thay vì private) để benchmark JMH cùng package gọi trực tiếp
+    ProductDTO mapToProductDTO(Product product, ReviewStats stats) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getId());
         dto.setTitle(product.getTitle());
@@ -58,23 +84,15 @@ public class ProductServiceImpl implements ProductService {
         dto.setCreatedAt(product.getCreatedAt());
         dto.setUpdatedAt(product.getUpdatedAt());
         
-        // Map Category chính sang CategoryDTO
+        // Map Category chính sang CategoryDTO (lấy từ snapshot, không khởi tạo proxy LAZY)
         if (product.getCategory() != null) {
-            dto.setCategory(new CategoryDTO(
-                    product.getCategory().getId(),
-                    product.getCategory().getName(),
-                    product.getCategory().getDescription()
-            ));
+            dto.setCategory(mapToCategoryDTO(product.getCategory()));
         }
         
         // Map nhiều Category
         if (product.getCategories() != null && !product.getCategories().isEmpty()) {
             dto.setCategories(product.getCategories().stream()
-                    .map(category -> new CategoryDTO(
-                            category.getId(),
-                            category.getName(),
-                            category.getDescription()
-                    ))
+                    .map(this::mapToCategoryDTO)
                     .collect(Collectors.toList()));
         }
         
@@ -95,13 +113,24 @@ public class ProductServiceImpl implements ProductService {
         return mapToProductDTO(product, null); // Gọi hàm map chính với stats là null
     }
 
+    // Map Category sang CategoryDTO: ưu tiên snapshot (getId() trên proxy không gây query), fallback về entity
+    private CategoryDTO mapToCategoryDTO(Category category) {
+        CategoryDTO cached = categorySnapshotService.current().get(category.getId());
+        if (cached != null) {
+            return new CategoryDTO(cached.getId(), cached.getName(), cached.getDescription());
+        }
+        return new CategoryDTO(category.getId(), category.getName(), category.getDescription());
+    }
+
     // Helper để tìm Category hoặc ném Exception
+    // Kiểm tra tồn tại qua snapshot (snapshot có thể chưa kịp nạp danh mục vừa tạo -> hỏi DB),
+    // sau đó chỉ lấy reference (proxy) -> không phát sinh query cho từng ID
     private Category findCategoryById(Long categoryId) {
-        return categoryRepository.findById(categoryId)
-                .orElseThrow(() -> {
-                    log.warn("Category not found with ID: {}", categoryId);
-                    return new ResourceNotFoundException("Category", "ID", categoryId);
-                });
+        if (!categorySnapshotService.current().contains(categoryId) && !categoryRepository.existsById(categoryId)) {
+            log.warn("Category not found with ID: {}", categoryId);
+            throw new ResourceNotFoundException("Category", "ID", categoryId);
+        }
+        return categoryRepository.getReferenceById(categoryId);
     }
 
     @Override
@@ -151,6 +180,8 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product savedProduct = productRepository.save(product);
+        catalogVersionService.markProductContentChanged();
+        domainEventPublisher.publish(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.CREATED));
         log.info("Product created successfully with ID: {}", savedProduct.getId());
         return mapToProductDTO(savedProduct);
     }
@@ -168,11 +199,28 @@ public class ProductServiceImpl implements ProductService {
         ReviewStats stats = reviewRepository.findReviewStatsByProductIdsProjection(Collections.singletonList(id))
                 .stream().findFirst().orElse(null);
 
+        productTrendingIndex.record(id, ProductTrendingIndex.Signal.VIEW);
         // Map Product và Stats sang DTO
         return mapToProductDTO(product, stats);
     }
-    // Phương thức chung để xử lý Page<Product> và thêm Review Stats
-    private Page<ProductDTO> mapProductPageToDtoWithStats(Page<Product> productPage) {
+    @Override
+    @Transactional(readOnly = true)
+    public ProductVersionDTO getProductVersion(UUID id) {
+        // Chỉ lấy updatedAt + aggregate review, không load entity/categories
+        ProductRepository.ProductVersion version = productRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "ID", id));
+        long reviewCount = version.getReviewCount() != null ? version.getReviewCount() : 0L;
+        // Tên danh mục trong DTO lấy từ snapshot: snapshot chưa kịp nạp lại thì không có ETag cho nội dung cũ
+        long categoryVersion = version.getCategoryVersion() != null ? version.getCategoryVersion() : 0L;
+        String etag = categorySnapshotService.isFresh(categoryVersion)
+                ? catalogVersionService.productETag(version.getUpdatedAt(), reviewCount, version.getLastReviewId(), categoryVersion)
+                : null;
+        long lastModified = version.getUpdatedAt() != null ? version.getUpdatedAt().toEpochMilli() : -1L;
+        return new ProductVersionDTO(etag, lastModified);
+    }
+
+    // Phương thức chung để xử lý Page<Product> và thêm Review Stats (package-private cho benchmark)
+    Page<ProductDTO> mapProductPageToDtoWithStats(Page<Product> productPage) {
         List<Product> productsOnPage = productPage.getContent();
         Map<UUID, ReviewStats> statsMap = Collections.emptyMap(); // Khởi tạo map rỗng
 
@@ -211,18 +259,117 @@ public class ProductServiceImpl implements ProductService {
     @Override
     @Transactional(readOnly = true)
     public Page<ProductDTO> filterProducts(Long categoryId, String keyword, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author, Pageable pageable) {
+        return findProducts("filter", categoryId, keyword, minPrice, maxPrice, inStockOnly, author, pageable, true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FacetedProductPageDTO filterProductsWithFacets(Long categoryId, String keyword, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author, Pageable pageable) {
+        // Không xếp hạng / tìm gần đúng: tập kết quả phải giống tập mà facet đếm
+        Page<ProductDTO> page = findProducts("filter", categoryId, keyword, minPrice, maxPrice, inStockOnly, author, withoutRelevanceSort(pageable), false);
+        // Facet đếm trên index trong bộ nhớ, không thêm count query cho từng giá trị
+        return new FacetedProductPageDTO(page,
+                productFacetIndex.facets(keyword, categoryId, minPrice, maxPrice, inStockOnly, author));
+    }
+
+    // Dùng chung cho filter và search; metric tách theo type (keyword | filter | relevance | fuzzy)
+    private Page<ProductDTO> findProducts(String searchType, Long categoryId, String keyword, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author, Pageable pageable, boolean fuzzyFallback) {
         log.debug("Filtering products with criteria - ..."); // Log đầy đủ
 
-        Specification<Product> spec = ProductSpecification.buildSpecification(
-                keyword, categoryId, minPrice, maxPrice, inStockOnly, author
-        );
-        // Query lấy Page<Product>
-        Page<Product> productPage = productRepository.findAll(spec, pageable);
+        Timer.Sample sample = businessMetrics.startTimer();
+        Page<Product> productPage;
+        // Index BM25 chưa dựng xong lần đầu (vừa khởi động): tìm như bình thường, sắp theo các tiêu chí còn lại
+        if (ProductRelevanceIndex.isRelevanceSort(pageable) && StringUtils.hasText(keyword) && productRelevanceIndex.isReady()) {
+            searchType = "relevance";
+            productPage = findRankedProducts(keyword, categoryId, minPrice, maxPrice, inStockOnly, author, pageable);
+        } else {
+            Specification<Product> spec = ProductSpecification.buildSpecification(
+                    keyword, categoryId, minPrice, maxPrice, inStockOnly, author
+            );
+            // Query lấy Page<Product>
+            productPage = productRepository.findAll(spec, withoutRelevanceSort(pageable));
+        }
+        if (fuzzyFallback && productPage.getTotalElements() == 0 && StringUtils.hasText(keyword)) {
+            // Không có kết quả chính xác (sai chính tả, thiếu dấu): thử tìm gần đúng
+            Page<Product> fuzzyPage = findFuzzyProducts(keyword, categoryId, minPrice, maxPrice, inStockOnly, author, pageable);
+            if (fuzzyPage.getTotalElements() > 0) {
+                searchType = "fuzzy";
+                productPage = fuzzyPage;
+            }
+        }
+        businessMetrics.recordSearch(sample, searchType, productPage.getTotalElements());
 
         // Xử lý thêm stats và map sang DTO
         return mapProductPageToDtoWithStats(productPage);
     }
 
+    // sort=relevance không phải thuộc tính của Product: bỏ đi khi query DB (không có keyword hoặc trang có facet),
+    // không còn tiêu chí nào thì sắp theo title như mặc định của controller
+    private static Pageable withoutRelevanceSort(Pageable pageable) {
+        if (!ProductRelevanceIndex.isRelevanceSort(pageable)) {
+            return pageable;
+        }
+        Sort rest = Sort.by(pageable.getSort().filter(order -> !ProductRelevanceIndex.SORT_PROPERTY.equals(order.getProperty())).toList());
+        Sort sort = rest.isSorted() ? rest : Sort.by("title");
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort) : Pageable.unpaged(sort);
+    }
+
+    // Xếp hạng BM25F trong bộ nhớ (ProductRelevanceIndex), sản phẩm đọc từ DB theo ID và giữ thứ tự điểm.
+    // Không có điều kiện lọc khác: chỉ lấy top (offset + size) và đọc sản phẩm của trang hiện tại.
+    // Có điều kiện lọc: lọc cửa sổ top max-window bằng Specification rồi phân trang trong bộ nhớ.
+    private Page<Product> findRankedProducts(String keyword, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author, Pageable pageable) {
+        boolean filtered = (categoryId != null && categoryId > 0) || minPrice != null || maxPrice != null
+                || Boolean.TRUE.equals(inStockOnly) || StringUtils.hasText(author);
+        if (filtered || pageable.isUnpaged()) {
+            ProductRelevanceIndex.Ranking ranking = productRelevanceIndex.rank(keyword, Long.MAX_VALUE);
+            Specification<Product> filters = ProductSpecification.buildSpecification(
+                    null, categoryId, minPrice, maxPrice, inStockOnly, author
+            );
+            return pageOf(findInRankOrder(ranking.ids(), filters), pageable);
+        }
+        ProductRelevanceIndex.Ranking ranking = productRelevanceIndex.rank(keyword, pageable.getOffset() + pageable.getPageSize());
+        List<UUID> ids = ranking.ids();
+        List<UUID> pageIds = ids.subList((int) Math.min(pageable.getOffset(), ids.size()), ids.size());
+        return new PageImpl<>(findInRankOrder(pageIds, null), pageable, ranking.total());
+    }
+
+    // Kết quả gần đúng theo thứ tự điểm của ProductTrigramIndex (bỏ qua sort của pageable), các điều kiện lọc
+    // khác vẫn áp dụng qua Specification. Số ID tối đa giới hạn bởi app.search.fuzzy.max-results nên phân trang
+    // trong bộ nhớ.
+    private Page<Product> findFuzzyProducts(String keyword, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly, String author, Pageable pageable) {
+        List<UUID> rankedIds = productTrigramIndex.search(keyword);
+        if (rankedIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Specification<Product> filters = ProductSpecification.buildSpecification(
+                null, categoryId, minPrice, maxPrice, inStockOnly, author
+        );
+        return pageOf(findInRankOrder(rankedIds, filters), pageable);
+    }
+
+    // Đọc sản phẩm theo danh sách ID đã xếp hạng (lọc thêm bằng filters nếu có), giữ thứ tự xếp hạng;
+    // ID không còn trong DB hoặc không thỏa filters bị bỏ qua
+    private List<Product> findInRankOrder(List<UUID> rankedIds, Specification<Product> filters) {
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        Specification<Product> spec = ProductSpecification.hasIdIn(rankedIds);
+        if (filters != null) {
+            spec = filters.and(spec);
+        }
+        Map<UUID, Product> found = productRepository.findAll(spec).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return rankedIds.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private static Page<Product> pageOf(List<Product> ranked, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(ranked, pageable, ranked.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(ranked.subList(from, to), pageable, ranked.size());
+    }
 
     @Override
     @Transactional(readOnly = true)
@@ -288,6 +435,8 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        catalogVersionService.markProductContentChanged();
+        domainEventPublisher.publish(new ProductChangedEvent(updatedProduct.getId(), ProductChangedEvent.ChangeType.UPDATED));
         log.info("Product updated successfully with ID: {}", updatedProduct.getId());
         return mapToProductDTO(updatedProduct);
     }
@@ -304,12 +453,14 @@ public class ProductServiceImpl implements ProductService {
         // Nếu có ràng buộc khóa ngoại từ OrderItem đến Product, DB sẽ tự chặn xóa.
         // Nếu không, cần kiểm tra thủ công.
         productRepository.deleteById(id);
+        catalogVersionService.markProductContentChanged();
+        domainEventPublisher.publish(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.DELETED));
         log.info("Product deleted successfully with ID: {}", id);
     }
     @Override
     @Transactional(readOnly = true)
     public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
-        return filterProducts(null, keyword, null, null, null, null, pageable);
+        return findProducts("keyword", null, keyword, null, null, null, null, pageable, true);
     }
 
     @Override
@@ -324,13 +475,23 @@ public class ProductServiceImpl implements ProductService {
         }
         
         // Kiểm tra người dùng đã mua và nhận hàng thành công
-        boolean hasPurchased = orderRepository.existsByUserIdAndItemsProductIdAndStatusDelivered(
-            userId, 
-            productId, 
-            OrderStatus.DELIVERED
-        );
+        boolean hasPurchased = orderService.hasPurchasedProduct(userId, productId); // Xét cả đơn hàng đã lưu trữ
         
         log.debug("User ID {} has purchased product ID {}: {}", userId, productId, hasPurchased);
         return hasPurchased;
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getAlsoBoughtProducts(UUID productId, Integer limit) {
+        int size = limit != null && limit > 0 ? limit : 10;
+        // Lấy dư một chút để bù sản phẩm đã xóa (mô hình chỉ dọn chúng ở lần dựng lại)
+        List<UUID> ids = productCoPurchaseIndex.alsoBought(productId, size + 5);
+        List<Product> products = findInRankOrder(ids, null);
+        if (products.isEmpty() && !productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "ID", productId);
+        }
+        List<Product> top = products.size() > size ? products.subList(0, size) : products;
+        return mapProductPageToDtoWithStats(new PageImpl<>(top)).getContent();
+    }
+}
@@ -6,10 +6,13 @@ import com.michaelcao.bookstore_backend.entity.*;
 import com.michaelcao.bookstore_backend.exception.DuplicateResourceException;
 import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
-import com.michaelcao.bookstore_backend.repository.OrderRepository; // Import OrderRepository
 import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.ReviewRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
+import com.michaelcao.bookstore_backend.event.ReviewAddedEvent;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.DomainEventPublisher;
+import com.michaelcao.bookstore_backend.service.OrderService;
 import com.michaelcao.bookstore_backend.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +31,9 @@ public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
-    private final OrderRepository orderRepository; // Inject để kiểm tra lịch sử mua hàng
+    private final OrderService orderService; // Inject để kiểm tra lịch sử mua hàng (cả đơn đã lưu trữ)
+    private final CatalogVersionService catalogVersionService; // averageRating/reviewCount nằm trong danh sách sản phẩm -> tăng version cùng transaction
+    private final DomainEventPublisher domainEventPublisher;
 
     // --- Helper method: Map Review entity sang ReviewDTO ---
     private ReviewDTO mapToReviewDTO(Review review) {
@@ -50,7 +55,7 @@ public class ReviewServiceImpl implements ReviewService {
     // Trong ReviewServiceImpl.java
     private boolean checkIfUserPurchasedProduct(Long userId, UUID productId) {
         // Gọi đúng phương thức repository và truyền trạng thái DELIVERED
-        boolean hasPurchased = orderRepository.existsByUserIdAndItemsProductIdAndStatusDelivered(userId, productId, OrderStatus.DELIVERED);
+        boolean hasPurchased = orderService.hasPurchasedProduct(userId, productId); // Xét cả đơn hàng đã lưu trữ
         log.debug("Check purchase status: User ID {} purchased and received product ID {}: {}", userId, productId, hasPurchased);
         return hasPurchased;
     }
@@ -91,6 +96,8 @@ public class ReviewServiceImpl implements ReviewService {
 
         // 5. Lưu Review
         Review savedReview = reviewRepository.save(review);
+        catalogVersionService.markProductsChanged();
+        domainEventPublisher.publish(new ReviewAddedEvent(savedReview.getId(), productId, userId, savedReview.getRating()));
         log.info("Review added successfully with ID: {}", savedReview.getId());
 
         // 6. Map và trả về DTO (Không cần fetch lại vì đã có đủ thông tin)
@@ -6,7 +6,10 @@ import com.michaelcao.bookstore_backend.dto.user.UpdateAvatarRequest;
 import com.michaelcao.bookstore_backend.dto.user.UpdateProfileRequest;
 import com.michaelcao.bookstore_backend.entity.User;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
+import com.michaelcao.bookstore_backend.service.RecentlyViewedService;
 import com.michaelcao.bookstore_backend.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.StringUtils; // Import StringUtils
 import org.springframework.security.core.GrantedAuthority;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.Set; // Import Set
 @Service
@@ -28,6 +36,8 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder; // Inject PasswordEncoder
+    private final ProductRepository productRepository;
+    private final RecentlyViewedService recentlyViewedService;
 
     // --- Helper method: Map User entity sang UserProfileDTO ---
     private UserProfileDTO mapToUserProfileDTO(User user) {
@@ -121,6 +131,19 @@ public class UserServiceImpl implements UserService {
          return mapToUserProfileDTO(updatedUser);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> getRecentlyViewedProducts(Long userId) {
+        List<UUID> productIds = recentlyViewedService.recentlyViewed(userId);
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        // Một query cho cả danh sách, rồi sắp lại theo thứ tự xem; sản phẩm đã bị xóa thì bỏ qua
+        Map<UUID, ProductSummaryDTO> byId = productRepository.findSummariesByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::getId, Function.identity()));
+        return productIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
     // --- Admin Methods ---
 
     @Override
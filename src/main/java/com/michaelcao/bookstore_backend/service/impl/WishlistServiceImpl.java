@@ -8,6 +8,7 @@ import com.michaelcao.bookstore_backend.exception.DuplicateResourceException;
 import com.michaelcao.bookstore_backend.exception.ResourceNotFoundException;
 import com.michaelcao.bookstore_backend.repository.ProductRepository;
 import com.michaelcao.bookstore_backend.repository.UserRepository;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex;
 import com.michaelcao.bookstore_backend.service.WishlistService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,7 @@ public class WishlistServiceImpl implements WishlistService {
 
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ProductTrendingIndex productTrendingIndex;
 
     // Helper method: Map Product sang ProductSummaryDTO
     private ProductSummaryDTO mapToProductSummaryDTO(Product product) {
@@ -81,6 +83,7 @@ public class WishlistServiceImpl implements WishlistService {
 
         // Lưu lại User, JPA sẽ tự động cập nhật bảng join user_wishlist
         userRepository.save(user);
+        productTrendingIndex.record(productId, ProductTrendingIndex.Signal.WISHLIST); // Ghi nhận sau commit
         log.info("Product ID {} added to wishlist for user ID {}", productId, userId);
     }
 
@@ -0,0 +1,295 @@
+package com.michaelcao.bookstore_backend.benchmark;
+
+import com.michaelcao.bookstore_backend.entity.CatalogVersion;
+import com.michaelcao.bookstore_backend.entity.Category;
+import com.michaelcao.bookstore_backend.entity.Product;
+import com.michaelcao.bookstore_backend.repository.CatalogVersionRepository;
+import com.michaelcao.bookstore_backend.repository.CategoryRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.ProductCategoryRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.RelatedRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.TrendingRow;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Dữ liệu và stub dùng chung cho các benchmark JMH: không cần Spring context hay DB,
+ * repository được thay bằng JDK proxy trả kết quả cố định nên chi phí đo được là của code cần đo.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Stub một interface (thường là repository): method có tên trong results trả về giá trị tương ứng,
+     * method khác ném UnsupportedOperationException để benchmark không vô tình đo nhầm đường đi.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(Class<T> type, Map<String, Object> results) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (results.containsKey(method.getName())) {
+                return results.get(method.getName());
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+        });
+    }
+
+    public static List<Category> categories(int count) {
+        List<Category> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Category category = new Category();
+            category.setId((long) i + 1);
+            category.setName("Category " + i);
+            category.setDescription("Synthetic category " + i);
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    public static List<Product> products(int count, List<Category> categories, int categoriesPerProduct, Random random) {
+        List<Product> products = new ArrayList<>(count);
+        Instant now = Instant.now();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId(UUID.randomUUID());
+            product.setTitle("Benchmark Book " + i);
+            product.setAuthor("Author " + random.nextInt(500));
+            product.setIsbn("BENCH-" + i);
+            product.setDescription("Synthetic description for benchmark book " + i);
+            product.setPrice(BigDecimal.valueOf(500 + random.nextInt(5_000), 2));
+            product.setStockQuantity(random.nextInt(1_000));
+            product.setImageUrl("/uploads/products/bench-" + i + ".jpg");
+            product.setPublishedDate(LocalDate.of(2000 + random.nextInt(25), 1 + random.nextInt(12), 1));
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            Set<Category> productCategories = new HashSet<>();
+            while (productCategories.size() < Math.min(categoriesPerProduct, categories.size())) {
+                productCategories.add(categories.get(random.nextInt(categories.size())));
+            }
+            product.setCategory(productCategories.iterator().next());
+            product.setCategories(productCategories);
+            products.add(product);
+        }
+        return products;
+    }
+
+    public static ReviewStats reviewStats(UUID productId, double averageRating, long reviewCount) {
+        return new ReviewStats() {
+            @Override
+            public UUID getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Double getAverageRating() {
+                return averageRating;
+            }
+
+            @Override
+            public Long getReviewCount() {
+                return reviewCount;
+            }
+        };
+    }
+
+    public static SuggestRow suggestRow(UUID id, String title, String author, String isbn, int soldCount) {
+        return new SuggestRow() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getAuthor() {
+                return author;
+            }
+
+            @Override
+            public String getIsbn() {
+                return isbn;
+            }
+
+            @Override
+            public Integer getSoldCount() {
+                return soldCount;
+            }
+        };
+    }
+
+    public static TrendingRow trendingRow(UUID id, String title) {
+        return new TrendingRow() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getAuthor() {
+                return "Author";
+            }
+
+            @Override
+            public BigDecimal getPrice() {
+                return BigDecimal.TEN;
+            }
+
+            @Override
+            public String getImageUrl() {
+                return null;
+            }
+
+            @Override
+            public Integer getStockQuantity() {
+                return 10;
+            }
+        };
+    }
+
+    public static ProductCategoryRow productCategoryRow(UUID productId, Long categoryId) {
+        return new ProductCategoryRow() {
+            @Override
+            public UUID getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getCategoryId() {
+                return categoryId;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                return other instanceof ProductCategoryRow row
+                        && row.getProductId().equals(productId) && row.getCategoryId().equals(categoryId);
+            }
+
+            @Override
+            public int hashCode() {
+                return productId.hashCode() * 31 + categoryId.hashCode();
+            }
+        };
+    }
+
+    public static RelatedRow relatedRow(UUID id, String title, String author, int soldCount) {
+        return new RelatedRow() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getAuthor() {
+                return author;
+            }
+
+            @Override
+            public BigDecimal getPrice() {
+                return BigDecimal.TEN;
+            }
+
+            @Override
+            public String getImageUrl() {
+                return null;
+            }
+
+            @Override
+            public Integer getSoldCount() {
+                return soldCount;
+            }
+
+            @Override
+            public String getCategoryName() {
+                return "Category";
+            }
+        };
+    }
+
+    /**
+     * CategorySnapshotService thật, nạp snapshot từ danh sách category cho sẵn (lần gọi current() đầu tiên),
+     * các lần sau trả về snapshot đã cache giống như khi chạy ứng dụng.
+     */
+    public static CategorySnapshotService categorySnapshotService(List<Category> categories) {
+        CategoryRepository categoryRepository = stub(CategoryRepository.class, Map.of(
+                "findAll", categories,
+                "countProductsPerCategory", List.of(),
+                "countPrimaryProductsPerCategory", List.of()));
+        CategorySnapshotService service = new CategorySnapshotService(categoryRepository, catalogVersionService(),
+                noOpTransactionManager(), 5_000);
+        service.current();
+        return service;
+    }
+
+    /**
+     * CatalogVersionService với version cố định (không có bảng catalog_versions).
+     */
+    public static CatalogVersionService catalogVersionService() {
+        return new CatalogVersionService(new CatalogVersionRepository(null) {
+            @Override
+            public Map<String, CatalogVersion> findAll() {
+                return Map.of();
+            }
+
+            @Override
+            public void increment(Collection<String> names, Instant now) {
+            }
+        });
+    }
+
+    public static PlatformTransactionManager noOpTransactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
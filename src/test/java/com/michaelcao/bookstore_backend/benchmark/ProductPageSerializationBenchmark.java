@@ -0,0 +1,89 @@
+package com.michaelcao.bookstore_backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.michaelcao.bookstore_backend.dto.category.CategoryDTO;
+import com.michaelcao.bookstore_backend.dto.product.ProductDTO;
+import com.michaelcao.bookstore_backend.entity.Category;
+import com.michaelcao.bookstore_backend.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.config.SpringDataJacksonConfiguration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize Page<ProductDTO> ra JSON (body của GET /api/products, /api/products/search...).
+ * ObjectMapper dựng giống cấu hình mặc định của Spring Boot (JavaTimeModule, ngày dạng ISO, PageModule của Spring Data).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductPageSerializationBenchmark {
+
+    @Param({"12", "48"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<ProductDTO> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(new SpringDataJacksonConfiguration.PageModule(null))
+                .build();
+
+        Random random = new Random(42);
+        List<Category> categories = BenchmarkFixtures.categories(50);
+        List<ProductDTO> content = new ArrayList<>(pageSize);
+        for (Product product : BenchmarkFixtures.products(pageSize, categories, 2, random)) {
+            ProductDTO dto = new ProductDTO();
+            dto.setId(product.getId());
+            dto.setTitle(product.getTitle());
+            dto.setAuthor(product.getAuthor());
+            dto.setIsbn(product.getIsbn());
+            dto.setDescription(product.getDescription());
+            dto.setPrice(product.getPrice());
+            dto.setStockQuantity(product.getStockQuantity());
+            dto.setImageUrl(product.getImageUrl());
+            dto.setPublishedDate(product.getPublishedDate());
+            dto.setCreatedAt(product.getCreatedAt());
+            dto.setUpdatedAt(product.getUpdatedAt());
+            dto.setCategory(toCategoryDTO(product.getCategory()));
+            dto.setCategories(product.getCategories().stream().map(this::toCategoryDTO).toList());
+            dto.setAverageRating(Math.round((1 + random.nextDouble() * 4) * 10.0) / 10.0);
+            dto.setReviewCount((long) random.nextInt(200));
+            content.add(dto);
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize), 5_000);
+    }
+
+    private CategoryDTO toCategoryDTO(Category category) {
+        return new CategoryDTO(category.getId(), category.getName(), category.getDescription());
+    }
+
+    @Benchmark
+    public byte[] writePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,102 @@
+package com.michaelcao.bookstore_backend.config;
+
+import com.michaelcao.bookstore_backend.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Slice test cho filter + guard: controller giả ghi số câu SQL cố định vào RequestSqlStats (không cần DB).
+ */
+class SqlBudgetGuardTest {
+
+    private static final String SELECT = "select p.id, p.title from products p where p.id = ?";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void failsRequestThatExceedsItsBudget() throws Exception {
+        mockMvc(true).perform(get("/n-plus-one"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().string(SqlBudgetGuard.STATEMENTS_HEADER, "3"))
+                .andExpect(content().string("GET /n-plus-one ran 3 SQL statements, budget is 2"));
+
+        assertThat(exceededCount("/n-plus-one")).isEqualTo(1.0);
+    }
+
+    @Test
+    void passesRequestWithinBudget() throws Exception {
+        mockMvc(true).perform(get("/within-budget"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlBudgetGuard.STATEMENTS_HEADER, "2"));
+
+        assertThat(meterRegistry.find(SqlBudgetGuard.BUDGET_EXCEEDED).counter()).isNull();
+    }
+
+    @Test
+    void onlyCountsViolationWhenNotFailing() throws Exception {
+        mockMvc(false).perform(get("/n-plus-one"))
+                .andExpect(status().isOk());
+
+        assertThat(exceededCount("/n-plus-one")).isEqualTo(1.0);
+    }
+
+    @Test
+    void appliesDefaultBudgetToUnannotatedEndpoint() throws Exception {
+        mockMvc(true).perform(get("/unannotated"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().string("GET /unannotated ran 5 SQL statements, budget is 4"));
+    }
+
+    private MockMvc mockMvc(boolean failOnViolation) {
+        SqlBudgetGuard guard = new SqlBudgetGuard(meterRegistry, true, 4, failOnViolation, true);
+        return MockMvcBuilders.standaloneSetup(new BudgetedController())
+                .setControllerAdvice(guard, new GlobalExceptionHandler())
+                .addFilters(new SqlStatementMetricsFilter(guard, meterRegistry))
+                .build();
+    }
+
+    private double exceededCount(String uri) {
+        Counter counter = meterRegistry.find(SqlBudgetGuard.BUDGET_EXCEEDED).tag("uri", uri).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static String run(int statements) {
+        RequestSqlStats stats = RequestSqlStats.current();
+        for (int i = 0; i < statements; i++) {
+            stats.recordStatement(SELECT);
+        }
+        return "ok";
+    }
+
+    @RestController
+    static class BudgetedController {
+
+        @SqlBudget(2)
+        @GetMapping("/n-plus-one")
+        String nPlusOne() {
+            return run(3);
+        }
+
+        @SqlBudget(2)
+        @GetMapping("/within-budget")
+        String withinBudget() {
+            return run(2);
+        }
+
+        @GetMapping("/unannotated")
+        String unannotated() {
+            return run(5);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.michaelcao.bookstore_backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderStatusTest {
+
+    @Test
+    void allowedSourcesAreTheReverseOfTransitions() {
+        for (OrderStatus source : OrderStatus.values()) {
+            for (OrderStatus target : OrderStatus.values()) {
+                assertThat(OrderStatus.allowedSourcesFor(target).contains(source))
+                        .as("%s -> %s", source, target)
+                        .isEqualTo(source.canTransitionTo(target));
+            }
+        }
+    }
+
+    @Test
+    void listsSourcesOfCommonBulkTargets() {
+        assertThat(OrderStatus.allowedSourcesFor(OrderStatus.CANCELLED)).containsExactlyInAnyOrder(
+                OrderStatus.PENDING, OrderStatus.PENDING_PAYMENT, OrderStatus.PROCESSING, OrderStatus.PAYMENT_FAILED);
+        assertThat(OrderStatus.allowedSourcesFor(OrderStatus.SHIPPED)).containsExactlyInAnyOrder(
+                OrderStatus.PENDING, OrderStatus.PROCESSING);
+        assertThat(OrderStatus.allowedSourcesFor(OrderStatus.DELIVERED)).containsExactlyInAnyOrder(
+                OrderStatus.PROCESSING, OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void terminalStatusesCannotChange() {
+        assertThat(OrderStatus.CANCELLED.isTerminal()).isTrue();
+        assertThat(OrderStatus.DELIVERED.isTerminal()).isTrue();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.PENDING)).isFalse();
+        // Giữ nguyên trạng thái không tính là chuyển
+        assertThat(OrderStatus.allowedSourcesFor(OrderStatus.SHIPPED)).doesNotContain(OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void allowedSourcesCannotBeModified() {
+        assertThatThrownBy(() -> OrderStatus.allowedSourcesFor(OrderStatus.SHIPPED).add(OrderStatus.DELIVERED))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.michaelcao.bookstore_backend.perf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram độ trễ dạng log-bucket (sai số tương đối ~1%), thread-safe và không cấp phát khi ghi,
+ * nên có thể ghi hàng triệu mẫu từ nhiều client đồng thời với chi phí cố định.
+ */
+class LatencyHistogram {
+
+    private static final double RATIO = 1.01;
+    private static final double LOG_RATIO = Math.log(RATIO);
+    private static final long MAX_MICROS = 120_000_000L; // 120 giây
+    private static final int BUCKETS = bucketOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void record(long nanos, boolean error) {
+        long micros = Math.max(1, Math.min(nanos / 1_000, MAX_MICROS));
+        counts.incrementAndGet(bucketOf(micros));
+        total.incrementAndGet();
+        if (error) {
+            errors.incrementAndGet();
+        }
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    long maxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Giá trị (micro giây) tại percentile p (0..100), là cận trên của bucket chứa mẫu thứ p%.
+     */
+    long percentileMicros(double p) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * p / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private static int bucketOf(long micros) {
+        return (int) (Math.log(micros) / LOG_RATIO);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return (long) Math.ceil(Math.pow(RATIO, bucket + 1));
+    }
+}
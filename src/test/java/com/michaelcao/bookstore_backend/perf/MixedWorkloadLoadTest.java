@@ -0,0 +1,330 @@
+package com.michaelcao.bookstore_backend.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test end-to-end: khởi động app (profile "perf", H2 chế độ MySQL), seed dữ liệu giả lập rồi chạy workload
+ * hỗn hợp (duyệt, chi tiết, tìm kiếm, giỏ hàng, lịch sử, đặt hàng) qua HTTP thật với nhiều client đồng thời.
+ * Kết quả (throughput, p50/p99/p999 theo endpoint) được log và ghi ra target/perf/load-test-report-{platform|virtual}.json.
+ *
+ * Chạy: mvn -Pperf test [-Dperf.clients=128 -Dperf.duration-seconds=60 -Dperf.products=20000 ...]
+ * Xem PerfSettings cho toàn bộ tham số.
+ *
+ * So sánh platform / virtual thread (Java 21+): chạy cùng ramp hai lần rồi so maxSustainedClients và p99 từng mức:
+ *   mvn -Pperf test -Dperf.ramp=100,200,400,800,1600 -Dspring.threads.virtual.enabled=false
+ *   mvn -Pperf test -Dperf.ramp=100,200,400,800,1600 -Dspring.threads.virtual.enabled=true
+ */
+@Tag("perf")
+@ActiveProfiles("perf")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MixedWorkloadLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MixedWorkloadLoadTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private volatile LatencyHistogram overall = new LatencyHistogram();
+    private PerfDataSeeder seeder;
+    private volatile boolean recording;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        PerfSettings settings = PerfSettings.fromSystemProperties();
+        String threadingMode = Threading.VIRTUAL.isActive(environment) ? "virtual" : "platform";
+        log.info("Load test settings: {}, server threads: {}", settings, threadingMode);
+
+        long seedStart = System.nanoTime();
+        seeder = new PerfDataSeeder(jdbcTemplate, passwordEncoder);
+        seeder.seed(settings);
+        log.info("Seeded {} products, {} users, {} orders in {} ms", settings.products(), settings.users(),
+                (long) settings.users() * settings.ordersPerUser(), (System.nanoTime() - seedStart) / 1_000_000);
+
+        List<String> tokens = login(settings);
+        String[] operations = expandMix(settings.mix());
+
+        // Ramp: chạy lần lượt từng mức client; mức cao nhất còn đạt SLO là concurrency tối đa chịu được
+        List<Map<String, Object>> steps = new ArrayList<>();
+        Integer maxSustainedClients = null;
+        for (int clients : settings.concurrencySteps()) {
+            Map<String, Object> step = runStep(settings, clients, tokens, operations);
+            steps.add(step);
+            if (Boolean.TRUE.equals(step.get("sustained"))) {
+                maxSustainedClients = clients;
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", Runtime.version().toString());
+        report.put("serverThreads", threadingMode);
+        report.put("settings", settings);
+        report.put("maxSustainedClients", maxSustainedClients);
+        report.put("steps", steps);
+        // Một file mỗi chế độ để so sánh platform / virtual thread cạnh nhau
+        Path file = Path.of("target", "perf", "load-test-report-" + threadingMode + ".json");
+        Files.createDirectories(file.getParent());
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        log.info("Max sustained concurrency ({} threads, p99 <= {} ms, errors < 1%): {} clients. Report written to {}",
+                threadingMode, settings.sloP99Millis(), maxSustainedClients, file.toAbsolutePath());
+
+        long total = steps.stream().mapToLong(step -> (Long) step.get("totalRequests")).sum();
+        assertTrue(total > 0, "No requests were recorded");
+    }
+
+    private Map<String, Object> runStep(PerfSettings settings, int clientCount, List<String> tokens, String[] operations)
+            throws Exception {
+        histograms.clear();
+        overall = new LatencyHistogram();
+        recording = false;
+        ExecutorService clients = newClientExecutor(settings, clientCount);
+        Instant warmupEnd = Instant.now().plusSeconds(settings.warmupSeconds());
+        Instant end = warmupEnd.plusSeconds(settings.durationSeconds());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            String token = tokens.get(i % tokens.size());
+            futures.add(clients.submit(() -> runClient(token, operations, end)));
+        }
+        Thread.sleep(Math.max(0, Duration.between(Instant.now(), warmupEnd).toMillis()));
+        recording = true; // Hết warmup: bắt đầu ghi số liệu
+        long measureStart = System.nanoTime();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - measureStart) / 1e9;
+        recording = false;
+        clients.shutdown();
+        clients.awaitTermination(30, TimeUnit.SECONDS);
+        return report(settings, clientCount, elapsedSeconds);
+    }
+
+    // --- Client ---
+
+    private void runClient(String token, String[] operations, Instant end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (Instant.now().isBefore(end)) {
+            String operation = operations[random.nextInt(operations.length)];
+            try {
+                switch (operation) {
+                    case "browse" -> call("GET /api/products", get("/api/products?page=" + random.nextInt(20) + "&size=12", null));
+                    case "detail" -> call("GET /api/products/{id}", get("/api/products/" + randomProduct(), null));
+                    case "search" -> call("GET /api/products/search",
+                            get("/api/products/search?keyword=" + encode(randomWord()) + "&size=12", null));
+                    case "categories" -> call("GET /api/categories", get("/api/categories", null));
+                    case "cart" -> {
+                        call("POST /api/cart/items", post("/api/cart/items", token,
+                                "{\"productId\":\"" + randomProduct() + "\",\"quantity\":1}"));
+                        call("GET /api/cart", get("/api/cart", token));
+                    }
+                    case "history" -> call("GET /api/orders/my-history/cursor", get("/api/orders/my-history/cursor?size=10", token));
+                    case "checkout" -> {
+                        call("POST /api/cart/items", post("/api/cart/items", token,
+                                "{\"productId\":\"" + randomProduct() + "\",\"quantity\":1}"));
+                        call("POST /api/orders", post("/api/orders", token,
+                                "{\"paymentMethod\":\"COD\",\"shippingAddress\":{\"street\":\"1 Perf Street\",\"city\":\"HCM\"," +
+                                        "\"district\":\"D1\",\"country\":\"VN\",\"phone\":\"0900000000\"}}"));
+                    }
+                    default -> throw new IllegalArgumentException("Unknown operation in perf.mix: " + operation);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void call(String endpoint, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean error;
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            error = response.statusCode() >= 400;
+        } catch (IOException e) {
+            error = true;
+        }
+        if (recording) {
+            long nanos = System.nanoTime() - start;
+            histograms.computeIfAbsent(endpoint, k -> new LatencyHistogram()).record(nanos, error);
+            overall.record(nanos, error);
+        }
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private List<String> login(PerfSettings settings) throws IOException, InterruptedException {
+        int logins = Math.min(settings.maxClients(), seeder.userEmails.size());
+        List<String> tokens = new ArrayList<>(logins);
+        for (int i = 0; i < logins; i++) {
+            HttpResponse<String> response = httpClient.send(post("/api/auth/login", null,
+                            "{\"email\":\"" + seeder.userEmails.get(i) + "\",\"password\":\"" + PerfDataSeeder.PASSWORD + "\"}"),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode body = objectMapper.readTree(response.body());
+            tokens.add(body.get("accessToken").asText());
+        }
+        return tokens;
+    }
+
+    private String randomProduct() {
+        return seeder.productIds.get(ThreadLocalRandom.current().nextInt(seeder.productIds.size())).toString();
+    }
+
+    private static String randomWord() {
+        return PerfDataSeeder.WORDS[ThreadLocalRandom.current().nextInt(PerfDataSeeder.WORDS.length)];
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // Mỗi thao tác xuất hiện trong mảng theo đúng tỷ trọng, chọn ngẫu nhiên một phần tử là đủ
+    private static String[] expandMix(Map<String, Integer> mix) {
+        List<String> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        return operations.toArray(String[]::new);
+    }
+
+    /**
+     * Virtual thread cho mỗi client nếu JVM hỗ trợ (Java 21+, gọi qua reflection vì project build với Java 17),
+     * ngược lại dùng pool platform thread có kích thước bằng số client.
+     */
+    private static ExecutorService newClientExecutor(PerfSettings settings, int clientCount) {
+        if (settings.virtualThreads()) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.info("Load test clients run on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.info("Virtual threads are not available on Java {}, using platform threads",
+                        Runtime.version().feature());
+            }
+        }
+        return Executors.newFixedThreadPool(clientCount);
+    }
+
+    // --- Report ---
+
+    private Map<String, Object> report(PerfSettings settings, int clientCount, double elapsedSeconds) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        StringBuilder table = new StringBuilder(String.format("%n%-36s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        histograms.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            endpoints.put(entry.getKey(), stats(entry.getValue(), elapsedSeconds));
+            table.append(row(entry.getKey(), entry.getValue(), elapsedSeconds));
+        });
+        table.append(row("TOTAL", overall, elapsedSeconds));
+        double errorRate = overall.count() == 0 ? 1.0 : (double) overall.errors() / overall.count();
+        boolean sustained = overall.count() > 0 && errorRate < 0.01
+                && overall.percentileMicros(99) <= settings.sloP99Millis() * 1000L;
+        log.info("Load test results ({} clients, {} s, {}):{}", clientCount, round(elapsedSeconds),
+                sustained ? "within SLO" : "SLO violated", table);
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("clients", clientCount);
+        step.put("elapsedSeconds", round(elapsedSeconds));
+        step.put("totalRequests", overall.count());
+        step.put("errorRate", round(errorRate * 100) / 100.0);
+        step.put("sustained", sustained);
+        step.put("overall", stats(overall, elapsedSeconds));
+        step.put("endpoints", endpoints);
+        return step;
+    }
+
+    private static Map<String, Object> stats(LatencyHistogram h, double elapsedSeconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", h.count());
+        stats.put("errors", h.errors());
+        stats.put("throughputPerSecond", round(h.count() / elapsedSeconds));
+        stats.put("p50Ms", h.percentileMicros(50) / 1000.0);
+        stats.put("p99Ms", h.percentileMicros(99) / 1000.0);
+        stats.put("p999Ms", h.percentileMicros(99.9) / 1000.0);
+        stats.put("maxMs", h.maxMicros() / 1000.0);
+        return stats;
+    }
+
+    private static String row(String endpoint, LatencyHistogram h, double elapsedSeconds) {
+        return String.format("%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint, h.count(), h.errors(),
+                h.count() / elapsedSeconds, h.percentileMicros(50) / 1000.0, h.percentileMicros(99) / 1000.0,
+                h.percentileMicros(99.9) / 1000.0, h.maxMicros() / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.michaelcao.bookstore_backend.perf;
+
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Seed dữ liệu giả lập (danh mục, sản phẩm, khách hàng, lịch sử đơn hàng) bằng JDBC batch.
+ * Dùng Random với seed cố định để các lần chạy có cùng dữ liệu và so sánh được với nhau.
+ */
+public class PerfDataSeeder {
+
+    static final String PASSWORD = "perf-password";
+    // Từ vựng của title sản phẩm; benchmark index tìm kiếm dùng chung để dữ liệu giống với load test
+    public static final String[] WORDS = {
+            "dragon", "river", "empire", "garden", "shadow", "ocean", "winter", "code", "history", "science",
+            "journey", "secret", "city", "forest", "machine", "light", "storm", "kingdom", "memory", "star"
+    };
+    private static final String[] STATUSES = {"DELIVERED", "DELIVERED", "DELIVERED", "CANCELLED", "SHIPPED", "PROCESSING"};
+    private static final int BATCH = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final Random random = new Random(42);
+
+    final List<Long> categoryIds = new ArrayList<>();
+    final List<UUID> productIds = new ArrayList<>();
+    final List<BigDecimal> productPrices = new ArrayList<>();
+    final List<String> userEmails = new ArrayList<>();
+
+    PerfDataSeeder(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    void seed(PerfSettings settings) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        seedCategories(settings.categories());
+        seedProducts(settings.products(), now);
+        seedUsers(settings.users());
+        seedOrders(settings.ordersPerUser(), now);
+    }
+
+    private void seedCategories(int count) {
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            args.add(new Object[]{"Category " + i, "Synthetic category " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO categories (name, description) VALUES (?, ?)", args);
+        categoryIds.addAll(jdbcTemplate.queryForList("SELECT id FROM categories ORDER BY id", Long.class));
+    }
+
+    private void seedProducts(int count, LocalDateTime now) {
+        List<Object[]> products = new ArrayList<>(BATCH);
+        List<Object[]> links = new ArrayList<>(BATCH);
+        for (int i = 0; i < count; i++) {
+            UUID id = UUID.randomUUID();
+            BigDecimal price = BigDecimal.valueOf(500 + random.nextInt(5_000), 2);
+            Long categoryId = categoryIds.get(random.nextInt(categoryIds.size()));
+            String title = word() + " " + word() + " " + i;
+            byte[] idBytes = ProductBulkRepository.toBytes(id);
+            products.add(new Object[]{idBytes, title, "Author " + random.nextInt(500), "PERF-" + i,
+                    "Synthetic description for " + title, price, 1_000_000, random.nextInt(1_000), categoryId, now, now});
+            links.add(new Object[]{idBytes, categoryId});
+            productIds.add(id);
+            productPrices.add(price);
+            if (products.size() == BATCH) {
+                flushProducts(products, links);
+            }
+        }
+        flushProducts(products, links);
+    }
+
+    private void flushProducts(List<Object[]> products, List<Object[]> links) {
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, title, author, isbn, description, price, stock_quantity, " +
+                "sold_count, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", products);
+        jdbcTemplate.batchUpdate("INSERT INTO product_categories (product_id, category_id) VALUES (?, ?)", links);
+        products.clear();
+        links.clear();
+    }
+
+    private void seedUsers(int count) {
+        String hash = passwordEncoder.encode(PASSWORD); // BCrypt chậm: hash một lần cho mọi user
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE name = 'ROLE_CUSTOMER'", Long.class);
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = "perf-user-" + i + "@example.com";
+            args.add(new Object[]{"Perf User " + i, email, hash, true});
+            userEmails.add(email);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, password, is_enabled) VALUES (?, ?, ?, ?)", args);
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT id, ? FROM users WHERE email LIKE 'perf-user-%'", roleId);
+    }
+
+    private void seedOrders(int ordersPerUser, LocalDateTime now) {
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE email LIKE 'perf-user-%'", Long.class);
+        List<Object[]> orders = new ArrayList<>(BATCH);
+        List<Object[]> items = new ArrayList<>(BATCH * 2);
+        for (Long userId : userIds) {
+            for (int i = 0; i < ordersPerUser; i++) {
+                byte[] orderId = ProductBulkRepository.toBytes(UUID.randomUUID());
+                BigDecimal total = BigDecimal.ZERO;
+                int lines = 1 + random.nextInt(3);
+                for (int line = 0; line < lines; line++) {
+                    int index = random.nextInt(productIds.size());
+                    int quantity = 1 + random.nextInt(3);
+                    BigDecimal price = productPrices.get(index);
+                    total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+                    items.add(new Object[]{ProductBulkRepository.toBytes(UUID.randomUUID()), orderId,
+                            ProductBulkRepository.toBytes(productIds.get(index)), quantity, price});
+                }
+                orders.add(new Object[]{orderId, userId, now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)), total,
+                        STATUSES[random.nextInt(STATUSES.length)], "COD", "1 Perf Street", "HCM", "D1", "VN", "0900000000", "Perf"});
+                if (orders.size() >= BATCH) {
+                    flushOrders(orders, items);
+                }
+            }
+        }
+        flushOrders(orders, items);
+    }
+
+    private void flushOrders(List<Object[]> orders, List<Object[]> items) {
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, user_id, order_date, total_amount, status, payment_method, " +
+                "shipping_street, shipping_city, shipping_district, shipping_country, shipping_phone, recipient_name) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO order_items (id, order_id, product_id, quantity, price_at_purchase) " +
+                "VALUES (?, ?, ?, ?, ?)", items);
+        orders.clear();
+        items.clear();
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
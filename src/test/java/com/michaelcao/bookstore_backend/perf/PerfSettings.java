@@ -0,0 +1,80 @@
+package com.michaelcao.bookstore_backend.perf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tham số load test, đọc từ system property (truyền qua Maven: -Dperf.clients=128 ...).
+ *
+ * @param categories      Số danh mục seed.
+ * @param products        Số sản phẩm seed.
+ * @param users           Số khách hàng seed (mỗi client đăng nhập bằng một user).
+ * @param ordersPerUser   Số đơn hàng lịch sử của mỗi user.
+ * @param clients         Số client đồng thời (khi không có ramp).
+ * @param ramp            Các mức client đồng thời chạy lần lượt, ví dụ "64,128,256,512" (rỗng: chỉ chạy clients).
+ * @param sloP99Millis    Một mức được coi là "chịu được" nếu p99 toàn bộ ≤ giá trị này và tỷ lệ lỗi < 1%.
+ * @param warmupSeconds   Thời gian chạy nóng (không ghi số liệu).
+ * @param durationSeconds Thời gian đo.
+ * @param virtualThreads  Dùng virtual thread cho client nếu JVM hỗ trợ (Java 21+).
+ * @param mix             Tỷ trọng các thao tác, ví dụ "browse=30,detail=25,search=15,...".
+ */
+record PerfSettings(int categories, int products, int users, int ordersPerUser,
+                    int clients, List<Integer> ramp, int sloP99Millis, int warmupSeconds, int durationSeconds,
+                    boolean virtualThreads, Map<String, Integer> mix) {
+
+    static final String DEFAULT_MIX = "browse=30,detail=25,search=15,categories=5,cart=10,history=10,checkout=5";
+
+    static PerfSettings fromSystemProperties() {
+        return new PerfSettings(
+                intProperty("perf.categories", 50),
+                intProperty("perf.products", 5_000),
+                intProperty("perf.users", 200),
+                intProperty("perf.orders-per-user", 20),
+                intProperty("perf.clients", 64),
+                parseRamp(System.getProperty("perf.ramp", "")),
+                intProperty("perf.slo-p99-ms", 1_000),
+                intProperty("perf.warmup-seconds", 5),
+                intProperty("perf.duration-seconds", 30),
+                Boolean.parseBoolean(System.getProperty("perf.virtual-threads", "true")),
+                parseMix(System.getProperty("perf.mix", DEFAULT_MIX)));
+    }
+
+    List<Integer> concurrencySteps() {
+        return ramp.isEmpty() ? List.of(clients) : ramp;
+    }
+
+    int maxClients() {
+        return concurrencySteps().stream().mapToInt(Integer::intValue).max().orElse(clients);
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static List<Integer> parseRamp(String ramp) {
+        List<Integer> steps = new ArrayList<>();
+        for (String step : ramp.split(",")) {
+            if (!step.isBlank()) {
+                steps.add(Integer.parseInt(step.trim()));
+            }
+        }
+        return List.copyOf(steps);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2 && Integer.parseInt(parts[1].trim()) > 0) {
+                weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("perf.mix must contain at least one operation with weight > 0");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,115 @@
+package com.michaelcao.bookstore_backend.repository.specification;
+
+import com.michaelcao.bookstore_backend.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dựng Specification tìm kiếm sản phẩm: chỉ ghép Specification, ghép + dựng Predicate bằng CriteriaBuilder thật
+ * của Hibernate, và đến tận TypedQuery (SQM + query plan cache) như khi ProductRepository.findAll(spec, pageable) chạy.
+ * EntityManagerFactory khởi tạo một lần trên H2 in-memory, không truy vấn DB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductSpecificationBenchmark {
+
+    /**
+     * keyword: chỉ từ khóa (ô tìm kiếm); all: đủ bộ lọc (từ khóa, danh mục, khoảng giá, còn hàng, tác giả).
+     */
+    @Param({"keyword", "all"})
+    private String filters;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManager entityManager;
+    private CriteriaBuilder criteriaBuilder;
+
+    private String keyword;
+    private Long categoryId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStockOnly;
+    private String author;
+
+    @Setup
+    public void setUp() {
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:spec-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        factoryBean.setPackagesToScan(Product.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "none"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+        criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        keyword = "dragon";
+        if ("all".equals(filters)) {
+            categoryId = 7L;
+            minPrice = new BigDecimal("5.00");
+            maxPrice = new BigDecimal("30.00");
+            inStockOnly = true;
+            author = "Author 42";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public Specification<Product> buildSpecification() {
+        return ProductSpecification.buildSpecification(keyword, categoryId, minPrice, maxPrice, inStockOnly, author);
+    }
+
+    @Benchmark
+    public Predicate toPredicate() {
+        return predicate(criteriaBuilder.createQuery(Product.class));
+    }
+
+    @Benchmark
+    public TypedQuery<Product> createQuery() {
+        CriteriaQuery<Product> query = criteriaBuilder.createQuery(Product.class);
+        Predicate predicate = predicate(query);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private Predicate predicate(CriteriaQuery<Product> query) {
+        Root<Product> root = query.from(Product.class);
+        return ProductSpecification.buildSpecification(keyword, categoryId, minPrice, maxPrice, inStockOnly, author)
+                .toPredicate(root, query, criteriaBuilder);
+    }
+}
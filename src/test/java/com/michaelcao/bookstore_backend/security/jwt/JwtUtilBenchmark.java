@@ -0,0 +1,72 @@
+package com.michaelcao.bookstore_backend.security.jwt;
+
+import com.michaelcao.bookstore_backend.entity.Role;
+import com.michaelcao.bookstore_backend.entity.User;
+import io.jsonwebtoken.io.Encoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sinh và kiểm tra access token (HS256): chạy trên mọi request có xác thực qua JwtAuthenticationFilter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", Encoders.BASE64.encode(key));
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpirationMs", 3_600_000L);
+
+        user = User.builder()
+                .id(1L)
+                .name("Benchmark User")
+                .email("benchmark@example.com")
+                .password("unused")
+                .enabled(true)
+                .avatarUrl("/default-avatar.png")
+                .roles(new HashSet<>(Set.of(Role.builder().id(1).name("ROLE_CUSTOMER").build())))
+                .build();
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean isTokenValid() {
+        return jwtUtil.isTokenValid(token, user);
+    }
+}
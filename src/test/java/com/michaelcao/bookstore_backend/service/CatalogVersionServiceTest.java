@@ -0,0 +1,112 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.entity.CatalogVersion;
+import com.michaelcao.bookstore_backend.repository.CatalogVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionServiceTest {
+
+    private final InMemoryVersions repository = new InMemoryVersions();
+    private final CatalogVersionService service = new CatalogVersionService(repository);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bumpsVersionsImmediatelyOutsideTransaction() {
+        service.afterSingletonsInstantiated();
+
+        service.markProductContentChanged();
+
+        assertThat(service.getProductVersion()).isEqualTo(1);
+        assertThat(service.getProductContentVersion()).isEqualTo(1);
+        assertThat(service.getCategoryVersion()).isZero();
+    }
+
+    @Test
+    void writesVersionInsideTransactionAndRefreshesLocalCopyAfterCommit() {
+        service.afterSingletonsInstantiated();
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.markProductsChanged();
+
+        // Dòng catalog_versions được ghi ngay trong transaction, bản sao cục bộ chỉ đổi sau commit
+        assertThat(repository.versions.get(CatalogVersion.PRODUCTS)).isEqualTo(1);
+        assertThat(service.getProductVersion()).isZero();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(service.getProductVersion()).isEqualTo(1);
+        assertThat(service.getProductContentVersion()).isZero();
+    }
+
+    @Test
+    void keepsLocalCopyWhenTransactionRollsBack() {
+        service.afterSingletonsInstantiated();
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.markCategoriesChanged();
+        repository.versions.replaceAll((name, version) -> 0L); // DB rollback
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(service.getProductVersion()).isZero();
+        assertThat(service.getCategoryVersion()).isZero();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static final class InMemoryVersions extends CatalogVersionRepository {
+
+        private final Map<String, Long> versions = new HashMap<>();
+
+        private InMemoryVersions() {
+            super(null);
+        }
+
+        @Override
+        public Map<String, CatalogVersion> findAll() {
+            Map<String, CatalogVersion> rows = new HashMap<>();
+            versions.forEach((name, version) -> {
+                CatalogVersion row = new CatalogVersion();
+                row.setName(name);
+                row.setVersion(version);
+                row.setUpdatedAt(Instant.EPOCH);
+                rows.put(name, row);
+            });
+            return rows;
+        }
+
+        @Override
+        public void increment(Collection<String> names, Instant now) {
+            names.forEach(name -> versions.merge(name, 1L, Long::sum));
+        }
+
+        @Override
+        public void createMissing(Collection<String> names, Instant now) {
+            names.forEach(name -> versions.putIfAbsent(name, 0L));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.order.OrderExpiryStatsDTO;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.DomainEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusBatchChangedEvent;
+import com.michaelcao.bookstore_backend.repository.OrderExpiryRepository;
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExpiryServiceTest {
+
+    private static final String LEASE = "order-payment-expiry";
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    @Mock
+    private OrderExpiryRepository orderExpiryRepository;
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private DomainEventPublisher domainEventPublisher;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderExpiryService service;
+
+    @BeforeEach
+    void setUp() {
+        // batch-size 2, tối đa 5 batch mỗi lượt
+        service = new OrderExpiryService(orderExpiryRepository, schedulerLeaseService, domainEventPublisher,
+                catalogVersionService, new BusinessMetrics(new SimpleMeterRegistry()), transactionManager,
+                true, 30, 2, 5, 300);
+    }
+
+    @Test
+    void cancelsBatchesUntilOneIsShortAndReleasesTheirStock() {
+        List<byte[]> full = ids(first, second);
+        List<byte[]> last = ids(third);
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(true);
+        when(orderExpiryRepository.lockExpiredOrderIds(any(Instant.class), eq(2))).thenReturn(full, last);
+        when(orderExpiryRepository.sumItemQuantities(full)).thenReturn(5L);
+        when(orderExpiryRepository.sumItemQuantities(last)).thenReturn(1L);
+        when(orderExpiryRepository.cancelPendingPayment(full)).thenReturn(2);
+        when(orderExpiryRepository.cancelPendingPayment(last)).thenReturn(1);
+
+        assertThat(service.sweepExpiredOrders()).isEqualTo(3);
+
+        verify(orderExpiryRepository).restoreStock(eq(full), any(Instant.class));
+        verify(orderExpiryRepository).restoreStock(eq(last), any(Instant.class));
+        verify(catalogVersionService, times(2)).markProductsChanged();
+        verify(schedulerLeaseService).release(LEASE);
+
+        ArgumentCaptor<DomainEvent> events = ArgumentCaptor.forClass(DomainEvent.class);
+        verify(domainEventPublisher, times(2)).publish(events.capture());
+        assertThat(events.getAllValues()).map(OrderStatusBatchChangedEvent.class::cast)
+                .allSatisfy(event -> {
+                    assertThat(event.getOldStatus()).isEqualTo(OrderStatus.PENDING_PAYMENT);
+                    assertThat(event.getNewStatus()).isEqualTo(OrderStatus.CANCELLED);
+                    assertThat(event.isStockRestored()).isTrue();
+                })
+                .flatMap(OrderStatusBatchChangedEvent::getOrderIds).containsExactly(first, second, third);
+
+        OrderExpiryStatsDTO stats = service.getStats();
+        assertThat(stats.getSweptOrders()).isEqualTo(3);
+        assertThat(stats.getReleasedUnits()).isEqualTo(6);
+        assertThat(stats.getRuns()).isEqualTo(1);
+    }
+
+    @Test
+    void writesNothingWhenNoOrderExpired() {
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(true);
+        when(orderExpiryRepository.lockExpiredOrderIds(any(Instant.class), anyInt())).thenReturn(List.of());
+
+        assertThat(service.sweepExpiredOrders()).isZero();
+
+        verify(orderExpiryRepository, never()).cancelPendingPayment(anyList());
+        verify(orderExpiryRepository, never()).restoreStock(anyList(), any());
+        verify(catalogVersionService, never()).markProductsChanged();
+        verify(domainEventPublisher, never()).publish(any());
+        verify(schedulerLeaseService).release(LEASE);
+    }
+
+    @Test
+    void skipsRunWhileAnotherNodeHoldsTheLease() {
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(false);
+
+        assertThat(service.sweepExpiredOrders()).isZero();
+
+        verify(orderExpiryRepository, never()).lockExpiredOrderIds(any(), anyInt());
+        verify(schedulerLeaseService, never()).release(any());
+        assertThat(service.getStats().getRuns()).isZero();
+    }
+
+    private static List<byte[]> ids(UUID... orderIds) {
+        return List.of(orderIds).stream().map(ProductBulkRepository::toBytes).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michaelcao.bookstore_backend.entity.OutboxEvent;
+import com.michaelcao.bookstore_backend.entity.OutboxEventStatus;
+import com.michaelcao.bookstore_backend.event.NodeLocalEvent;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent.ChangeType;
+import com.michaelcao.bookstore_backend.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final String LEASE = "outbox-relay";
+    private static final long WAIT_MS = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UUID book = UUID.randomUUID();
+    private final UUID otherBook = UUID.randomUUID();
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        // batch-size 100, 3 lần thử, không backoff
+        relay = new OutboxRelay(outboxEventRepository, applicationEventPublisher, objectMapper, transactionManager,
+                schedulerLeaseService, 100, 3, 0, 7, 30, 60_000);
+        // Node vừa khởi động với outbox rỗng: con trỏ giao cục bộ bắt đầu từ 0
+        when(outboxEventRepository.findMaxId()).thenReturn(0L);
+        relay.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void deliversEventAndNodeLocalCopyThenMarksItPublished() throws Exception {
+        ProductChangedEvent changed = new ProductChangedEvent(book, ChangeType.UPDATED);
+        List<OutboxEvent> pending = List.of(outboxEvent(1L, changed));
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(true);
+        when(outboxEventRepository.findBatch(eq(OutboxEventStatus.PENDING), eq(0L), any(Pageable.class))).thenReturn(pending);
+        when(outboxEventRepository.findAfter(eq(0L), any(Pageable.class))).thenReturn(pending);
+
+        relay.wakeUp();
+
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(applicationEventPublisher, timeout(WAIT_MS).times(2)).publishEvent(published.capture());
+        assertThat(published.getAllValues()).containsExactly(changed, new NodeLocalEvent<>(changed));
+        verify(outboxEventRepository).markPublished(eq(List.of(1L)), eq(OutboxEventStatus.PUBLISHED), any(Instant.class));
+    }
+
+    @Test
+    void deliversOnlyNodeLocalCopyWhileAnotherNodeHoldsTheLease() throws Exception {
+        ProductChangedEvent changed = new ProductChangedEvent(book, ChangeType.CREATED);
+        List<OutboxEvent> written = List.of(outboxEvent(1L, changed));
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(false);
+        when(outboxEventRepository.findAfter(eq(0L), any(Pageable.class))).thenReturn(written);
+
+        relay.wakeUp();
+
+        verify(applicationEventPublisher, timeout(WAIT_MS)).publishEvent((Object) new NodeLocalEvent<>(changed));
+        verify(applicationEventPublisher, never()).publishEvent((Object) changed);
+        verify(outboxEventRepository, never()).findBatch(any(), anyLong(), any());
+        verify(outboxEventRepository, never()).markPublished(any(), any(), any());
+    }
+
+    @Test
+    void holdsLaterEventsOfAggregateWhenDeliveryFails() throws Exception {
+        ProductChangedEvent failing = new ProductChangedEvent(book, ChangeType.UPDATED);
+        ProductChangedEvent held = new ProductChangedEvent(book, ChangeType.DELETED);
+        ProductChangedEvent independent = new ProductChangedEvent(otherBook, ChangeType.UPDATED);
+        OutboxEvent first = outboxEvent(1L, failing);
+        List<OutboxEvent> pending = List.of(first, outboxEvent(2L, held), outboxEvent(3L, independent));
+        when(schedulerLeaseService.tryAcquire(eq(LEASE), any(Duration.class))).thenReturn(true);
+        when(outboxEventRepository.findBatch(eq(OutboxEventStatus.PENDING), eq(0L), any(Pageable.class))).thenReturn(pending);
+        when(outboxEventRepository.findAfter(eq(0L), any(Pageable.class))).thenReturn(List.of());
+        // Subscriber lỗi với event gốc đầu tiên
+        doAnswer(invocation -> {
+            if (failing.equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("mail server down");
+            }
+            return null;
+        }).when(applicationEventPublisher).publishEvent(any(Object.class));
+
+        relay.wakeUp();
+
+        verify(outboxEventRepository, timeout(WAIT_MS)).markPublished(eq(List.of(3L)), eq(OutboxEventStatus.PUBLISHED), any(Instant.class));
+        verify(outboxEventRepository).save(first);
+        verify(applicationEventPublisher, never()).publishEvent((Object) held);
+        assertThat(first.getAttempts()).isEqualTo(1);
+        assertThat(first.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+        assertThat(first.getLastError()).contains("mail server down");
+    }
+
+    private OutboxEvent outboxEvent(long id, ProductChangedEvent event) throws JsonProcessingException {
+        OutboxEvent outboxEvent = new OutboxEvent(event.aggregateType(), event.aggregateId(),
+                ProductChangedEvent.class.getSimpleName(), objectMapper.writeValueAsString(event), Instant.EPOCH);
+        outboxEvent.setId(id);
+        return outboxEvent;
+    }
+}
@@ -0,0 +1,123 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository.Basket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mô hình mua kèm trên lịch sử tổng hợp: sản phẩm phân phối lệch (vài sản phẩm bán rất chạy), giỏ 1-6 sản phẩm.
+ * Đo: đọc gợi ý của một sản phẩm bán chạy, áp dụng một event đặt hàng, và dựng lại toàn bộ (chunk từ "DB" trong bộ nhớ).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductCoPurchaseIndexBenchmark {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Param({"50000"})
+    private int products;
+
+    @Param({"500000"})
+    private int orders;
+
+    private UUID[] productIds;
+    private List<Basket> history;
+    private ProductCoPurchaseIndex index;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        productIds = new UUID[products];
+        for (int i = 0; i < products; i++) {
+            productIds[i] = UUID.randomUUID();
+        }
+        history = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            history.add(new Basket(UUID.randomUUID(), START.plusSeconds(i * 60L), basket()));
+        }
+        // Không cần lease: gọi rebuild() trực tiếp
+        index = new ProductCoPurchaseIndex(new InMemoryBaskets(history), null, BenchmarkFixtures.noOpTransactionManager(),
+                new SimpleMeterRegistry(), true, 20, 200, 50, 1000, 0, 10_000, "", 300, 1800);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<UUID> alsoBought() {
+        return index.alsoBought(productIds[0], 10); // Sản phẩm bán chạy nhất: hàng đầy nhất
+    }
+
+    @Benchmark
+    public void orderPlaced() {
+        index.onOrderPlaced(new OrderPlacedEvent(UUID.randomUUID(), 1L, OrderStatus.PENDING, Instant.now(),
+                BigDecimal.TEN, basket()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public long rebuild() {
+        return index.rebuild();
+    }
+
+    // Phân phối lệch: lập phương của số ngẫu nhiên dồn xác suất về các ordinal nhỏ
+    private List<UUID> basket() {
+        int size = 1 + random.nextInt(6);
+        List<UUID> basket = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double r = random.nextDouble();
+            basket.add(productIds[(int) (r * r * r * products)]);
+        }
+        return basket;
+    }
+
+    private static final class InMemoryBaskets extends OrderBasketRepository {
+
+        private final List<Basket> history;
+
+        private InMemoryBaskets(List<Basket> history) {
+            super(null);
+            this.history = history;
+        }
+
+        @Override
+        public List<Basket> findBasketPage(Instant to, Collection<OrderStatus> excludedStatuses,
+                                           Instant afterDate, UUID afterId, int limit, boolean archived) {
+            if (archived) {
+                return List.of();
+            }
+            // Giỏ thứ i đặt lúc START + i phút
+            int from = afterDate != null ? (int) ((afterDate.getEpochSecond() - START.getEpochSecond()) / 60) + 1 : 0;
+            return history.subList(from, Math.min(from + limit, history.size()));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.event.OrderPlacedEvent;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository;
+import com.michaelcao.bookstore_backend.repository.OrderBasketRepository.Basket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ProductCoPurchaseIndexTest {
+
+    private static final UUID A = UUID.randomUUID();
+    private static final UUID B = UUID.randomUUID();
+    private static final UUID C = UUID.randomUUID();
+    private static final UUID D = UUID.randomUUID();
+
+    private final Instant now = Instant.now();
+    private final List<Basket> history = new ArrayList<>();
+    private Runnable duringScan = () -> {
+    };
+    private final ProductCoPurchaseIndex index = new ProductCoPurchaseIndex(new InMemoryBaskets(), null,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, 20, 200, 50, 1000, 1, 10_000, "", 300, 1800);
+
+    @Test
+    void ignoresRedeliveredEvent() {
+        OrderPlacedEvent withC = event(now, A, C);
+        index.onOrderPlaced(event(now, A, B));
+        index.onOrderPlaced(event(now, A, B));
+        index.onOrderPlaced(withC);
+        index.onOrderPlaced(withC);
+        index.onOrderPlaced(withC);
+
+        assertThat(index.alsoBought(A, 10)).containsExactly(B, C);
+        assertThat(index.alsoBought(C, 10)).containsExactly(A);
+    }
+
+    @Test
+    void countsEachProductOncePerBasket() {
+        index.onOrderPlaced(event(now, A, C, C, C));
+        index.onOrderPlaced(event(now, A, B));
+        index.onOrderPlaced(event(now, A, B));
+
+        assertThat(index.alsoBought(A, 10)).containsExactly(B, C);
+    }
+
+    @Test
+    void skipsEventsOfOrdersAlreadyCountedByRebuild() {
+        Basket old = basket(now.minus(Duration.ofHours(1)), A, B);
+        Basket recent = basket(now.minusSeconds(60), A, C); // Trong journal-margin: chỉ bị loại nhờ recent
+        history.add(old);
+        history.add(basket(now.minus(Duration.ofHours(1)), A, B));
+        history.add(recent);
+        assertThat(index.rebuild()).isEqualTo(3);
+
+        index.onOrderPlaced(event(old));
+        index.onOrderPlaced(event(recent));
+        index.onOrderPlaced(event(recent));
+        assertThat(index.alsoBought(A, 10)).containsExactly(B, C);
+
+        index.onOrderPlaced(event(now, A, C));
+        index.onOrderPlaced(event(now, A, C));
+        assertThat(index.alsoBought(A, 10)).containsExactly(C, B);
+    }
+
+    @Test
+    void appliesEventsArrivingDuringRebuildExactlyOnce() {
+        Basket recent = basket(now.minusSeconds(60), A, C);
+        history.add(basket(now.minus(Duration.ofHours(1)), A, B));
+        history.add(basket(now.minus(Duration.ofHours(1)), A, B));
+        history.add(recent);
+        duringScan = () -> {
+            // Event của đơn sắp được quét (giao lại) và của đơn mới chưa nằm trong lịch sử
+            index.onOrderPlaced(event(recent));
+            index.onOrderPlaced(event(recent));
+            for (int i = 0; i < 3; i++) {
+                index.onOrderPlaced(event(now, A, D));
+            }
+        };
+
+        index.rebuild();
+
+        assertThat(index.alsoBought(A, 10)).containsExactly(D, B, C);
+    }
+
+    private static Basket basket(Instant orderDate, UUID... productIds) {
+        return new Basket(UUID.randomUUID(), orderDate, List.of(productIds));
+    }
+
+    private static OrderPlacedEvent event(Basket basket) {
+        return new OrderPlacedEvent(basket.orderId(), 1L, OrderStatus.PENDING, basket.orderDate(), BigDecimal.TEN, basket.productIds());
+    }
+
+    private static OrderPlacedEvent event(Instant orderDate, UUID... productIds) {
+        return event(basket(orderDate, productIds));
+    }
+
+    // Một trang chứa toàn bộ lịch sử (chunk-size lớn hơn số đơn); duringScan chạy khi bắt đầu quét bảng đơn hiện tại
+    private final class InMemoryBaskets extends OrderBasketRepository {
+
+        private InMemoryBaskets() {
+            super(null);
+        }
+
+        @Override
+        public List<Basket> findBasketPage(Instant to, Collection<OrderStatus> excludedStatuses,
+                                           Instant afterDate, UUID afterId, int limit, boolean archived) {
+            if (archived || afterDate != null) {
+                return List.of();
+            }
+            duringScan.run();
+            return history.stream().filter(basket -> basket.orderDate().isBefore(to)).toList();
+        }
+    }
+}
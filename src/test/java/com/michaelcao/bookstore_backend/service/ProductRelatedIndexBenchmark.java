@@ -0,0 +1,82 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.ProductCategoryRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.RelatedRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sản phẩm liên quan trên catalog tổng hợp: vài danh mục rất lớn (phân phối lệch), 1-3 danh mục mỗi sản phẩm,
+ * tác giả có nhiều đầu sách. Đo: đọc danh sách của một sản phẩm và dựng lại toàn bộ index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductRelatedIndexBenchmark {
+
+    @Param({"100000"})
+    private int products;
+
+    private UUID[] productIds;
+    private ProductRelatedIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        productIds = new UUID[products];
+        List<RelatedRow> rows = new ArrayList<>(products);
+        List<ProductCategoryRow> pairs = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            productIds[i] = UUID.randomUUID();
+            rows.add(BenchmarkFixtures.relatedRow(productIds[i], "Title " + i, "Author " + random.nextInt(products / 5), random.nextInt(1000)));
+            int categories = 1 + random.nextInt(3);
+            for (int c = 0; c < categories; c++) {
+                double r = random.nextDouble();
+                pairs.add(BenchmarkFixtures.productCategoryRow(productIds[i], (long) (r * r * 500))); // Danh mục nhỏ số chứa rất nhiều sản phẩm
+            }
+        }
+        ProductRepository productRepository = BenchmarkFixtures.stub(ProductRepository.class,
+                Map.of("findAllRelatedRows", rows, "findAllProductCategoryRows", pairs.stream().distinct().toList()));
+        index = new ProductRelatedIndex(productRepository, BenchmarkFixtures.catalogVersionService(), BenchmarkFixtures.noOpTransactionManager(),
+                new SimpleMeterRegistry(), 12, 200, 1.0, 1.5, 0.5, 5_000);
+        index.rebuildNow();
+    }
+
+    @Benchmark
+    public List<ProductSummaryDTO> related() {
+        return index.related(productIds[ThreadLocalRandom.current().nextInt(products)], 8);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public void rebuild() {
+        index.rebuildNow();
+    }
+}
@@ -0,0 +1,113 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductSummaryDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.ProductCategoryRow;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.RelatedRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRelatedIndexTest {
+
+    private static final UUID PRODUCT = UUID.randomUUID();
+    private static final UUID SAME_CATEGORIES = UUID.randomUUID();
+    private static final UUID SAME_AUTHOR = UUID.randomUUID();
+    private static final UUID BESTSELLER = UUID.randomUUID();
+    private static final UUID ONE_CATEGORY = UUID.randomUUID();
+    private static final UUID SAME_AUTHOR_OTHER_CATEGORY = UUID.randomUUID();
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductRelatedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<RelatedRow> rows = List.of(
+                relatedRow(PRODUCT, "Lê Minh", 10),
+                relatedRow(SAME_CATEGORIES, "Trần An", 0),
+                relatedRow(SAME_AUTHOR, "le minh", 0),
+                relatedRow(BESTSELLER, "Phạm Du", 1000),
+                relatedRow(ONE_CATEGORY, "Vũ Bình", 0),
+                relatedRow(SAME_AUTHOR_OTHER_CATEGORY, "Lê Minh", 0));
+        List<ProductCategoryRow> pairs = List.of(
+                productCategoryRow(PRODUCT, 1L),
+                productCategoryRow(PRODUCT, 2L),
+                productCategoryRow(SAME_CATEGORIES, 1L),
+                productCategoryRow(SAME_CATEGORIES, 2L),
+                productCategoryRow(SAME_AUTHOR, 1L),
+                productCategoryRow(BESTSELLER, 2L),
+                productCategoryRow(ONE_CATEGORY, 1L),
+                productCategoryRow(SAME_AUTHOR_OTHER_CATEGORY, 3L));
+        when(productRepository.findAllRelatedRows()).thenReturn(rows);
+        when(productRepository.findAllProductCategoryRows()).thenReturn(pairs);
+        index = new ProductRelatedIndex(productRepository, catalogVersionService, transactionManager, new SimpleMeterRegistry(),
+                12, 200, 1.0, 1.5, 0.5, 5_000);
+    }
+
+    @Test
+    void returnsNullUntilFirstBuildCompletes() {
+        assertThat(index.related(PRODUCT, 10)).isNull();
+        index.rebuildNow();
+        assertThat(index.related(PRODUCT, 10)).isNotEmpty();
+    }
+
+    @Test
+    void ranksBySharedCategoriesAuthorAndPopularity() {
+        index.rebuildNow();
+        // 1 danh mục + cùng tác giả (2.5) > 2 danh mục (2.0) > 1 danh mục + bán chạy nhất (1.5) > 1 danh mục (1.0)
+        assertThat(index.related(PRODUCT, 10)).extracting(ProductSummaryDTO::getId)
+                .containsExactly(SAME_AUTHOR, SAME_CATEGORIES, BESTSELLER, ONE_CATEGORY);
+        assertThat(index.related(PRODUCT, 2)).extracting(ProductSummaryDTO::getId)
+                .containsExactly(SAME_AUTHOR, SAME_CATEGORIES);
+    }
+
+    @Test
+    void requiresSharedCategory() {
+        index.rebuildNow();
+        assertThat(index.related(PRODUCT, 10)).extracting(ProductSummaryDTO::getId)
+                .doesNotContain(SAME_AUTHOR_OTHER_CATEGORY);
+        assertThat(index.related(SAME_AUTHOR_OTHER_CATEGORY, 10)).isEmpty();
+    }
+
+    @Test
+    void returnsNullForProductNotInIndex() {
+        index.rebuildNow();
+        assertThat(index.related(UUID.randomUUID(), 10)).isNull();
+    }
+
+    private static RelatedRow relatedRow(UUID id, String author, int soldCount) {
+        RelatedRow row = mock(RelatedRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getId()).thenReturn(id);
+        when(row.getTitle()).thenReturn("Title " + author);
+        when(row.getAuthor()).thenReturn(author);
+        when(row.getSoldCount()).thenReturn(soldCount);
+        return row;
+    }
+
+    private static ProductCategoryRow productCategoryRow(UUID productId, Long categoryId) {
+        ProductCategoryRow row = mock(ProductCategoryRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getProductId()).thenReturn(productId);
+        when(row.getCategoryId()).thenReturn(categoryId);
+        return row;
+    }
+}
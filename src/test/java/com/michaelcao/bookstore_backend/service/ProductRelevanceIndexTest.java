@@ -0,0 +1,96 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import com.michaelcao.bookstore_backend.service.ProductRelevanceIndex.Ranking;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRelevanceIndexTest {
+
+    private static final UUID DRAGON_RIVER = UUID.randomUUID();
+    private static final UUID OCEAN_WINTER = UUID.randomUUID();
+    private static final UUID LONG_TITLE = UUID.randomUUID();
+    private static final UUID SECRET_GARDEN = UUID.randomUUID();
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductRelevanceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<SuggestRow> rows = List.of(
+                suggestRow(DRAGON_RIVER, "Dragon River", "Lê Minh", "978-604-000001"),
+                suggestRow(OCEAN_WINTER, "Ocean Winter", "Trần Dragon", "978-604-000002"),
+                suggestRow(LONG_TITLE, "Dragon River Garden Shadow Ocean Winter", "Phạm Du", "978-604-000003"),
+                suggestRow(SECRET_GARDEN, "Secret Garden", "Lê Minh", "978-604-000004"));
+        when(productRepository.findAllSuggestRows()).thenReturn(rows);
+        index = new ProductRelevanceIndex(productRepository, catalogVersionService, transactionManager,
+                new SimpleMeterRegistry(), 3.0, 2.0, 10.0, 1000, 5_000);
+        index.rebuildNow();
+    }
+
+    @Test
+    void ranksShortTitleOverAuthorOverLongTitle() {
+        // Cùng một từ: title ngắn (boost 3) > tác giả (boost 2) > title dài gấp đôi trung bình (bị chuẩn hóa độ dài)
+        Ranking ranking = index.rank("dragon", 10);
+
+        assertThat(ranking.ids()).containsExactly(DRAGON_RIVER, OCEAN_WINTER, LONG_TITLE);
+        assertThat(ranking.total()).isEqualTo(3);
+    }
+
+    @Test
+    void requiresEveryQueryWord() {
+        assertThat(index.rank("garden dragon", 10).ids()).containsExactly(LONG_TITLE);
+        assertThat(index.rank("secret dragon", 10)).isEqualTo(Ranking.EMPTY);
+    }
+
+    @Test
+    void expandsOnlyLastWordAsPrefix() {
+        assertThat(index.rank("dragon ri", 10).ids()).containsExactly(DRAGON_RIVER, LONG_TITLE);
+        assertThat(index.rank("drag river", 10).ids()).isEmpty();
+    }
+
+    @Test
+    void matchesIsbnWithDashesAsSingleTerm() {
+        assertThat(ProductRelevanceIndex.queryTerms("978-604-000001")).containsExactly("978604000001");
+        assertThat(index.rank("978-604-000001", 10).ids()).containsExactly(DRAGON_RIVER);
+    }
+
+    @Test
+    void keepsTotalButReturnsOnlyTopK() {
+        Ranking ranking = index.rank("dragon", 1);
+
+        assertThat(ranking.ids()).containsExactly(DRAGON_RIVER);
+        assertThat(ranking.total()).isEqualTo(3);
+    }
+
+    private static SuggestRow suggestRow(UUID id, String title, String author, String isbn) {
+        SuggestRow row = mock(SuggestRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getId()).thenReturn(id);
+        when(row.getTitle()).thenReturn(title);
+        when(row.getAuthor()).thenReturn(author);
+        when(row.getIsbn()).thenReturn(isbn);
+        return row;
+    }
+}
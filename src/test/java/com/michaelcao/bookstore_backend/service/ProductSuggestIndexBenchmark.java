@@ -0,0 +1,85 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.dto.product.ProductSuggestionDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.michaelcao.bookstore_backend.perf.PerfDataSeeder.WORDS;
+
+/**
+ * Gợi ý theo tiền tố trên catalog tổng hợp (title ghép từ PerfDataSeeder.WORDS, tác giả tiếng Việt có dấu).
+ * Kích thước index được in ra log khi dựng (KB và MB cho mỗi 100k sản phẩm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductSuggestIndexBenchmark {
+
+    @Param({"100000"})
+    private int products;
+
+    @Param({"dr", "dragon ri", "nguyen", "978604"})
+    private String query;
+
+    private ProductSuggestIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<SuggestRow> rows = new ArrayList<>(products);
+        List<ReviewStats> stats = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(' ');
+                }
+                String word = WORDS[random.nextInt(WORDS.length)];
+                title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            }
+            UUID id = UUID.randomUUID();
+            String author = (random.nextBoolean() ? "Nguyễn " : "Trần ") + "Văn " + (char) ('A' + random.nextInt(26)) + random.nextInt(1_000);
+            String isbn = "978-604-" + String.format("%06d", i);
+            rows.add(BenchmarkFixtures.suggestRow(id, title.toString(), author, isbn, random.nextInt(5_000)));
+            if (random.nextInt(3) == 0) {
+                stats.add(BenchmarkFixtures.reviewStats(id, 1 + random.nextDouble() * 4, 1 + random.nextInt(200)));
+            }
+        }
+        ProductRepository productRepository = BenchmarkFixtures.stub(ProductRepository.class, Map.of("findAllSuggestRows", rows));
+        ReviewRepository reviewRepository = BenchmarkFixtures.stub(ReviewRepository.class, Map.of("findAllReviewStats", stats));
+        index = new ProductSuggestIndex(productRepository, reviewRepository, BenchmarkFixtures.catalogVersionService(),
+                BenchmarkFixtures.noOpTransactionManager(), new SimpleMeterRegistry(), 10, 2, 500, 600_000, 60_000);
+        index.rebuildNow(); // Dựng index trước khi đo
+    }
+
+    @Benchmark
+    public List<ProductSuggestionDTO> suggest() {
+        return index.suggest(query, 10);
+    }
+}
@@ -0,0 +1,153 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.product.ProductSuggestionDTO;
+import com.michaelcao.bookstore_backend.event.ProductChangedEvent.ChangeType;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestIndexTest {
+
+    private static final UUID DRAGON_RIVER = UUID.randomUUID();
+    private static final UUID DRAGON_EMPIRE = UUID.randomUUID();
+    private static final UUID GARDEN_OF_DRAGONS = UUID.randomUUID();
+    private static final UUID OCEAN_WINTER = UUID.randomUUID();
+    private static final UUID DRAGON_TALES = UUID.randomUUID();
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ReviewRepository reviewRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Dựng dòng trước: không stub mock lồng trong when(...)
+        List<SuggestRow> rows = List.of(
+                suggestRow(DRAGON_RIVER, "Dragon River", "Trần Văn An", "978-604-000001", 500),
+                suggestRow(DRAGON_EMPIRE, "Dragon Empire", "Trần Thị Bình", "978-604-000002", 100),
+                suggestRow(GARDEN_OF_DRAGONS, "The Garden of Dragons", "Trần Minh", "978-604-000003", 100),
+                suggestRow(OCEAN_WINTER, "Ocean Winter", "Nguyễn Nhật Ánh", "978-604-100000", 50));
+        List<ReviewStats> stats = List.of(reviewStats(DRAGON_EMPIRE, 3.0), reviewStats(GARDEN_OF_DRAGONS, 4.5));
+        when(productRepository.findAllSuggestRows()).thenReturn(rows);
+        when(reviewRepository.findAllReviewStats()).thenReturn(stats);
+        index = new ProductSuggestIndex(productRepository, reviewRepository, catalogVersionService, transactionManager,
+                new SimpleMeterRegistry(), 10, 2, 500, 600_000, 60_000);
+    }
+
+    @Test
+    void returnsNothingUntilFirstBuildCompletes() {
+        assertThat(index.suggest("dragon", 10)).isEmpty();
+        index.rebuildNow();
+        assertThat(index.suggest("dragon", 10)).hasSize(3);
+    }
+
+    @Test
+    void mergesLocalChangesUntilNextBuild() {
+        index.rebuildNow();
+        // Sản phẩm tạo sau khi dựng index, chỉ đọc qua onProductChanged
+        SuggestRow created = suggestRow(DRAGON_TALES, "Dragon Tales", "Lê Hoa", "978-604-200000", 900);
+        when(productRepository.findSuggestRowById(DRAGON_TALES)).thenReturn(Optional.of(created));
+        when(reviewRepository.findReviewStatsByProductIdsProjection(List.of(DRAGON_TALES))).thenReturn(List.of());
+
+        index.onProductChanged(DRAGON_TALES, ChangeType.CREATED);
+        index.onProductChanged(DRAGON_EMPIRE, ChangeType.DELETED);
+
+        assertThat(index.suggest("dragon", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactly(DRAGON_TALES, DRAGON_RIVER, GARDEN_OF_DRAGONS);
+    }
+
+    @Test
+    void matchesPrefixAtStartOfAnyWord() {
+        index.rebuildNow();
+
+        assertThat(index.suggest("dra", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactlyInAnyOrder(DRAGON_RIVER, DRAGON_EMPIRE, GARDEN_OF_DRAGONS);
+        assertThat(index.suggest("dragon ri", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactly(DRAGON_RIVER);
+        assertThat(index.suggest("agon", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksBySoldCountThenAverageRating() {
+        index.rebuildNow();
+
+        // DRAGON_EMPIRE và GARDEN_OF_DRAGONS cùng số lượng bán, GARDEN_OF_DRAGONS có điểm đánh giá cao hơn
+        assertThat(index.suggest("dragon", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactly(DRAGON_RIVER, GARDEN_OF_DRAGONS, DRAGON_EMPIRE);
+        assertThat(index.suggest("dragon", 2)).extracting(ProductSuggestionDTO::getId)
+                .containsExactly(DRAGON_RIVER, GARDEN_OF_DRAGONS);
+    }
+
+    @Test
+    void ignoresCaseAndDiacriticsOnAuthor() {
+        index.rebuildNow();
+
+        List<ProductSuggestionDTO> result = index.suggest("NGUYEN NH", 10);
+
+        assertThat(result).extracting(ProductSuggestionDTO::getId).containsExactly(OCEAN_WINTER);
+        assertThat(result.get(0).getMatchedField()).isEqualTo("author");
+        assertThat(index.suggest("trần", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactlyInAnyOrder(DRAGON_RIVER, DRAGON_EMPIRE, GARDEN_OF_DRAGONS);
+    }
+
+    @Test
+    void matchesIsbnWithOrWithoutDashes() {
+        index.rebuildNow();
+
+        assertThat(index.suggest("978-604-1", 10)).extracting(ProductSuggestionDTO::getId, ProductSuggestionDTO::getMatchedField)
+                .containsExactly(tuple(OCEAN_WINTER, "isbn"));
+        assertThat(index.suggest("9786041", 10)).extracting(ProductSuggestionDTO::getId)
+                .containsExactly(OCEAN_WINTER);
+    }
+
+    @Test
+    void ignoresQueryShorterThanMinPrefix() {
+        index.rebuildNow();
+
+        assertThat(index.suggest("d", 10)).isEmpty();
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    private static SuggestRow suggestRow(UUID id, String title, String author, String isbn, int soldCount) {
+        SuggestRow row = mock(SuggestRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getId()).thenReturn(id);
+        when(row.getTitle()).thenReturn(title);
+        when(row.getAuthor()).thenReturn(author);
+        when(row.getIsbn()).thenReturn(isbn);
+        when(row.getSoldCount()).thenReturn(soldCount);
+        return row;
+    }
+
+    private static ReviewStats reviewStats(UUID productId, double averageRating) {
+        ReviewStats stats = mock(ReviewStats.class, withSettings().strictness(Strictness.LENIENT));
+        when(stats.getProductId()).thenReturn(productId);
+        when(stats.getAverageRating()).thenReturn(averageRating);
+        return stats;
+    }
+}
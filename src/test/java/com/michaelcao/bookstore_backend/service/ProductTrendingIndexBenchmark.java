@@ -0,0 +1,78 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.TrendingRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Điểm thịnh hành: ghi nhận tín hiệu từ nhiều thread (bộ đếm striped) và publish top-k khi đang theo dõi nhiều sản phẩm.
+ * Thông tin sản phẩm của top-k được cache, nên publish ở trạng thái ổn định không gọi repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductTrendingIndexBenchmark {
+
+    @Param({"100000"})
+    private int products;
+
+    private UUID[] productIds;
+    private ProductTrendingIndex index;
+
+    @Setup
+    public void setUp() {
+        productIds = new UUID[products];
+        List<TrendingRow> rows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            productIds[i] = UUID.randomUUID();
+            rows.add(BenchmarkFixtures.trendingRow(productIds[i], "Title " + i));
+        }
+        ProductRepository productRepository = BenchmarkFixtures.stub(ProductRepository.class, Map.of("findTrendingRowsByIdIn", rows));
+        index = new ProductTrendingIndex(productRepository, BenchmarkFixtures.catalogVersionService(), BenchmarkFixtures.noOpTransactionManager(),
+                new SimpleMeterRegistry(), true, 24, 1, 3, 2, 5, 50, 0.0);
+        for (int i = 0; i < products * 5; i++) {
+            index.record(productIds[skewed()], ProductTrendingIndex.Signal.VIEW);
+        }
+        index.publish();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        index.record(productIds[skewed()], ProductTrendingIndex.Signal.VIEW);
+    }
+
+    @Benchmark
+    public void publish() {
+        index.publish();
+    }
+
+    // Phân phối lệch về các sản phẩm đầu danh sách, như lượt xem thật
+    private int skewed() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (r * r * r * products);
+    }
+}
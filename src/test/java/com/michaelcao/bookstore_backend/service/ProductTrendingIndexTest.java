@@ -0,0 +1,115 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.dto.product.TrendingProductDTO;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.TrendingRow;
+import com.michaelcao.bookstore_backend.service.ProductTrendingIndex.Signal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class ProductTrendingIndexTest {
+
+    private static final UUID A = UUID.randomUUID();
+    private static final UUID B = UUID.randomUUID();
+    private static final UUID C = UUID.randomUUID();
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductTrendingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<TrendingRow> rows = List.of(trendingRow(A), trendingRow(B), trendingRow(C));
+        when(productRepository.findTrendingRowsByIdIn(anyCollection())).thenReturn(rows);
+        index = new ProductTrendingIndex(productRepository, catalogVersionService, transactionManager, meterRegistry,
+                true, 1, 1, 3, 2, 5, 50, 0.05, clock::get);
+    }
+
+    @Test
+    void halvesScoreEveryHalfLife() {
+        index.record(A, Signal.PURCHASE);
+        advance(Duration.ofHours(1));
+        index.record(B, Signal.CART);
+        index.publish();
+
+        // Đơn hàng một giờ trước (5 -> 2.5) xếp sau lượt thêm giỏ vừa xong (3)
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getId, TrendingProductDTO::getScore)
+                .containsExactly(tuple(B, 3.0), tuple(A, 2.5));
+
+        advance(Duration.ofHours(1));
+        index.publish();
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getId, TrendingProductDTO::getScore)
+                .containsExactly(tuple(B, 1.5), tuple(A, 1.25));
+        assertThat(index.trending(1)).extracting(TrendingProductDTO::getId).containsExactly(B);
+    }
+
+    @Test
+    void dropsProductsThatDecayBelowMinScore() {
+        index.record(A, Signal.VIEW);
+        advance(Duration.ofHours(5)); // 1 / 32 < 0.05
+        index.record(B, Signal.VIEW);
+        index.publish();
+
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getId).containsExactly(B);
+        assertThat(meterRegistry.get(ProductTrendingIndex.TRACKED_PRODUCTS).gauge().value()).isEqualTo(1);
+
+        index.record(A, Signal.VIEW);
+        index.publish();
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getScore).containsExactly(1.0, 1.0);
+    }
+
+    @Test
+    void keepsScoresOnSameScaleAfterRebase() {
+        index.record(A, Signal.PURCHASE);
+        advance(Duration.ofHours(50)); // Số mũ vượt MAX_EXPONENT: publish dời epoch
+        index.record(B, Signal.VIEW);
+        index.publish();
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getId, TrendingProductDTO::getScore)
+                .containsExactly(tuple(B, 1.0));
+
+        advance(Duration.ofHours(1));
+        index.record(C, Signal.VIEW);
+        index.publish();
+        assertThat(index.trending(10)).extracting(TrendingProductDTO::getId, TrendingProductDTO::getScore)
+                .containsExactly(tuple(C, 1.0), tuple(B, 0.5));
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toMillis());
+    }
+
+    private static TrendingRow trendingRow(UUID id) {
+        TrendingRow row = mock(TrendingRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getId()).thenReturn(id);
+        when(row.getTitle()).thenReturn("Title " + id);
+        when(row.getStockQuantity()).thenReturn(10);
+        return row;
+    }
+}
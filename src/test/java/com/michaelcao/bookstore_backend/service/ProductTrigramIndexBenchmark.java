@@ -0,0 +1,91 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.michaelcao.bookstore_backend.perf.PerfDataSeeder.WORDS;
+
+/**
+ * Tìm kiếm gần đúng trên catalog tổng hợp 200k title (tiếng Việt có dấu), truy vấn sai chính tả / không dấu.
+ * Title ghép từ PerfDataSeeder.WORDS (1/4 số từ) và âm tiết tiếng Việt sinh ngẫu nhiên (vài nghìn âm tiết khác nhau),
+ * nên vài trigram rất phổ biến còn đa số thì hiếm như catalog thật. Thời gian dựng và kích thước index được in ra log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductTrigramIndexBenchmark {
+
+    private static final String[] INITIALS = {
+            "b", "c", "ch", "d", "đ", "g", "gi", "h", "kh", "l", "m", "n", "ng", "nh", "ph", "qu", "r", "s", "t", "th",
+            "tr", "v", "x"
+    };
+    private static final String[] VOWELS = {
+            "a", "á", "à", "ả", "ã", "ạ", "ă", "â", "e", "ê", "i", "o", "ô", "ơ", "u", "ư", "y", "ươ", "iê", "uô"
+    };
+    private static final String[] FINALS = {"", "c", "ch", "m", "n", "ng", "nh", "p", "t", "i", "o", "u"};
+    private static final String[] FAMILY_NAMES = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Vũ", "Đặng", "Bùi"};
+    private static final String[] GIVEN_NAMES = {"Nhật Ánh", "Du", "Xuân Quỳnh", "Văn Cao", "Ngọc Tư", "Quang Dũng", "Hữu Thỉnh"};
+
+    @Param({"200000"})
+    private int products;
+
+    // Sai chính tả trong tên tác giả, thiếu dấu, đảo ký tự, thiếu ký tự
+    @Param({"nguyen nhat ahn", "dragn rivr", "secrte gardne", "mahcine memroy"})
+    private String query;
+
+    private ProductTrigramIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<SuggestRow> rows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(' ');
+                }
+                String word = random.nextInt(4) == 0 ? WORDS[random.nextInt(WORDS.length)]
+                        : INITIALS[random.nextInt(INITIALS.length)] + VOWELS[random.nextInt(VOWELS.length)]
+                        + FINALS[random.nextInt(FINALS.length)];
+                title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            }
+            String author = FAMILY_NAMES[random.nextInt(FAMILY_NAMES.length)] + " "
+                    + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + " " + (char) ('A' + random.nextInt(26)) + random.nextInt(100);
+            rows.add(BenchmarkFixtures.suggestRow(UUID.randomUUID(), title.toString(), author, null, 0));
+        }
+        ProductRepository productRepository = BenchmarkFixtures.stub(ProductRepository.class, Map.of("findAllSuggestRows", rows));
+        index = new ProductTrigramIndex(productRepository, BenchmarkFixtures.catalogVersionService(), BenchmarkFixtures.noOpTransactionManager(),
+                new SimpleMeterRegistry(), true, 0.3, 200, 100, 60_000);
+        index.rebuildNow(); // Dựng index trước khi đo
+    }
+
+    @Benchmark
+    public List<UUID> search() {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,97 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.repository.ProductRepository;
+import com.michaelcao.bookstore_backend.repository.ProductRepository.SuggestRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class ProductTrigramIndexTest {
+
+    private static final UUID DRAGON_RIVER = UUID.randomUUID();
+    private static final UUID SECRET_GARDEN = UUID.randomUUID();
+    private static final UUID MACHINE_MEMORY = UUID.randomUUID();
+    private static final UUID OCEAN_WINTER = UUID.randomUUID();
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void boundedEditDistanceCountsTranspositionAsOneEdit() {
+        ProductTrigramIndex.EditDistance distance = new ProductTrigramIndex.EditDistance();
+
+        assertThat(distance.bounded("dragon", "dragon", 2)).isZero();
+        assertThat(distance.bounded("secrte", "secret", 2)).isEqualTo(1);
+        assertThat(distance.bounded("dragn", "dragon", 2)).isEqualTo(1);
+        assertThat(distance.bounded("rivr", "river", 2)).isEqualTo(1);
+        assertThat(distance.bounded("kitten", "sittin", 2)).isEqualTo(2);
+        // Vượt ngưỡng thì chỉ trả về max + 1
+        assertThat(distance.bounded("machine", "memory", 2)).isEqualTo(3);
+        assertThat(distance.bounded("ab", "abcdef", 1)).isEqualTo(2);
+    }
+
+    @Test
+    void allowsMoreEditsForLongerWords() {
+        assertThat(ProductTrigramIndex.maxEdits(2)).isZero();
+        assertThat(ProductTrigramIndex.maxEdits(5)).isEqualTo(1);
+        assertThat(ProductTrigramIndex.maxEdits(6)).isEqualTo(2);
+    }
+
+    @Test
+    void findsTitleDespiteTyposAndMissingDiacritics() {
+        List<SuggestRow> rows = List.of(
+                suggestRow(DRAGON_RIVER, "Dragon River", "Trần Văn An", null),
+                suggestRow(SECRET_GARDEN, "The Secret Garden", "Lê Minh", null),
+                suggestRow(MACHINE_MEMORY, "Machine Memory", "Phạm Du", null),
+                suggestRow(OCEAN_WINTER, "Ocean Winter", "Nguyễn Nhật Ánh", null));
+        when(productRepository.findAllSuggestRows()).thenReturn(rows);
+        ProductTrigramIndex index = index(true);
+        index.rebuildNow();
+
+        assertThat(index.search("dragn rivr")).first().isEqualTo(DRAGON_RIVER);
+        assertThat(index.search("secrte gardne")).first().isEqualTo(SECRET_GARDEN);
+        assertThat(index.search("mahcine memroy")).first().isEqualTo(MACHINE_MEMORY);
+        assertThat(index.search("nguyen nhat ahn")).first().isEqualTo(OCEAN_WINTER);
+        assertThat(index.search("zzzz qqqq")).isEmpty();
+    }
+
+    @Test
+    void returnsEmptyWhenDisabledOrNotBuilt() {
+        ProductTrigramIndex notBuilt = index(true);
+        notBuilt.shutdown(); // Không để lần dựng nền chạy sau khi test đã kết thúc
+
+        assertThat(notBuilt.search("dragon river")).isEmpty();
+        assertThat(index(false).search("dragon river")).isEmpty();
+    }
+
+    private ProductTrigramIndex index(boolean enabled) {
+        return new ProductTrigramIndex(productRepository, catalogVersionService, transactionManager,
+                new SimpleMeterRegistry(), enabled, 0.3, 200, 100, 60_000);
+    }
+
+    private static SuggestRow suggestRow(UUID id, String title, String author, String isbn) {
+        SuggestRow row = mock(SuggestRow.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getId()).thenReturn(id);
+        when(row.getTitle()).thenReturn(title);
+        when(row.getAuthor()).thenReturn(author);
+        when(row.getIsbn()).thenReturn(isbn);
+        return row;
+    }
+}
@@ -0,0 +1,99 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.repository.RecentlyViewedRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sản phẩm xem gần đây: ghi nhận lượt xem từ nhiều thread (không query DB), đọc danh sách của một user,
+ * và flush các ring có thay đổi (repository giả, chỉ đo phần serialize + chia batch).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecentlyViewedServiceBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    private UUID[] productIds;
+    private RecentlyViewedService service;
+
+    @Setup
+    public void setUp() {
+        productIds = new UUID[5_000];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = UUID.randomUUID();
+        }
+        service = new RecentlyViewedService(new NoOpRepository(), new SimpleMeterRegistry(), true, 20, 64, 500);
+        for (int i = 0; i < users * 5; i++) {
+            service.recordView(randomUser(), randomProduct());
+        }
+        service.flush();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordView() {
+        service.recordView(randomUser(), randomProduct());
+    }
+
+    @Benchmark
+    public List<UUID> recentlyViewed() {
+        return service.recentlyViewed(randomUser());
+    }
+
+    @Benchmark
+    public int flush() {
+        for (int i = 0; i < 1000; i++) {
+            service.recordView(randomUser(), randomProduct());
+        }
+        return service.flush(); // ~1000 user có thay đổi
+    }
+
+    private Long randomUser() {
+        return (long) ThreadLocalRandom.current().nextInt(users);
+    }
+
+    private UUID randomProduct() {
+        return productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+    }
+
+    private static final class NoOpRepository extends RecentlyViewedRepository {
+
+        private NoOpRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<Long, byte[]> findByUserIdIn(Collection<Long> userIds) {
+            return Map.of();
+        }
+
+        @Override
+        public void batchUpsert(Map<Long, byte[]> productIdsByUser, Instant now) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.michaelcao.bookstore_backend.service;
+
+import com.michaelcao.bookstore_backend.repository.RecentlyViewedRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentlyViewedServiceTest {
+
+    private static final Long USER = 7L;
+
+    private final UUID[] products = IntStream.range(0, 8).mapToObj(i -> UUID.randomUUID()).toArray(UUID[]::new);
+    private final InMemoryRepository repository = new InMemoryRepository();
+    private final RecentlyViewedService service = new RecentlyViewedService(repository, new SimpleMeterRegistry(), true, 4, 1, 500);
+
+    @Test
+    void movesReviewedProductToFrontAndDropsOldestWhenFull() {
+        RecentlyViewedService.ViewRing ring = ring(products[0], products[1], products[2]);
+
+        push(ring, products[0]);
+        assertThat(ring.toList()).containsExactly(products[0], products[2], products[1]);
+        assertThat(push(ring, products[0])).isFalse();
+
+        push(ring, products[3]);
+        push(ring, products[4]);
+        assertThat(ring.toList()).containsExactly(products[4], products[3], products[0], products[2]);
+    }
+
+    @Test
+    void mergesStoredHistoryBehindNewViewsWithoutDuplicates() {
+        RecentlyViewedService.ViewRing ring = ring(products[1], products[0]); // Mới nhất: products[0]
+        byte[] stored = ring(products[3], products[2], products[1]).toBytes(); // Đã lưu: 1, 2, 3
+
+        ring.mergeStored(stored);
+        assertThat(ring.toList()).containsExactly(products[0], products[1], products[2], products[3]);
+
+        // Chỉ gộp một lần; ring đầy thì lượt xem mới đẩy sản phẩm cũ nhất ra
+        ring.mergeStored(ring(products[5]).toBytes());
+        push(ring, products[4]);
+        assertThat(ring.toList()).containsExactly(products[4], products[0], products[1], products[2]);
+    }
+
+    @Test
+    void mergesStoredHistoryOnFirstReadOnly() {
+        repository.rows.put(USER, ring(products[2], products[1]).toBytes());
+        service.recordView(USER, products[0]);
+
+        assertThat(service.recentlyViewed(USER)).containsExactly(products[0], products[1], products[2]);
+        assertThat(service.recentlyViewed(USER)).containsExactly(products[0], products[1], products[2]);
+        assertThat(repository.reads).isEqualTo(1);
+    }
+
+    @Test
+    void flushWritesMergedRingAndRetriesAfterFailure() {
+        repository.rows.put(USER, ring(products[1]).toBytes());
+        service.recordView(USER, products[0]);
+
+        repository.failWrites = true;
+        assertThat(service.flush()).isZero();
+        repository.failWrites = false;
+        assertThat(service.flush()).isEqualTo(1);
+        assertThat(service.flush()).isZero(); // Không còn gì thay đổi
+
+        RecentlyViewedService.ViewRing written = new RecentlyViewedService.ViewRing(USER, 4);
+        written.mergeStored(repository.rows.get(USER));
+        assertThat(written.toList()).containsExactly(products[0], products[1]);
+    }
+
+    // Ring với products theo thứ tự xem (phần tử cuối là mới nhất)
+    private static RecentlyViewedService.ViewRing ring(UUID... viewed) {
+        RecentlyViewedService.ViewRing ring = new RecentlyViewedService.ViewRing(USER, 4);
+        for (UUID productId : viewed) {
+            push(ring, productId);
+        }
+        return ring;
+    }
+
+    private static boolean push(RecentlyViewedService.ViewRing ring, UUID productId) {
+        return ring.push(productId.getMostSignificantBits(), productId.getLeastSignificantBits());
+    }
+
+    private static final class InMemoryRepository extends RecentlyViewedRepository {
+
+        private final Map<Long, byte[]> rows = new HashMap<>();
+        private int reads;
+        private boolean failWrites;
+
+        private InMemoryRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<Long, byte[]> findByUserIdIn(Collection<Long> userIds) {
+            reads++;
+            Map<Long, byte[]> result = new HashMap<>();
+            for (Long userId : userIds) {
+                if (rows.containsKey(userId)) {
+                    result.put(userId, rows.get(userId));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void batchUpsert(Map<Long, byte[]> productIdsByUser, Instant now) {
+            if (failWrites) {
+                throw new IllegalStateException("database unavailable");
+            }
+            rows.putAll(productIdsByUser);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.dto.cart.CartDTO;
+import com.michaelcao.bookstore_backend.entity.Cart;
+import com.michaelcao.bookstore_backend.entity.CartItem;
+import com.michaelcao.bookstore_backend.entity.Product;
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map Cart -> CartDTO, gồm tính subtotal/tổng tiền bằng BigDecimal cho từng dòng.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartMappingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private CartServiceImpl cartService;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Product> products = BenchmarkFixtures.products(items, BenchmarkFixtures.categories(5), 1, random);
+        cart = new Cart();
+        cart.setId(1L);
+        long itemId = 1;
+        for (Product product : products) {
+            CartItem item = new CartItem();
+            item.setId(itemId++);
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1 + random.nextInt(5));
+            cart.getCartItems().add(item);
+        }
+        cartService = new CartServiceImpl(null, null, null, null, new BusinessMetrics(new SimpleMeterRegistry()), null);
+    }
+
+    @Benchmark
+    public CartDTO mapCartToCartDTO() {
+        return cartService.mapCartToCartDTO(cart);
+    }
+}
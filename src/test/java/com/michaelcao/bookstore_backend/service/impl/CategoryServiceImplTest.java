@@ -0,0 +1,78 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.michaelcao.bookstore_backend.entity.Category;
+import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException;
+import com.michaelcao.bookstore_backend.repository.CategoryRepository;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService;
+import com.michaelcao.bookstore_backend.service.CategorySnapshotService.CategorySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryServiceImplTest {
+
+    private static final Long ID = 3L;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CategorySnapshotService categorySnapshotService;
+    @Mock
+    private CategorySnapshot snapshot;
+    @InjectMocks
+    private CategoryServiceImpl categoryService;
+
+    private final Category category = new Category();
+
+    @BeforeEach
+    void setUp() {
+        category.setId(ID);
+        when(categoryRepository.findById(ID)).thenReturn(Optional.of(category));
+        when(categorySnapshotService.current()).thenReturn(snapshot);
+    }
+
+    @Test
+    void rejectsFromSnapshotWithoutCountingInDatabase() {
+        when(snapshot.getPrimaryProductCount(ID)).thenReturn(2L);
+
+        assertThatThrownBy(() -> categoryService.deleteCategory(ID)).isInstanceOf(OperationNotAllowedException.class);
+        verify(categoryRepository, never()).countProductsByCategoryId(any());
+        verify(categoryRepository, never()).delete(any());
+    }
+
+    @Test
+    void confirmsEmptySnapshotInDatabaseBeforeDeleting() {
+        // Snapshot cũ chưa thấy sản phẩm vừa được gán vào danh mục
+        when(categoryRepository.countProductsByCategoryId(ID)).thenReturn(1L);
+
+        assertThatThrownBy(() -> categoryService.deleteCategory(ID)).isInstanceOf(OperationNotAllowedException.class);
+        verify(categoryRepository, never()).delete(any());
+        verify(catalogVersionService, never()).markCategoriesChanged();
+    }
+
+    @Test
+    void deletesCategoryWithoutProducts() {
+        when(categoryRepository.countProductsByCategoryId(ID)).thenReturn(0L);
+
+        categoryService.deleteCategory(ID);
+
+        verify(categoryRepository).delete(category);
+        verify(catalogVersionService).markCategoriesChanged();
+        verify(categorySnapshotService).invalidate();
+    }
+}
@@ -0,0 +1,241 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.michaelcao.bookstore_backend.dto.order.BulkOrderStatusResultDTO;
+import com.michaelcao.bookstore_backend.dto.order.BulkOrderStatusResultDTO.Outcome;
+import com.michaelcao.bookstore_backend.dto.order.BulkUpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.dto.order.OrderDTO;
+import com.michaelcao.bookstore_backend.dto.order.UpdateOrderStatusRequest;
+import com.michaelcao.bookstore_backend.entity.Order;
+import com.michaelcao.bookstore_backend.entity.OrderStatus;
+import com.michaelcao.bookstore_backend.entity.User;
+import com.michaelcao.bookstore_backend.event.DomainEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusBatchChangedEvent;
+import com.michaelcao.bookstore_backend.event.OrderStatusChangedEvent;
+import com.michaelcao.bookstore_backend.exception.OperationNotAllowedException;
+import com.michaelcao.bookstore_backend.repository.OrderExpiryRepository;
+import com.michaelcao.bookstore_backend.repository.OrderRepository;
+import com.michaelcao.bookstore_backend.repository.OrderRepository.OrderStatusView;
+import com.michaelcao.bookstore_backend.repository.ProductBulkRepository;
+import com.michaelcao.bookstore_backend.service.CatalogVersionService;
+import com.michaelcao.bookstore_backend.service.DomainEventPublisher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceImplTest {
+
+    private static final UUID PENDING_1 = UUID.randomUUID();
+    private static final UUID PENDING_2 = UUID.randomUUID();
+    private static final UUID PROCESSING = UUID.randomUUID();
+    private static final UUID SHIPPED = UUID.randomUUID();
+    private static final UUID CANCELLED = UUID.randomUUID();
+    private static final UUID MISSING = UUID.randomUUID();
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private OrderExpiryRepository orderExpiryRepository;
+    @Mock
+    private DomainEventPublisher domainEventPublisher;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    @Test
+    void bulkCancelReportsOutcomePerOrderAndRestoresStockOfUpdatedOrdersOnly() {
+        when(orderRepository.lockStatusesByIdIn(anyCollection())).thenReturn(List.of(
+                view(PENDING_1, OrderStatus.PENDING), view(PENDING_2, OrderStatus.PENDING),
+                view(PROCESSING, OrderStatus.PROCESSING), view(SHIPPED, OrderStatus.SHIPPED),
+                view(CANCELLED, OrderStatus.CANCELLED)));
+        when(orderRepository.updateStatusWhereIdInAndStatusIn(anyCollection(), anyCollection(), eq(OrderStatus.CANCELLED)))
+                .thenReturn(3);
+
+        BulkOrderStatusResultDTO result = orderService.bulkUpdateOrderStatus(
+                request(OrderStatus.CANCELLED, PENDING_1, SHIPPED, MISSING, PENDING_2, CANCELLED, PROCESSING, PENDING_1));
+
+        assertThat(result.getRequested()).isEqualTo(6);
+        assertThat(result.getUpdated()).isEqualTo(3);
+        assertThat(result.getResults()).extracting(
+                BulkOrderStatusResultDTO.OrderResult::getOrderId,
+                BulkOrderStatusResultDTO.OrderResult::getOutcome,
+                BulkOrderStatusResultDTO.OrderResult::getPreviousStatus).containsExactly(
+                tuple(PENDING_1, Outcome.UPDATED, OrderStatus.PENDING),
+                tuple(SHIPPED, Outcome.INVALID_TRANSITION, OrderStatus.SHIPPED),
+                tuple(MISSING, Outcome.NOT_FOUND, null),
+                tuple(PENDING_2, Outcome.UPDATED, OrderStatus.PENDING),
+                tuple(CANCELLED, Outcome.UNCHANGED, OrderStatus.CANCELLED),
+                tuple(PROCESSING, Outcome.UPDATED, OrderStatus.PROCESSING));
+
+        // Một UPDATE cho mọi đơn hợp lệ, chỉ với các trạng thái nguồn hợp lệ
+        ArgumentCaptor<Collection<UUID>> updatedIds = captor();
+        ArgumentCaptor<Collection<OrderStatus>> sources = captor();
+        verify(orderRepository).updateStatusWhereIdInAndStatusIn(updatedIds.capture(), sources.capture(), eq(OrderStatus.CANCELLED));
+        assertThat(updatedIds.getValue()).containsExactlyInAnyOrder(PENDING_1, PENDING_2, PROCESSING);
+        assertThat(sources.getValue()).containsExactlyInAnyOrderElementsOf(OrderStatus.allowedSourcesFor(OrderStatus.CANCELLED));
+
+        ArgumentCaptor<List<byte[]>> restored = captor();
+        verify(orderExpiryRepository).restoreStock(restored.capture(), any(Instant.class));
+        assertThat(restored.getValue()).extracting(ProductBulkRepository::fromBytes)
+                .containsExactlyInAnyOrder(PENDING_1, PENDING_2, PROCESSING);
+        verify(catalogVersionService).markProductsChanged();
+
+        // Một event cho mỗi trạng thái nguồn
+        assertThat(publishedEvents(2)).extracting(
+                event -> ((OrderStatusBatchChangedEvent) event).getOldStatus(),
+                event -> ((OrderStatusBatchChangedEvent) event).getOrderIds(),
+                event -> ((OrderStatusBatchChangedEvent) event).isStockRestored()).containsExactlyInAnyOrder(
+                tuple(OrderStatus.PENDING, List.of(PENDING_1, PENDING_2), true),
+                tuple(OrderStatus.PROCESSING, List.of(PROCESSING), true));
+    }
+
+    @Test
+    void bulkShipDoesNotRestoreStock() {
+        when(orderRepository.lockStatusesByIdIn(anyCollection())).thenReturn(List.of(view(PROCESSING, OrderStatus.PROCESSING)));
+        when(orderRepository.updateStatusWhereIdInAndStatusIn(anyCollection(), anyCollection(), eq(OrderStatus.SHIPPED)))
+                .thenReturn(1);
+
+        BulkOrderStatusResultDTO result = orderService.bulkUpdateOrderStatus(request(OrderStatus.SHIPPED, PROCESSING));
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        verify(orderExpiryRepository, never()).restoreStock(anyList(), any());
+        verify(catalogVersionService, never()).markProductsChanged();
+        assertThat(publishedEvents(1)).singleElement()
+                .satisfies(event -> assertThat(((OrderStatusBatchChangedEvent) event).isStockRestored()).isFalse());
+    }
+
+    @Test
+    void bulkWithoutEligibleOrdersWritesNothing() {
+        when(orderRepository.lockStatusesByIdIn(anyCollection())).thenReturn(List.of(
+                view(SHIPPED, OrderStatus.SHIPPED), view(CANCELLED, OrderStatus.CANCELLED)));
+
+        BulkOrderStatusResultDTO result = orderService.bulkUpdateOrderStatus(request(OrderStatus.CANCELLED, SHIPPED, CANCELLED, MISSING));
+
+        assertThat(result.getUpdated()).isZero();
+        assertThat(result.getResults()).extracting(BulkOrderStatusResultDTO.OrderResult::getOutcome)
+                .containsExactly(Outcome.INVALID_TRANSITION, Outcome.UNCHANGED, Outcome.NOT_FOUND);
+        verify(orderRepository, never()).updateStatusWhereIdInAndStatusIn(anyCollection(), anyCollection(), any());
+        verify(orderExpiryRepository, never()).restoreStock(anyList(), any());
+        verify(catalogVersionService, never()).markProductsChanged();
+        verify(domainEventPublisher, never()).publish(any());
+    }
+
+    @Test
+    void bulkFailsWhenLockedOrdersWereNotAllUpdated() {
+        when(orderRepository.lockStatusesByIdIn(anyCollection())).thenReturn(List.of(
+                view(PENDING_1, OrderStatus.PENDING), view(PENDING_2, OrderStatus.PENDING)));
+        when(orderRepository.updateStatusWhereIdInAndStatusIn(anyCollection(), anyCollection(), eq(OrderStatus.CANCELLED)))
+                .thenReturn(1);
+
+        assertThatThrownBy(() -> orderService.bulkUpdateOrderStatus(request(OrderStatus.CANCELLED, PENDING_1, PENDING_2)))
+                .isInstanceOf(IllegalStateException.class);
+        verify(orderExpiryRepository, never()).restoreStock(anyList(), any());
+        verify(catalogVersionService, never()).markProductsChanged();
+        verify(domainEventPublisher, never()).publish(any());
+    }
+
+    @Test
+    void adminCancelRestoresStock() {
+        when(orderRepository.findByIdWithDetails(PROCESSING)).thenReturn(Optional.of(order(PROCESSING, OrderStatus.PROCESSING)));
+        when(orderRepository.updateStatusIfCurrent(PROCESSING, OrderStatus.PROCESSING, OrderStatus.CANCELLED)).thenReturn(1);
+
+        OrderDTO dto = orderService.updateOrderStatus(PROCESSING, statusRequest(OrderStatus.CANCELLED));
+
+        assertThat(dto.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        ArgumentCaptor<List<byte[]>> restored = captor();
+        verify(orderExpiryRepository).restoreStock(restored.capture(), any(Instant.class));
+        assertThat(restored.getValue()).extracting(ProductBulkRepository::fromBytes).containsExactly(PROCESSING);
+        verify(catalogVersionService).markProductsChanged();
+        assertThat(publishedEvents(1)).singleElement()
+                .satisfies(event -> assertThat(((OrderStatusChangedEvent) event).isStockRestored()).isTrue());
+    }
+
+    @Test
+    void adminCancelLosingConcurrentUpdateDoesNotRestoreStock() {
+        when(orderRepository.findByIdWithDetails(PROCESSING)).thenReturn(Optional.of(order(PROCESSING, OrderStatus.PROCESSING)));
+        when(orderRepository.updateStatusIfCurrent(PROCESSING, OrderStatus.PROCESSING, OrderStatus.CANCELLED)).thenReturn(0);
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(PROCESSING, statusRequest(OrderStatus.CANCELLED)))
+                .isInstanceOf(OperationNotAllowedException.class);
+        verify(orderExpiryRepository, never()).restoreStock(anyList(), any());
+        verify(catalogVersionService, never()).markProductsChanged();
+        verify(domainEventPublisher, never()).publish(any());
+    }
+
+    private List<DomainEvent> publishedEvents(int count) {
+        ArgumentCaptor<DomainEvent> events = ArgumentCaptor.forClass(DomainEvent.class);
+        verify(domainEventPublisher, times(count)).publish(events.capture());
+        return events.getAllValues();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ArgumentCaptor<T> captor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Object.class);
+    }
+
+    private static BulkUpdateOrderStatusRequest request(OrderStatus target, UUID... orderIds) {
+        BulkUpdateOrderStatusRequest request = new BulkUpdateOrderStatusRequest();
+        request.setStatus(target);
+        request.setOrderIds(new ArrayList<>(Arrays.asList(orderIds)));
+        return request;
+    }
+
+    private static UpdateOrderStatusRequest statusRequest(OrderStatus target) {
+        UpdateOrderStatusRequest request = new UpdateOrderStatusRequest();
+        request.setStatus(target);
+        return request;
+    }
+
+    private static Order order(UUID id, OrderStatus status) {
+        User user = new User();
+        user.setId(1L);
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setUser(user);
+        return order;
+    }
+
+    private static OrderStatusView view(UUID id, OrderStatus status) {
+        return new OrderStatusView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public OrderStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getUserId() {
+                return 1L;
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.michaelcao.bookstore_backend.service.impl;
+
+import com.michaelcao.bookstore_backend.benchmark.BenchmarkFixtures;
+import com.michaelcao.bookstore_backend.dto.product.ProductDTO;
+import com.michaelcao.bookstore_backend.entity.Category;
+import com.michaelcao.bookstore_backend.entity.Product;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository;
+import com.michaelcao.bookstore_backend.repository.ReviewRepository.ReviewStats;
+import com.michaelcao.bookstore_backend.service.BusinessMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map Product -> ProductDTO: một sản phẩm (trang chi tiết) và một trang kèm review stats (trang danh sách).
+ * Review stats lấy từ repository stub nên chỉ đo phần map, gom stats theo ID và tra snapshot danh mục.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductMappingBenchmark {
+
+    @Param({"12", "48"})
+    private int pageSize;
+
+    @Param({"1", "3"})
+    private int categoriesPerProduct;
+
+    private ProductServiceImpl productService;
+    private Product product;
+    private ReviewStats stats;
+    private Page<Product> page;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Category> categories = BenchmarkFixtures.categories(50);
+        List<Product> products = BenchmarkFixtures.products(pageSize, categories, categoriesPerProduct, random);
+
+        // Khoảng 80% sản phẩm có review, giống dữ liệu thật (sản phẩm mới thường chưa có review)
+        List<ReviewStats> reviewStats = new ArrayList<>();
+        for (Product p : products) {
+            if (random.nextInt(10) < 8) {
+                reviewStats.add(BenchmarkFixtures.reviewStats(p.getId(), 1 + random.nextDouble() * 4, 1 + random.nextInt(200)));
+            }
+        }
+        ReviewRepository reviewRepository = BenchmarkFixtures.stub(ReviewRepository.class,
+                Map.of("findReviewStatsByProductIdsProjection", reviewStats));
+
+        productService = new ProductServiceImpl(null, null, reviewRepository, null, null,
+                BenchmarkFixtures.categorySnapshotService(categories), null, new BusinessMetrics(new SimpleMeterRegistry()), null, null, null, null, null);
+        product = products.get(0);
+        stats = BenchmarkFixtures.reviewStats(product.getId(), 4.26, 37);
+        page = new PageImpl<>(products, PageRequest.of(0, pageSize), 5_000);
+    }
+
+    @Benchmark
+    public ProductDTO mapToProductDTO() {
+        return productService.mapToProductDTO(product, stats);
+    }
+
+    @Benchmark
+    public Page<ProductDTO> mapProductPageToDtoWithStats() {
+        return productService.mapProductPageToDtoWithStats(page);
+    }
+}